@@ -0,0 +1,118 @@
+#!/usr/bin/env node
+// Closed-loop load test for comparing the servlet (8080) and reactive (8081) APIs.
+//
+//   node scripts/load-benchmark.js [base-url] [connections] [seconds] [pid]
+//
+// Each connection is a keep-alive socket that sends one request, waits for the response and
+// sends the next, over a fixed mix of customer and order reads. Prints throughput, latency
+// percentiles and status counts. With a pid, also prints the server's RSS and thread count
+// before the run, with all connections open, and after the run.
+import http from 'node:http';
+import fs from 'node:fs';
+
+const base = new URL(process.argv[2] || 'http://localhost:8081');
+const connections = parseInt(process.argv[3] || '64', 10);
+const seconds = parseFloat(process.argv[4] || '20');
+const pid = process.argv[5];
+
+const MAX_USER = 100000;
+const MAX_ORDER = 300000;
+
+// Mostly lookups, as the API sees them, with some list pages and summaries
+const MIX = [
+    [40, () => `/api/customers/${randomInt(MAX_USER)}`],
+    [20, () => `/api/customers/${randomInt(MAX_USER)}/orders?size=10`],
+    [15, () => `/api/orders/${randomInt(MAX_ORDER)}`],
+    [10, () => `/api/customers/${randomInt(MAX_USER)}/summary`],
+    [10, () => `/api/orders?size=20`],
+    [5, () => `/api/customers?page=${randomInt(100) - 1}&size=20`],
+];
+const MIX_TOTAL = MIX.reduce((sum, [weight]) => sum + weight, 0);
+
+function randomInt(max) {
+    return 1 + Math.floor(Math.random() * max);
+}
+
+function nextPath() {
+    let pick = Math.random() * MIX_TOTAL;
+    for (const [weight, path] of MIX) {
+        pick -= weight;
+        if (pick < 0) {
+            return path();
+        }
+    }
+    return MIX[0][1]();
+}
+
+function processStats() {
+    if (!pid) {
+        return null;
+    }
+    const status = fs.readFileSync(`/proc/${pid}/status`, 'utf8');
+    const field = (name) => parseInt(status.match(new RegExp(`^${name}:\\s+(\\d+)`, 'm'))[1], 10);
+    return { rssMb: field('VmRSS') / 1024, threads: field('Threads') };
+}
+
+function printStats(label, stats) {
+    if (stats) {
+        console.log(`${label.padEnd(18)} rss ${stats.rssMb.toFixed(1)} MB, ${stats.threads} threads`);
+    }
+}
+
+const agent = new http.Agent({ keepAlive: true, maxSockets: connections, maxFreeSockets: connections });
+const latencies = [];
+const statuses = {};
+let errors = 0;
+let running = true;
+
+function request(path) {
+    return new Promise((resolve) => {
+        const start = process.hrtime.bigint();
+        const req = http.get({ host: base.hostname, port: base.port, path, agent }, (res) => {
+            res.on('data', () => {});
+            res.on('end', () => {
+                latencies.push(Number(process.hrtime.bigint() - start) / 1e6);
+                statuses[res.statusCode] = (statuses[res.statusCode] || 0) + 1;
+                resolve();
+            });
+        });
+        req.on('error', () => {
+            errors++;
+            resolve();
+        });
+    });
+}
+
+async function worker() {
+    while (running) {
+        await request(nextPath());
+    }
+}
+
+function percentile(sorted, p) {
+    return sorted.length ? sorted[Math.min(sorted.length - 1, Math.floor(p * sorted.length))] : 0;
+}
+
+async function main() {
+    printStats('before', processStats());
+
+    // Open every connection before measuring, so the run is not skewed by connection setup
+    await Promise.all(Array.from({ length: connections }, () => request('/api/customers/count')));
+    latencies.length = 0;
+    printStats('connections open', processStats());
+
+    const start = Date.now();
+    setTimeout(() => { running = false; }, seconds * 1000);
+    await Promise.all(Array.from({ length: connections }, worker));
+    const elapsed = (Date.now() - start) / 1000;
+
+    latencies.sort((a, b) => a - b);
+    console.log(`${base.origin}  ${connections} connections, ${elapsed.toFixed(1)} s`);
+    console.log(`throughput ${(latencies.length / elapsed).toFixed(0)} req/s, ${errors} errors, status ${JSON.stringify(statuses)}`);
+    console.log(`latency ms p50 ${percentile(latencies, 0.5).toFixed(1)}  p90 ${percentile(latencies, 0.9).toFixed(1)}  ` +
+        `p99 ${percentile(latencies, 0.99).toFixed(1)}  max ${latencies[latencies.length - 1].toFixed(1)}`);
+    printStats('after', processStats());
+    agent.destroy();
+}
+
+await main();
@@ -0,0 +1,12 @@
+package com.think41.customerapi.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveCustomerApiApplication {
+    
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveCustomerApiApplication.class, args);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.think41.customerapi.reactive.controller;
+
+import com.think41.customerapi.dto.CustomerFilter;
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.CustomerSummaryResponse;
+import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.reactive.service.CustomerService;
+import com.think41.customerapi.reactive.service.CustomerSummaryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+
+@RestController
+@RequestMapping("/api/customers")
+@CrossOrigin(origins = "http://localhost:5173")
+public class CustomerController {
+    
+    @Autowired
+    private CustomerService customerService;
+    
+    @Autowired
+    private CustomerSummaryService customerSummaryService;
+    
+    /**
+     * Get a page of customers matching the filter, with their order counts
+     * GET /api/customers?page=&size=&search=&country=&...&sort=&direction=
+     */
+    @GetMapping
+    public Mono<PagedResponse<CustomerResponse>> getAllCustomers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String gender,
+            @RequestParam(name = "min_age", required = false) Integer minAge,
+            @RequestParam(name = "max_age", required = false) Integer maxAge,
+            @RequestParam(name = "traffic_source", required = false) String trafficSource,
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        
+        // Validate pagination parameters
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("Page size must be between 1 and 100");
+        }
+        
+        CustomerFilter filter = toFilter(search, country, state, gender, minAge, maxAge, trafficSource,
+                createdFrom, createdTo, sort, direction);
+        return customerService.getAllCustomers(filter, page, size);
+    }
+    
+    /**
+     * Stream every customer matching the filter as newline-delimited JSON, read from the
+     * database only as fast as the client takes it
+     * GET /api/customers/export?search=&country=&...&sort=&direction=
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerResponse> exportCustomers(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String gender,
+            @RequestParam(name = "min_age", required = false) Integer minAge,
+            @RequestParam(name = "max_age", required = false) Integer maxAge,
+            @RequestParam(name = "traffic_source", required = false) String trafficSource,
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction) {
+        
+        CustomerFilter filter = toFilter(search, country, state, gender, minAge, maxAge, trafficSource,
+                createdFrom, createdTo, sort, direction);
+        return customerService.exportCustomers(filter);
+    }
+    
+    /**
+     * Get a customer by ID with their order count
+     * GET /api/customers/{id}
+     */
+    @GetMapping("/{id}")
+    public Mono<CustomerResponse> getCustomerById(@PathVariable Integer id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Customer ID must be a positive integer");
+        }
+        
+        return customerService.getCustomerById(id);
+    }
+    
+    /**
+     * Get a customer with their most recent orders, per-status counts and lifetime totals
+     * GET /api/customers/{id}/summary?orders_size=
+     */
+    @GetMapping("/{id}/summary")
+    public Mono<CustomerSummaryResponse> getCustomerSummary(
+            @PathVariable Integer id,
+            @RequestParam(name = "orders_size", defaultValue = "5") int ordersSize) {
+        
+        if (id <= 0) {
+            throw new IllegalArgumentException("Customer ID must be a positive integer");
+        }
+        if (ordersSize <= 0 || ordersSize > 100) {
+            throw new IllegalArgumentException("Orders size must be between 1 and 100");
+        }
+        
+        return customerSummaryService.getCustomerSummary(id, ordersSize);
+    }
+    
+    /**
+     * Get the total number of customers
+     * GET /api/customers/count
+     */
+    @GetMapping("/count")
+    public Mono<Long> getTotalCustomerCount() {
+        return customerService.getTotalCustomerCount();
+    }
+    
+    /**
+     * Check if a customer exists
+     * GET /api/customers/{id}/exists
+     */
+    @GetMapping("/{id}/exists")
+    public Mono<Boolean> customerExists(@PathVariable Integer id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Customer ID must be a positive integer");
+        }
+        
+        return customerService.customerExists(id);
+    }
+    
+    private static CustomerFilter toFilter(String search, String country, String state, String gender,
+                                           Integer minAge, Integer maxAge, String trafficSource,
+                                           OffsetDateTime createdFrom, OffsetDateTime createdTo,
+                                           String sort, String direction) {
+        CustomerFilter filter = new CustomerFilter(search, country);
+        filter.setState(state);
+        filter.setGender(gender);
+        filter.setMinAge(minAge);
+        filter.setMaxAge(maxAge);
+        filter.setTrafficSource(trafficSource);
+        filter.setCreatedFrom(createdFrom);
+        filter.setCreatedTo(createdTo);
+        filter.setSort(sort);
+        filter.setDirection(direction);
+        return filter;
+    }
+}
\ No newline at end of file
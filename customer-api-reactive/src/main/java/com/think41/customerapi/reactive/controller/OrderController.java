@@ -0,0 +1,114 @@
+package com.think41.customerapi.reactive.controller;
+
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.OrderFilter;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.reactive.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+
+@RestController
+@RequestMapping("/api")
+@CrossOrigin(origins = "*")
+public class OrderController {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    /**
+     * Get all orders for a specific customer
+     * GET /api/customers/{customerId}/orders
+     */
+    @GetMapping("/customers/{customerId}/orders")
+    public Mono<CustomerOrdersResponse> getOrdersByCustomerId(
+            @PathVariable Integer customerId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        
+        return orderService.getOrdersByCustomerId(customerId, page, size);
+    }
+    
+    /**
+     * Get specific order details for a customer
+     * GET /api/customers/{customerId}/orders/{orderId}
+     */
+    @GetMapping("/customers/{customerId}/orders/{orderId}")
+    public Mono<OrderResponse> getOrderByIdForCustomer(
+            @PathVariable Integer customerId,
+            @PathVariable Integer orderId) {
+        
+        return orderService.getOrderByIdForCustomer(customerId, orderId);
+    }
+    
+    /**
+     * Get order count for a customer
+     * GET /api/customers/{customerId}/orders/count
+     */
+    @GetMapping("/customers/{customerId}/orders/count")
+    public Mono<Long> getOrderCountByCustomerId(@PathVariable Integer customerId) {
+        return orderService.getOrderCountByCustomerId(customerId);
+    }
+    
+    /**
+     * Get orders across all customers, newest first, with keyset paging
+     * GET /api/orders?status=&created_from=&created_to=&shipped=&delivered=&cursor=&size=
+     */
+    @GetMapping("/orders")
+    public Mono<CursorPagedResponse<OrderResponse>> getOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            @RequestParam(required = false) Boolean shipped,
+            @RequestParam(required = false) Boolean delivered,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("Page size must be between 1 and 100");
+        }
+        
+        return orderService.getOrderFeed(toFilter(status, createdFrom, createdTo, shipped, delivered), cursor, size);
+    }
+    
+    /**
+     * Stream every order matching the filter as newline-delimited JSON, newest first, read
+     * from the database only as fast as the client takes it
+     * GET /api/orders/export?status=&created_from=&created_to=&shipped=&delivered=
+     */
+    @GetMapping(value = "/orders/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderResponse> exportOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            @RequestParam(required = false) Boolean shipped,
+            @RequestParam(required = false) Boolean delivered) {
+        
+        return orderService.exportOrders(toFilter(status, createdFrom, createdTo, shipped, delivered));
+    }
+    
+    /**
+     * Get specific order details by order ID (global lookup)
+     * GET /api/orders/{orderId}
+     */
+    @GetMapping("/orders/{orderId}")
+    public Mono<OrderResponse> getOrderById(@PathVariable Integer orderId) {
+        return orderService.getOrderById(orderId);
+    }
+    
+    private static OrderFilter toFilter(String status, OffsetDateTime createdFrom, OffsetDateTime createdTo,
+                                        Boolean shipped, Boolean delivered) {
+        OrderFilter filter = new OrderFilter(status);
+        filter.setCreatedFrom(createdFrom);
+        filter.setCreatedTo(createdTo);
+        filter.setShipped(shipped);
+        filter.setDelivered(delivered);
+        return filter;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.think41.customerapi.reactive.exception;
+
+import com.think41.customerapi.dto.ErrorResponse;
+import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import com.think41.customerapi.exception.OrderNotFoundException;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+/**
+ * The servlet module's error responses, for WebFlux
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+    
+    @ExceptionHandler(CustomerNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleCustomerNotFoundException(
+            CustomerNotFoundException ex, ServerWebExchange exchange) {
+        
+        return error(HttpStatus.NOT_FOUND, "Customer Not Found", ex.getMessage(), exchange);
+    }
+    
+    @ExceptionHandler(OrderNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleOrderNotFoundException(
+            OrderNotFoundException ex, ServerWebExchange exchange) {
+        
+        return error(HttpStatus.NOT_FOUND, "Order Not Found", ex.getMessage(), exchange);
+    }
+    
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<ErrorResponse> handleServerWebInput(
+            ServerWebInputException ex, ServerWebExchange exchange) {
+        
+        MethodParameter parameter = ex.getMethodParameter();
+        if (ex.getCause() instanceof TypeMismatchException mismatch && parameter != null) {
+            String message = String.format("Invalid value '%s' for parameter '%s'. Expected type: %s",
+                    mismatch.getValue(), parameterName(parameter), parameter.getParameterType().getSimpleName());
+            return error(HttpStatus.BAD_REQUEST, "Invalid Parameter", message, exchange);
+        }
+        
+        return error(HttpStatus.BAD_REQUEST, "Invalid Request", ex.getReason(), exchange);
+    }
+    
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponse> handleDeadlineExceeded(
+            DeadlineExceededException ex, ServerWebExchange exchange) {
+        
+        return error(HttpStatus.GATEWAY_TIMEOUT, "Gateway Timeout", ex.getMessage(), exchange);
+    }
+    
+    @ExceptionHandler(NotAcceptableStatusException.class)
+    public ResponseEntity<ErrorResponse> handleNotAcceptable(
+            NotAcceptableStatusException ex, ServerWebExchange exchange) {
+        
+        return error(HttpStatus.NOT_ACCEPTABLE, "Not Acceptable",
+                "This response is not available in the requested format. Supported: " + ex.getSupportedMediaTypes(),
+                exchange);
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgumentException(
+            IllegalArgumentException ex, ServerWebExchange exchange) {
+        
+        return error(HttpStatus.BAD_REQUEST, "Invalid Request", ex.getMessage(), exchange);
+    }
+    
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ErrorResponse> handleResponseStatus(
+            ResponseStatusException ex, ServerWebExchange exchange) {
+        
+        // e.g. no route for the path or method; keep the framework's status
+        HttpStatusCode status = ex.getStatusCode();
+        HttpStatus known = HttpStatus.resolve(status.value());
+        return error(status, known != null ? known.getReasonPhrase() : "Error", ex.getReason(), exchange);
+    }
+    
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGlobalException(
+            Exception ex, ServerWebExchange exchange) {
+        
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error",
+                "An unexpected error occurred. Please try again later.", exchange);
+    }
+    
+    private static ResponseEntity<ErrorResponse> error(HttpStatusCode status, String error, String message,
+                                                       ServerWebExchange exchange) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                error,
+                message,
+                status.value(),
+                exchange.getRequest().getPath().value()
+        );
+        
+        // Explicit content type so requests accepting only application/x-ndjson still get the JSON error
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+    
+    private static String parameterName(MethodParameter parameter) {
+        RequestParam requestParam = parameter.getParameterAnnotation(RequestParam.class);
+        if (requestParam != null && !requestParam.name().isEmpty()) {
+            return requestParam.name();
+        }
+        PathVariable pathVariable = parameter.getParameterAnnotation(PathVariable.class);
+        if (pathVariable != null && !pathVariable.name().isEmpty()) {
+            return pathVariable.name();
+        }
+        return parameter.getParameterName();
+    }
+}
\ No newline at end of file
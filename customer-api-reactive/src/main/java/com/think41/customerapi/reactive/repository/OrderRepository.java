@@ -0,0 +1,145 @@
+package com.think41.customerapi.reactive.repository;
+
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.repository.OrderFeedQuery;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Non-blocking versions of the servlet module's order queries, with the same SQL
+ */
+@Repository
+public class OrderRepository {
+    
+    private static final String ORDER_COLUMNS = "o.order_id, o.user_id, o.status, o.gender, o.created_at, " +
+            "o.returned_at, o.shipped_at, o.delivered_at, o.num_of_item";
+    
+    private static final String SELECT_WITH_USER = "SELECT " + ORDER_COLUMNS + ", " +
+            "u.first_name, u.last_name, u.email " +
+            "FROM orders o " +
+            "JOIN users u ON u.id = o.user_id";
+    
+    // order_keys gives the partition key, so only one partition is searched
+    private static final String BY_ORDER_ID = " WHERE o.order_id = :orderId " +
+            "AND o.created_at = (SELECT k.created_at FROM order_keys k WHERE k.order_id = :orderId)";
+    
+    @Autowired
+    private DatabaseClient databaseClient;
+    
+    /**
+     * One page of a customer's orders, newest first, without the customer columns
+     */
+    public Flux<OrderResponse> findRecentByUserId(Integer userId, Pageable pageable) {
+        return databaseClient.sql("SELECT " + ORDER_COLUMNS + " FROM orders o WHERE o.user_id = :userId " +
+                        "ORDER BY o.created_at DESC OFFSET :offset LIMIT :limit")
+                .bind("userId", userId)
+                .bind("offset", pageable.getOffset())
+                .bind("limit", pageable.getPageSize())
+                .map(row -> toOrderResponse(row, null, null))
+                .all();
+    }
+    
+    /**
+     * A customer's most recent orders, without the customer columns
+     */
+    public Flux<OrderResponse> findRecentByUserId(Integer userId, int limit) {
+        return findRecentByUserId(userId, PageRequest.of(0, limit));
+    }
+    
+    /**
+     * Per-status order count, item count and first and last order time for a customer
+     */
+    public Flux<StatusSummary> findStatusSummaryByUserId(Integer userId) {
+        return databaseClient.sql("SELECT o.status, COUNT(*) AS orders, COALESCE(SUM(o.num_of_item), 0) AS items, " +
+                        "MIN(o.created_at) AS first_at, MAX(o.created_at) AS last_at " +
+                        "FROM orders o WHERE o.user_id = :userId GROUP BY o.status")
+                .bind("userId", userId)
+                .map(row -> new StatusSummary(
+                        row.get("status", String.class),
+                        row.get("orders", Long.class),
+                        row.get("items", Long.class),
+                        row.get("first_at", OffsetDateTime.class),
+                        row.get("last_at", OffsetDateTime.class)))
+                .all();
+    }
+    
+    /**
+     * One page of the order feed; the query carries its own limit
+     */
+    public Flux<OrderResponse> findOrderFeed(OrderFeedQuery query) {
+        return bind(databaseClient.sql(query.getSelectSql()), query.getParameters())
+                .map(OrderRepository::toOrderResponseWithCustomer)
+                .all();
+    }
+    
+    /**
+     * The whole feed for a query, read from the database fetchSize rows at a time as the
+     * subscriber asks for them
+     */
+    public Flux<OrderResponse> streamOrderFeed(OrderFeedQuery query, int fetchSize) {
+        return bind(databaseClient.sql(query.getSelectSql()), query.getParameters())
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(OrderRepository::toOrderResponseWithCustomer)
+                .all();
+    }
+    
+    public Mono<OrderResponse> findOrderWithUserByOrderId(Integer orderId) {
+        return databaseClient.sql(SELECT_WITH_USER + BY_ORDER_ID)
+                .bind("orderId", orderId)
+                .map(OrderRepository::toOrderResponseWithCustomer)
+                .one();
+    }
+    
+    public Mono<Boolean> existsByOrderIdAndUserId(Integer orderId, Integer userId) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM orders o" + BY_ORDER_ID + " AND o.user_id = :userId)")
+                .bind("orderId", orderId)
+                .bind("userId", userId)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+    
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+    
+    private static OrderResponse toOrderResponseWithCustomer(Readable row) {
+        return toOrderResponse(row,
+                row.get("first_name", String.class) + " " + row.get("last_name", String.class),
+                row.get("email", String.class));
+    }
+    
+    private static OrderResponse toOrderResponse(Readable row, String customerName, String customerEmail) {
+        String gender = row.get("gender", String.class);
+        return new OrderResponse(
+                row.get("order_id", Integer.class),
+                row.get("user_id", Integer.class),
+                row.get("status", String.class),
+                gender != null ? gender.trim() : null,
+                row.get("created_at", OffsetDateTime.class),
+                row.get("returned_at", OffsetDateTime.class),
+                row.get("shipped_at", OffsetDateTime.class),
+                row.get("delivered_at", OffsetDateTime.class),
+                row.get("num_of_item", Integer.class),
+                customerName,
+                customerEmail
+        );
+    }
+    
+    /**
+     * One row of findStatusSummaryByUserId
+     */
+    public record StatusSummary(String status, long orders, long items, OffsetDateTime firstAt, OffsetDateTime lastAt) {}
+}
\ No newline at end of file
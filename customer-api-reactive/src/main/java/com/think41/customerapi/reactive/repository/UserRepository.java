@@ -0,0 +1,110 @@
+package com.think41.customerapi.reactive.repository;
+
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.repository.CustomerFilterQuery;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+/**
+ * Non-blocking versions of the servlet module's user queries, with the same SQL
+ */
+@Repository
+public class UserRepository {
+    
+    private static final String SELECT_COLUMNS = "SELECT u.id, u.first_name, u.last_name, u.email, u.age, u.gender, " +
+            "u.state, u.street_address, u.postal_code, u.city, u.country, u.latitude, u.longitude, " +
+            "u.traffic_source, u.created_at, " +
+            "(SELECT COUNT(*) FROM order_keys k WHERE k.user_id = u.id) AS order_count " +
+            "FROM users u";
+    
+    @Autowired
+    private DatabaseClient databaseClient;
+    
+    /**
+     * One page of customers matching the filter, with their order counts
+     */
+    public Flux<CustomerResponse> findUsersWithOrderCount(CustomerFilterQuery query, Pageable pageable) {
+        return bind(databaseClient.sql(query.getSelectSql() + " OFFSET :offset LIMIT :limit"), query.getParameters())
+                .bind("offset", pageable.getOffset())
+                .bind("limit", pageable.getPageSize())
+                .map(UserRepository::toCustomerResponse)
+                .all();
+    }
+    
+    /**
+     * Every customer matching the filter, read from the database fetchSize rows at a time as
+     * the subscriber asks for them
+     */
+    public Flux<CustomerResponse> streamUsersWithOrderCount(CustomerFilterQuery query, int fetchSize) {
+        return bind(databaseClient.sql(query.getSelectSql()), query.getParameters())
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(UserRepository::toCustomerResponse)
+                .all();
+    }
+    
+    public Mono<Long> countUsers(CustomerFilterQuery query) {
+        return bind(databaseClient.sql(query.getCountSql()), query.getParameters())
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+    
+    public Mono<CustomerResponse> findUserWithOrderCountById(Integer id) {
+        return databaseClient.sql(SELECT_COLUMNS + " WHERE u.id = :id")
+                .bind("id", id)
+                .map(UserRepository::toCustomerResponse)
+                .one();
+    }
+    
+    public Mono<Boolean> existsById(Integer id) {
+        return databaseClient.sql("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id)")
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+    
+    public Mono<Long> count() {
+        return databaseClient.sql("SELECT COUNT(*) FROM users")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+    
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec,
+                                                          Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+    
+    private static CustomerResponse toCustomerResponse(Readable row) {
+        String gender = row.get("gender", String.class);
+        Long orderCount = row.get("order_count", Long.class);
+        return new CustomerResponse(
+                row.get("id", Integer.class),
+                row.get("first_name", String.class),
+                row.get("last_name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                gender != null ? gender.trim() : null,
+                row.get("state", String.class),
+                row.get("street_address", String.class),
+                row.get("postal_code", String.class),
+                row.get("city", String.class),
+                row.get("country", String.class),
+                row.get("latitude", BigDecimal.class),
+                row.get("longitude", BigDecimal.class),
+                row.get("traffic_source", String.class),
+                row.get("created_at", OffsetDateTime.class),
+                orderCount != null ? orderCount : 0L
+        );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.think41.customerapi.reactive.service;
+
+import com.think41.customerapi.dto.CustomerFilter;
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.reactive.repository.UserRepository;
+import com.think41.customerapi.repository.CustomerFilterQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+public class CustomerService {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${customers.export.fetch-size:500}")
+    private int exportFetchSize;
+    
+    /**
+     * Get all customers matching the filter with pagination
+     */
+    public Mono<PagedResponse<CustomerResponse>> getAllCustomers(CustomerFilter filter, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        CustomerFilterQuery query = CustomerFilterQuery.of(filter);
+        return Pages.of(userRepository.findUsersWithOrderCount(query, pageable).collectList(),
+                pageable, userRepository.countUsers(query));
+    }
+    
+    /**
+     * Every customer matching the filter, in the filter's sort order
+     */
+    public Flux<CustomerResponse> exportCustomers(CustomerFilter filter) {
+        return Flux.defer(() -> userRepository.streamUsersWithOrderCount(CustomerFilterQuery.of(filter), exportFetchSize));
+    }
+    
+    /**
+     * Get customer by ID with order count
+     */
+    public Mono<CustomerResponse> getCustomerById(Integer id) {
+        return userRepository.findUserWithOrderCountById(id)
+                .switchIfEmpty(Mono.error(() -> new CustomerNotFoundException("Customer not found with ID: " + id)));
+    }
+    
+    /**
+     * Check if customer exists
+     */
+    public Mono<Boolean> customerExists(Integer id) {
+        return userRepository.existsById(id);
+    }
+    
+    /**
+     * Get total customer count
+     */
+    public Mono<Long> getTotalCustomerCount() {
+        return userRepository.count();
+    }
+}
\ No newline at end of file
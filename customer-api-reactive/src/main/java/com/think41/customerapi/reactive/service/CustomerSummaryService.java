@@ -0,0 +1,83 @@
+package com.think41.customerapi.reactive.service;
+
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.CustomerSummaryResponse;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.dto.OrderTotals;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import com.think41.customerapi.reactive.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds the customer summary from independent queries run concurrently.
+ *
+ * The three queries are subscribed together and each waits on its own connection rather than
+ * a thread, so there is no executor to size or reject from. A failure of any query (e.g. an
+ * unknown customer) cancels the others; so does the deadline, which fails the request with
+ * DeadlineExceededException.
+ */
+@Service
+public class CustomerSummaryService {
+    
+    @Autowired
+    private CustomerService customerService;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Value("${customers.summary.timeout-ms:2000}")
+    private long timeoutMs;
+    
+    /**
+     * Get a customer with their most recent orders, per-status order counts and lifetime totals
+     */
+    public Mono<CustomerSummaryResponse> getCustomerSummary(Integer id, int ordersSize) {
+        return Mono.zip(
+                        customerService.getCustomerById(id),
+                        orderRepository.findRecentByUserId(id, ordersSize).collectList(),
+                        orderRepository.findStatusSummaryByUserId(id).collectList())
+                .map(results -> buildSummary(results.getT1(), results.getT2(), results.getT3()))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .onErrorMap(TimeoutException.class, ex -> new DeadlineExceededException(
+                        "Customer summary did not complete within " + timeoutMs + " ms", ex));
+    }
+    
+    private static CustomerSummaryResponse buildSummary(CustomerResponse customer, List<OrderResponse> orders,
+                                                        List<OrderRepository.StatusSummary> statusRows) {
+        String customerName = customer.getFirstName() + " " + customer.getLastName();
+        for (OrderResponse order : orders) {
+            order.setCustomerName(customerName);
+            order.setCustomerEmail(customer.getEmail());
+        }
+        
+        Map<String, Long> statusCounts = new TreeMap<>();
+        long orderCount = 0;
+        long itemCount = 0;
+        OffsetDateTime firstOrderAt = null;
+        OffsetDateTime lastOrderAt = null;
+        for (OrderRepository.StatusSummary row : statusRows) {
+            statusCounts.put(row.status(), row.orders());
+            orderCount += row.orders();
+            itemCount += row.items();
+            if (row.firstAt() != null && (firstOrderAt == null || row.firstAt().isBefore(firstOrderAt))) {
+                firstOrderAt = row.firstAt();
+            }
+            if (row.lastAt() != null && (lastOrderAt == null || row.lastAt().isAfter(lastOrderAt))) {
+                lastOrderAt = row.lastAt();
+            }
+        }
+        
+        return new CustomerSummaryResponse(customer, orders, statusCounts,
+                new OrderTotals(orderCount, itemCount, firstOrderAt, lastOrderAt));
+    }
+}
\ No newline at end of file
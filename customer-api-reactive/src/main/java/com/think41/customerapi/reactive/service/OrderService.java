@@ -0,0 +1,135 @@
+package com.think41.customerapi.reactive.service;
+
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.OrderFilter;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.exception.OrderNotFoundException;
+import com.think41.customerapi.reactive.repository.OrderRepository;
+import com.think41.customerapi.reactive.repository.UserRepository;
+import com.think41.customerapi.repository.OrderFeedCursor;
+import com.think41.customerapi.repository.OrderFeedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Service
+public class OrderService {
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${orders.export.fetch-size:500}")
+    private int exportFetchSize;
+    
+    /**
+     * Get all orders for a specific customer with pagination; the customer is given once on the
+     * page rather than on every order
+     */
+    public Mono<CustomerOrdersResponse> getOrdersByCustomerId(Integer customerId, int page, int size) {
+        return Mono.fromSupplier(() -> PageRequest.of(page, size))
+                .flatMap(pageable -> findCustomer(customerId)
+                        // Order columns only, without joining the customer to every row; the
+                        // customer's order_count is the total, so no separate count query runs
+                        .flatMap(customer -> Pages.of(
+                                orderRepository.findRecentByUserId(customerId, pageable).collectList(),
+                                pageable, Mono.just(customer.getOrderCount()))
+                                .map(orders -> toCustomerOrders(orders, customer))));
+    }
+    
+    /**
+     * Get one page of orders across all customers, newest first, continuing after the cursor
+     */
+    public Mono<CursorPagedResponse<OrderResponse>> getOrderFeed(OrderFilter filter, String cursor, int size) {
+        return Mono.defer(() -> {
+            OrderFeedCursor after = cursor != null && !cursor.isBlank() ? OrderFeedCursor.decode(cursor.trim()) : null;
+            
+            // One extra row tells whether another page exists without counting the feed
+            return orderRepository.findOrderFeed(OrderFeedQuery.of(filter, after, size + 1)).collectList();
+        }).map(rows -> {
+            boolean hasMore = rows.size() > size;
+            List<OrderResponse> orders = hasMore ? rows.subList(0, size) : rows;
+            
+            String nextCursor = null;
+            if (hasMore) {
+                OrderResponse last = orders.get(orders.size() - 1);
+                nextCursor = new OrderFeedCursor(last.getCreatedAt().toInstant(), last.getOrderId()).encode();
+            }
+            
+            return new CursorPagedResponse<>(orders, size, nextCursor, hasMore);
+        });
+    }
+    
+    /**
+     * Every order matching the filter, newest first
+     */
+    public Flux<OrderResponse> exportOrders(OrderFilter filter) {
+        // The feed query always has a limit; the largest one leaves the export unbounded
+        return Flux.defer(() -> orderRepository.streamOrderFeed(OrderFeedQuery.of(filter, null, Integer.MAX_VALUE),
+                exportFetchSize));
+    }
+    
+    /**
+     * Get specific order details by order ID
+     */
+    public Mono<OrderResponse> getOrderById(Integer orderId) {
+        return orderRepository.findOrderWithUserByOrderId(orderId)
+                .switchIfEmpty(Mono.error(() -> new OrderNotFoundException("Order not found with ID: " + orderId)));
+    }
+    
+    /**
+     * Get specific order for a customer (validates ownership)
+     */
+    public Mono<OrderResponse> getOrderByIdForCustomer(Integer customerId, Integer orderId) {
+        return requireCustomer(customerId)
+                .then(orderRepository.existsByOrderIdAndUserId(orderId, customerId))
+                .flatMap(owned -> owned
+                        ? getOrderById(orderId)
+                        : Mono.error(new OrderNotFoundException("Order not found with ID: " + orderId + " for customer: " + customerId)));
+    }
+    
+    /**
+     * Get order count for a customer, read with the customer in one query
+     */
+    public Mono<Long> getOrderCountByCustomerId(Integer customerId) {
+        return findCustomer(customerId).map(CustomerResponse::getOrderCount);
+    }
+    
+    private static CustomerOrdersResponse toCustomerOrders(PagedResponse<OrderResponse> orders, CustomerResponse customer) {
+        return new CustomerOrdersResponse(
+                orders.getContent(),
+                orders.getPageNumber(),
+                orders.getPageSize(),
+                orders.getTotalElements(),
+                orders.getTotalPages(),
+                orders.isFirst(),
+                orders.isLast(),
+                customer.getId(),
+                customer.getFirstName() + " " + customer.getLastName(),
+                customer.getEmail()
+        );
+    }
+    
+    private Mono<CustomerResponse> findCustomer(Integer customerId) {
+        return userRepository.findUserWithOrderCountById(customerId)
+                .switchIfEmpty(Mono.error(() -> new CustomerNotFoundException("Customer not found with ID: " + customerId)));
+    }
+    
+    private Mono<Void> requireCustomer(Integer customerId) {
+        return userRepository.existsById(customerId)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>empty()
+                        : Mono.error(new CustomerNotFoundException("Customer not found with ID: " + customerId)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.think41.customerapi.reactive.service;
+
+import com.think41.customerapi.dto.PagedResponse;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Builds PagedResponse from one page of rows, running the count query only when the page
+ * does not already reveal the total (as PageableExecutionUtils does for the servlet module)
+ */
+final class Pages {
+    
+    private Pages() {}
+    
+    static <T> Mono<PagedResponse<T>> of(Mono<List<T>> content, Pageable pageable, Mono<Long> count) {
+        return content.flatMap(rows -> {
+            int size = pageable.getPageSize();
+            if (rows.size() < size && (pageable.getOffset() == 0 || !rows.isEmpty())) {
+                return Mono.just(toResponse(rows, pageable, pageable.getOffset() + rows.size()));
+            }
+            return count.map(total -> toResponse(rows, pageable, total));
+        });
+    }
+    
+    private static <T> PagedResponse<T> toResponse(List<T> rows, Pageable pageable, long total) {
+        int size = pageable.getPageSize();
+        int totalPages = (int) Math.ceil((double) total / size);
+        int page = pageable.getPageNumber();
+        return new PagedResponse<>(rows, page, size, total, totalPages, page == 0, page + 1 >= totalPages);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.think41.customerapi.reactive.controller;
+
+import com.think41.customerapi.dto.CustomerFilter;
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import com.think41.customerapi.reactive.exception.GlobalExceptionHandler;
+import com.think41.customerapi.reactive.service.CustomerService;
+import com.think41.customerapi.reactive.service.CustomerSummaryService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(CustomerController.class)
+@Import(GlobalExceptionHandler.class)
+public class CustomerControllerTest {
+    
+    @Autowired
+    private WebTestClient webTestClient;
+    
+    @MockBean
+    private CustomerService customerService;
+    
+    @MockBean
+    private CustomerSummaryService customerSummaryService;
+    
+    @Test
+    public void testGetAllCustomers_Success() {
+        PagedResponse<CustomerResponse> pagedResponse = new PagedResponse<>(
+                Arrays.asList(customer(1, "John"), customer(2, "Jane")), 0, 20, 2L, 1, true, true);
+        
+        when(customerService.getAllCustomers(any(CustomerFilter.class), anyInt(), anyInt()))
+                .thenReturn(Mono.just(pagedResponse));
+        
+        webTestClient.get().uri("/api/customers?page=0&size=20&country=USA&min_age=18")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.page_size").isEqualTo(20)
+                .jsonPath("$.total_elements").isEqualTo(2);
+        
+        ArgumentCaptor<CustomerFilter> filter = ArgumentCaptor.forClass(CustomerFilter.class);
+        verify(customerService).getAllCustomers(filter.capture(), eq(0), eq(20));
+        assertEquals("USA", filter.getValue().getCountry());
+        assertEquals(18, filter.getValue().getMinAge());
+    }
+    
+    @Test
+    public void testGetAllCustomers_InvalidPageSize() {
+        webTestClient.get().uri("/api/customers?size=101")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid Request")
+                .jsonPath("$.message").isEqualTo("Page size must be between 1 and 100")
+                .jsonPath("$.path").isEqualTo("/api/customers");
+        
+        verify(customerService, never()).getAllCustomers(any(), anyInt(), anyInt());
+    }
+    
+    @Test
+    public void testGetCustomerById_NotFound() {
+        when(customerService.getCustomerById(999))
+                .thenReturn(Mono.error(new CustomerNotFoundException("Customer not found with ID: 999")));
+        
+        webTestClient.get().uri("/api/customers/999")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Customer Not Found")
+                .jsonPath("$.message").isEqualTo("Customer not found with ID: 999");
+    }
+    
+    @Test
+    public void testGetCustomerById_InvalidId() {
+        webTestClient.get().uri("/api/customers/abc")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid Parameter")
+                .jsonPath("$.message").isEqualTo("Invalid value 'abc' for parameter 'id'. Expected type: Integer");
+    }
+    
+    @Test
+    public void testGetCustomerSummary_DeadlineExceeded() {
+        when(customerSummaryService.getCustomerSummary(1, 5))
+                .thenReturn(Mono.error(new DeadlineExceededException("Customer summary did not complete within 2000 ms")));
+        
+        webTestClient.get().uri("/api/customers/1/summary")
+                .exchange()
+                .expectStatus().isEqualTo(504)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Gateway Timeout");
+    }
+    
+    @Test
+    public void testExportCustomers_Ndjson() {
+        when(customerService.exportCustomers(any(CustomerFilter.class)))
+                .thenReturn(Flux.just(customer(1, "John"), customer(2, "Jane")));
+        
+        List<String> lines = webTestClient.get().uri("/api/customers/export?country=USA")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(String.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).contains("\"first_name\":\"Jane\""));
+    }
+    
+    private static CustomerResponse customer(int id, String firstName) {
+        return new CustomerResponse(id, firstName, "Doe", firstName.toLowerCase() + "@example.com",
+                30, "M", "CA", "123 Main St", "12345", "Los Angeles", "USA",
+                new BigDecimal("34.0522"), new BigDecimal("-118.2437"), "Search",
+                OffsetDateTime.now(), 5L);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.think41.customerapi.reactive.controller;
+
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.OrderFilter;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.exception.OrderNotFoundException;
+import com.think41.customerapi.reactive.exception.GlobalExceptionHandler;
+import com.think41.customerapi.reactive.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(OrderController.class)
+@Import(GlobalExceptionHandler.class)
+public class OrderControllerTest {
+    
+    @Autowired
+    private WebTestClient webTestClient;
+    
+    @MockBean
+    private OrderService orderService;
+    
+    @Test
+    public void testGetOrders_Success() {
+        CursorPagedResponse<OrderResponse> page = new CursorPagedResponse<>(
+                List.of(order(2), order(1)), 2, "next", true);
+        
+        when(orderService.getOrderFeed(any(OrderFilter.class), isNull(), eq(2))).thenReturn(Mono.just(page));
+        
+        webTestClient.get().uri("/api/orders?size=2&status=Shipped")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.content[0].order_id").isEqualTo(2)
+                .jsonPath("$.next_cursor").isEqualTo("next")
+                .jsonPath("$.has_more").isEqualTo(true);
+    }
+    
+    @Test
+    public void testGetOrders_InvalidSize() {
+        webTestClient.get().uri("/api/orders?size=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Page size must be between 1 and 100");
+        
+        verify(orderService, never()).getOrderFeed(any(), any(), anyInt());
+    }
+    
+    @Test
+    public void testGetOrderByIdForCustomer_NotFound() {
+        when(orderService.getOrderByIdForCustomer(5, 1))
+                .thenReturn(Mono.error(new OrderNotFoundException("Order not found with ID: 1 for customer: 5")));
+        
+        webTestClient.get().uri("/api/customers/5/orders/1")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Order Not Found")
+                .jsonPath("$.path").isEqualTo("/api/customers/5/orders/1");
+    }
+    
+    @Test
+    public void testGetOrdersByCustomerId_Success() {
+        when(orderService.getOrdersByCustomerId(5, 0, 10))
+                .thenReturn(Mono.just(new CustomerOrdersResponse(List.of(lean(2), lean(1)), 0, 10, 2L, 1,
+                        true, true, 5, "John Doe", "john@example.com")));
+        
+        // The customer is sent once in the envelope, not on every order
+        webTestClient.get().uri("/api/customers/5/orders")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.customer_id").isEqualTo(5)
+                .jsonPath("$.customer_name").isEqualTo("John Doe")
+                .jsonPath("$.customer_email").isEqualTo("john@example.com")
+                .jsonPath("$.total_elements").isEqualTo(2)
+                .jsonPath("$.content[0].order_id").isEqualTo(2)
+                .jsonPath("$.content[0].customer_name").doesNotExist();
+    }
+    
+    @Test
+    public void testExportOrders_InvalidFilter() {
+        when(orderService.exportOrders(any(OrderFilter.class)))
+                .thenReturn(Flux.error(new IllegalArgumentException("Status must be one of: Processing, Shipped, Complete, Cancelled, Returned")));
+        
+        // Rejected before the stream starts, so the error is still a JSON body
+        webTestClient.get().uri("/api/orders/export?status=bogus")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.error").isEqualTo("Invalid Request");
+    }
+    
+    private static OrderResponse order(int orderId) {
+        return new OrderResponse(orderId, 5, "Shipped", "M", OffsetDateTime.now(), null,
+                OffsetDateTime.now(), null, 1, "John Doe", "john@example.com");
+    }
+    
+    private static OrderResponse lean(int orderId) {
+        return new OrderResponse(orderId, 5, "Shipped", "M", OffsetDateTime.now(), null,
+                OffsetDateTime.now(), null, 1);
+    }
+}
\ No newline at end of file
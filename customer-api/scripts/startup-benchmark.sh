@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful request, for each startup mode.
+#
+#   mvn package -Pfast-startup      # builds the AOT classes, target/lib and the CDS archive
+#   scripts/startup-benchmark.sh [runs]
+#
+# Modes:
+#   fat-jar   java -jar <app>-exec.jar (the regular Spring Boot jar)
+#   plain     plain jar + target/lib, no AOT or CDS
+#   aot       plain, with Spring AOT initialization
+#   aot-cds   aot, with the AppCDS archive
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+URL="http://localhost:${PORT}/api/customers/count"
+JAR=$(ls target/customer-api-*.jar | grep -v -- '-exec.jar' | head -1)
+FAT_JAR=$(ls target/customer-api-*-exec.jar | head -1)
+ARCHIVE=target/customer-api.jsa
+
+if [[ ! -f "$ARCHIVE" || ! -d target/lib ]]; then
+    echo "Build with 'mvn package -Pfast-startup' first" >&2
+    exit 1
+fi
+
+now_ms() { date +%s%3N; }
+
+# Prints milliseconds until the first 200 response
+measure() {
+    local start pid elapsed
+    start=$(now_ms)
+    java "$@" --server.port="$PORT" > /dev/null 2>&1 &
+    pid=$!
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "$URL")" == "200" ]]; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Application exited before serving a request" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$elapsed"
+}
+
+run_mode() {
+    local name=$1; shift
+    local times=()
+    for ((i = 0; i < RUNS; i++)); do
+        times+=("$(measure "$@")")
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-8s median %5d ms  min %5d ms  (%s)\n' "$name" \
+        "$(echo "$sorted" | sed -n "$(( (RUNS + 1) / 2 ))p")" \
+        "$(echo "$sorted" | head -1)" "$(echo "${times[*]}")"
+}
+
+run_mode fat-jar -jar "$FAT_JAR"
+run_mode plain -jar "$JAR"
+run_mode aot -Dspring.aot.enabled=true -jar "$JAR"
+run_mode aot-cds -XX:SharedArchiveFile="$ARCHIVE" -Xlog:cds=error -Dspring.aot.enabled=true -jar "$JAR"
@@ -1,12 +1,24 @@
 package com.think41.customerapi;
 
+import jdk.jfr.FlightRecorder;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
 
 @SpringBootApplication
 public class CustomerApiApplication {
-
+    
     public static void main(String[] args) {
-        SpringApplication.run(CustomerApiApplication.class, args);
+        SpringApplication application = new SpringApplication(CustomerApiApplication.class);
+        // With the continuous recording running, Flight Recorder set up after the application's classes
+        // were loaded measured 1.2-2.9 ms slower at p50 than set up before them (see README), so it is
+        // set up here when profiling is on
+        application.addListeners((ApplicationListener<ApplicationEnvironmentPreparedEvent>) event -> {
+            if (event.getEnvironment().getProperty("profiling.enabled", Boolean.class, false)) {
+                FlightRecorder.getFlightRecorder();
+            }
+        });
+        application.run(args);
     }
 }
\ No newline at end of file
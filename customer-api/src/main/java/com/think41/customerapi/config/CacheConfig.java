@@ -0,0 +1,57 @@
+package com.think41.customerapi.config;
+
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Local Caffeine caches (spring.cache.caffeine.spec), kept consistent across instances by
+ * DatabaseChangeListener
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+    
+    public static final String CUSTOMERS = "customers";
+    public static final String ORDERS = "orders";
+    
+    /**
+     * Boot's Caffeine cache manager, with each cache refusing fills that raced an eviction
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new GenerationCheckedCache(super.adaptCaffeineCache(name, cache));
+            }
+        };
+        String spec = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(spec)) {
+            cacheManager.setCacheSpecification(spec);
+        }
+        if (!cacheProperties.getCacheNames().isEmpty()) {
+            cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        }
+        return cacheManager;
+    }
+    
+    /**
+     * Cache metrics for the wrapped caches, which Boot's Caffeine binder does not recognize
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheMeterBinderProvider<GenerationCheckedCache> generationCheckedCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+    }
+}
@@ -29,7 +29,12 @@ public class CorsConfig {
         
         // Allow specific headers
         configuration.setAllowedHeaders(Arrays.asList(
-            "Authorization", "Content-Type", "X-Requested-With", "Accept"
+            "Authorization", "Content-Type", "X-Requested-With", "Accept", "X-API-Key"
+        ));
+        
+        // Let browser clients read the rate limit state (RateLimitInterceptor)
+        configuration.setExposedHeaders(Arrays.asList(
+            "RateLimit-Limit", "RateLimit-Remaining", "RateLimit-Reset", "Retry-After"
         ));
         
         // Allow credentials
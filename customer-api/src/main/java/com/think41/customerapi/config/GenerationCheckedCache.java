@@ -0,0 +1,118 @@
+package com.think41.customerapi.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cache that turns away a value loaded before its key was last evicted.
+ *
+ * A @Cacheable method gets, runs and puts on one thread. A miss remembers the generation of the
+ * key's stripe for that thread; evict and clear bump generations, and put only stores when the
+ * generation is still the one seen at the miss. A load that read a row before a change therefore
+ * cannot refill the entry the change notification just evicted. Generations are striped, so an
+ * evict can also turn away a fill of an unrelated key, which only costs a later reload.
+ *
+ * No lock is taken: an evict bumps the generation before removing the entry, and a put checks the
+ * generation again after storing, removing its value if an evict ran in between (or a newer fill
+ * of the key, which again only costs a reload).
+ */
+public class GenerationCheckedCache implements Cache {
+    
+    private static final int STRIPES = 4096;
+    // Misses a thread may have outstanding, e.g. loads that threw before their put
+    private static final int MAX_PENDING = 16;
+    
+    private final Cache delegate;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicLong clears = new AtomicLong();
+    private final ThreadLocal<Map<Object, Long>> pending = ThreadLocal.withInitial(HashMap::new);
+    
+    public GenerationCheckedCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+    
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+    
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+    
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = delegate.get(key);
+        if (value == null) {
+            remember(key);
+        }
+        return value;
+    }
+    
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        T value = delegate.get(key, type);
+        if (value == null) {
+            remember(key);
+        }
+        return value;
+    }
+    
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+    
+    @Override
+    public void put(Object key, Object value) {
+        Long seen = pending.get().remove(key);
+        if (seen == null) {
+            delegate.put(key, value);
+            return;
+        }
+        if (seen != generation(key)) {
+            return;
+        }
+        delegate.put(key, value);
+        // An evict between the check and the store has already removed the entry, so undo the store
+        if (seen != generation(key)) {
+            delegate.evict(key);
+        }
+    }
+    
+    @Override
+    public void evict(Object key) {
+        generations.incrementAndGet(stripe(key));
+        delegate.evict(key);
+    }
+    
+    @Override
+    public void clear() {
+        clears.incrementAndGet();
+        delegate.clear();
+    }
+    
+    private void remember(Object key) {
+        Map<Object, Long> misses = pending.get();
+        if (misses.size() >= MAX_PENDING) {
+            misses.clear();
+        }
+        misses.put(key, generation(key));
+    }
+    
+    // Both parts only grow, so their sum changes whenever either does
+    private long generation(Object key) {
+        return generations.get(stripe(key)) + clears.get();
+    }
+    
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.think41.customerapi.config;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schemagen.ProtobufSchemaGenerator;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes response DTOs as protobuf, using a schema generated from each DTO's Jackson properties.
+ *
+ * No .proto files or generated classes are involved: field names follow the JSON property names
+ * and field numbers follow Jackson's property order, which every response DTO pins with
+ * @JsonPropertyOrder so that new properties are added at the end and existing numbers never
+ * move. The generated .proto of each response is served by SchemaController for consumers.
+ * Types that protobuf cannot represent, such as maps, are reported as not writable, so those
+ * responses fall back to another accepted format or 406.
+ */
+public class JacksonProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+    
+    private final ObjectMapper objectMapper;
+    private final Map<JavaType, Optional<ProtobufSchema>> schemas = new ConcurrentHashMap<>();
+    
+    public JacksonProtobufHttpMessageConverter(ObjectMapper objectMapper) {
+        super(APPLICATION_PROTOBUF);
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+    
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+    
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return canWrite(mediaType) && schemaFor(type != null ? type : clazz, null).isPresent();
+    }
+    
+    @Override
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        ProtobufSchema schema = schemaFor(type != null ? type : value.getClass(), null)
+                .orElseThrow(() -> new HttpMessageNotWritableException(
+                        "No protobuf schema for " + value.getClass().getName()));
+        objectMapper.writer(schema).writeValue(outputMessage.getBody(), value);
+    }
+    
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+    
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf request bodies are not supported", inputMessage);
+    }
+    
+    /**
+     * The .proto source of the schema responses of type are written with, or empty if protobuf
+     * cannot represent it
+     */
+    public Optional<String> describe(Type type) {
+        return schemaFor(type, null).map(schema -> schema.getSource().toString());
+    }
+    
+    private Optional<ProtobufSchema> schemaFor(Type type, @Nullable Class<?> contextClass) {
+        JavaType javaType;
+        try {
+            javaType = getJavaType(type, contextClass);
+        } catch (IllegalArgumentException ex) {
+            // Not a Java type, such as ResolvableType.NONE for actuator operations without a body
+            return Optional.empty();
+        }
+        return schemas.computeIfAbsent(javaType, this::generateSchema);
+    }
+    
+    private JavaType getJavaType(Type type, @Nullable Class<?> contextClass) {
+        return objectMapper.constructType(GenericTypeResolver.resolveType(type, contextClass));
+    }
+    
+    private Optional<ProtobufSchema> generateSchema(JavaType javaType) {
+        try {
+            ProtobufSchemaGenerator generator = new ProtobufSchemaGenerator();
+            objectMapper.acceptJsonFormatVisitor(javaType, generator);
+            return Optional.of(generator.getGeneratedSchema());
+        } catch (JsonMappingException | RuntimeException ex) {
+            logger.debug("No protobuf schema for " + javaType + ": " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.think41.customerapi.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Compact binary response formats selected by Accept: application/cbor,
+ * application/x-jackson-smile and application/x-protobuf.
+ *
+ * Each mapper comes from the application's Jackson builder, so property names, date handling
+ * and modules match the JSON responses. The converters are appended after JSON, which stays the
+ * default for clients that accept anything.
+ */
+@Configuration
+public class MessageConverterConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+    
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new SmileFactory()).build()));
+        converters.add(new JacksonProtobufHttpMessageConverter(
+                objectMapperBuilders.getObject().factory(new ProtobufFactory()).build()));
+    }
+}
\ No newline at end of file
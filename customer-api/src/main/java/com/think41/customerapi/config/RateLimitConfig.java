@@ -0,0 +1,21 @@
+package com.think41.customerapi.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Applies the per-client rate limit to the API endpoints only, leaving actuator and API docs out
+ */
+@Configuration
+public class RateLimitConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
+    }
+}
\ No newline at end of file
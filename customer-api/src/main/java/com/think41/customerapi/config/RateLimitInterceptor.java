@@ -0,0 +1,131 @@
+package com.think41.customerapi.config;
+
+import com.think41.customerapi.exception.RateLimitExceededException;
+import com.think41.customerapi.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client rate limit for the API, so one busy integration cannot saturate the database.
+ *
+ * Clients are told apart by their API key header when it holds one of the configured keys, and
+ * otherwise by address, so a client cannot get a fresh bucket by sending a new key. Every
+ * request spends tokens from the client's bucket according to what it costs the database:
+ * full exports most, then searches, then paged lists and writes, then lookups by id.
+ * Responses carry RateLimit-Limit, RateLimit-Remaining and RateLimit-Reset; a request the bucket
+ * cannot pay for is answered 429 with Retry-After.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+    
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+    
+    @Value("${ratelimit.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${ratelimit.capacity:300}")
+    private int capacity;
+    
+    @Value("${ratelimit.refill-per-second:100}")
+    private double refillPerSecond;
+    
+    @Value("${ratelimit.max-clients:100000}")
+    private int maxClients;
+    
+    @Value("${ratelimit.api-key-header:X-API-Key}")
+    private String apiKeyHeader;
+    
+    @Value("${ratelimit.api-keys:}")
+    private Set<String> apiKeys;
+    
+    @Value("${ratelimit.cost.lookup:1}")
+    private int lookupCost;
+    
+    @Value("${ratelimit.cost.list:5}")
+    private int listCost;
+    
+    @Value("${ratelimit.cost.search:20}")
+    private int searchCost;
+    
+    @Value("${ratelimit.cost.write:20}")
+    private int writeCost;
+    
+    @Value("${ratelimit.cost.export:100}")
+    private int exportCost;
+    
+    private RateLimiter limiter;
+    private String limitHeader;
+    
+    @PostConstruct
+    public void start() {
+        limiter = new RateLimiter("api", capacity, refillPerSecond, maxClients);
+        if (Math.max(Math.max(lookupCost, listCost), Math.max(Math.max(searchCost, writeCost), exportCost)) > capacity) {
+            throw new IllegalArgumentException("Rate limit costs cannot exceed ratelimit.capacity " + capacity);
+        }
+        limitHeader = String.valueOf(capacity);
+        meterRegistry.ifAvailable(limiter::bindTo);
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // CORS preflights and static resources are not handler methods
+        if (!enabled || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        int cost = costOf(request);
+        RateLimiter.Decision decision = limiter.tryAcquire(clientOf(request), cost);
+        response.setHeader("RateLimit-Limit", limitHeader);
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(toSeconds(decision.resetNanos())));
+        if (!decision.allowed()) {
+            throw new RateLimitExceededException(
+                    "Rate limit exceeded: this request costs " + cost + " tokens and "
+                            + decision.remaining() + " are left",
+                    Math.max(1, toSeconds(decision.retryAfterNanos())));
+        }
+        return true;
+    }
+    
+    /**
+     * Drop the state of clients whose buckets have refilled
+     */
+    @Scheduled(fixedDelayString = "${ratelimit.sweep-interval-ms:60000}")
+    public void evictIdleClients() {
+        limiter.evictIdle();
+    }
+    
+    private int costOf(HttpServletRequest request) {
+        return switch (RequestKind.of(request)) {
+            case LOOKUP -> lookupCost;
+            case LIST -> listCost;
+            case SEARCH -> searchCost;
+            case WRITE -> writeCost;
+            case EXPORT -> exportCost;
+        };
+    }
+    
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+    
+    private static long toSeconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.think41.customerapi.config;
+
+import com.think41.customerapi.util.GovernedDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Holds API requests to their time, row and byte budgets, down to the statements they run.
+ * Off with budgets.enabled=false.
+ */
+@Configuration
+@ConditionalOnProperty(name = "budgets.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestBudgetConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private RequestBudgetInterceptor requestBudgetInterceptor;
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestBudgetInterceptor).addPathPatterns("/api/**");
+    }
+    
+    /**
+     * Ordered, so it runs before SqlLoggingConfig's post processor: the pool is governed first
+     * and statement timings include the SET statement_timeout issued ahead of a statement
+     */
+    @Bean
+    static BeanPostProcessor governedDataSourcePostProcessor(Environment environment) {
+        long toleranceMs = environment.getProperty("budgets.timeout-tolerance-ms", Long.class, 100L);
+        return new OrderedPostProcessor(toleranceMs);
+    }
+    
+    private record OrderedPostProcessor(long toleranceMs) implements BeanPostProcessor, Ordered {
+        
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof GovernedDataSource)) {
+                return new GovernedDataSource(dataSource, toleranceMs);
+            }
+            return bean;
+        }
+        
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.think41.customerapi.config;
+
+import com.think41.customerapi.util.RequestBudget;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Binds a RequestBudget to every API request for GovernedDataSource to enforce.
+ *
+ * The deadline is the client's timeout header, capped at budgets.max-timeout-ms, or else the
+ * default for the kind of request. A client that gives up on a request should send the time it
+ * is prepared to wait: a blocked query cannot notice the connection closing, but it is cancelled
+ * by the database once the header's time is up. Exports stream every row on purpose, so they
+ * have no row or byte limit, and no deadline unless the client asks for one.
+ */
+@Component
+public class RequestBudgetInterceptor implements AsyncHandlerInterceptor {
+    
+    @Value("${budgets.timeout-header:X-Request-Timeout-Ms}")
+    private String timeoutHeader;
+    
+    @Value("${budgets.max-timeout-ms:30000}")
+    private long maxTimeoutMs;
+    
+    @Value("${budgets.timeout-ms.lookup:1000}")
+    private long lookupTimeoutMs;
+    
+    @Value("${budgets.timeout-ms.list:3000}")
+    private long listTimeoutMs;
+    
+    @Value("${budgets.timeout-ms.search:5000}")
+    private long searchTimeoutMs;
+    
+    @Value("${budgets.timeout-ms.write:10000}")
+    private long writeTimeoutMs;
+    
+    @Value("${budgets.timeout-ms.export:0}")
+    private long exportTimeoutMs;
+    
+    @Value("${budgets.max-rows:50000}")
+    private long maxRows;
+    
+    @Value("${budgets.max-bytes:67108864}")
+    private long maxBytes;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RequestKind kind = RequestKind.of(request);
+        long timeoutMs = timeoutOf(request, kind);
+        RequestBudget.bind(kind == RequestKind.EXPORT
+                ? new RequestBudget(timeoutMs, 0, 0)
+                : new RequestBudget(timeoutMs, maxRows, maxBytes));
+        return true;
+    }
+    
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The request thread goes back to the pool while the response is produced elsewhere
+        RequestBudget.bind(null);
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestBudget.bind(null);
+    }
+    
+    private long timeoutOf(HttpServletRequest request, RequestKind kind) {
+        String header = request.getHeader(timeoutHeader);
+        if (header == null || header.isBlank()) {
+            return switch (kind) {
+                case LOOKUP -> lookupTimeoutMs;
+                case LIST -> listTimeoutMs;
+                case SEARCH -> searchTimeoutMs;
+                case WRITE -> writeTimeoutMs;
+                case EXPORT -> exportTimeoutMs;
+            };
+        }
+        long timeoutMs;
+        try {
+            timeoutMs = Long.parseLong(header.trim());
+        } catch (NumberFormatException ex) {
+            timeoutMs = 0;
+        }
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException(timeoutHeader + " must be a positive number of milliseconds");
+        }
+        return Math.min(timeoutMs, maxTimeoutMs);
+    }
+}
\ No newline at end of file
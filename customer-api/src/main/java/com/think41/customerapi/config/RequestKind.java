@@ -0,0 +1,34 @@
+package com.think41.customerapi.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * What an API request asks of the database, which sets its rate limit cost and default deadline
+ */
+public enum RequestKind {
+    LOOKUP, LIST, SEARCH, WRITE, EXPORT;
+    
+    /**
+     * Kind of a request already matched to a handler
+     */
+    public static RequestKind of(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return WRITE;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if ("/api/customers".equals(pattern)) {
+            String search = request.getParameter("search");
+            return search != null && !search.isBlank() ? SEARCH : LIST;
+        }
+        if ("/api/customers/export".equals(pattern) || "/api/orders/export".equals(pattern)) {
+            return EXPORT;
+        }
+        if ("/api/orders".equals(pattern)
+                || "/api/customers/{customerId}/orders".equals(pattern)
+                || "/api/customers/{id}/summary".equals(pattern)) {
+            return LIST;
+        }
+        return LOOKUP;
+    }
+}
\ No newline at end of file
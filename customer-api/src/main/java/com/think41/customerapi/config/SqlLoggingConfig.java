@@ -0,0 +1,38 @@
+package com.think41.customerapi.config;
+
+import com.think41.customerapi.service.SqlStatsService;
+import com.think41.customerapi.util.TimedDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+/**
+ * Times every statement on the application DataSource and hands it to SqlStatsService, in place
+ * of Hibernate's show-sql. Off with sql.enabled=false.
+ */
+@Configuration
+public class SqlLoggingConfig {
+    
+    @Bean
+    static BeanPostProcessor timedDataSourcePostProcessor(Environment environment,
+                                                         ObjectProvider<SqlStatsService> sqlStatsService) {
+        boolean enabled = environment.getProperty("sql.enabled", Boolean.class, true);
+        // Resolved on first use, as post processors are created before ordinary beans
+        Supplier<SqlStatsService> stats = SingletonSupplier.of(sqlStatsService::getObject);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource dataSource && !(bean instanceof TimedDataSource)) {
+                    return new TimedDataSource(dataSource, execution -> stats.get().executed(execution));
+                }
+                return bean;
+            }
+        };
+    }
+}
\ No newline at end of file
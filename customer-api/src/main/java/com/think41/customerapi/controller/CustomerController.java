@@ -1,17 +1,28 @@
 package com.think41.customerapi.controller;
 
+import com.think41.customerapi.dto.CustomerFilter;
 import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.CustomerSummaryResponse;
 import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.service.ColumnarExportService;
 import com.think41.customerapi.service.CustomerService;
+import com.think41.customerapi.service.CustomerSummaryService;
+import com.think41.customerapi.service.HotKeyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.OffsetDateTime;
+
 @RestController
 @RequestMapping("/api/customers")
 @CrossOrigin(origins = "http://localhost:5173")
@@ -21,8 +32,17 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
     
+    @Autowired
+    private CustomerSummaryService customerSummaryService;
+    
+    @Autowired
+    private ColumnarExportService columnarExportService;
+    
+    @Autowired
+    private HotKeyService hotKeyService;
+    
     @GetMapping
-    @Operation(summary = "Get all customers", description = "Retrieve a paginated list of all customers with their order counts")
+    @Operation(summary = "Get all customers", description = "Retrieve a paginated, filtered and sorted list of customers with their order counts. All filters can be combined.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved customers"),
         @ApiResponse(responseCode = "400", description = "Invalid request parameters")
@@ -38,7 +58,34 @@ public class CustomerController {
             @RequestParam(required = false) String search,
             
             @Parameter(description = "Filter by country")
-            @RequestParam(required = false) String country) {
+            @RequestParam(required = false) String country,
+            
+            @Parameter(description = "Filter by state")
+            @RequestParam(required = false) String state,
+            
+            @Parameter(description = "Filter by gender (M or F)")
+            @RequestParam(required = false) String gender,
+            
+            @Parameter(description = "Minimum age (inclusive)")
+            @RequestParam(name = "min_age", required = false) Integer minAge,
+            
+            @Parameter(description = "Maximum age (inclusive)")
+            @RequestParam(name = "max_age", required = false) Integer maxAge,
+            
+            @Parameter(description = "Filter by traffic source")
+            @RequestParam(name = "traffic_source", required = false) String trafficSource,
+            
+            @Parameter(description = "Created at or after (ISO-8601)", example = "2023-01-01T00:00:00Z")
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            
+            @Parameter(description = "Created before (ISO-8601)", example = "2024-01-01T00:00:00Z")
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            
+            @Parameter(description = "Sort field: id, created_at, age, first_name, last_name", example = "id")
+            @RequestParam(required = false) String sort,
+            
+            @Parameter(description = "Sort direction: asc or desc", example = "asc")
+            @RequestParam(required = false) String direction) {
         
         // Validate pagination parameters
         if (page < 0) {
@@ -48,7 +95,19 @@ public class CustomerController {
             throw new IllegalArgumentException("Page size must be between 1 and 100");
         }
         
-        PagedResponse<CustomerResponse> customers = customerService.getAllCustomers(page, size, search, country);
+        CustomerFilter filter = new CustomerFilter(search, country);
+        filter.setState(state);
+        filter.setGender(gender);
+        filter.setMinAge(minAge);
+        filter.setMaxAge(maxAge);
+        filter.setTrafficSource(trafficSource);
+        filter.setCreatedFrom(createdFrom);
+        filter.setCreatedTo(createdTo);
+        filter.setSort(sort);
+        filter.setDirection(direction);
+        
+        hotKeyService.recordSearchTerm(search);
+        PagedResponse<CustomerResponse> customers = customerService.getAllCustomers(filter, page, size);
         return ResponseEntity.ok(customers);
     }
     
@@ -67,10 +126,39 @@ public class CustomerController {
             throw new IllegalArgumentException("Customer ID must be a positive integer");
         }
         
+        hotKeyService.recordCustomer(id);
         CustomerResponse customer = customerService.getCustomerById(id);
         return ResponseEntity.ok(customer);
     }
     
+    @GetMapping("/{id}/summary")
+    @Operation(summary = "Get customer summary", description = "Retrieve a customer with their most recent orders, order counts per status and lifetime order totals in one call")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved customer summary"),
+        @ApiResponse(responseCode = "400", description = "Invalid customer ID or orders size"),
+        @ApiResponse(responseCode = "404", description = "Customer not found"),
+        @ApiResponse(responseCode = "503", description = "Too many summaries in progress"),
+        @ApiResponse(responseCode = "504", description = "Summary did not complete within the deadline")
+    })
+    public ResponseEntity<CustomerSummaryResponse> getCustomerSummary(
+            @Parameter(description = "Customer ID", example = "1")
+            @PathVariable Integer id,
+            
+            @Parameter(description = "Number of recent orders to include", example = "5")
+            @RequestParam(name = "orders_size", defaultValue = "5") int ordersSize) {
+        
+        if (id <= 0) {
+            throw new IllegalArgumentException("Customer ID must be a positive integer");
+        }
+        if (ordersSize <= 0 || ordersSize > 100) {
+            throw new IllegalArgumentException("Orders size must be between 1 and 100");
+        }
+        
+        hotKeyService.recordCustomer(id);
+        CustomerSummaryResponse summary = customerSummaryService.getCustomerSummary(id, ordersSize);
+        return ResponseEntity.ok(summary);
+    }
+    
     @GetMapping("/count")
     @Operation(summary = "Get total customer count", description = "Get the total number of customers in the system")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved customer count")
@@ -79,6 +167,28 @@ public class CustomerController {
         return ResponseEntity.ok(count);
     }
     
+    @GetMapping("/export")
+    @Operation(summary = "Export all customers", description = "Download every customer with their order count as an Apache Arrow IPC stream or a Parquet file")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export written"),
+        @ApiResponse(responseCode = "400", description = "Unknown format"),
+        @ApiResponse(responseCode = "503", description = "Too many exports in progress")
+    })
+    public void exportCustomers(
+            @Parameter(description = "arrow or parquet", example = "parquet")
+            @RequestParam(defaultValue = "parquet") String format,
+            HttpServletResponse response) throws IOException {
+        
+        ColumnarExportService.Format exportFormat = ColumnarExportService.Format.parse(format);
+        ColumnarExportService.Table table = ColumnarExportService.Table.USERS;
+        columnarExportService.export(table, exportFormat, () -> {
+            response.setContentType(exportFormat.getMediaType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + table.fileName(exportFormat) + "\"");
+            return response.getOutputStream();
+        });
+    }
+    
     @GetMapping("/{id}/exists")
     @Operation(summary = "Check if customer exists", description = "Check if a customer exists by their ID")
     @ApiResponses(value = {
@@ -93,6 +203,7 @@ public class CustomerController {
             throw new IllegalArgumentException("Customer ID must be a positive integer");
         }
         
+        hotKeyService.recordCustomer(id);
         boolean exists = customerService.customerExists(id);
         return ResponseEntity.ok(exists);
     }
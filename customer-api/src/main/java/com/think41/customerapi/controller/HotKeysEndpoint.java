@@ -0,0 +1,35 @@
+package com.think41.customerapi.controller;
+
+import com.think41.customerapi.dto.HotKeysResponse;
+import com.think41.customerapi.service.HotKeyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Most requested customer ids, order ids and search terms at /actuator/hotkeys; DELETE starts
+ * them over. Like every actuator endpoint it is only served on the loopback management port,
+ * so API clients cannot reset it.
+ */
+@Component
+@ConditionalOnProperty(name = "hotkeys.enabled", havingValue = "true", matchIfMissing = true)
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+    
+    @Autowired
+    private HotKeyService hotKeyService;
+    
+    @ReadOperation
+    public HotKeysResponse hotKeys(@Nullable Integer limit) {
+        return hotKeyService.getHotKeys(limit != null && limit > 0 ? limit : 20);
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        hotKeyService.reset();
+    }
+}
\ No newline at end of file
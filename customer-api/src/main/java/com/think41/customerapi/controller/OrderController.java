@@ -1,12 +1,33 @@
 package com.think41.customerapi.controller;
 
+import com.think41.customerapi.dto.BulkOrderRequest;
+import com.think41.customerapi.dto.BulkOrderResponse;
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.FulfillmentLatencyResponse;
+import com.think41.customerapi.dto.OrderEventAck;
+import com.think41.customerapi.dto.OrderEventBatch;
+import com.think41.customerapi.dto.OrderFilter;
 import com.think41.customerapi.dto.OrderResponse;
-import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.service.ColumnarExportService;
+import com.think41.customerapi.service.FulfillmentLatencyService;
+import com.think41.customerapi.service.HotKeyService;
+import com.think41.customerapi.service.OrderEventIngestionService;
 import com.think41.customerapi.service.OrderService;
+import com.think41.customerapi.service.OrderStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
@@ -15,20 +36,53 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private FulfillmentLatencyService fulfillmentLatencyService;
+    
+    @Autowired
+    private OrderEventIngestionService orderEventIngestionService;
+    
+    @Autowired
+    private OrderStreamService orderStreamService;
+    
+    @Autowired
+    private ColumnarExportService columnarExportService;
+    
+    @Autowired
+    private HotKeyService hotKeyService;
+    
     /**
      * Get all orders for a specific customer
      * GET /api/customers/{customerId}/orders
      */
     @GetMapping("/customers/{customerId}/orders")
-    public ResponseEntity<PagedResponse<OrderResponse>> getOrdersByCustomerId(
+    public ResponseEntity<CustomerOrdersResponse> getOrdersByCustomerId(
             @PathVariable Integer customerId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
-        PagedResponse<OrderResponse> orders = orderService.getOrdersByCustomerId(customerId, page, size);
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("Page size must be between 1 and 100");
+        }
+        
+        hotKeyService.recordCustomer(customerId);
+        CustomerOrdersResponse orders = orderService.getOrdersByCustomerId(customerId, page, size);
         return ResponseEntity.ok(orders);
     }
     
+    /**
+     * Stream a customer's order inserts and status changes as Server-Sent Events
+     * GET /api/customers/{customerId}/orders/stream
+     */
+    @GetMapping(value = "/customers/{customerId}/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamOrdersByCustomerId(@PathVariable Integer customerId, HttpServletRequest request,
+                                         HttpServletResponse response) throws IOException {
+        orderStreamService.subscribe(customerId, request, response);
+    }
+    
     /**
      * Get specific order details for a customer
      * GET /api/customers/{customerId}/orders/{orderId}
@@ -38,16 +92,67 @@ public class OrderController {
             @PathVariable Integer customerId,
             @PathVariable Integer orderId) {
         
+        hotKeyService.recordCustomer(customerId);
+        hotKeyService.recordOrder(orderId);
         OrderResponse order = orderService.getOrderByIdForCustomer(customerId, orderId);
         return ResponseEntity.ok(order);
     }
     
+    /**
+     * Get orders across all customers, newest first, with keyset paging
+     * GET /api/orders?status=&created_from=&created_to=&shipped=&delivered=&cursor=&size=
+     */
+    @GetMapping("/orders")
+    public ResponseEntity<CursorPagedResponse<OrderResponse>> getOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(name = "created_from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+            @RequestParam(name = "created_to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+            @RequestParam(required = false) Boolean shipped,
+            @RequestParam(required = false) Boolean delivered,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        if (size <= 0 || size > 100) {
+            throw new IllegalArgumentException("Page size must be between 1 and 100");
+        }
+        
+        OrderFilter filter = new OrderFilter(status);
+        filter.setCreatedFrom(createdFrom);
+        filter.setCreatedTo(createdTo);
+        filter.setShipped(shipped);
+        filter.setDelivered(delivered);
+        
+        CursorPagedResponse<OrderResponse> orders = orderService.getOrderFeed(filter, cursor, size);
+        return ResponseEntity.ok(orders);
+    }
+    
+    /**
+     * Insert up to orders.bulk.max-orders orders, reporting rows that could not be inserted
+     * POST /api/orders/bulk
+     */
+    @PostMapping("/orders/bulk")
+    public ResponseEntity<BulkOrderResponse> bulkCreateOrders(@RequestBody BulkOrderRequest request) {
+        BulkOrderResponse response = orderService.bulkCreateOrders(request.getOrders());
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Accept order events for write-behind ingestion; 429 when the buffer is full
+     * POST /api/orders/events
+     */
+    @PostMapping("/orders/events")
+    public ResponseEntity<OrderEventAck> submitOrderEvents(@RequestBody OrderEventBatch batch) {
+        OrderEventAck ack = orderEventIngestionService.submit(batch.getEvents());
+        return ResponseEntity.accepted().body(ack);
+    }
+    
     /**
      * Get specific order details by order ID (global lookup)
      * GET /api/orders/{orderId}
      */
     @GetMapping("/orders/{orderId}")
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable Integer orderId) {
+        hotKeyService.recordOrder(orderId);
         OrderResponse order = orderService.getOrderById(orderId);
         return ResponseEntity.ok(order);
     }
@@ -58,7 +163,41 @@ public class OrderController {
      */
     @GetMapping("/customers/{customerId}/orders/count")
     public ResponseEntity<Long> getOrderCountByCustomerId(@PathVariable Integer customerId) {
+        hotKeyService.recordCustomer(customerId);
         long count = orderService.getOrderCountByCustomerId(customerId);
         return ResponseEntity.ok(count);
     }
+    
+    /**
+     * Get ship, delivery and return latency percentiles
+     * GET /api/orders/latency?group_by=month|status|country
+     */
+    @GetMapping("/orders/latency")
+    public ResponseEntity<FulfillmentLatencyResponse> getFulfillmentLatency(
+            @RequestParam(name = "group_by", defaultValue = "month") String groupBy,
+            @RequestParam(required = false) YearMonth from,
+            @RequestParam(required = false) YearMonth to,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String country) {
+        
+        FulfillmentLatencyResponse latency = fulfillmentLatencyService.getLatencyPercentiles(groupBy, from, to, status, country);
+        return ResponseEntity.ok(latency);
+    }
+    
+    /**
+     * Download every order as an Apache Arrow IPC stream or a Parquet file
+     * GET /api/orders/export?format=arrow|parquet
+     */
+    @GetMapping("/orders/export")
+    public void exportOrders(@RequestParam(defaultValue = "parquet") String format,
+                             HttpServletResponse response) throws IOException {
+        ColumnarExportService.Format exportFormat = ColumnarExportService.Format.parse(format);
+        ColumnarExportService.Table table = ColumnarExportService.Table.ORDERS;
+        columnarExportService.export(table, exportFormat, () -> {
+            response.setContentType(exportFormat.getMediaType());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + table.fileName(exportFormat) + "\"");
+            return response.getOutputStream();
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.think41.customerapi.controller;
+
+import com.think41.customerapi.dto.ProfilingSession;
+import com.think41.customerapi.service.ProfilingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Flight Recorder sessions at /actuator/profiling.
+ *
+ * POST with a profile (cpu, allocation, locks, jdbc) and optional seconds starts one; POST to
+ * /{id} stops it, or dumps the continuous recording; GET /{id} returns its hot-path summary
+ * once stopped and GET /{id}/jfr the recording itself; DELETE /{id} discards it.
+ */
+@Component
+@ConditionalOnProperty(name = "profiling.enabled", havingValue = "true")
+@WebEndpoint(id = "profiling")
+public class ProfilingEndpoint {
+    
+    @Autowired
+    private ProfilingService profilingService;
+    
+    @ReadOperation
+    public List<ProfilingSession> sessions() {
+        return profilingService.getSessions();
+    }
+    
+    @WriteOperation
+    public ProfilingSession start(String profile, @Nullable Integer seconds) {
+        return profilingService.startSession(ProfilingService.Profile.parse(profile), seconds);
+    }
+    
+    @ReadOperation
+    public ProfilingSession session(@Selector String id) {
+        return profilingService.getSession(id);
+    }
+    
+    @WriteOperation
+    public WebEndpointResponse<ProfilingSession> stop(@Selector String id) {
+        ProfilingSession session = profilingService.stopSession(id);
+        return session != null ? new WebEndpointResponse<>(session) : new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+    
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource recording(@Selector String id, @Selector String format) {
+        Path file = "jfr".equals(format) ? profilingService.getFile(id) : null;
+        return file != null ? new FileSystemResource(file) : null;
+    }
+    
+    @DeleteOperation
+    public WebEndpointResponse<Void> delete(@Selector String id) {
+        return new WebEndpointResponse<>(profilingService.deleteSession(id)
+                ? WebEndpointResponse.STATUS_NO_CONTENT : WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+}
\ No newline at end of file
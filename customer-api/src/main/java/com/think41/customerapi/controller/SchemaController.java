@@ -0,0 +1,84 @@
+package com.think41.customerapi.controller;
+
+import com.think41.customerapi.config.JacksonProtobufHttpMessageConverter;
+import com.think41.customerapi.dto.BulkOrderResponse;
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.ErrorResponse;
+import com.think41.customerapi.dto.FulfillmentLatencyResponse;
+import com.think41.customerapi.dto.OrderEventAck;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.dto.PagedResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/schemas")
+@CrossOrigin(origins = "http://localhost:5173")
+@Tag(name = "Schema API", description = "Schemas of the binary response formats")
+public class SchemaController {
+    
+    // Each response type written as application/x-protobuf, by the name its schema is served under
+    static final Map<String, Type> PROTOBUF_TYPES = new LinkedHashMap<>();
+    
+    static {
+        PROTOBUF_TYPES.put("customer", CustomerResponse.class);
+        PROTOBUF_TYPES.put("customer-page", ResolvableType.forClassWithGenerics(PagedResponse.class, CustomerResponse.class).getType());
+        PROTOBUF_TYPES.put("customer-orders", CustomerOrdersResponse.class);
+        PROTOBUF_TYPES.put("order", OrderResponse.class);
+        PROTOBUF_TYPES.put("order-feed", ResolvableType.forClassWithGenerics(CursorPagedResponse.class, OrderResponse.class).getType());
+        PROTOBUF_TYPES.put("bulk-order-result", BulkOrderResponse.class);
+        PROTOBUF_TYPES.put("order-event-ack", OrderEventAck.class);
+        PROTOBUF_TYPES.put("fulfillment-latency", FulfillmentLatencyResponse.class);
+        PROTOBUF_TYPES.put("error", ErrorResponse.class);
+    }
+    
+    // The converters MVC writes responses with; the protobuf one is registered by MessageConverterConfig
+    // rather than as a bean, since Boot would put a converter bean ahead of JSON
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+    
+    @GetMapping("/protobuf")
+    @Operation(summary = "List protobuf schemas", description = "Names of the response types whose protobuf schema can be fetched")
+    public ResponseEntity<Set<String>> listProtobufSchemas() {
+        return ResponseEntity.ok(PROTOBUF_TYPES.keySet());
+    }
+    
+    @GetMapping(value = "/protobuf/{name}", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Operation(summary = "Get a protobuf schema", description = "The .proto definition application/x-protobuf responses of this type are written with")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved schema"),
+        @ApiResponse(responseCode = "404", description = "No response type with this name")
+    })
+    public ResponseEntity<String> getProtobufSchema(
+            @Parameter(description = "Response type name, as listed by /api/schemas/protobuf", required = true)
+            @PathVariable String name) {
+        
+        Type type = PROTOBUF_TYPES.get(name);
+        if (type == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return handlerAdapter.getMessageConverters().stream()
+                .filter(JacksonProtobufHttpMessageConverter.class::isInstance)
+                .map(JacksonProtobufHttpMessageConverter.class::cast)
+                .findFirst()
+                .flatMap(converter -> converter.describe(type))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,33 @@
+package com.think41.customerapi.controller;
+
+import com.think41.customerapi.dto.SqlShapeStats;
+import com.think41.customerapi.service.SqlStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Per-shape SQL statistics at /actuator/sqlstats; DELETE starts them over
+ */
+@Component
+@Endpoint(id = "sqlstats")
+public class SqlStatsEndpoint {
+    
+    @Autowired
+    private SqlStatsService sqlStatsService;
+    
+    @ReadOperation
+    public List<SqlShapeStats> shapes(@Nullable Integer limit) {
+        return sqlStatsService.getShapes(limit != null && limit > 0 ? limit : 50);
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        sqlStatsService.reset();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Why one row of a bulk request was not inserted; index is the row's position in the request
+ */
+@JsonPropertyOrder({"index", "message", "order_id"})
+public class BulkOrderError {
+    
+    private int index;
+    
+    @JsonProperty("order_id")
+    private Integer orderId;
+    
+    private String message;
+    
+    // Constructors
+    public BulkOrderError() {}
+    
+    public BulkOrderError(int index, Integer orderId, String message) {
+        this.index = index;
+        this.orderId = orderId;
+        this.message = message;
+    }
+    
+    // Getters and Setters
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+    
+    public Integer getOrderId() { return orderId; }
+    public void setOrderId(Integer orderId) { this.orderId = orderId; }
+    
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.think41.customerapi.dto;
+
+import java.util.List;
+
+public class BulkOrderRequest {
+    
+    private List<OrderRequest> orders;
+    
+    // Constructors
+    public BulkOrderRequest() {}
+    
+    public BulkOrderRequest(List<OrderRequest> orders) {
+        this.orders = orders;
+    }
+    
+    // Getters and Setters
+    public List<OrderRequest> getOrders() { return orders; }
+    public void setOrders(List<OrderRequest> orders) { this.orders = orders; }
+}
\ No newline at end of file
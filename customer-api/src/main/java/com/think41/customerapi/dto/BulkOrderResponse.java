@@ -0,0 +1,36 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.List;
+
+@JsonPropertyOrder({"received", "inserted", "failed", "errors"})
+public class BulkOrderResponse {
+    
+    private int received;
+    private int inserted;
+    private int failed;
+    private List<BulkOrderError> errors;
+    
+    // Constructors
+    public BulkOrderResponse() {}
+    
+    public BulkOrderResponse(int received, int inserted, List<BulkOrderError> errors) {
+        this.received = received;
+        this.inserted = inserted;
+        this.failed = errors.size();
+        this.errors = errors;
+    }
+    
+    // Getters and Setters
+    public int getReceived() { return received; }
+    public void setReceived(int received) { this.received = received; }
+    
+    public int getInserted() { return inserted; }
+    public void setInserted(int inserted) { this.inserted = inserted; }
+    
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+    
+    public List<BulkOrderError> getErrors() { return errors; }
+    public void setErrors(List<BulkOrderError> errors) { this.errors = errors; }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.List;
+
+/**
+ * A page from a keyset-paged feed; pass next_cursor back as cursor to fetch the following page
+ */
+@JsonPropertyOrder({"content", "page_size", "next_cursor", "has_more"})
+public class CursorPagedResponse<T> {
+    
+    private List<T> content;
+    
+    @JsonProperty("page_size")
+    private int pageSize;
+    
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+    
+    @JsonProperty("has_more")
+    private boolean hasMore;
+    
+    // Constructors
+    public CursorPagedResponse() {}
+    
+    public CursorPagedResponse(List<T> content, int pageSize, String nextCursor, boolean hasMore) {
+        this.content = content;
+        this.pageSize = pageSize;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+    
+    // Getters and Setters
+    public List<T> getContent() { return content; }
+    public void setContent(List<T> content) { this.content = content; }
+    
+    public int getPageSize() { return pageSize; }
+    public void setPageSize(int pageSize) { this.pageSize = pageSize; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
\ No newline at end of file
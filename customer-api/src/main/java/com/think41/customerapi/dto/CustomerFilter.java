@@ -0,0 +1,63 @@
+package com.think41.customerapi.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Optional predicates for customer listing; unset fields are not filtered on
+ */
+public class CustomerFilter {
+    
+    private String search;
+    private String country;
+    private String state;
+    private String gender;
+    private Integer minAge;
+    private Integer maxAge;
+    private String trafficSource;
+    private OffsetDateTime createdFrom;
+    private OffsetDateTime createdTo;
+    private String sort;
+    private String direction;
+    
+    // Constructors
+    public CustomerFilter() {}
+    
+    public CustomerFilter(String search, String country) {
+        this.search = search;
+        this.country = country;
+    }
+    
+    // Getters and Setters
+    public String getSearch() { return search; }
+    public void setSearch(String search) { this.search = search; }
+    
+    public String getCountry() { return country; }
+    public void setCountry(String country) { this.country = country; }
+    
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    
+    public String getGender() { return gender; }
+    public void setGender(String gender) { this.gender = gender; }
+    
+    public Integer getMinAge() { return minAge; }
+    public void setMinAge(Integer minAge) { this.minAge = minAge; }
+    
+    public Integer getMaxAge() { return maxAge; }
+    public void setMaxAge(Integer maxAge) { this.maxAge = maxAge; }
+    
+    public String getTrafficSource() { return trafficSource; }
+    public void setTrafficSource(String trafficSource) { this.trafficSource = trafficSource; }
+    
+    public OffsetDateTime getCreatedFrom() { return createdFrom; }
+    public void setCreatedFrom(OffsetDateTime createdFrom) { this.createdFrom = createdFrom; }
+    
+    public OffsetDateTime getCreatedTo() { return createdTo; }
+    public void setCreatedTo(OffsetDateTime createdTo) { this.createdTo = createdTo; }
+    
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+    
+    public String getDirection() { return direction; }
+    public void setDirection(String direction) { this.direction = direction; }
+}
\ No newline at end of file
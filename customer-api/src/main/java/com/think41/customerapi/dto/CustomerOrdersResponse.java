@@ -0,0 +1,46 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.List;
+
+/**
+ * One page of a customer's orders. Every order belongs to the customer, so the customer's name
+ * and email are given once here rather than on each order.
+ */
+@JsonPropertyOrder({"content", "first", "last", "page_number", "page_size", "total_elements",
+        "total_pages", "is_first", "is_last", "customer_id", "customer_name", "customer_email"})
+public class CustomerOrdersResponse extends PagedResponse<OrderResponse> {
+    
+    @JsonProperty("customer_id")
+    private Integer customerId;
+    
+    @JsonProperty("customer_name")
+    private String customerName;
+    
+    @JsonProperty("customer_email")
+    private String customerEmail;
+    
+    // Constructors
+    public CustomerOrdersResponse() {}
+    
+    public CustomerOrdersResponse(List<OrderResponse> content, int pageNumber, int pageSize,
+                                  long totalElements, int totalPages, boolean isFirst, boolean isLast,
+                                  Integer customerId, String customerName, String customerEmail) {
+        super(content, pageNumber, pageSize, totalElements, totalPages, isFirst, isLast);
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+    }
+    
+    // Getters and Setters
+    public Integer getCustomerId() { return customerId; }
+    public void setCustomerId(Integer customerId) { this.customerId = customerId; }
+    
+    public String getCustomerName() { return customerName; }
+    public void setCustomerName(String customerName) { this.customerName = customerName; }
+    
+    public String getCustomerEmail() { return customerEmail; }
+    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
+}
\ No newline at end of file
@@ -1,9 +1,13 @@
 package com.think41.customerapi.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
+@JsonPropertyOrder({"id", "email", "age", "gender", "state", "city", "country", "latitude",
+        "longitude", "first_name", "last_name", "street_address", "postal_code", "traffic_source",
+        "created_at", "order_count"})
 public class CustomerResponse {
     
     private Integer id;
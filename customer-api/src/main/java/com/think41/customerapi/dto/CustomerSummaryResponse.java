@@ -0,0 +1,45 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A customer with their most recent orders, order counts per status and lifetime totals
+ */
+public class CustomerSummaryResponse {
+    
+    private CustomerResponse customer;
+    
+    @JsonProperty("recent_orders")
+    private List<OrderResponse> recentOrders;
+    
+    @JsonProperty("status_counts")
+    private Map<String, Long> statusCounts;
+    
+    private OrderTotals totals;
+    
+    // Constructors
+    public CustomerSummaryResponse() {}
+    
+    public CustomerSummaryResponse(CustomerResponse customer, List<OrderResponse> recentOrders,
+                                   Map<String, Long> statusCounts, OrderTotals totals) {
+        this.customer = customer;
+        this.recentOrders = recentOrders;
+        this.statusCounts = statusCounts;
+        this.totals = totals;
+    }
+    
+    // Getters and Setters
+    public CustomerResponse getCustomer() { return customer; }
+    public void setCustomer(CustomerResponse customer) { this.customer = customer; }
+    
+    public List<OrderResponse> getRecentOrders() { return recentOrders; }
+    public void setRecentOrders(List<OrderResponse> recentOrders) { this.recentOrders = recentOrders; }
+    
+    public Map<String, Long> getStatusCounts() { return statusCounts; }
+    public void setStatusCounts(Map<String, Long> statusCounts) { this.statusCounts = statusCounts; }
+    
+    public OrderTotals getTotals() { return totals; }
+    public void setTotals(OrderTotals totals) { this.totals = totals; }
+}
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.think41.customerapi.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import java.time.OffsetDateTime;
 
+@JsonPropertyOrder({"error", "message", "status", "path", "timestamp"})
 public class ErrorResponse {
     
     private String error;
@@ -0,0 +1,45 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@JsonPropertyOrder({"groups", "group_by", "orders_indexed", "as_of"})
+public class FulfillmentLatencyResponse {
+    
+    @JsonProperty("group_by")
+    private String groupBy;
+    
+    private List<LatencyGroupResponse> groups;
+    
+    @JsonProperty("orders_indexed")
+    private long ordersIndexed;
+    
+    @JsonProperty("as_of")
+    private OffsetDateTime asOf;
+    
+    // Constructors
+    public FulfillmentLatencyResponse() {}
+    
+    public FulfillmentLatencyResponse(String groupBy, List<LatencyGroupResponse> groups,
+                                      long ordersIndexed, OffsetDateTime asOf) {
+        this.groupBy = groupBy;
+        this.groups = groups;
+        this.ordersIndexed = ordersIndexed;
+        this.asOf = asOf;
+    }
+    
+    // Getters and Setters
+    public String getGroupBy() { return groupBy; }
+    public void setGroupBy(String groupBy) { this.groupBy = groupBy; }
+    
+    public List<LatencyGroupResponse> getGroups() { return groups; }
+    public void setGroups(List<LatencyGroupResponse> groups) { this.groups = groups; }
+    
+    public long getOrdersIndexed() { return ordersIndexed; }
+    public void setOrdersIndexed(long ordersIndexed) { this.ordersIndexed = ordersIndexed; }
+    
+    public OffsetDateTime getAsOf() { return asOf; }
+    public void setAsOf(OffsetDateTime asOf) { this.asOf = asOf; }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.think41.customerapi.dto;
+
+/**
+ * A frequently requested key: its estimated requests in the window and their share of all
+ * requests of its kind. Estimates may be above the true count, never below.
+ */
+public class HotKey {
+    
+    private String key;
+    private long count;
+    private double share;
+    
+    // Constructors
+    public HotKey() {}
+    
+    public HotKey(String key, long count, double share) {
+        this.key = key;
+        this.count = count;
+        this.share = share;
+    }
+    
+    // Getters and Setters
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+    
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    
+    public double getShare() { return share; }
+    public void setShare(double share) { this.share = share; }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.think41.customerapi.dto;
+
+import java.util.List;
+
+/**
+ * Requests of one kind in the window and its hottest keys, most requested first
+ */
+public class HotKeyGroup {
+    
+    private long requests;
+    private List<HotKey> keys;
+    
+    // Constructors
+    public HotKeyGroup() {}
+    
+    public HotKeyGroup(long requests, List<HotKey> keys) {
+        this.requests = requests;
+        this.keys = keys;
+    }
+    
+    // Getters and Setters
+    public long getRequests() { return requests; }
+    public void setRequests(long requests) { this.requests = requests; }
+    
+    public List<HotKey> getKeys() { return keys; }
+    public void setKeys(List<HotKey> keys) { this.keys = keys; }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class HotKeysResponse {
+    
+    @JsonProperty("window_seconds")
+    private long windowSeconds;
+    
+    @JsonProperty("sketch_bytes")
+    private long sketchBytes;
+    
+    private HotKeyGroup customers;
+    private HotKeyGroup orders;
+    
+    @JsonProperty("search_terms")
+    private HotKeyGroup searchTerms;
+    
+    // Constructors
+    public HotKeysResponse() {}
+    
+    public HotKeysResponse(long windowSeconds, long sketchBytes, HotKeyGroup customers,
+                           HotKeyGroup orders, HotKeyGroup searchTerms) {
+        this.windowSeconds = windowSeconds;
+        this.sketchBytes = sketchBytes;
+        this.customers = customers;
+        this.orders = orders;
+        this.searchTerms = searchTerms;
+    }
+    
+    // Getters and Setters
+    public long getWindowSeconds() { return windowSeconds; }
+    public void setWindowSeconds(long windowSeconds) { this.windowSeconds = windowSeconds; }
+    
+    public long getSketchBytes() { return sketchBytes; }
+    public void setSketchBytes(long sketchBytes) { this.sketchBytes = sketchBytes; }
+    
+    public HotKeyGroup getCustomers() { return customers; }
+    public void setCustomers(HotKeyGroup customers) { this.customers = customers; }
+    
+    public HotKeyGroup getOrders() { return orders; }
+    public void setOrders(HotKeyGroup orders) { this.orders = orders; }
+    
+    public HotKeyGroup getSearchTerms() { return searchTerms; }
+    public void setSearchTerms(HotKeyGroup searchTerms) { this.searchTerms = searchTerms; }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+@JsonPropertyOrder({"group", "ship", "delivery", "return"})
+public class LatencyGroupResponse {
+    
+    private String group;
+    
+    @JsonProperty("ship")
+    private LatencyPercentiles ship;
+    
+    @JsonProperty("delivery")
+    private LatencyPercentiles delivery;
+    
+    @JsonProperty("return")
+    private LatencyPercentiles returns;
+    
+    // Constructors
+    public LatencyGroupResponse() {}
+    
+    public LatencyGroupResponse(String group, LatencyPercentiles ship,
+                                LatencyPercentiles delivery, LatencyPercentiles returns) {
+        this.group = group;
+        this.ship = ship;
+        this.delivery = delivery;
+        this.returns = returns;
+    }
+    
+    // Getters and Setters
+    public String getGroup() { return group; }
+    public void setGroup(String group) { this.group = group; }
+    
+    public LatencyPercentiles getShip() { return ship; }
+    public void setShip(LatencyPercentiles ship) { this.ship = ship; }
+    
+    public LatencyPercentiles getDelivery() { return delivery; }
+    public void setDelivery(LatencyPercentiles delivery) { this.delivery = delivery; }
+    
+    public LatencyPercentiles getReturns() { return returns; }
+    public void setReturns(LatencyPercentiles returns) { this.returns = returns; }
+}
\ No newline at end of file
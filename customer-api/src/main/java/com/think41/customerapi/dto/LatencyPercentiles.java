@@ -0,0 +1,42 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+@JsonPropertyOrder({"count", "p50_hours", "p90_hours", "p99_hours"})
+public class LatencyPercentiles {
+    
+    private long count;
+    
+    @JsonProperty("p50_hours")
+    private Double p50Hours;
+    
+    @JsonProperty("p90_hours")
+    private Double p90Hours;
+    
+    @JsonProperty("p99_hours")
+    private Double p99Hours;
+    
+    // Constructors
+    public LatencyPercentiles() {}
+    
+    public LatencyPercentiles(long count, Double p50Hours, Double p90Hours, Double p99Hours) {
+        this.count = count;
+        this.p50Hours = p50Hours;
+        this.p90Hours = p90Hours;
+        this.p99Hours = p99Hours;
+    }
+    
+    // Getters and Setters
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    
+    public Double getP50Hours() { return p50Hours; }
+    public void setP50Hours(Double p50Hours) { this.p50Hours = p50Hours; }
+    
+    public Double getP90Hours() { return p90Hours; }
+    public void setP90Hours(Double p90Hours) { this.p90Hours = p90Hours; }
+    
+    public Double getP99Hours() { return p99Hours; }
+    public void setP99Hours(Double p99Hours) { this.p99Hours = p99Hours; }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.OffsetDateTime;
+
+/**
+ * A new order ("created") or a status change on an existing order ("status_changed").
+ * Status changes only carry order_id, status and whichever lifecycle timestamps changed.
+ */
+public class OrderEvent {
+    
+    public static final String CREATED = "created";
+    public static final String STATUS_CHANGED = "status_changed";
+    
+    private String type;
+    
+    @JsonProperty("order_id")
+    private Integer orderId;
+    
+    @JsonProperty("user_id")
+    private Integer userId;
+    
+    private String status;
+    private String gender;
+    
+    @JsonProperty("created_at")
+    private OffsetDateTime createdAt;
+    
+    @JsonProperty("returned_at")
+    private OffsetDateTime returnedAt;
+    
+    @JsonProperty("shipped_at")
+    private OffsetDateTime shippedAt;
+    
+    @JsonProperty("delivered_at")
+    private OffsetDateTime deliveredAt;
+    
+    @JsonProperty("num_of_item")
+    private Integer numOfItem;
+    
+    // Constructors
+    public OrderEvent() {}
+    
+    public OrderEvent(String type, Integer orderId, String status) {
+        this.type = type;
+        this.orderId = orderId;
+        this.status = status;
+    }
+    
+    // Getters and Setters
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+    
+    public Integer getOrderId() { return orderId; }
+    public void setOrderId(Integer orderId) { this.orderId = orderId; }
+    
+    public Integer getUserId() { return userId; }
+    public void setUserId(Integer userId) { this.userId = userId; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public String getGender() { return gender; }
+    public void setGender(String gender) { this.gender = gender; }
+    
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public OffsetDateTime getReturnedAt() { return returnedAt; }
+    public void setReturnedAt(OffsetDateTime returnedAt) { this.returnedAt = returnedAt; }
+    
+    public OffsetDateTime getShippedAt() { return shippedAt; }
+    public void setShippedAt(OffsetDateTime shippedAt) { this.shippedAt = shippedAt; }
+    
+    public OffsetDateTime getDeliveredAt() { return deliveredAt; }
+    public void setDeliveredAt(OffsetDateTime deliveredAt) { this.deliveredAt = deliveredAt; }
+    
+    public Integer getNumOfItem() { return numOfItem; }
+    public void setNumOfItem(Integer numOfItem) { this.numOfItem = numOfItem; }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Events are durably logged when acknowledged and written to the database shortly after
+ */
+@JsonPropertyOrder({"accepted", "pending"})
+public class OrderEventAck {
+    
+    private int accepted;
+    private int pending;
+    
+    // Constructors
+    public OrderEventAck() {}
+    
+    public OrderEventAck(int accepted, int pending) {
+        this.accepted = accepted;
+        this.pending = pending;
+    }
+    
+    // Getters and Setters
+    public int getAccepted() { return accepted; }
+    public void setAccepted(int accepted) { this.accepted = accepted; }
+    
+    public int getPending() { return pending; }
+    public void setPending(int pending) { this.pending = pending; }
+}
\ No newline at end of file
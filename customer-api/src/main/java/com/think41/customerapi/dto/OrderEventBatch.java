@@ -0,0 +1,19 @@
+package com.think41.customerapi.dto;
+
+import java.util.List;
+
+public class OrderEventBatch {
+    
+    private List<OrderEvent> events;
+    
+    // Constructors
+    public OrderEventBatch() {}
+    
+    public OrderEventBatch(List<OrderEvent> events) {
+        this.events = events;
+    }
+    
+    // Getters and Setters
+    public List<OrderEvent> getEvents() { return events; }
+    public void setEvents(List<OrderEvent> events) { this.events = events; }
+}
\ No newline at end of file
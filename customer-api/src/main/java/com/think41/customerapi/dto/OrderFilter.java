@@ -0,0 +1,38 @@
+package com.think41.customerapi.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Optional predicates for the global order feed; unset fields are not filtered on
+ */
+public class OrderFilter {
+    
+    private String status;
+    private OffsetDateTime createdFrom;
+    private OffsetDateTime createdTo;
+    private Boolean shipped;
+    private Boolean delivered;
+    
+    // Constructors
+    public OrderFilter() {}
+    
+    public OrderFilter(String status) {
+        this.status = status;
+    }
+    
+    // Getters and Setters
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public OffsetDateTime getCreatedFrom() { return createdFrom; }
+    public void setCreatedFrom(OffsetDateTime createdFrom) { this.createdFrom = createdFrom; }
+    
+    public OffsetDateTime getCreatedTo() { return createdTo; }
+    public void setCreatedTo(OffsetDateTime createdTo) { this.createdTo = createdTo; }
+    
+    public Boolean getShipped() { return shipped; }
+    public void setShipped(Boolean shipped) { this.shipped = shipped; }
+    
+    public Boolean getDelivered() { return delivered; }
+    public void setDelivered(Boolean delivered) { this.delivered = delivered; }
+}
\ No newline at end of file
@@ -1,8 +1,12 @@
 package com.think41.customerapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import java.time.OffsetDateTime;
 
+@JsonPropertyOrder({"status", "gender", "order_id", "user_id", "created_at", "returned_at",
+        "shipped_at", "delivered_at", "num_of_item", "customer_name", "customer_email"})
 public class OrderResponse {
     
     @JsonProperty("order_id")
@@ -29,11 +33,14 @@ public class OrderResponse {
     @JsonProperty("num_of_item")
     private Integer numOfItem;
     
-    // Customer details (optional, for detailed view)
+    // Customer details (optional, for detailed view); left out of customer order pages, which
+    // carry them once
     @JsonProperty("customer_name")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String customerName;
     
     @JsonProperty("customer_email")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String customerEmail;
     
     // Constructors
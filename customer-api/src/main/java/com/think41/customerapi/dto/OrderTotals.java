@@ -0,0 +1,45 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.OffsetDateTime;
+
+/**
+ * Lifetime order totals for one customer
+ */
+public class OrderTotals {
+    
+    @JsonProperty("order_count")
+    private long orderCount;
+    
+    @JsonProperty("item_count")
+    private long itemCount;
+    
+    @JsonProperty("first_order_at")
+    private OffsetDateTime firstOrderAt;
+    
+    @JsonProperty("last_order_at")
+    private OffsetDateTime lastOrderAt;
+    
+    // Constructors
+    public OrderTotals() {}
+    
+    public OrderTotals(long orderCount, long itemCount, OffsetDateTime firstOrderAt, OffsetDateTime lastOrderAt) {
+        this.orderCount = orderCount;
+        this.itemCount = itemCount;
+        this.firstOrderAt = firstOrderAt;
+        this.lastOrderAt = lastOrderAt;
+    }
+    
+    // Getters and Setters
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+    
+    public long getItemCount() { return itemCount; }
+    public void setItemCount(long itemCount) { this.itemCount = itemCount; }
+    
+    public OffsetDateTime getFirstOrderAt() { return firstOrderAt; }
+    public void setFirstOrderAt(OffsetDateTime firstOrderAt) { this.firstOrderAt = firstOrderAt; }
+    
+    public OffsetDateTime getLastOrderAt() { return lastOrderAt; }
+    public void setLastOrderAt(OffsetDateTime lastOrderAt) { this.lastOrderAt = lastOrderAt; }
+}
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.think41.customerapi.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import java.util.List;
 
+@JsonPropertyOrder({"content", "first", "last", "page_number", "page_size", "total_elements",
+        "total_pages", "is_first", "is_last"})
 public class PagedResponse<T> {
     
     private List<T> content;
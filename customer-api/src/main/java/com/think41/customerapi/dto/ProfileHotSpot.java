@@ -0,0 +1,53 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Events attributed to one application frame, and for allocations, monitors and socket reads
+ * to what was allocated, waited on or read from
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProfileHotSpot {
+    
+    private String frame;
+    private String detail;
+    private long count;
+    private double percent;
+    
+    @JsonProperty("total_ms")
+    private Double totalMs;
+    
+    private Long bytes;
+    
+    // Constructors
+    public ProfileHotSpot() {}
+    
+    public ProfileHotSpot(String frame, String detail, long count, double percent, Double totalMs, Long bytes) {
+        this.frame = frame;
+        this.detail = detail;
+        this.count = count;
+        this.percent = percent;
+        this.totalMs = totalMs;
+        this.bytes = bytes;
+    }
+    
+    // Getters and Setters
+    public String getFrame() { return frame; }
+    public void setFrame(String frame) { this.frame = frame; }
+    
+    public String getDetail() { return detail; }
+    public void setDetail(String detail) { this.detail = detail; }
+    
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    
+    public double getPercent() { return percent; }
+    public void setPercent(double percent) { this.percent = percent; }
+    
+    public Double getTotalMs() { return totalMs; }
+    public void setTotalMs(Double totalMs) { this.totalMs = totalMs; }
+    
+    public Long getBytes() { return bytes; }
+    public void setBytes(Long bytes) { this.bytes = bytes; }
+}
\ No newline at end of file
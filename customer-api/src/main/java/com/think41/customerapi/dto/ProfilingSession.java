@@ -0,0 +1,61 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.OffsetDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProfilingSession {
+    
+    private String id;
+    private String profile;
+    private String state;
+    
+    @JsonProperty("started_at")
+    private OffsetDateTime startedAt;
+    
+    @JsonProperty("stopped_at")
+    private OffsetDateTime stoppedAt;
+    
+    @JsonProperty("size_bytes")
+    private Long sizeBytes;
+    
+    private ProfilingSummary summary;
+    
+    // Constructors
+    public ProfilingSession() {}
+    
+    public ProfilingSession(String id, String profile, String state, OffsetDateTime startedAt, OffsetDateTime stoppedAt,
+                            Long sizeBytes, ProfilingSummary summary) {
+        this.id = id;
+        this.profile = profile;
+        this.state = state;
+        this.startedAt = startedAt;
+        this.stoppedAt = stoppedAt;
+        this.sizeBytes = sizeBytes;
+        this.summary = summary;
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getProfile() { return profile; }
+    public void setProfile(String profile) { this.profile = profile; }
+    
+    public String getState() { return state; }
+    public void setState(String state) { this.state = state; }
+    
+    public OffsetDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(OffsetDateTime startedAt) { this.startedAt = startedAt; }
+    
+    public OffsetDateTime getStoppedAt() { return stoppedAt; }
+    public void setStoppedAt(OffsetDateTime stoppedAt) { this.stoppedAt = stoppedAt; }
+    
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+    
+    public ProfilingSummary getSummary() { return summary; }
+    public void setSummary(ProfilingSummary summary) { this.summary = summary; }
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Hot paths of a recording in application code. Each list is ordered by its weight: samples
+ * for frames, sampled bytes for allocation sites and time blocked for monitors and socket reads.
+ */
+public class ProfilingSummary {
+    
+    @JsonProperty("execution_samples")
+    private long executionSamples;
+    
+    @JsonProperty("top_frames")
+    private List<ProfileHotSpot> topFrames;
+    
+    @JsonProperty("allocation_sites")
+    private List<ProfileHotSpot> allocationSites;
+    
+    @JsonProperty("contended_monitors")
+    private List<ProfileHotSpot> contendedMonitors;
+    
+    @JsonProperty("socket_reads")
+    private List<ProfileHotSpot> socketReads;
+    
+    // Constructors
+    public ProfilingSummary() {}
+    
+    public ProfilingSummary(long executionSamples, List<ProfileHotSpot> topFrames, List<ProfileHotSpot> allocationSites,
+                            List<ProfileHotSpot> contendedMonitors, List<ProfileHotSpot> socketReads) {
+        this.executionSamples = executionSamples;
+        this.topFrames = topFrames;
+        this.allocationSites = allocationSites;
+        this.contendedMonitors = contendedMonitors;
+        this.socketReads = socketReads;
+    }
+    
+    // Getters and Setters
+    public long getExecutionSamples() { return executionSamples; }
+    public void setExecutionSamples(long executionSamples) { this.executionSamples = executionSamples; }
+    
+    public List<ProfileHotSpot> getTopFrames() { return topFrames; }
+    public void setTopFrames(List<ProfileHotSpot> topFrames) { this.topFrames = topFrames; }
+    
+    public List<ProfileHotSpot> getAllocationSites() { return allocationSites; }
+    public void setAllocationSites(List<ProfileHotSpot> allocationSites) { this.allocationSites = allocationSites; }
+    
+    public List<ProfileHotSpot> getContendedMonitors() { return contendedMonitors; }
+    public void setContendedMonitors(List<ProfileHotSpot> contendedMonitors) { this.contendedMonitors = contendedMonitors; }
+    
+    public List<ProfileHotSpot> getSocketReads() { return socketReads; }
+    public void setSocketReads(List<ProfileHotSpot> socketReads) { this.socketReads = socketReads; }
+}
\ No newline at end of file
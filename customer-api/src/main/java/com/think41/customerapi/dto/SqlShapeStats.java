@@ -0,0 +1,63 @@
+package com.think41.customerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class SqlShapeStats {
+    
+    private String shape;
+    private long count;
+    private long errors;
+    private long rows;
+    
+    @JsonProperty("total_ms")
+    private double totalMs;
+    
+    @JsonProperty("mean_ms")
+    private double meanMs;
+    
+    @JsonProperty("p99_ms")
+    private double p99Ms;
+    
+    @JsonProperty("max_ms")
+    private double maxMs;
+    
+    // Constructors
+    public SqlShapeStats() {}
+    
+    public SqlShapeStats(String shape, long count, long errors, long rows,
+                         double totalMs, double meanMs, double p99Ms, double maxMs) {
+        this.shape = shape;
+        this.count = count;
+        this.errors = errors;
+        this.rows = rows;
+        this.totalMs = totalMs;
+        this.meanMs = meanMs;
+        this.p99Ms = p99Ms;
+        this.maxMs = maxMs;
+    }
+    
+    // Getters and Setters
+    public String getShape() { return shape; }
+    public void setShape(String shape) { this.shape = shape; }
+    
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    
+    public long getErrors() { return errors; }
+    public void setErrors(long errors) { this.errors = errors; }
+    
+    public long getRows() { return rows; }
+    public void setRows(long rows) { this.rows = rows; }
+    
+    public double getTotalMs() { return totalMs; }
+    public void setTotalMs(double totalMs) { this.totalMs = totalMs; }
+    
+    public double getMeanMs() { return meanMs; }
+    public void setMeanMs(double meanMs) { this.meanMs = meanMs; }
+    
+    public double getP99Ms() { return p99Ms; }
+    public void setP99Ms(double p99Ms) { this.p99Ms = p99Ms; }
+    
+    public double getMaxMs() { return maxMs; }
+    public void setMaxMs(double maxMs) { this.maxMs = maxMs; }
+}
\ No newline at end of file
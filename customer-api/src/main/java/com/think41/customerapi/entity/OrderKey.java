@@ -0,0 +1,42 @@
+package com.think41.customerapi.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * Where an order lives: the created_at and customer of each order ID, maintained by trigger on
+ * orders. Queries by order ID read it first so that only the matching monthly partition is searched.
+ */
+@Entity
+@Table(name = "order_keys")
+public class OrderKey {
+    
+    @Id
+    @Column(name = "order_id")
+    private Integer orderId;
+    
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+    
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+    
+    // Constructors
+    public OrderKey() {}
+    
+    public OrderKey(Integer orderId, OffsetDateTime createdAt, Integer userId) {
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+        this.userId = userId;
+    }
+    
+    // Getters and Setters
+    public Integer getOrderId() { return orderId; }
+    public void setOrderId(Integer orderId) { this.orderId = orderId; }
+    
+    public OffsetDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(OffsetDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public Integer getUserId() { return userId; }
+    public void setUserId(Integer userId) { this.userId = userId; }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.think41.customerapi.exception;
+
+public class CapacityExceededException extends RuntimeException {
+    
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+    
+    public CapacityExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
@@ -1,12 +1,16 @@
 package com.think41.customerapi.exception;
 
+/**
+ * Thrown without a stack trace: it is an expected outcome, answered with a 404, and filling in
+ * the trace would be most of its cost when clients probe many missing ids
+ */
 public class CustomerNotFoundException extends RuntimeException {
     
     public CustomerNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
     
     public CustomerNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
\ No newline at end of file
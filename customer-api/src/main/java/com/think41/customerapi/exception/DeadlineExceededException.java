@@ -0,0 +1,12 @@
+package com.think41.customerapi.exception;
+
+public class DeadlineExceededException extends RuntimeException {
+    
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+    
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.think41.customerapi.exception;
+
+/**
+ * The endpoint cannot be served in the current configuration, such as while orders are sharded
+ */
+public class FeatureUnavailableException extends RuntimeException {
+    
+    public FeatureUnavailableException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
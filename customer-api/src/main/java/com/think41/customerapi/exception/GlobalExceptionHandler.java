@@ -1,8 +1,13 @@
 package com.think41.customerapi.exception;
 
 import com.think41.customerapi.dto.ErrorResponse;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
@@ -22,7 +27,8 @@ public class GlobalExceptionHandler {
                 request.getDescription(false).replace("uri=", "")
         );
         
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+        // Explicit content type so requests accepting only text/event-stream still get the JSON error
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
     
     @ExceptionHandler(OrderNotFoundException.class)
@@ -56,6 +62,142 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
     
+    @ExceptionHandler(IngestionBackpressureException.class)
+    public ResponseEntity<ErrorResponse> handleIngestionBackpressure(
+            IngestionBackpressureException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Too Many Requests",
+                ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+    
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceeded(
+            RateLimitExceededException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Too Many Requests",
+                ex.getMessage(),
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorResponse);
+    }
+    
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ErrorResponse> handleDeadlineExceeded(
+            DeadlineExceededException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Gateway Timeout",
+                ex.getMessage(),
+                HttpStatus.GATEWAY_TIMEOUT.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+    }
+    
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<ErrorResponse> handleQueryTimeout(
+            QueryTimeoutException ex, WebRequest request) {
+        
+        // Statements cancelled by the database at the request's deadline
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Gateway Timeout",
+                "The request did not complete within its deadline",
+                HttpStatus.GATEWAY_TIMEOUT.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+    
+    @ExceptionHandler(ResultBudgetExceededException.class)
+    public ResponseEntity<ErrorResponse> handleResultBudgetExceeded(
+            ResultBudgetExceededException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Result Too Large",
+                ex.getMessage() + "; narrow the filters or request smaller pages",
+                HttpStatus.BAD_REQUEST.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+    
+    @ExceptionHandler(CapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleCapacityExceeded(
+            CapacityExceededException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Service Unavailable",
+                ex.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorResponse);
+    }
+    
+    @ExceptionHandler(FeatureUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleFeatureUnavailable(
+            FeatureUnavailableException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Not Implemented",
+                ex.getMessage(),
+                HttpStatus.NOT_IMPLEMENTED.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        // Export and stream requests accept other formats than this body
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+    
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponse> handleHttpMessageNotReadable(
+            HttpMessageNotReadableException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Invalid Request Body",
+                "Request body is missing or is not valid JSON for this endpoint",
+                HttpStatus.BAD_REQUEST.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+    
+    @ExceptionHandler(HttpMediaTypeNotAcceptableException.class)
+    public ResponseEntity<ErrorResponse> handleMediaTypeNotAcceptable(
+            HttpMediaTypeNotAcceptableException ex, WebRequest request) {
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Not Acceptable",
+                "This response is not available in the requested format. Supported: " + ex.getSupportedMediaTypes(),
+                HttpStatus.NOT_ACCEPTABLE.value(),
+                request.getDescription(false).replace("uri=", "")
+        );
+        
+        // The client accepts none of our formats for this body, so the error is sent as JSON
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
+    }
+    
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(
             IllegalArgumentException ex, WebRequest request) {
@@ -0,0 +1,12 @@
+package com.think41.customerapi.exception;
+
+public class IngestionBackpressureException extends RuntimeException {
+    
+    public IngestionBackpressureException(String message) {
+        super(message);
+    }
+    
+    public IngestionBackpressureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.think41.customerapi.exception;
 
+/**
+ * Stackless, like CustomerNotFoundException
+ */
 public class OrderNotFoundException extends RuntimeException {
     
     public OrderNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
     
     public OrderNotFoundException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.think41.customerapi.exception;
+
+public class RateLimitExceededException extends RuntimeException {
+    
+    private final long retryAfterSeconds;
+    
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.think41.customerapi.exception;
+
+public class ResultBudgetExceededException extends RuntimeException {
+    
+    public ResultBudgetExceededException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
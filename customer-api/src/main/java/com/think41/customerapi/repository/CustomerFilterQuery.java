@@ -0,0 +1,232 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.dto.CustomerFilter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parameterized native SQL for a CustomerFilter.
+ * Every predicate is a plain comparison on an indexed column so the planner can combine indexes,
+ * and order counts are computed per returned row instead of aggregating the whole orders table.
+ * Counts read order_keys, one index over all orders, instead of probing every monthly partition.
+ */
+public class CustomerFilterQuery {
+    
+    static final String SELECT_COLUMNS = "SELECT u.id, u.first_name, u.last_name, u.email, u.age, u.gender, " +
+            "u.state, u.street_address, u.postal_code, u.city, u.country, u.latitude, u.longitude, " +
+            "u.traffic_source, u.created_at, " +
+            "(SELECT COUNT(*) FROM order_keys k WHERE k.user_id = u.id) AS order_count " +
+            "FROM users u";
+    
+    // Position of each sort column in SELECT_COLUMNS
+    private static final Map<String, Integer> SORT_COLUMN_INDEX = Map.of(
+            "u.id", 0, "u.first_name", 1, "u.last_name", 2, "u.age", 4, "u.created_at", 14);
+    private static final Set<String> TEXT_SORT_COLUMNS = Set.of("u.first_name", "u.last_name");
+    
+    // Code point order; String.compareTo compares UTF-16 units, which puts characters outside the
+    // Basic Multilingual Plane before U+E000..U+FFFF
+    private static final Comparator<String> CODE_POINT_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    };
+    
+    private final String whereClause;
+    private final String orderByClause;
+    private final Comparator<Object[]> rowOrder;
+    private final Map<String, Object> parameters;
+    
+    private CustomerFilterQuery(String whereClause, String orderByClause, Comparator<Object[]> rowOrder,
+                                Map<String, Object> parameters) {
+        this.whereClause = whereClause;
+        this.orderByClause = orderByClause;
+        this.rowOrder = rowOrder;
+        this.parameters = parameters;
+    }
+    
+    /**
+     * Build the query for a filter, rejecting unsupported sort or gender values
+     */
+    public static CustomerFilterQuery of(CustomerFilter filter) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        
+        String search = trimToNull(filter.getSearch());
+        if (search != null) {
+            predicates.add("(LOWER(u.first_name) LIKE :search " +
+                    "OR LOWER(u.last_name) LIKE :search " +
+                    "OR LOWER(u.email) LIKE :search)");
+            parameters.put("search", "%" + escapeLike(search.toLowerCase(Locale.ROOT)) + "%");
+        }
+        addEquals(predicates, parameters, "u.country", "country", filter.getCountry());
+        addEquals(predicates, parameters, "u.state", "state", filter.getState());
+        addEquals(predicates, parameters, "u.traffic_source", "trafficSource", filter.getTrafficSource());
+        
+        String gender = trimToNull(filter.getGender());
+        if (gender != null) {
+            gender = gender.toUpperCase(Locale.ROOT);
+            if (!gender.equals("M") && !gender.equals("F")) {
+                throw new IllegalArgumentException("Gender must be 'M' or 'F'");
+            }
+            predicates.add("u.gender = :gender");
+            parameters.put("gender", gender);
+        }
+        
+        if (filter.getMinAge() != null && filter.getMaxAge() != null && filter.getMinAge() > filter.getMaxAge()) {
+            throw new IllegalArgumentException("min_age cannot be greater than max_age");
+        }
+        if (filter.getMinAge() != null) {
+            predicates.add("u.age >= :minAge");
+            parameters.put("minAge", filter.getMinAge());
+        }
+        if (filter.getMaxAge() != null) {
+            predicates.add("u.age <= :maxAge");
+            parameters.put("maxAge", filter.getMaxAge());
+        }
+        
+        if (filter.getCreatedFrom() != null && filter.getCreatedTo() != null
+                && !filter.getCreatedFrom().isBefore(filter.getCreatedTo())) {
+            throw new IllegalArgumentException("created_from must be before created_to");
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add("u.created_at >= :createdFrom");
+            parameters.put("createdFrom", filter.getCreatedFrom());
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add("u.created_at < :createdTo");
+            parameters.put("createdTo", filter.getCreatedTo());
+        }
+        
+        String whereClause = predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+        String sortColumn = sortColumn(filter);
+        boolean descending = descending(filter);
+        return new CustomerFilterQuery(whereClause, orderBy(sortColumn, descending, search != null),
+                rowOrder(sortColumn, descending), parameters);
+    }
+    
+    public String getSelectSql() {
+        return SELECT_COLUMNS + whereClause + orderByClause;
+    }
+    
+    public String getCountSql() {
+        return "SELECT COUNT(*) FROM users u" + whereClause;
+    }
+    
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+    
+    /**
+     * The ORDER BY of getSelectSql as a comparator over its rows, for merging results from
+     * several databases. Text compares in code point order, which the ORDER BY asks for with
+     * COLLATE "C" whatever the database's default collation is.
+     */
+    public Comparator<Object[]> getRowOrder() {
+        return rowOrder;
+    }
+    
+    private static String sortColumn(CustomerFilter filter) {
+        String sort = trimToNull(filter.getSort());
+        if (sort == null) {
+            return "u.id";
+        }
+        switch (sort.toLowerCase(Locale.ROOT)) {
+            case "id": return "u.id";
+            case "created_at": return "u.created_at";
+            case "age": return "u.age";
+            case "first_name": return "u.first_name";
+            case "last_name": return "u.last_name";
+            default:
+                throw new IllegalArgumentException(
+                        "Sort must be one of: id, created_at, age, first_name, last_name");
+        }
+    }
+    
+    private static boolean descending(CustomerFilter filter) {
+        String direction = trimToNull(filter.getDirection());
+        if (direction == null || direction.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        if (direction.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Direction must be 'asc' or 'desc'");
+    }
+    
+    private static String orderBy(String column, boolean descending, boolean searching) {
+        String order = descending ? "DESC" : "ASC";
+        boolean text = TEXT_SORT_COLUMNS.contains(column);
+        
+        // u.id breaks ties so paging is stable
+        String tieBreaker = "u.id";
+        if (searching) {
+            // Search matches come from the trigram indexes and are few; sorting on a bare column
+            // lets the planner walk that column's index and filter every row when it overestimates
+            // the matches, so the sort keys are wrapped in no-op expressions
+            column = fenceFromIndex(column);
+            tieBreaker = fenceFromIndex(tieBreaker);
+        }
+        if (text) {
+            // Byte order, so every database sorts names the same way and as getRowOrder does
+            column = "(" + column + ") COLLATE \"C\"";
+        }
+        return column.equals(tieBreaker)
+                ? " ORDER BY " + tieBreaker + " " + order
+                : " ORDER BY " + column + " " + order + ", " + tieBreaker + " " + order;
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Object[]> rowOrder(String column, boolean descending) {
+        int index = SORT_COLUMN_INDEX.get(column);
+        // Postgres puts nulls last in ascending order and first in descending order, as reversing this does
+        Comparator<Object[]> order = TEXT_SORT_COLUMNS.contains(column)
+                ? Comparator.comparing((Object[] row) -> (String) row[index], Comparator.nullsLast(CODE_POINT_ORDER))
+                : Comparator.comparing((Object[] row) -> (Comparable) row[index], Comparator.nullsLast(Comparator.naturalOrder()));
+        order = order.thenComparing(row -> (Integer) row[0]);
+        return descending ? order.reversed() : order;
+    }
+    
+    private static String fenceFromIndex(String column) {
+        switch (column) {
+            case "u.created_at": return column + " + INTERVAL '0'";
+            case "u.first_name":
+            case "u.last_name": return column + " || ''";
+            default: return column + " + 0";
+        }
+    }
+    
+    private static void addEquals(List<String> predicates, Map<String, Object> parameters,
+                                  String column, String name, String value) {
+        String trimmed = trimToNull(value);
+        if (trimmed != null) {
+            predicates.add(column + " = :" + name);
+            parameters.put(name, trimmed);
+        }
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private static String trimToNull(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+}
\ No newline at end of file
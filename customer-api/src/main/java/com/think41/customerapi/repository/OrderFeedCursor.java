@@ -0,0 +1,53 @@
+package com.think41.customerapi.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in the order feed: the (created_at, order_id) of the last row returned
+ */
+public final class OrderFeedCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final Instant createdAt;
+    private final int orderId;
+    
+    public OrderFeedCursor(Instant createdAt, int orderId) {
+        this.createdAt = createdAt;
+        this.orderId = orderId;
+    }
+    
+    /**
+     * Decode a cursor previously returned as next_cursor
+     */
+    public static OrderFeedCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new OrderFeedCursor(Instant.parse(raw.substring(0, separator)),
+                    Integer.parseInt(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException ex) {
+            // NumberFormatException and Base64 errors are IllegalArgumentExceptions too
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    public String encode() {
+        String raw = createdAt + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public int getOrderId() {
+        return orderId;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.dto.OrderFilter;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parameterized native SQL for one page of the global order feed.
+ * Rows are ordered newest-first by (created_at, order_id) and the cursor is applied as a row
+ * comparison, so every page is a range scan on a (..., created_at, order_id) index no matter
+ * how far into the feed it is.
+ */
+public class OrderFeedQuery {
+    
+    static final List<String> STATUSES = List.of("Processing", "Shipped", "Complete", "Cancelled", "Returned");
+    
+    private static final String SELECT_COLUMNS = "SELECT o.order_id, o.user_id, o.status, o.gender, o.created_at, " +
+            "o.returned_at, o.shipped_at, o.delivered_at, o.num_of_item, " +
+            "u.first_name, u.last_name, u.email " +
+            "FROM orders o " +
+            "JOIN users u ON u.id = o.user_id";
+    
+    private final String whereClause;
+    private final Map<String, Object> parameters;
+    private final int limit;
+    
+    private OrderFeedQuery(String whereClause, Map<String, Object> parameters, int limit) {
+        this.whereClause = whereClause;
+        this.parameters = parameters;
+        this.limit = limit;
+    }
+    
+    /**
+     * Build the query for a filter and an optional cursor, fetching up to limit rows
+     */
+    public static OrderFeedQuery of(OrderFilter filter, OrderFeedCursor cursor, int limit) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        
+        String status = trimToNull(filter.getStatus());
+        if (status != null) {
+            predicates.add("o.status = :status");
+            parameters.put("status", canonicalStatus(status));
+        }
+        
+        if (filter.getCreatedFrom() != null && filter.getCreatedTo() != null
+                && !filter.getCreatedFrom().isBefore(filter.getCreatedTo())) {
+            throw new IllegalArgumentException("created_from must be before created_to");
+        }
+        if (filter.getCreatedFrom() != null) {
+            predicates.add("o.created_at >= :createdFrom");
+            parameters.put("createdFrom", filter.getCreatedFrom());
+        }
+        if (filter.getCreatedTo() != null) {
+            predicates.add("o.created_at < :createdTo");
+            parameters.put("createdTo", filter.getCreatedTo());
+        }
+        
+        // Literal IS NULL predicates so the partial unshipped/undelivered indexes can be matched
+        if (filter.getShipped() != null) {
+            predicates.add(filter.getShipped() ? "o.shipped_at IS NOT NULL" : "o.shipped_at IS NULL");
+        }
+        if (filter.getDelivered() != null) {
+            predicates.add(filter.getDelivered() ? "o.delivered_at IS NOT NULL" : "o.delivered_at IS NULL");
+        }
+        
+        if (cursor != null) {
+            // The plain created_at bound is implied by the row comparison but lets the planner
+            // prune by created_at on its own (e.g. across time-based partitions)
+            predicates.add("o.created_at <= :cursorCreatedAt");
+            predicates.add("(o.created_at, o.order_id) < (:cursorCreatedAt, :cursorOrderId)");
+            parameters.put("cursorCreatedAt", cursor.getCreatedAt().atOffset(ZoneOffset.UTC));
+            parameters.put("cursorOrderId", cursor.getOrderId());
+        }
+        
+        parameters.put("limit", limit);
+        String whereClause = predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+        return new OrderFeedQuery(whereClause, parameters, limit);
+    }
+    
+    public String getSelectSql() {
+        return SELECT_COLUMNS + whereClause + " ORDER BY o.created_at DESC, o.order_id DESC LIMIT :limit";
+    }
+    
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    private static String canonicalStatus(String status) {
+        for (String known : STATUSES) {
+            if (known.equalsIgnoreCase(status)) {
+                return known;
+            }
+        }
+        throw new IllegalArgumentException("Status must be one of: " + String.join(", ", STATUSES));
+    }
+    
+    private static String trimToNull(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+}
\ No newline at end of file
@@ -8,10 +8,25 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Integer> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, OrderRepositoryCustom {
+    
+    // Shared with OrderRepositoryImpl.summarizeByStatus, which runs it on shards
+    String STATUS_SUMMARY_SQL = "SELECT o.status, COUNT(*), COALESCE(SUM(o.num_of_item), 0), MIN(o.created_at), MAX(o.created_at) " +
+            "FROM orders o " +
+            "WHERE o.user_id = :userId " +
+            "GROUP BY o.status";
+    
+    /**
+     * Find an order by ID, searching only the partition that holds it
+     */
+    @Override
+    @Query("SELECT o FROM Order o WHERE o.orderId = :orderId " +
+           "AND o.createdAt = (SELECT k.createdAt FROM OrderKey k WHERE k.orderId = :orderId)")
+    Optional<Order> findById(@Param("orderId") Integer orderId);
     
     /**
      * Find all orders for a specific customer with pagination
@@ -22,22 +37,46 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
     /**
      * Find order by ID with customer details using JPA
      */
-    @Query("SELECT o FROM Order o JOIN FETCH o.user WHERE o.orderId = :orderId")
+    @Query("SELECT o FROM Order o JOIN FETCH o.user WHERE o.orderId = :orderId " +
+           "AND o.createdAt = (SELECT k.createdAt FROM OrderKey k WHERE k.orderId = :orderId)")
     Optional<Order> findOrderWithUserByOrderId(@Param("orderId") Integer orderId);
     
     /**
-     * Find orders for a customer with customer details using JPA
+     * Find one page of a customer's orders, newest first, without the customer or a count query
      */
-    @Query("SELECT o FROM Order o JOIN FETCH o.user WHERE o.userId = :userId ORDER BY o.createdAt DESC")
-    Page<Order> findOrdersWithUserByUserId(@Param("userId") Integer userId, Pageable pageable);
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC")
+    List<Order> findRecentByUserId(@Param("userId") Integer userId, Pageable pageable);
     
     /**
-     * Count orders for a specific customer
+     * Order count, item count and first/last order time per status for a customer
      */
-    long countByUserId(Integer userId);
+    @Query(value = STATUS_SUMMARY_SQL, nativeQuery = true)
+    List<Object[]> findStatusSummaryByUserId(@Param("userId") Integer userId);
     
     /**
      * Check if order exists for a specific customer
      */
-    boolean existsByOrderIdAndUserId(Integer orderId, Integer userId);
+    @Query("SELECT COUNT(o) > 0 FROM Order o WHERE o.orderId = :orderId AND o.userId = :userId " +
+           "AND o.createdAt = (SELECT k.createdAt FROM OrderKey k WHERE k.orderId = :orderId)")
+    boolean existsByOrderIdAndUserId(@Param("orderId") Integer orderId, @Param("userId") Integer userId);
+    
+    /**
+     * Fetch order lifecycle timestamps with customer country, in order ID chunks
+     */
+    @Query(value = "SELECT o.order_id, o.status, o.created_at, o.shipped_at, o.delivered_at, o.returned_at, u.country " +
+           "FROM orders o " +
+           "JOIN users u ON u.id = o.user_id " +
+           "WHERE o.order_id > :afterOrderId " +
+           "ORDER BY o.order_id " +
+           "LIMIT :limit",
+           nativeQuery = true)
+    List<Object[]> findLifecycleChunk(@Param("afterOrderId") Integer afterOrderId, @Param("limit") int limit);
+    
+    /**
+     * Order IDs in order after afterOrderId, for scanning every ID in chunks; read from
+     * order_keys so the scan is one index range instead of one per partition
+     */
+    @Query(value = "SELECT order_id FROM order_keys WHERE order_id > :afterOrderId ORDER BY order_id LIMIT :limit",
+           nativeQuery = true)
+    List<Integer> findOrderIdsAfter(@Param("afterOrderId") int afterOrderId, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.entity.Order;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface OrderRepositoryCustom {
+    
+    /**
+     * Fetch one keyset page of the global order feed with customer details
+     */
+    List<Object[]> findOrderFeed(OrderFeedQuery query);
+    
+    /**
+     * Insert orders in one set-based statement, skipping order IDs that already exist or that a
+     * concurrent transaction inserts first; returns the IDs that were actually inserted
+     */
+    Set<Integer> insertIgnoringExisting(List<Order> orders);
+    
+    /**
+     * Insert orders in one set-based statement, overwriting orders that already exist;
+     * order IDs must be unique within the list. Orders whose created_at changed move partition.
+     */
+    int upsertAll(List<Order> orders);
+    
+    /**
+     * Set status and any non-null lifecycle timestamps on existing orders in one statement;
+     * returns the IDs of the orders updated
+     */
+    Set<Integer> applyStatusChanges(List<Order> changes);
+    
+    /**
+     * Fetch lifecycle timestamps with customer country, as findLifecycleChunk does, for the given
+     * order IDs; IDs that do not exist are left out
+     */
+    List<Object[]> findLifecycleByIds(Collection<Integer> orderIds);
+    
+    /**
+     * Fetch the orders among orderIds that belong to any of userIds
+     */
+    List<Order> findByOrderIdsForUsers(Collection<Integer> orderIds, Collection<Integer> userIds);
+    
+    /**
+     * One page of a customer's orders, newest first, as findRecentByUserId returns it
+     */
+    List<Order> findPageByUserId(int userId, long offset, int limit);
+    
+    /**
+     * The rows of findStatusSummaryByUserId
+     */
+    List<Object[]> summarizeByStatus(int userId);
+    
+    /**
+     * Whether the order exists and belongs to the customer, as existsByOrderIdAndUserId
+     */
+    boolean existsForUser(int orderId, int userId);
+    
+    /**
+     * One order with its customer's name and email, in the column order of findOrderFeed, or
+     * null if there is none
+     */
+    Object[] findWithCustomerById(int orderId);
+    
+    /**
+     * Return which of the given order IDs exist, in a single query
+     */
+    Set<Integer> findExistingOrderIds(Collection<Integer> orderIds);
+    
+    /**
+     * Delete these orders; returns the number deleted
+     */
+    int deleteByOrderIds(Collection<Integer> orderIds);
+    
+    /**
+     * Create the missing monthly partitions of orders for every month from from through to;
+     * returns the names of the partitions created
+     */
+    List<String> createPartitions(OffsetDateTime from, OffsetDateTime to);
+    
+    /**
+     * Detach the monthly partitions of orders that end on or before the given time, keeping the
+     * detached tables; returns their names
+     */
+    List<String> detachPartitionsBefore(OffsetDateTime before);
+    
+    /**
+     * Every order, passed to handler row by row from a cursor that fetches fetchSize rows at a
+     * time; must run inside a transaction for the cursor to be used
+     */
+    void scanOrders(int fetchSize, RowCallbackHandler handler);
+}
\ No newline at end of file
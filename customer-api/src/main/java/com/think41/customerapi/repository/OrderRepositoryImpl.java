@@ -0,0 +1,342 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+    
+    private static final String ORDER_COLUMNS = "order_id, user_id, status, gender, created_at, " +
+            "returned_at, shipped_at, delivered_at, num_of_item";
+    
+    // Each column is bound as one array and unnested server-side, so a chunk of any size is a
+    // single statement and round trip
+    private static final String ORDER_ROWS_SQL = "SELECT * FROM unnest(?::int[], ?::int[], ?::varchar[], " +
+            "?::char(1)[], ?::timestamptz[], ?::timestamptz[], ?::timestamptz[], ?::timestamptz[], ?::int[]) " +
+            "AS r(" + ORDER_COLUMNS + ")";
+    
+    private static final String INSERT_ROWS_SQL = "INSERT INTO orders (" + ORDER_COLUMNS + ") " + ORDER_ROWS_SQL + " ";
+    
+    // Each order ID is claimed in order_keys first and only claimed rows are inserted. ON CONFLICT
+    // on order_keys waits for a concurrent claim of the same ID and then skips it, whatever its
+    // created_at, so a concurrent insert never ends in a unique violation. The sync_order_keys
+    // trigger leaves keys claimed here in place. RETURNING reports which rows were inserted.
+    private static final String INSERT_SQL = "WITH r AS (" + ORDER_ROWS_SQL + "), " +
+            "claimed AS (INSERT INTO order_keys (order_id, created_at, user_id) " +
+            "SELECT order_id, created_at, user_id FROM r ON CONFLICT (order_id) DO NOTHING RETURNING order_id) " +
+            "INSERT INTO orders (" + ORDER_COLUMNS + ") SELECT r.* FROM r JOIN claimed USING (order_id) " +
+            "RETURNING order_id";
+    
+    // Existing orders whose created_at changed are moved to their new partition first, so the
+    // upsert below finds them on (order_id, created_at)
+    private static final String MOVE_SQL = "UPDATE orders o SET created_at = r.created_at " +
+            "FROM unnest(?::int[], ?::timestamptz[]) AS r(order_id, created_at) " +
+            "JOIN order_keys k ON k.order_id = r.order_id " +
+            "WHERE o.order_id = k.order_id AND o.created_at = k.created_at AND k.created_at <> r.created_at";
+    
+    private static final String UPSERT_SQL = INSERT_ROWS_SQL +
+            "ON CONFLICT (order_id, created_at) DO UPDATE SET " +
+            "user_id = EXCLUDED.user_id, status = EXCLUDED.status, gender = EXCLUDED.gender, " +
+            "returned_at = EXCLUDED.returned_at, shipped_at = EXCLUDED.shipped_at, " +
+            "delivered_at = EXCLUDED.delivered_at, num_of_item = EXCLUDED.num_of_item";
+    
+    // Timestamps that a change does not carry keep their current value. Joining order_keys
+    // gives each row's created_at, so each order is looked up in its own partition only.
+    // RETURNING reports which orders existed.
+    private static final String STATUS_CHANGE_SQL = "UPDATE orders o SET status = v.status, " +
+            "shipped_at = COALESCE(v.shipped_at, o.shipped_at), " +
+            "delivered_at = COALESCE(v.delivered_at, o.delivered_at), " +
+            "returned_at = COALESCE(v.returned_at, o.returned_at) " +
+            "FROM unnest(?::int[], ?::varchar[], ?::timestamptz[], ?::timestamptz[], ?::timestamptz[]) " +
+            "AS v(order_id, status, shipped_at, delivered_at, returned_at) " +
+            "JOIN order_keys k ON k.order_id = v.order_id " +
+            "WHERE o.order_id = v.order_id AND o.created_at = k.created_at " +
+            "RETURNING o.order_id";
+    
+    // Both filters apply to order_keys, so only matching orders are read, each from its own
+    // partition; the LIMIT keeps the lateral subquery from being flattened into a join
+    private static final String ORDERS_FOR_USERS_SQL = "SELECT o.order_id, o.user_id, o.status, o.gender, " +
+            "o.created_at, o.returned_at, o.shipped_at, o.delivered_at, o.num_of_item FROM order_keys k " +
+            "CROSS JOIN LATERAL (SELECT * FROM orders o " +
+            "WHERE o.order_id = k.order_id AND o.created_at = k.created_at LIMIT 1) o " +
+            "WHERE k.order_id = ANY(?) AND k.user_id = ANY(?)";
+    
+    // Each order is read from its own partition through order_keys, as in ORDERS_FOR_USERS_SQL
+    private static final String LIFECYCLE_BY_IDS_SQL = "SELECT o.order_id, o.status, o.created_at, " +
+            "o.shipped_at, o.delivered_at, o.returned_at, u.country FROM order_keys k " +
+            "CROSS JOIN LATERAL (SELECT * FROM orders o " +
+            "WHERE o.order_id = k.order_id AND o.created_at = k.created_at LIMIT 1) o " +
+            "JOIN users u ON u.id = o.user_id " +
+            "WHERE k.order_id = ANY(?)";
+    
+    private static final String PAGE_BY_USER_SQL = "SELECT " + ORDER_COLUMNS + " FROM orders " +
+            "WHERE user_id = ? ORDER BY created_at DESC LIMIT ? OFFSET ?";
+    
+    private static final String EXISTS_FOR_USER_SQL =
+            "SELECT EXISTS (SELECT 1 FROM order_keys WHERE order_id = ? AND user_id = ?)";
+    
+    // The columns of OrderFeedQuery, read from the order's own partition through order_keys
+    private static final String WITH_CUSTOMER_BY_ID_SQL = "SELECT o.order_id, o.user_id, o.status, o.gender, " +
+            "o.created_at, o.returned_at, o.shipped_at, o.delivered_at, o.num_of_item, " +
+            "u.first_name, u.last_name, u.email FROM order_keys k " +
+            "JOIN orders o ON o.order_id = k.order_id AND o.created_at = k.created_at " +
+            "JOIN users u ON u.id = o.user_id " +
+            "WHERE k.order_id = ?";
+    
+    private static final String EXISTING_IDS_SQL = "SELECT order_id FROM order_keys WHERE order_id = ANY(?)";
+    
+    private static final String DELETE_SQL = "DELETE FROM orders o USING order_keys k " +
+            "WHERE k.order_id = ANY(?) AND o.order_id = k.order_id AND o.created_at = k.created_at";
+    
+    private static final String SCAN_SQL = "SELECT order_id, user_id, status, gender, created_at, " +
+            "returned_at, shipped_at, delivered_at, num_of_item FROM orders";
+    
+    private static final String CREATE_PARTITIONS_SQL = "SELECT create_order_partitions(?, ?)";
+    
+    private static final String DETACH_PARTITIONS_SQL = "SELECT detach_order_partitions(?)";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public OrderRepositoryImpl() {
+    }
+    
+    /**
+     * For a shard (ShardedOrderRepository), which has no EntityManager: only the JDBC methods work
+     */
+    OrderRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findOrderFeed(OrderFeedQuery query) {
+        Query select = entityManager.createNativeQuery(query.getSelectSql());
+        query.getParameters().forEach(select::setParameter);
+        return select.getResultList();
+    }
+    
+    @Override
+    public Set<Integer> insertIgnoringExisting(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<Integer> inserted = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+            bindOrderRows(statement, connection, orders);
+            return statement;
+        }, (rs, rowNum) -> rs.getInt(1));
+        return new HashSet<>(inserted);
+    }
+    
+    @Override
+    public int upsertAll(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(MOVE_SQL);
+            statement.setArray(1, intArray(connection, orders, Order::getOrderId));
+            statement.setArray(2, timestampArray(connection, orders, Order::getCreatedAt));
+            return statement;
+        });
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UPSERT_SQL);
+            bindOrderRows(statement, connection, orders);
+            return statement;
+        });
+    }
+    
+    @Override
+    public Set<Integer> applyStatusChanges(List<Order> changes) {
+        if (changes.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<Integer> updated = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(STATUS_CHANGE_SQL);
+            statement.setArray(1, intArray(connection, changes, Order::getOrderId));
+            statement.setArray(2, textArray(connection, changes, Order::getStatus));
+            statement.setArray(3, timestampArray(connection, changes, Order::getShippedAt));
+            statement.setArray(4, timestampArray(connection, changes, Order::getDeliveredAt));
+            statement.setArray(5, timestampArray(connection, changes, Order::getReturnedAt));
+            return statement;
+        }, (rs, rowNum) -> rs.getInt(1));
+        return new HashSet<>(updated);
+    }
+    
+    @Override
+    public List<Object[]> findLifecycleByIds(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LIFECYCLE_BY_IDS_SQL);
+            statement.setArray(1, connection.createArrayOf("int4", orderIds.toArray(new Integer[0])));
+            return statement;
+        }, (rs, rowNum) -> new Object[] {
+                rs.getInt("order_id"),
+                rs.getString("status"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("shipped_at", OffsetDateTime.class),
+                rs.getObject("delivered_at", OffsetDateTime.class),
+                rs.getObject("returned_at", OffsetDateTime.class),
+                rs.getString("country")
+        });
+    }
+    
+    @Override
+    public List<Order> findByOrderIdsForUsers(Collection<Integer> orderIds, Collection<Integer> userIds) {
+        if (orderIds.isEmpty() || userIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(ORDERS_FOR_USERS_SQL);
+            statement.setArray(1, connection.createArrayOf("int4", orderIds.toArray(new Integer[0])));
+            statement.setArray(2, connection.createArrayOf("int4", userIds.toArray(new Integer[0])));
+            return statement;
+        }, (rs, rowNum) -> mapOrder(rs));
+    }
+    
+    @Override
+    public List<Order> findPageByUserId(int userId, long offset, int limit) {
+        return jdbcTemplate.query(PAGE_BY_USER_SQL, (rs, rowNum) -> mapOrder(rs), userId, limit, offset);
+    }
+    
+    @Override
+    public List<Object[]> summarizeByStatus(int userId) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate).query(OrderRepository.STATUS_SUMMARY_SQL,
+                Map.of("userId", userId), (rs, rowNum) -> UserRepositoryImpl.mapRow(rs));
+    }
+    
+    @Override
+    public boolean existsForUser(int orderId, int userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(EXISTS_FOR_USER_SQL, Boolean.class, orderId, userId));
+    }
+    
+    @Override
+    public Object[] findWithCustomerById(int orderId) {
+        List<Object[]> rows = jdbcTemplate.query(WITH_CUSTOMER_BY_ID_SQL, (rs, rowNum) -> UserRepositoryImpl.mapRow(rs), orderId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    @Override
+    public Set<Integer> findExistingOrderIds(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<Integer> existing = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXISTING_IDS_SQL);
+            statement.setArray(1, connection.createArrayOf("int4", orderIds.toArray(new Integer[0])));
+            return statement;
+        }, (rs, rowNum) -> rs.getInt(1));
+        return new HashSet<>(existing);
+    }
+    
+    @Override
+    public int deleteByOrderIds(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_SQL);
+            statement.setArray(1, connection.createArrayOf("int4", orderIds.toArray(new Integer[0])));
+            return statement;
+        });
+    }
+    
+    @Override
+    public List<String> createPartitions(OffsetDateTime from, OffsetDateTime to) {
+        return jdbcTemplate.queryForList(CREATE_PARTITIONS_SQL, String.class, from, to);
+    }
+    
+    @Override
+    public List<String> detachPartitionsBefore(OffsetDateTime before) {
+        return jdbcTemplate.queryForList(DETACH_PARTITIONS_SQL, String.class, before);
+    }
+    
+    @Override
+    public void scanOrders(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN_SQL);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+    
+    private static Order mapOrder(ResultSet rs) throws SQLException {
+        return new Order(
+                rs.getInt("order_id"),
+                rs.getInt("user_id"),
+                rs.getString("status"),
+                rs.getString("gender"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getObject("returned_at", OffsetDateTime.class),
+                rs.getObject("shipped_at", OffsetDateTime.class),
+                rs.getObject("delivered_at", OffsetDateTime.class),
+                rs.getInt("num_of_item")
+        );
+    }
+    
+    private static void bindOrderRows(PreparedStatement statement, Connection connection,
+                                      List<Order> orders) throws SQLException {
+        statement.setArray(1, intArray(connection, orders, Order::getOrderId));
+        statement.setArray(2, intArray(connection, orders, Order::getUserId));
+        statement.setArray(3, textArray(connection, orders, Order::getStatus));
+        statement.setArray(4, textArray(connection, orders, Order::getGender));
+        statement.setArray(5, timestampArray(connection, orders, Order::getCreatedAt));
+        statement.setArray(6, timestampArray(connection, orders, Order::getReturnedAt));
+        statement.setArray(7, timestampArray(connection, orders, Order::getShippedAt));
+        statement.setArray(8, timestampArray(connection, orders, Order::getDeliveredAt));
+        statement.setArray(9, intArray(connection, orders, Order::getNumOfItem));
+    }
+    
+    private static Array intArray(Connection connection, List<Order> orders,
+                                  Function<Order, Integer> column) throws SQLException {
+        Integer[] values = new Integer[orders.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column.apply(orders.get(i));
+        }
+        return connection.createArrayOf("int4", values);
+    }
+    
+    private static Array textArray(Connection connection, List<Order> orders,
+                                   Function<Order, String> column) throws SQLException {
+        String[] values = new String[orders.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column.apply(orders.get(i));
+        }
+        return connection.createArrayOf("text", values);
+    }
+    
+    private static Array timestampArray(Connection connection, List<Order> orders,
+                                        Function<Order, OffsetDateTime> column) throws SQLException {
+        // ISO-8601 text keeps the offset and is cast to timestamptz by the statement
+        String[] values = new String[orders.size()];
+        for (int i = 0; i < values.length; i++) {
+            OffsetDateTime value = column.apply(orders.get(i));
+            values[i] = value != null ? value.toString() : null;
+        }
+        return connection.createArrayOf("text", values);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.util.SqlValues;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Orders on the shards (Shards), each stored with its customer on shardOf(user_id). Off unless
+ * shards.enabled is set.
+ *
+ * Reads and writes that know the customer go to that one shard. An order looked up by id alone is
+ * searched on every shard in parallel, through order_keys. The order feed asks each shard for one
+ * keyset page and merges them on (created_at, order_id), so a feed page costs the same at any depth.
+ *
+ * Order ids are only unique within a shard. Inserts first leave out ids that any shard already
+ * holds, and an upsert that moves an order to another customer deletes it from its old shard,
+ * but two concurrent inserts of one id for customers on different shards can both succeed.
+ */
+@Repository
+public class ShardedOrderRepository {
+    
+    // Newest first, as OrderFeedQuery sorts each shard
+    private static final Comparator<Object[]> FEED_ORDER = Comparator
+            .<Object[], Instant>comparing(row -> SqlValues.toInstant(row[4]))
+            .thenComparing(row -> (Integer) row[0])
+            .reversed();
+    
+    @Autowired
+    private Shards shards;
+    
+    private final List<OrderRepositoryImpl> repositories = new ArrayList<>();
+    
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < shards.size(); i++) {
+            repositories.add(new OrderRepositoryImpl(shards.template(i).getJdbcTemplate()));
+        }
+    }
+    
+    public boolean isEnabled() {
+        return shards.isEnabled();
+    }
+    
+    /**
+     * One page of a customer's orders, newest first
+     */
+    public List<Order> findRecentByUserId(int userId, Pageable pageable) {
+        return forUser(userId).findPageByUserId(userId, pageable.getOffset(), pageable.getPageSize());
+    }
+    
+    /**
+     * Order count, item count and first/last order time per status for a customer
+     */
+    public List<Object[]> findStatusSummaryByUserId(int userId) {
+        return forUser(userId).summarizeByStatus(userId);
+    }
+    
+    public boolean existsByOrderIdAndUserId(int orderId, int userId) {
+        return forUser(userId).existsForUser(orderId, userId);
+    }
+    
+    /**
+     * One order with customer details, in the column order of OrderFeedQuery, or null if no
+     * shard has it
+     */
+    public Object[] findWithCustomerById(int orderId) {
+        return shards.scatter(shard -> repositories.get(shard).findWithCustomerById(orderId)).stream()
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+    }
+    
+    /**
+     * One page of the global order feed, merged from the same page of every shard
+     */
+    public List<Object[]> findOrderFeed(OrderFeedQuery query) {
+        List<List<Object[]>> shardPages = shards.scatter(shard -> shards.template(shard).query(
+                query.getSelectSql(), query.getParameters(), (rs, rowNum) -> UserRepositoryImpl.mapRow(rs)));
+        return Shards.merge(shardPages, FEED_ORDER, 0, query.getLimit());
+    }
+    
+    /**
+     * Insert orders on their customers' shards, skipping order IDs that any shard already has;
+     * returns the IDs that were actually inserted
+     */
+    public Set<Integer> insertIgnoringExisting(List<Order> orders) {
+        List<Integer> orderIds = orders.stream().map(Order::getOrderId).toList();
+        Set<Integer> existing = new HashSet<>();
+        shards.scatter(shard -> repositories.get(shard).findExistingOrderIds(orderIds)).forEach(existing::addAll);
+        
+        Map<Integer, List<Order>> byShard = new HashMap<>();
+        for (Order order : orders) {
+            if (!existing.contains(order.getOrderId())) {
+                byShard.computeIfAbsent(shards.shardOf(order.getUserId()), shard -> new ArrayList<>()).add(order);
+            }
+        }
+        Set<Integer> inserted = new HashSet<>();
+        byShard.forEach((shard, shardOrders) -> inserted.addAll(repositories.get(shard).insertIgnoringExisting(shardOrders)));
+        return inserted;
+    }
+    
+    /**
+     * Upsert orders on their customers' shards and apply status changes wherever the orders are,
+     * in one transaction per shard; returns the IDs of the orders the changes updated. A shard
+     * that fails leaves the shards before it committed, so callers retry with the same rows, which
+     * both statements accept again.
+     */
+    public Set<Integer> upsertAndApplyStatusChanges(List<Order> orders, List<Order> changes) {
+        List<Integer> orderIds = orders.stream().map(Order::getOrderId).toList();
+        Map<Integer, List<Order>> byShard = new HashMap<>();
+        for (Order order : orders) {
+            byShard.computeIfAbsent(shards.shardOf(order.getUserId()), shard -> new ArrayList<>()).add(order);
+        }
+        Set<Integer> updated = new HashSet<>();
+        for (int i = 0; i < shards.size(); i++) {
+            OrderRepositoryImpl repository = repositories.get(i);
+            List<Order> own = byShard.getOrDefault(i, List.of());
+            // An order whose customer changed would otherwise stay behind on its old shard
+            Set<Integer> elsewhere = new HashSet<>(orderIds);
+            own.forEach(order -> elsewhere.remove(order.getOrderId()));
+            updated.addAll(shards.transaction(i).execute(status -> {
+                repository.deleteByOrderIds(elsewhere);
+                repository.upsertAll(own);
+                return repository.applyStatusChanges(changes);
+            }));
+        }
+        return updated;
+    }
+    
+    /**
+     * Create the missing monthly partitions on every shard; returns the names created on any
+     */
+    public List<String> createPartitions(OffsetDateTime from, OffsetDateTime to) {
+        Set<String> created = new TreeSet<>();
+        repositories.forEach(repository -> created.addAll(repository.createPartitions(from, to)));
+        return new ArrayList<>(created);
+    }
+    
+    /**
+     * Detach the partitions ending on or before the given time on every shard; returns the names
+     * detached on any
+     */
+    public List<String> detachPartitionsBefore(OffsetDateTime before) {
+        Set<String> detached = new TreeSet<>();
+        repositories.forEach(repository -> detached.addAll(repository.detachPartitionsBefore(before)));
+        return new ArrayList<>(detached);
+    }
+    
+    private OrderRepositoryImpl forUser(int userId) {
+        return repositories.get(shards.shardOf(userId));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.think41.customerapi.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Users on the shards (Shards), for the customer reads in CustomerService and the customer checks
+ * of order writes. Off unless shards.enabled is set.
+ *
+ * A customer lives on shard shardOf(id) together with all of their orders, so a lookup by id and
+ * its order count touch one database. Lists, searches and counts run on every shard in parallel.
+ * For a page, each shard returns its first offset + size rows in the query's order and the shard
+ * results are merged on that order before skipping to the offset. Pages starting past
+ * max-page-offset are refused, since every shard would return all the rows before them. Totals are
+ * the sum of the shard counts; a shard that returned fewer rows than asked for is not counted again.
+ */
+@Repository
+public class ShardedUserRepository {
+    
+    @Autowired
+    private Shards shards;
+    
+    @Value("${shards.max-page-offset:10000}")
+    private long maxPageOffset;
+    
+    private final List<UserRepositoryImpl> repositories = new ArrayList<>();
+    
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < shards.size(); i++) {
+            repositories.add(new UserRepositoryImpl(shards.template(i).getJdbcTemplate()));
+        }
+    }
+    
+    public boolean isEnabled() {
+        return shards.isEnabled();
+    }
+    
+    /**
+     * One user row in the layout of CustomerFilterQuery.SELECT_COLUMNS, or null if there is none
+     */
+    public Object[] findUserWithOrderCount(int id) {
+        List<Object[]> rows = repositories.get(shards.shardOf(id)).findUsersWithOrderCountByIds(List.of(id));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+    
+    public boolean existsById(int id) {
+        return repositories.get(shards.shardOf(id)).findExistingIds(List.of(id)).contains(id);
+    }
+    
+    /**
+     * Return which of the given user IDs exist, in one query per shard holding any of them
+     */
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        Map<Integer, List<Integer>> byShard = new HashMap<>();
+        for (Integer id : ids) {
+            byShard.computeIfAbsent(shards.shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        Set<Integer> existing = new HashSet<>();
+        byShard.forEach((shard, shardIds) -> existing.addAll(repositories.get(shard).findExistingIds(shardIds)));
+        return existing;
+    }
+    
+    public long count() {
+        return shards.scatter(shard -> shards.template(shard).queryForObject("SELECT COUNT(*) FROM users", Map.of(), Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+    
+    public Page<Object[]> findUsersWithOrderCount(CustomerFilterQuery query, Pageable pageable) {
+        if (pageable.getOffset() > maxPageOffset) {
+            throw new IllegalArgumentException("Pages starting past row " + maxPageOffset
+                    + " are not available; narrow the filter or search instead");
+        }
+        // Any shard may hold every row of the page, so each returns everything up to its end
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        MapSqlParameterSource parameters = new MapSqlParameterSource(query.getParameters()).addValue("shardLimit", limit);
+        String selectSql = query.getSelectSql() + " LIMIT :shardLimit";
+        
+        List<ShardPage> shardPages = shards.scatter(index -> {
+            NamedParameterJdbcTemplate shard = shards.template(index);
+            List<Object[]> rows = shard.query(selectSql, parameters, (rs, rowNum) -> UserRepositoryImpl.mapRow(rs));
+            long total = rows.size() < limit
+                    ? rows.size()
+                    : shard.queryForObject(query.getCountSql(), query.getParameters(), Long.class);
+            return new ShardPage(rows, total);
+        });
+        
+        List<Object[]> content = Shards.merge(shardPages.stream().map(ShardPage::rows).toList(), query.getRowOrder(),
+                pageable.getOffset(), pageable.getPageSize());
+        long total = shardPages.stream().mapToLong(ShardPage::total).sum();
+        return new PageImpl<>(content, pageable, total);
+    }
+    
+    private record ShardPage(List<Object[]> rows, long total) {}
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.exception.CapacityExceededException;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import com.think41.customerapi.util.GovernedDataSource;
+import com.think41.customerapi.util.RequestBudget;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The databases that users and their orders are split over by a hash of the user id, for
+ * ShardedUserRepository and ShardedOrderRepository. Off unless shards.enabled is set.
+ *
+ * Each shard has its own connection pool, JDBC template and transaction template. Queries that
+ * need every shard run on all of them in parallel on a bounded executor and fail as a whole when
+ * any shard fails or misses the deadline, so results are never silently partial.
+ */
+@Component
+public class Shards {
+    
+    private static final Logger log = LoggerFactory.getLogger(Shards.class);
+    
+    @Value("${shards.enabled:false}")
+    private boolean enabled;
+    
+    // JDBC URLs in shard order; the order is part of the placement and must not change
+    @Value("${shards.urls:}")
+    private List<String> urls;
+    
+    @Value("${shards.username:${spring.datasource.username:}}")
+    private String username;
+    
+    @Value("${shards.password:${spring.datasource.password:}}")
+    private String password;
+    
+    @Value("${shards.pool-size:5}")
+    private int poolSize;
+    
+    @Value("${shards.queue-capacity:256}")
+    private int queueCapacity;
+    
+    @Value("${shards.timeout-ms:2000}")
+    private long timeoutMs;
+    
+    @Value("${budgets.enabled:true}")
+    private boolean budgetsEnabled;
+    
+    @Value("${budgets.timeout-tolerance-ms:100}")
+    private long timeoutToleranceMs;
+    
+    // The snapshot is built from the primary database, which does not hold the users
+    @Value("${customers.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+    
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+    private final List<NamedParameterJdbcTemplate> templates = new ArrayList<>();
+    private final List<TransactionTemplate> transactions = new ArrayList<>();
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("shards.enabled requires shards.urls");
+        }
+        if (snapshotEnabled) {
+            throw new IllegalStateException("shards.enabled cannot be combined with customers.snapshot.enabled");
+        }
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + i);
+            config.setJdbcUrl(urls.get(i).trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            // An unreachable shard fails requests at the deadline rather than after Hikari's 30 s
+            config.setConnectionTimeout(Math.max(250, timeoutMs));
+            HikariDataSource dataSource = new HikariDataSource(config);
+            dataSources.add(dataSource);
+            
+            // Shard statements count against the request's budget like those on the main database
+            DataSource governed = budgetsEnabled ? new GovernedDataSource(dataSource, timeoutToleranceMs) : dataSource;
+            templates.add(new NamedParameterJdbcTemplate(governed));
+            // On the same DataSource as the template, so its statements join the transaction
+            transactions.add(new TransactionTemplate(new DataSourceTransactionManager(governed)));
+        }
+        
+        // Enough threads for every shard connection to be busy at once
+        int threads = urls.size() * poolSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "shard-query-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Reading and writing customers and orders on {} shards", urls.size());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        dataSources.forEach(HikariDataSource::close);
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public int size() {
+        return templates.size();
+    }
+    
+    /**
+     * Shard holding a user and their orders. Fibonacci hashing of the id, scaled to the shard
+     * count; database/create_shards.js computes the same in SQL.
+     */
+    public static int shardOf(int userId, int shardCount) {
+        long hash = (userId * 2654435761L) & 0xFFFFFFFFL;
+        return (int) ((hash * shardCount) >>> 32);
+    }
+    
+    public int shardOf(int userId) {
+        return shardOf(userId, templates.size());
+    }
+    
+    public NamedParameterJdbcTemplate template(int shard) {
+        return templates.get(shard);
+    }
+    
+    public TransactionTemplate transaction(int shard) {
+        return transactions.get(shard);
+    }
+    
+    /**
+     * Run the query on every shard in parallel and return the results in shard order. The query
+     * gets the shard's index.
+     */
+    public <T> List<T> scatter(Function<Integer, T> query) {
+        // The request's own deadline applies if it comes first
+        long deadline = RequestBudget.deadlineWithin(timeoutMs);
+        List<Future<T>> submitted = new ArrayList<>(templates.size());
+        try {
+            for (int i = 0; i < templates.size(); i++) {
+                int shard = i;
+                submitted.add(submit(() -> query.apply(shard)));
+            }
+            List<T> results = new ArrayList<>(templates.size());
+            for (Future<T> future : submitted) {
+                results.add(await(future, deadline));
+            }
+            return results;
+        } finally {
+            // No-op for completed work; stops the other shards after a failure or timeout
+            submitted.forEach(future -> future.cancel(true));
+        }
+    }
+    
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(RequestBudget.wrap(task));
+        } catch (RejectedExecutionException ex) {
+            throw new CapacityExceededException("Too many shard queries in progress, retry shortly", ex);
+        }
+    }
+    
+    private <T> T await(Future<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException("Shard query did not complete before its deadline", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Shard query was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Shard query failed", ex.getCause());
+        }
+    }
+    
+    /**
+     * K-way merge of lists that are each sorted by order, returning size rows from offset
+     */
+    static List<Object[]> merge(List<List<Object[]>> sorted, Comparator<Object[]> order, long offset, int size) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> order.compare(a.head, b.head));
+        for (List<Object[]> rows : sorted) {
+            Iterator<Object[]> rest = rows.iterator();
+            if (rest.hasNext()) {
+                heads.add(new Cursor(rest.next(), rest));
+            }
+        }
+        List<Object[]> page = new ArrayList<>(size);
+        for (long position = 0; position < offset + size && !heads.isEmpty(); position++) {
+            Cursor cursor = heads.poll();
+            if (position >= offset) {
+                page.add(cursor.head);
+            }
+            if (cursor.rest.hasNext()) {
+                cursor.head = cursor.rest.next();
+                heads.add(cursor);
+            }
+        }
+        return page;
+    }
+    
+    private static class Cursor {
+        
+        private Object[] head;
+        private final Iterator<Object[]> rest;
+        
+        Cursor(Object[] head, Iterator<Object[]> rest) {
+            this.head = head;
+            this.rest = rest;
+        }
+    }
+}
\ No newline at end of file
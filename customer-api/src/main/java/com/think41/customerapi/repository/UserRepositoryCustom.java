@@ -0,0 +1,40 @@
+package com.think41.customerapi.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface UserRepositoryCustom {
+    
+    /**
+     * Find users matching any combination of filter predicates, with their order counts
+     */
+    Page<Object[]> findUsersWithOrderCount(CustomerFilterQuery query, Pageable pageable);
+    
+    /**
+     * Return which of the given user IDs exist, in a single query
+     */
+    Set<Integer> findExistingIds(Collection<Integer> ids);
+    
+    /**
+     * Users with their order counts in id order after afterId, in the same column order as
+     * findUsersWithOrderCount
+     */
+    List<Object[]> findUsersWithOrderCountAfter(int afterId, int limit);
+    
+    /**
+     * Users with these IDs and their order counts, in the same column order as
+     * findUsersWithOrderCount; IDs that do not exist are left out
+     */
+    List<Object[]> findUsersWithOrderCountByIds(Collection<Integer> ids);
+    
+    /**
+     * Every user with its order count, passed to handler row by row from a cursor that fetches
+     * fetchSize rows at a time; must run inside a transaction for the cursor to be used
+     */
+    void scanUsersWithOrderCount(int fetchSize, RowCallbackHandler handler);
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.think41.customerapi.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    
+    private static final String USERS_AFTER_SQL = CustomerFilterQuery.SELECT_COLUMNS +
+            " WHERE u.id > ? ORDER BY u.id LIMIT ?";
+    
+    private static final String USERS_BY_IDS_SQL = CustomerFilterQuery.SELECT_COLUMNS +
+            " WHERE u.id = ANY(?)";
+    
+    // One pass over order_keys instead of a count subquery per user
+    private static final String SCAN_SQL = "SELECT u.id, u.first_name, u.last_name, u.email, u.age, u.gender, " +
+            "u.state, u.street_address, u.postal_code, u.city, u.country, u.latitude, u.longitude, " +
+            "u.traffic_source, u.created_at, COALESCE(c.order_count, 0) AS order_count FROM users u " +
+            "LEFT JOIN (SELECT user_id, COUNT(*) AS order_count FROM order_keys GROUP BY user_id) c " +
+            "ON c.user_id = u.id";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public UserRepositoryImpl() {
+    }
+    
+    /**
+     * For a shard (ShardedUserRepository), which has no EntityManager: only the JDBC methods work
+     */
+    UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Page<Object[]> findUsersWithOrderCount(CustomerFilterQuery query, Pageable pageable) {
+        Query select = entityManager.createNativeQuery(query.getSelectSql());
+        query.getParameters().forEach(select::setParameter);
+        select.setFirstResult((int) pageable.getOffset());
+        select.setMaxResults(pageable.getPageSize());
+        List<Object[]> content = select.getResultList();
+        
+        // The count query is skipped when the page itself reveals the total
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            Query count = entityManager.createNativeQuery(query.getCountSql());
+            query.getParameters().forEach(count::setParameter);
+            return ((Number) count.getSingleResult()).longValue();
+        });
+    }
+    
+    @Override
+    public Set<Integer> findExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        // One array parameter instead of an IN list, so the statement is the same for any batch size
+        List<Integer> existing = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id FROM users WHERE id = ANY(?)");
+            statement.setArray(1, connection.createArrayOf("int4", ids.toArray(new Integer[0])));
+            return statement;
+        }, (rs, rowNum) -> rs.getInt(1));
+        return new HashSet<>(existing);
+    }
+    
+    @Override
+    public List<Object[]> findUsersWithOrderCountAfter(int afterId, int limit) {
+        return jdbcTemplate.query(USERS_AFTER_SQL, (rs, rowNum) -> mapRow(rs), afterId, limit);
+    }
+    
+    @Override
+    public List<Object[]> findUsersWithOrderCountByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(USERS_BY_IDS_SQL);
+            statement.setArray(1, connection.createArrayOf("int4", ids.toArray(new Integer[0])));
+            return statement;
+        }, (rs, rowNum) -> mapRow(rs));
+    }
+    
+    @Override
+    public void scanUsersWithOrderCount(int fetchSize, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SCAN_SQL);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
+    
+    static Object[] mapRow(ResultSet rs) throws SQLException {
+        Object[] row = new Object[rs.getMetaData().getColumnCount()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = rs.getObject(i + 1);
+        }
+        return row;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Evicts cached customers and orders changed on any instance
+ */
+@Component
+public class CacheInvalidationHandler implements DatabaseChangeHandler {
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Override
+    public void onChanged(String table, Set<Integer> ids) {
+        Cache cache = cacheManager.getCache(table.equals("users") ? CacheConfig.CUSTOMERS : CacheConfig.ORDERS);
+        if (cache != null) {
+            ids.forEach(cache::evict);
+        }
+    }
+    
+    @Override
+    public void onResync() {
+        cacheManager.getCacheNames().forEach(name -> {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,310 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.exception.CapacityExceededException;
+import com.think41.customerapi.exception.FeatureUnavailableException;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import com.think41.customerapi.repository.UserRepository;
+import com.think41.customerapi.util.ArrowStreamWriter;
+import com.think41.customerapi.util.ColumnarBatch;
+import com.think41.customerapi.util.ColumnarBatch.Column;
+import com.think41.customerapi.util.ColumnarBatch.Type;
+import com.think41.customerapi.util.ColumnarWriter;
+import com.think41.customerapi.util.ParquetWriter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Columnar snapshots of the orders and users tables as Apache Arrow IPC streams or Parquet files,
+ * for analytics tools that would otherwise page through the JSON API.
+ *
+ * An export reads its table once, from a cursor in a read-only transaction, and writes it in
+ * batches of exports.batch-size rows: one Arrow record batch or one Parquet row group each.
+ * status, country and traffic_source are dictionary encoded. Each running export holds a
+ * database connection throughout, so at most exports.max-concurrent run at once and further
+ * requests are rejected with CapacityExceededException. With exports.schedule-cron set, both
+ * tables are also written in both formats to exports.dir.
+ */
+@Service
+public class ColumnarExportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ColumnarExportService.class);
+    
+    public enum Table {
+        ORDERS(List.of(
+                Column.of("order_id", Type.INT32, false),
+                Column.of("user_id", Type.INT32, false),
+                Column.of("status", Type.DICTIONARY, false),
+                Column.of("gender", Type.STRING, true),
+                Column.of("created_at", Type.TIMESTAMP_MICROS, false),
+                Column.of("returned_at", Type.TIMESTAMP_MICROS, true),
+                Column.of("shipped_at", Type.TIMESTAMP_MICROS, true),
+                Column.of("delivered_at", Type.TIMESTAMP_MICROS, true),
+                Column.of("num_of_item", Type.INT32, true))),
+        USERS(List.of(
+                Column.of("id", Type.INT32, false),
+                Column.of("first_name", Type.STRING, false),
+                Column.of("last_name", Type.STRING, false),
+                Column.of("email", Type.STRING, false),
+                Column.of("age", Type.INT32, true),
+                Column.of("gender", Type.STRING, true),
+                Column.of("state", Type.STRING, true),
+                Column.of("street_address", Type.STRING, true),
+                Column.of("postal_code", Type.STRING, true),
+                Column.of("city", Type.STRING, true),
+                Column.of("country", Type.DICTIONARY, true),
+                Column.decimal("latitude", 10, 8, true),
+                Column.decimal("longitude", 11, 8, true),
+                Column.of("traffic_source", Type.DICTIONARY, true),
+                Column.of("created_at", Type.TIMESTAMP_MICROS, false),
+                Column.of("order_count", Type.INT64, false)));
+        
+        // In the column order of the repository's scan query
+        private final List<Column> columns;
+        
+        Table(List<Column> columns) {
+            this.columns = columns;
+        }
+        
+        public String fileName(Format format) {
+            return name().toLowerCase() + "." + format.name().toLowerCase();
+        }
+    }
+    
+    public enum Format {
+        ARROW(ArrowStreamWriter.MEDIA_TYPE), PARQUET(ParquetWriter.MEDIA_TYPE);
+        
+        private final String mediaType;
+        
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+        
+        public String getMediaType() {
+            return mediaType;
+        }
+        
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (value != null && format.name().equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("format must be one of: arrow, parquet");
+        }
+    }
+    
+    /**
+     * Where an export is written. Opened only once the export has been admitted, so that a
+     * rejected request can still be answered with an error body.
+     */
+    @FunctionalInterface
+    public interface Target {
+        OutputStream open() throws IOException;
+    }
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${exports.batch-size:65536}")
+    private int batchSize;
+    
+    @Value("${exports.max-concurrent:2}")
+    private int maxConcurrent;
+    
+    @Value("${exports.parquet-compression:gzip}")
+    private String parquetCompression;
+    
+    @Value("${exports.dir:data/exports}")
+    private String directory;
+    
+    private Semaphore permits;
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void start() {
+        if (!"gzip".equals(parquetCompression) && !"none".equals(parquetCompression)) {
+            throw new IllegalArgumentException("exports.parquet-compression must be gzip or none");
+        }
+        permits = new Semaphore(maxConcurrent);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+    }
+    
+    /**
+     * Write the whole table in format to target; returns the number of rows written
+     */
+    public long export(Table table, Format format, Target target) throws IOException {
+        // Exports scan the primary database, which holds no users or orders while they are sharded
+        if (shardedOrders.isEnabled()) {
+            throw new FeatureUnavailableException("Exports are not available while customers and orders are sharded");
+        }
+        if (!permits.tryAcquire()) {
+            throw new CapacityExceededException("Too many exports in progress, retry shortly");
+        }
+        try {
+            OutputStream out = new BufferedOutputStream(target.open(), 1 << 16);
+            long rows = write(table, format, out);
+            out.flush();
+            return rows;
+        } finally {
+            permits.release();
+        }
+    }
+    
+    /**
+     * Write every table in every format to exports.dir, each through a temporary file that is
+     * then moved over the previous export
+     */
+    @Scheduled(cron = "${exports.schedule-cron:-}")
+    public void exportToDirectory() {
+        if (shardedOrders.isEnabled()) {
+            log.warn("Scheduled export skipped: exports are not available while customers and orders are sharded");
+            return;
+        }
+        Path dir = Paths.get(directory);
+        for (Table table : Table.values()) {
+            for (Format format : Format.values()) {
+                Path file = dir.resolve(table.fileName(format));
+                Path partial = dir.resolve(file.getFileName() + ".partial");
+                long started = System.nanoTime();
+                permits.acquireUninterruptibly();
+                try {
+                    Files.createDirectories(dir);
+                    long rows;
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16)) {
+                        rows = write(table, format, out);
+                    }
+                    Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    log.info("Exported {} rows to {} in {} ms", rows, file, (System.nanoTime() - started) / 1_000_000);
+                } catch (IOException | RuntimeException ex) {
+                    log.warn("Export of {} failed: {}", file, ex.getMessage());
+                } finally {
+                    permits.release();
+                }
+            }
+        }
+    }
+    
+    private long write(Table table, Format format, OutputStream out) throws IOException {
+        ColumnarWriter writer = format == Format.ARROW
+                ? new ArrowStreamWriter(out, table.columns)
+                : new ParquetWriter(out, table.columns, "gzip".equals(parquetCompression));
+        ColumnarBatch batch = new ColumnarBatch(table.columns, batchSize);
+        long[] rows = new long[1];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (table == Table.ORDERS) {
+                    orderRepository.scanOrders(batchSize, rs -> {
+                        addRow(rs, batch, writer);
+                        rows[0]++;
+                    });
+                } else {
+                    userRepository.scanUsersWithOrderCount(batchSize, rs -> {
+                        addRow(rs, batch, writer);
+                        rows[0]++;
+                    });
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            // The cursor's row callback cannot throw IOException
+            throw ex.getCause();
+        }
+        if (batch.size() > 0) {
+            writer.write(batch);
+        }
+        writer.finish();
+        return rows[0];
+    }
+    
+    /**
+     * Copy the current row into batch, writing the batch out once it is full
+     */
+    private static void addRow(ResultSet rs, ColumnarBatch batch, ColumnarWriter writer) throws SQLException {
+        List<Column> columns = batch.columns();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            switch (column.type()) {
+                case INT32 -> {
+                    int value = rs.getInt(i + 1);
+                    if (rs.wasNull()) {
+                        batch.setNull(i);
+                    } else {
+                        batch.setInt(i, value);
+                    }
+                }
+                case INT64 -> {
+                    long value = rs.getLong(i + 1);
+                    if (rs.wasNull()) {
+                        batch.setNull(i);
+                    } else {
+                        batch.setLong(i, value);
+                    }
+                }
+                case TIMESTAMP_MICROS -> {
+                    OffsetDateTime value = rs.getObject(i + 1, OffsetDateTime.class);
+                    if (value == null) {
+                        batch.setNull(i);
+                    } else {
+                        batch.setLong(i, value.toEpochSecond() * 1_000_000 + value.getNano() / 1_000);
+                    }
+                }
+                case DECIMAL -> {
+                    BigDecimal value = rs.getBigDecimal(i + 1);
+                    if (value == null) {
+                        batch.setNull(i);
+                    } else {
+                        batch.setLong(i, value.setScale(column.scale()).unscaledValue().longValueExact());
+                    }
+                }
+                case STRING, DICTIONARY -> {
+                    String value = rs.getString(i + 1);
+                    if (value == null) {
+                        batch.setNull(i);
+                    } else {
+                        batch.setString(i, value);
+                    }
+                }
+            }
+        }
+        if (batch.endRow()) {
+            try {
+                writer.write(batch);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            batch.clear();
+        }
+    }
+}
\ No newline at end of file
@@ -1,11 +1,20 @@
 package com.think41.customerapi.service;
 
+import com.think41.customerapi.config.CacheConfig;
+import com.think41.customerapi.dto.CustomerFilter;
 import com.think41.customerapi.dto.CustomerResponse;
 import com.think41.customerapi.dto.PagedResponse;
 import com.think41.customerapi.entity.User;
 import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.repository.CustomerFilterQuery;
+import com.think41.customerapi.repository.ShardedUserRepository;
 import com.think41.customerapi.repository.UserRepository;
+import com.think41.customerapi.util.SingleFlight;
+import com.think41.customerapi.util.SqlValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -22,23 +31,49 @@ public class CustomerService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private CustomerSnapshotService customerSnapshot;
+    
+    @Autowired
+    private IdFilterService idFilter;
+    
+    @Autowired
+    private ShardedUserRepository shardedUsers;
+    
+    @Autowired
+    private PagePrefetchService prefetch;
+    
+    // Identical concurrent lookups (e.g. a featured customer) share one query
+    private final SingleFlight<Integer, CustomerResponse> customerFlights = new SingleFlight<>("customer");
+    private final SingleFlight<String, Long> countFlights = new SingleFlight<>("customer_count");
+    
+    @PostConstruct
+    public void registerMetrics() {
+        customerFlights.bindTo(meterRegistry);
+        countFlights.bindTo(meterRegistry);
+    }
+    
     /**
-     * Get all customers with pagination
+     * Get all customers matching the filter with pagination
      */
-    public PagedResponse<CustomerResponse> getAllCustomers(int page, int size, String search, String country) {
+    public PagedResponse<CustomerResponse> getAllCustomers(CustomerFilter filter, int page, int size) {
+        CustomerFilterQuery query = CustomerFilterQuery.of(filter);
+        // The list is identified by its SQL and parameters, whichever filter spelling produced them
+        List<Object> stream = List.of("customers", query.getSelectSql(), query.getParameters());
+        return prefetch.getPage(stream, page, size, p -> loadCustomers(query, p, size));
+    }
+    
+    private PagedResponse<CustomerResponse> loadCustomers(CustomerFilterQuery query, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Object[]> userPage;
-        
-        if (search != null && !search.trim().isEmpty()) {
-            userPage = userRepository.searchUsersWithOrderCount(search.trim(), pageable);
-        } else if (country != null && !country.trim().isEmpty()) {
-            userPage = userRepository.findUsersByCountryWithOrderCount(country.trim(), pageable);
-        } else {
-            userPage = userRepository.findAllUsersWithOrderCount(pageable);
-        }
+        Page<Object[]> userPage = shardedUsers.isEnabled()
+                ? shardedUsers.findUsersWithOrderCount(query, pageable)
+                : userRepository.findUsersWithOrderCount(query, pageable);
         
         List<CustomerResponse> customers = userPage.getContent().stream()
-                .map(this::mapToCustomerResponse)
+                .map(CustomerService::toCustomerResponse)
                 .collect(Collectors.toList());
         
         return new PagedResponse<>(
@@ -55,9 +90,37 @@ public class CustomerService {
     /**
      * Get customer by ID with order count
      */
+    // Not cached while sharded: the change notifications that evict entries come from the primary database
+    @Cacheable(cacheNames = CacheConfig.CUSTOMERS, key = "#id",
+               condition = "!@customerSnapshotService.serving && !@shardedUserRepository.enabled")
     public CustomerResponse getCustomerById(Integer id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new CustomerNotFoundException("Customer not found with ID: " + id));
+        if (!idFilter.mightBeCustomer(id)) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + id);
+        }
+        if (customerSnapshot.covers(id)) {
+            CustomerResponse customer = customerSnapshot.find(id);
+            if (customer == null) {
+                throw new CustomerNotFoundException("Customer not found with ID: " + id);
+            }
+            return customer;
+        }
+        return customerFlights.execute(id, () -> loadCustomer(id));
+    }
+    
+    private CustomerResponse loadCustomer(Integer id) {
+        if (shardedUsers.isEnabled()) {
+            Object[] row = shardedUsers.findUserWithOrderCount(id);
+            if (row == null) {
+                throw new CustomerNotFoundException("Customer not found with ID: " + id);
+            }
+            return toCustomerResponse(row);
+        }
+        
+        User user = userRepository.findById(id).orElse(null);
+        if (user == null) {
+            idFilter.customerNotFound();
+            throw new CustomerNotFoundException("Customer not found with ID: " + id);
+        }
         
         // Get order count separately
         long orderCount = userRepository.countOrdersByUserId(id);
@@ -86,20 +149,42 @@ public class CustomerService {
      * Check if customer exists
      */
     public boolean customerExists(Integer id) {
-        return userRepository.existsById(id);
+        if (!idFilter.mightBeCustomer(id)) {
+            return false;
+        }
+        if (customerSnapshot.covers(id)) {
+            return customerSnapshot.exists(id);
+        }
+        if (shardedUsers.isEnabled()) {
+            return shardedUsers.existsById(id);
+        }
+        boolean exists = userRepository.existsById(id);
+        if (!exists) {
+            idFilter.customerNotFound();
+        }
+        return exists;
+    }
+    
+    /**
+     * Throw CustomerNotFoundException unless the customer exists
+     */
+    public void requireCustomer(Integer id) {
+        if (!customerExists(id)) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + id);
+        }
     }
     
     /**
      * Get total customer count
      */
     public long getTotalCustomerCount() {
-        return userRepository.count();
+        return countFlights.execute("all", shardedUsers.isEnabled() ? shardedUsers::count : userRepository::count);
     }
     
     /**
      * Map native query result to CustomerResponse DTO
      */
-    private CustomerResponse mapToCustomerResponse(Object[] result) {
+    static CustomerResponse toCustomerResponse(Object[] result) {
         // Native query returns raw database values
         Integer id = (Integer) result[0];
         String firstName = (String) result[1];
@@ -115,9 +200,7 @@ public class CustomerService {
         java.math.BigDecimal latitude = (java.math.BigDecimal) result[11];
         java.math.BigDecimal longitude = (java.math.BigDecimal) result[12];
         String trafficSource = (String) result[13];
-        java.sql.Timestamp createdAtTimestamp = (java.sql.Timestamp) result[14];
-        java.time.OffsetDateTime createdAt = createdAtTimestamp != null ? 
-            createdAtTimestamp.toLocalDateTime().atOffset(java.time.ZoneOffset.UTC) : null;
+        OffsetDateTime createdAt = SqlValues.toOffsetDateTime(result[14]);
         Long orderCount = result[15] != null ? ((Number) result[15]).longValue() : 0L;
         
         return new CustomerResponse(
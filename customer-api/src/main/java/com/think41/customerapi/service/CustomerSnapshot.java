@@ -0,0 +1,377 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.util.MappedStringPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Memory-mapped file of customers with their order counts, one fixed-width record per id.
+ *
+ * A record sits at HEADER_BYTES + id * RECORD_BYTES and holds the numeric columns inline and
+ * the text columns as offsets into a {@link MappedStringPool}. One writer thread updates records
+ * under a per-record sequence number (odd while a write is in progress), and readers retry until
+ * they see the same even number before and after reading, so lookups take no locks and never see
+ * half-written rows.
+ *
+ * The header records whether the file was closed cleanly and whether a full build has completed.
+ * A file that was not closed cleanly is discarded on open, since mapped pages may have been
+ * written back in any order.
+ */
+class CustomerSnapshot implements Closeable {
+    
+    private static final int MAGIC = 0x43534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 88;
+    private static final int MIN_CAPACITY = 1024;
+    
+    // Header
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_BYTES = 8;
+    private static final int H_CLEAN = 12;
+    private static final int H_COMPLETE = 16;
+    private static final int H_COUNT = 20;
+    
+    // Record
+    private static final int R_SEQUENCE = 0;
+    private static final int R_PRESENT = 4;
+    private static final int R_FIRST_NAME = 8;
+    private static final int R_LAST_NAME = 12;
+    private static final int R_EMAIL = 16;
+    private static final int R_GENDER = 20;
+    private static final int R_STATE = 24;
+    private static final int R_STREET_ADDRESS = 28;
+    private static final int R_POSTAL_CODE = 32;
+    private static final int R_CITY = 36;
+    private static final int R_COUNTRY = 40;
+    private static final int R_TRAFFIC_SOURCE = 44;
+    private static final int R_AGE = 48;
+    private static final int R_LATITUDE = 56;
+    private static final int R_LONGITUDE = 64;
+    private static final int R_CREATED_AT = 72;
+    private static final int R_ORDER_COUNT = 80;
+    
+    // latitude DECIMAL(10, 8) and longitude DECIMAL(11, 8) are stored as unscaled longs
+    private static final int COORDINATE_SCALE = 8;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    
+    private final FileChannel channel;
+    private final MappedStringPool strings;
+    private final int maxId;
+    private volatile MappedByteBuffer records;
+    
+    // Writer only
+    private int count;
+    
+    private CustomerSnapshot(FileChannel channel, MappedStringPool strings, int maxId) throws IOException {
+        this.channel = channel;
+        this.strings = strings;
+        this.maxId = maxId;
+        this.records = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(channel.size(), HEADER_BYTES + (long) MIN_CAPACITY * RECORD_BYTES));
+        this.count = records.getInt(H_COUNT);
+    }
+    
+    /**
+     * Open the snapshot in directory, starting over when the files are missing, from another
+     * format version or were not closed cleanly; ids above maxId are never stored
+     */
+    static CustomerSnapshot open(Path directory, int maxId) throws IOException {
+        if (maxId < 0 || offset(maxId) + RECORD_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxId must be between 0 and "
+                    + ((Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES - 1));
+        }
+        Files.createDirectories(directory);
+        Path recordFile = directory.resolve("customers.records");
+        Path stringFile = directory.resolve("customers.strings");
+        
+        if (!isReusable(recordFile)) {
+            Files.deleteIfExists(recordFile);
+            Files.deleteIfExists(stringFile);
+        }
+        
+        FileChannel channel = FileChannel.open(recordFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        CustomerSnapshot snapshot = new CustomerSnapshot(channel, new MappedStringPool(stringFile), maxId);
+        MappedByteBuffer header = snapshot.records;
+        header.putInt(H_MAGIC, MAGIC);
+        header.putInt(H_VERSION, VERSION);
+        header.putInt(H_RECORD_BYTES, RECORD_BYTES);
+        // Marked dirty until close(), so a crash discards the file on the next open
+        header.putInt(H_CLEAN, 0);
+        header.force();
+        return snapshot;
+    }
+    
+    private static boolean isReusable(Path recordFile) throws IOException {
+        if (!Files.exists(recordFile) || Files.size(recordFile) < HEADER_BYTES) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(recordFile, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            return header.getInt(H_MAGIC) == MAGIC
+                    && header.getInt(H_VERSION) == VERSION
+                    && header.getInt(H_RECORD_BYTES) == RECORD_BYTES
+                    && header.getInt(H_CLEAN) == 1;
+        }
+    }
+    
+    /**
+     * Whether id is within the range this snapshot can hold
+     */
+    boolean covers(int id) {
+        return id >= 0 && id <= maxId;
+    }
+    
+    /**
+     * Whether a full build has completed, so a missing record means the customer does not exist
+     */
+    boolean isComplete() {
+        return records.getInt(H_COMPLETE) == 1;
+    }
+    
+    int size() {
+        return count;
+    }
+    
+    /**
+     * Whether a customer with this id is stored; reads one int and allocates nothing
+     */
+    boolean contains(int id) {
+        MappedByteBuffer buffer = records;
+        long base = offset(id);
+        if (id < 0 || base + RECORD_BYTES > buffer.capacity()) {
+            return false;
+        }
+        return (int) INT.getAcquire(buffer, (int) base + R_PRESENT) == 1;
+    }
+    
+    /**
+     * The stored customer, or null when there is no record for id
+     */
+    CustomerResponse get(int id) {
+        MappedByteBuffer buffer = records;
+        long offset = offset(id);
+        if (id < 0 || offset + RECORD_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int base = (int) offset;
+        
+        int firstName, lastName, email, gender, state, streetAddress, postalCode, city, country, trafficSource, age;
+        long latitude, longitude, createdAt, orderCount;
+        while (true) {
+            int sequence = (int) INT.getAcquire(buffer, base + R_SEQUENCE);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (buffer.getInt(base + R_PRESENT) != 1) {
+                VarHandle.acquireFence();
+                if ((int) INT.getAcquire(buffer, base + R_SEQUENCE) == sequence) {
+                    return null;
+                }
+                continue;
+            }
+            firstName = buffer.getInt(base + R_FIRST_NAME);
+            lastName = buffer.getInt(base + R_LAST_NAME);
+            email = buffer.getInt(base + R_EMAIL);
+            gender = buffer.getInt(base + R_GENDER);
+            state = buffer.getInt(base + R_STATE);
+            streetAddress = buffer.getInt(base + R_STREET_ADDRESS);
+            postalCode = buffer.getInt(base + R_POSTAL_CODE);
+            city = buffer.getInt(base + R_CITY);
+            country = buffer.getInt(base + R_COUNTRY);
+            trafficSource = buffer.getInt(base + R_TRAFFIC_SOURCE);
+            age = buffer.getInt(base + R_AGE);
+            latitude = buffer.getLong(base + R_LATITUDE);
+            longitude = buffer.getLong(base + R_LONGITUDE);
+            createdAt = buffer.getLong(base + R_CREATED_AT);
+            orderCount = buffer.getLong(base + R_ORDER_COUNT);
+            VarHandle.acquireFence();
+            if ((int) INT.getAcquire(buffer, base + R_SEQUENCE) == sequence) {
+                break;
+            }
+        }
+        
+        // String offsets are stable once read, since pool entries are never rewritten
+        return new CustomerResponse(
+                id,
+                strings.get(firstName),
+                strings.get(lastName),
+                strings.get(email),
+                age != NULL_INT ? age : null,
+                strings.get(gender),
+                strings.get(state),
+                strings.get(streetAddress),
+                strings.get(postalCode),
+                strings.get(city),
+                strings.get(country),
+                latitude != NULL_LONG ? BigDecimal.valueOf(latitude, COORDINATE_SCALE) : null,
+                longitude != NULL_LONG ? BigDecimal.valueOf(longitude, COORDINATE_SCALE) : null,
+                strings.get(trafficSource),
+                createdAt != NULL_LONG ? fromEpochMicros(createdAt) : null,
+                orderCount
+        );
+    }
+    
+    /**
+     * Store or replace a customer; writer thread only
+     */
+    void put(CustomerResponse customer) {
+        int id = customer.getId();
+        if (!covers(id)) {
+            return;
+        }
+        // Strings are appended before the record that points at them is published
+        int firstName = strings.intern(customer.getFirstName());
+        int lastName = strings.intern(customer.getLastName());
+        int email = strings.intern(customer.getEmail());
+        int gender = strings.intern(customer.getGender());
+        int state = strings.intern(customer.getState());
+        int streetAddress = strings.intern(customer.getStreetAddress());
+        int postalCode = strings.intern(customer.getPostalCode());
+        int city = strings.intern(customer.getCity());
+        int country = strings.intern(customer.getCountry());
+        int trafficSource = strings.intern(customer.getTrafficSource());
+        
+        MappedByteBuffer buffer = ensureCapacity(id);
+        int base = (int) offset(id);
+        int sequence = beginWrite(buffer, base);
+        boolean added = buffer.getInt(base + R_PRESENT) != 1;
+        buffer.putInt(base + R_PRESENT, 1);
+        buffer.putInt(base + R_FIRST_NAME, firstName);
+        buffer.putInt(base + R_LAST_NAME, lastName);
+        buffer.putInt(base + R_EMAIL, email);
+        buffer.putInt(base + R_GENDER, gender);
+        buffer.putInt(base + R_STATE, state);
+        buffer.putInt(base + R_STREET_ADDRESS, streetAddress);
+        buffer.putInt(base + R_POSTAL_CODE, postalCode);
+        buffer.putInt(base + R_CITY, city);
+        buffer.putInt(base + R_COUNTRY, country);
+        buffer.putInt(base + R_TRAFFIC_SOURCE, trafficSource);
+        buffer.putInt(base + R_AGE, customer.getAge() != null ? customer.getAge() : NULL_INT);
+        buffer.putLong(base + R_LATITUDE, unscaled(customer.getLatitude()));
+        buffer.putLong(base + R_LONGITUDE, unscaled(customer.getLongitude()));
+        buffer.putLong(base + R_CREATED_AT, customer.getCreatedAt() != null
+                ? toEpochMicros(customer.getCreatedAt()) : NULL_LONG);
+        buffer.putLong(base + R_ORDER_COUNT, customer.getOrderCount() != null ? customer.getOrderCount() : 0L);
+        endWrite(buffer, base, sequence);
+        if (added) {
+            buffer.putInt(H_COUNT, ++count);
+        }
+    }
+    
+    /**
+     * Remove the customer with this id if stored; writer thread only
+     */
+    void remove(int id) {
+        MappedByteBuffer buffer = records;
+        long offset = offset(id);
+        if (id < 0 || offset + RECORD_BYTES > buffer.capacity()) {
+            return;
+        }
+        int base = (int) offset;
+        if (buffer.getInt(base + R_PRESENT) != 1) {
+            return;
+        }
+        int sequence = beginWrite(buffer, base);
+        buffer.putInt(base + R_PRESENT, 0);
+        endWrite(buffer, base, sequence);
+        buffer.putInt(H_COUNT, --count);
+    }
+    
+    /**
+     * Remove every stored customer with an id in [fromId, toId]; writer thread only
+     */
+    void removeRange(int fromId, int toId) {
+        int last = Math.min(toId, (records.capacity() - HEADER_BYTES) / RECORD_BYTES - 1);
+        for (int id = Math.max(fromId, 0); id <= last; id++) {
+            remove(id);
+        }
+    }
+    
+    /**
+     * Record that a full build has completed; writer thread only
+     */
+    void markComplete() {
+        records.putInt(H_COMPLETE, 1);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        // Data first, then the clean flag, so the flag is never on disk ahead of the data
+        strings.close();
+        MappedByteBuffer buffer = records;
+        buffer.force();
+        buffer.putInt(H_CLEAN, 1);
+        buffer.force();
+        channel.close();
+    }
+    
+    private MappedByteBuffer ensureCapacity(int id) {
+        MappedByteBuffer buffer = records;
+        long required = offset(id) + RECORD_BYTES;
+        if (required <= buffer.capacity()) {
+            return buffer;
+        }
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        try {
+            // Readers holding the old mapping still see the same file pages
+            records = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.min(capacity, HEADER_BYTES + ((long) maxId + 1) * RECORD_BYTES));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not grow customer snapshot", ex);
+        }
+        return records;
+    }
+    
+    private static int beginWrite(MappedByteBuffer buffer, int base) {
+        int sequence = buffer.getInt(base + R_SEQUENCE) + 1;
+        INT.setOpaque(buffer, base + R_SEQUENCE, sequence);
+        VarHandle.storeStoreFence();
+        return sequence;
+    }
+    
+    private static void endWrite(MappedByteBuffer buffer, int base, int sequence) {
+        INT.setRelease(buffer, base + R_SEQUENCE, sequence + 1);
+    }
+    
+    private static long offset(int id) {
+        return HEADER_BYTES + (long) id * RECORD_BYTES;
+    }
+    
+    private static long unscaled(BigDecimal value) {
+        return value != null ? value.setScale(COORDINATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact() : NULL_LONG;
+    }
+    
+    private static long toEpochMicros(OffsetDateTime value) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, value.toInstant());
+    }
+    
+    private static OffsetDateTime fromEpochMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+}
\ No newline at end of file
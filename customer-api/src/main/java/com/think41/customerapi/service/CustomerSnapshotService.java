@@ -0,0 +1,239 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves customer lookups from a memory-mapped snapshot of all users (CustomerSnapshot).
+ *
+ * Optional, enabled with customers.snapshot.enabled. The snapshot is kept current from the
+ * shared DatabaseChangeListener: changed users are re-read and rewritten one batch at a time on
+ * a single writer thread. A full rebuild runs in id-ordered chunks on startup and after every
+ * resync, interleaved with those updates. A file that was closed cleanly is served as soon as it
+ * is opened, while the rebuild catches up with changes made while the instance was down; until a
+ * first full build completes, lookups go to the database. They also go to the database while the
+ * listener is disconnected, and for customers whose changes could not be re-read yet.
+ */
+@Service
+public class CustomerSnapshotService implements DatabaseChangeHandler {
+    
+    private static final Logger log = LoggerFactory.getLogger(CustomerSnapshotService.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ObjectProvider<DatabaseChangeListener> changeListener;
+    
+    @Value("${customers.snapshot.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${customers.snapshot.dir:data/customer-snapshot}")
+    private String directory;
+    
+    @Value("${customers.snapshot.max-id:10000000}")
+    private int maxId;
+    
+    @Value("${customers.snapshot.scan-chunk-size:5000}")
+    private int scanChunkSize;
+    
+    @Value("${customers.snapshot.retry-delay-ms:1000}")
+    private long retryDelayMs;
+    
+    private CustomerSnapshot snapshot;
+    private volatile boolean serving;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    
+    // Changed customers whose reload failed; their records are out of date until a retry succeeds
+    private final Set<Integer> stale = ConcurrentHashMap.newKeySet();
+    
+    // Writer thread only
+    private boolean rebuilding;
+    private long rebuildStartedAt;
+    
+    // Every write goes through this thread, so the snapshot has a single writer
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            snapshot = CustomerSnapshot.open(Paths.get(directory), maxId);
+        } catch (IOException ex) {
+            log.warn("Customer snapshot disabled, could not open {}: {}", directory, ex.getMessage());
+            return;
+        }
+        serving = snapshot.isComplete();
+        // The listener's resync on connect starts the rebuild that catches up with changes made
+        // while this instance was down
+        log.info("Opened customer snapshot in {} with {} customers{}", directory, snapshot.size(),
+                serving ? "" : ", serving from the database until the first build completes");
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.shutdownNow();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+        if (snapshot != null) {
+            serving = false;
+            try {
+                snapshot.close();
+            } catch (IOException ex) {
+                log.warn("Could not close customer snapshot: {}", ex.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Whether lookups are being answered from the snapshot
+     */
+    public boolean isServing() {
+        return serving;
+    }
+    
+    /**
+     * Whether the snapshot can answer for this id; when false, use the database
+     */
+    public boolean covers(Integer id) {
+        // Without the listener, changes are not arriving and the snapshot may be out of date
+        if (!serving || id == null || !snapshot.covers(id) || stale.contains(id)) {
+            return false;
+        }
+        DatabaseChangeListener listener = changeListener.getIfAvailable();
+        return listener != null && listener.isListening();
+    }
+    
+    /**
+     * The customer from the snapshot, or null if there is none; only valid when covers(id)
+     */
+    public CustomerResponse find(Integer id) {
+        return snapshot.get(id);
+    }
+    
+    /**
+     * Whether the customer exists, read without allocating; only valid when covers(id)
+     */
+    public boolean exists(Integer id) {
+        return snapshot.contains(id);
+    }
+    
+    @Override
+    public void onChanged(String table, Set<Integer> ids) {
+        // Order changes are also reported as changes to their customers
+        if (snapshot != null && "users".equals(table)) {
+            writer.execute(() -> apply(ids));
+        }
+    }
+    
+    @Override
+    public void onResync() {
+        requestRebuild();
+    }
+    
+    private void apply(Set<Integer> ids) {
+        List<Object[]> rows;
+        try {
+            rows = userRepository.findUsersWithOrderCountByIds(ids);
+        } catch (RuntimeException ex) {
+            // Served from the database until the retry succeeds
+            stale.addAll(ids);
+            log.warn("Could not load {} changed customers for the snapshot, retrying in {} ms: {}",
+                    ids.size(), retryDelayMs, ex.getMessage());
+            writer.schedule(() -> apply(ids), retryDelayMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        Set<Integer> deleted = new HashSet<>(ids);
+        for (Object[] row : rows) {
+            CustomerResponse customer = CustomerService.toCustomerResponse(row);
+            snapshot.put(customer);
+            deleted.remove(customer.getId());
+        }
+        deleted.forEach(snapshot::remove);
+        stale.removeAll(ids);
+    }
+    
+    private void requestRebuild() {
+        if (snapshot != null && !rebuildRequested.getAndSet(true)) {
+            writer.execute(this::startRebuild);
+        }
+    }
+    
+    private void startRebuild() {
+        if (rebuilding) {
+            // The running pass starts another when it finishes, since rebuildRequested is set
+            return;
+        }
+        rebuilding = true;
+        rebuildRequested.set(false);
+        rebuildStartedAt = System.nanoTime();
+        rebuildChunk(-1);
+    }
+    
+    /**
+     * Rewrite the customers after afterId, then queue the next chunk behind any pending updates
+     */
+    private void rebuildChunk(int afterId) {
+        List<Object[]> rows;
+        try {
+            rows = userRepository.findUsersWithOrderCountAfter(afterId, scanChunkSize);
+        } catch (RuntimeException ex) {
+            // Start over, since the listener may have stayed connected and will not resync
+            rebuilding = false;
+            log.warn("Customer snapshot rebuild failed after id {}, retrying in {} ms: {}",
+                    afterId, retryDelayMs, ex.getMessage());
+            writer.schedule(this::requestRebuild, retryDelayMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        
+        int previousId = afterId;
+        for (Object[] row : rows) {
+            CustomerResponse customer = CustomerService.toCustomerResponse(row);
+            // Ids skipped by the scan have been deleted
+            snapshot.removeRange(previousId + 1, customer.getId() - 1);
+            snapshot.put(customer);
+            previousId = customer.getId();
+        }
+        
+        if (rows.size() == scanChunkSize) {
+            int nextAfterId = previousId;
+            writer.execute(() -> rebuildChunk(nextAfterId));
+            return;
+        }
+        
+        snapshot.removeRange(previousId + 1, Integer.MAX_VALUE);
+        snapshot.markComplete();
+        serving = true;
+        rebuilding = false;
+        log.info("Rebuilt customer snapshot with {} customers in {} ms", snapshot.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - rebuildStartedAt));
+        if (rebuildRequested.get()) {
+            // A resync arrived during this pass
+            writer.execute(this::startRebuild);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.CustomerSummaryResponse;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.dto.OrderTotals;
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.exception.CapacityExceededException;
+import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import com.think41.customerapi.util.RequestBudget;
+import com.think41.customerapi.util.SqlValues;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the customer summary from independent queries run in parallel.
+ *
+ * The customer, recent orders and per-status aggregates are fetched concurrently on a bounded
+ * executor, so a summary costs about as long as its slowest query. Each request has a deadline:
+ * anything still running when it passes is cancelled and the request fails with
+ * DeadlineExceededException. When the executor queue is full the request is rejected with
+ * CapacityExceededException instead of queueing without bound.
+ */
+@Service
+public class CustomerSummaryService {
+    
+    @Autowired
+    private CustomerService customerService;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Autowired
+    private IdFilterService idFilter;
+    
+    @Value("${customers.summary.threads:8}")
+    private int threads;
+    
+    @Value("${customers.summary.queue-capacity:256}")
+    private int queueCapacity;
+    
+    @Value("${customers.summary.timeout-ms:2000}")
+    private long timeoutMs;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "customer-summary-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Get a customer with their most recent orders, per-status order counts and lifetime totals
+     */
+    public CustomerSummaryResponse getCustomerSummary(Integer id, int ordersSize) {
+        // A customer that cannot exist needs none of the three queries
+        if (!idFilter.mightBeCustomer(id)) {
+            throw new CustomerNotFoundException("Customer not found with ID: " + id);
+        }
+        // The request's own deadline applies if it comes first
+        long deadline = RequestBudget.deadlineWithin(timeoutMs);
+        List<Future<?>> submitted = new ArrayList<>(3);
+        try {
+            Future<CustomerResponse> customerFuture = submit(submitted, () -> customerService.getCustomerById(id));
+            Future<List<Order>> ordersFuture = submit(submitted, () -> shardedOrders.isEnabled()
+                    ? shardedOrders.findRecentByUserId(id, PageRequest.of(0, ordersSize))
+                    : orderRepository.findRecentByUserId(id, PageRequest.of(0, ordersSize)));
+            Future<List<Object[]>> statusFuture = submit(submitted, () -> shardedOrders.isEnabled()
+                    ? shardedOrders.findStatusSummaryByUserId(id)
+                    : orderRepository.findStatusSummaryByUserId(id));
+            
+            // The customer first, so an unknown ID fails fast with 404
+            CustomerResponse customer = await(customerFuture, deadline);
+            List<Order> orders = await(ordersFuture, deadline);
+            List<Object[]> statusRows = await(statusFuture, deadline);
+            
+            return buildSummary(customer, orders, statusRows);
+        } finally {
+            // No-op for completed work; stops whatever is left after a failure or timeout
+            submitted.forEach(future -> future.cancel(true));
+        }
+    }
+    
+    private <T> Future<T> submit(List<Future<?>> submitted, Callable<T> task) {
+        try {
+            Future<T> future = executor.submit(RequestBudget.wrap(task));
+            submitted.add(future);
+            return future;
+        } catch (RejectedExecutionException ex) {
+            throw new CapacityExceededException("Too many customer summaries in progress, retry shortly", ex);
+        }
+    }
+    
+    private <T> T await(Future<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException("Customer summary did not complete before its deadline", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Customer summary was interrupted", ex);
+        } catch (ExecutionException ex) {
+            // Surface the query's own exception, e.g. CustomerNotFoundException
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Customer summary query failed", ex.getCause());
+        }
+    }
+    
+    private static CustomerSummaryResponse buildSummary(CustomerResponse customer, List<Order> orders,
+                                                        List<Object[]> statusRows) {
+        String customerName = customer.getFirstName() + " " + customer.getLastName();
+        List<OrderResponse> recentOrders = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            recentOrders.add(new OrderResponse(
+                    order.getOrderId(),
+                    order.getUserId(),
+                    order.getStatus(),
+                    order.getGender(),
+                    order.getCreatedAt(),
+                    order.getReturnedAt(),
+                    order.getShippedAt(),
+                    order.getDeliveredAt(),
+                    order.getNumOfItem(),
+                    customerName,
+                    customer.getEmail()
+            ));
+        }
+        
+        // Rows: status, order count, item count, first created_at, last created_at
+        Map<String, Long> statusCounts = new TreeMap<>();
+        long orderCount = 0;
+        long itemCount = 0;
+        OffsetDateTime firstOrderAt = null;
+        OffsetDateTime lastOrderAt = null;
+        for (Object[] row : statusRows) {
+            long count = ((Number) row[1]).longValue();
+            statusCounts.put((String) row[0], count);
+            orderCount += count;
+            itemCount += ((Number) row[2]).longValue();
+            OffsetDateTime first = SqlValues.toOffsetDateTime(row[3]);
+            OffsetDateTime last = SqlValues.toOffsetDateTime(row[4]);
+            if (first != null && (firstOrderAt == null || first.isBefore(firstOrderAt))) {
+                firstOrderAt = first;
+            }
+            if (last != null && (lastOrderAt == null || last.isAfter(lastOrderAt))) {
+                lastOrderAt = last;
+            }
+        }
+        
+        return new CustomerSummaryResponse(customer, recentOrders, statusCounts,
+                new OrderTotals(orderCount, itemCount, firstOrderAt, lastOrderAt));
+    }
+}
\ No newline at end of file
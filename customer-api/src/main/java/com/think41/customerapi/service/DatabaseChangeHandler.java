@@ -0,0 +1,20 @@
+package com.think41.customerapi.service;
+
+import java.util.Set;
+
+/**
+ * Receives committed changes to users and orders from DatabaseChangeListener
+ */
+public interface DatabaseChangeHandler {
+    
+    /**
+     * Rows with these ids in table ("users" or "orders") were inserted, updated or deleted
+     */
+    void onChanged(String table, Set<Integer> ids);
+    
+    /**
+     * Changes may have been missed (listener connection lost or re-established), so anything
+     * derived from earlier notifications should be rebuilt
+     */
+    void onResync();
+}
\ No newline at end of file
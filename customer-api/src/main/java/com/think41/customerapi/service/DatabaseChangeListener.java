@@ -0,0 +1,192 @@
+package com.think41.customerapi.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listens on the customer_api_changes channel fed by the users/orders triggers in schema.sql and
+ * hands changed ids to every DatabaseChangeHandler.
+ *
+ * The listener holds its own connection outside the pool, since LISTEN is per session. All
+ * notifications waiting at each poll are merged into one set of ids per table before dispatch.
+ * Handlers are told to resync whenever the connection is lost or re-established, because
+ * notifications sent in between are gone. Waiting for notifications cannot tell a quiet
+ * database from a dead connection, so the listener also runs SELECT 1 every
+ * probe-interval-ms with a socket read timeout of probe-timeout-ms, and TCP keepalive is on;
+ * a probe that fails or times out drops the connection and reconnects.
+ */
+@Component
+public class DatabaseChangeListener {
+    
+    private static final Logger log = LoggerFactory.getLogger(DatabaseChangeListener.class);
+    
+    public static final String CHANNEL = "customer_api_changes";
+    
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    
+    @Autowired
+    private List<DatabaseChangeHandler> handlers;
+    
+    @Value("${changes.listener.poll-timeout-ms:500}")
+    private int pollTimeoutMs;
+    
+    @Value("${changes.listener.max-reconnect-backoff-ms:10000}")
+    private long maxReconnectBackoffMs;
+    
+    @Value("${changes.listener.probe-interval-ms:10000}")
+    private long probeIntervalMs;
+    
+    @Value("${changes.listener.probe-timeout-ms:5000}")
+    private long probeTimeoutMs;
+    
+    private Thread listener;
+    private volatile boolean running;
+    private volatile boolean listening;
+    
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::listenLoop, "database-change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        listener.join(pollTimeoutMs * 2L);
+    }
+    
+    /**
+     * Whether notifications are currently being received
+     */
+    public boolean isListening() {
+        return listening;
+    }
+    
+    private void listenLoop() {
+        int failures = 0;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), connectionProperties())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                listening = true;
+                failures = 0;
+                resync();
+                log.info("Listening for database changes on {}", CHANNEL);
+                
+                long nextProbe = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(probeIntervalMs);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        dispatch(notifications);
+                    }
+                    if (System.nanoTime() - nextProbe >= 0) {
+                        probe(connection);
+                        nextProbe = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(probeIntervalMs);
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                boolean wasListening = listening;
+                listening = false;
+                resync();
+                failures++;
+                long backoff = Math.min(maxReconnectBackoffMs, 250L << Math.min(failures, 8));
+                if (wasListening) {
+                    log.warn("Lost database change listener connection, reconnecting: {}", ex.getMessage());
+                } else {
+                    log.debug("Database change listener reconnect failed (attempt {}): {}", failures, ex.getMessage());
+                }
+                sleep(backoff);
+            }
+        }
+        listening = false;
+    }
+    
+    private Properties connectionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", dataSourceProperties.determineUsername());
+        properties.setProperty("password", dataSourceProperties.determinePassword());
+        properties.setProperty("tcpKeepAlive", "true");
+        // Seconds; bounds the probe's wait on a connection the server can no longer answer
+        properties.setProperty("socketTimeout", String.valueOf(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(probeTimeoutMs))));
+        return properties;
+    }
+    
+    /**
+     * Throw SQLException unless the server answers on this connection
+     */
+    private static void probe(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 1");
+        }
+    }
+    
+    private void dispatch(PGNotification[] notifications) {
+        Map<String, Set<Integer>> changed = new HashMap<>();
+        for (PGNotification notification : notifications) {
+            // Payload format: "<table>:<id>,<id>,..."
+            String payload = notification.getParameter();
+            int separator = payload.indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            Set<Integer> ids = changed.computeIfAbsent(payload.substring(0, separator), table -> new HashSet<>());
+            for (String id : payload.substring(separator + 1).split(",")) {
+                if (!id.isEmpty()) {
+                    ids.add(Integer.valueOf(id));
+                }
+            }
+        }
+        changed.forEach((table, ids) -> {
+            for (DatabaseChangeHandler handler : handlers) {
+                try {
+                    handler.onChanged(table, ids);
+                } catch (RuntimeException ex) {
+                    log.warn("Database change handler {} failed: {}", handler.getClass().getSimpleName(), ex.getMessage());
+                }
+            }
+        });
+    }
+    
+    private void resync() {
+        for (DatabaseChangeHandler handler : handlers) {
+            try {
+                handler.onResync();
+            } catch (RuntimeException ex) {
+                log.warn("Database change handler {} failed to resync: {}", handler.getClass().getSimpleName(), ex.getMessage());
+            }
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.FulfillmentLatencyResponse;
+import com.think41.customerapi.dto.LatencyGroupResponse;
+import com.think41.customerapi.dto.LatencyPercentiles;
+import com.think41.customerapi.exception.FeatureUnavailableException;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import com.think41.customerapi.util.LatencySketch;
+import com.think41.customerapi.util.SqlValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ship, delivery and return latency percentiles built from order lifecycle timestamps.
+ *
+ * Orders are folded into small mergeable sketches keyed by (month, status, country). What each
+ * order added is remembered, so an order named by a change notification is taken out of the
+ * sketches and its current row folded in again at the next refresh: new orders whatever their ID,
+ * status changes and deletes all show up within one refresh interval. The sketches are rebuilt
+ * from a full scan at startup, after changes may have been missed (the listener resynced), and on
+ * rebuild-cron, which also picks up customers whose country changed. Queries only merge the
+ * matching sketches, never the orders table itself.
+ */
+@Service
+public class FulfillmentLatencyService implements DatabaseChangeHandler {
+    
+    private static final Logger log = LoggerFactory.getLogger(FulfillmentLatencyService.class);
+    
+    private static final double SECONDS_PER_HOUR = 3600.0;
+    private static final String UNKNOWN = "unknown";
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Value("${orders.latency.scan-chunk-size:5000}")
+    private int scanChunkSize;
+    
+    private volatile SketchStore store = new SketchStore();
+    
+    // Orders changed since the last refresh, and whether the sketches must be rebuilt instead
+    private final Set<Integer> changedOrders = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean(true);
+    
+    /**
+     * Get latency percentiles grouped by month, status or country
+     */
+    public FulfillmentLatencyResponse getLatencyPercentiles(String groupBy, YearMonth from, YearMonth to,
+                                                            String status, String country) {
+        // The sketches are built from the primary database, which holds no orders while they are sharded
+        if (shardedOrders.isEnabled()) {
+            throw new FeatureUnavailableException("Latency reports are not available while orders are sharded");
+        }
+        GroupBy grouping = GroupBy.parse(groupBy);
+        SketchStore current = store;
+        
+        Map<String, LatencyCell> merged = new TreeMap<>();
+        current.cells.forEach((key, cell) -> {
+            if (from != null && key.month().isBefore(from)) return;
+            if (to != null && key.month().isAfter(to)) return;
+            if (status != null && !status.equalsIgnoreCase(key.status())) return;
+            if (country != null && !country.equalsIgnoreCase(key.country())) return;
+            
+            merged.computeIfAbsent(grouping.keyOf(key), k -> new LatencyCell()).merge(cell);
+        });
+        
+        List<LatencyGroupResponse> groups = new ArrayList<>(merged.size());
+        merged.forEach((group, cell) -> groups.add(new LatencyGroupResponse(
+                group,
+                toPercentiles(cell.ship),
+                toPercentiles(cell.delivery),
+                toPercentiles(cell.returns)
+        )));
+        
+        return new FulfillmentLatencyResponse(grouping.name().toLowerCase(), groups,
+                current.ordersIndexed, current.asOf);
+    }
+    
+    @Override
+    public void onChanged(String table, Set<Integer> ids) {
+        if ("orders".equals(table)) {
+            changedOrders.addAll(ids);
+        }
+    }
+    
+    @Override
+    public void onResync() {
+        rebuildRequested.set(true);
+    }
+    
+    /**
+     * Re-read the orders changed since the last refresh into the current sketches, or rebuild
+     * them when that was asked for
+     */
+    @Scheduled(fixedDelayString = "${orders.latency.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        if (rebuildRequested.getAndSet(false)) {
+            rebuild();
+            return;
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Iterator<Integer> it = changedOrders.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            for (int from = 0; from < ids.size(); from += scanChunkSize) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + scanChunkSize, ids.size()));
+                Set<Integer> deleted = new HashSet<>(chunk);
+                for (Object[] row : orderRepository.findLifecycleByIds(chunk)) {
+                    deleted.remove((Integer) row[0]);
+                    record(store, row);
+                }
+                deleted.forEach(store::retract);
+            }
+            store.asOf = OffsetDateTime.now(ZoneOffset.UTC);
+        } catch (RuntimeException ex) {
+            // Re-reading an order that was already applied is harmless
+            changedOrders.addAll(ids);
+            log.warn("Fulfillment latency refresh failed: {}", ex.getMessage());
+        }
+    }
+    
+    /**
+     * Rebuild all sketches from scratch
+     */
+    @Scheduled(cron = "${orders.latency.rebuild-cron:0 30 3 * * *}")
+    public synchronized void rebuild() {
+        // Committed changes notified so far are in the scan; later ones are applied after it
+        changedOrders.clear();
+        try {
+            SketchStore rebuilt = new SketchStore();
+            List<Object[]> chunk;
+            int lastOrderId = 0;
+            do {
+                chunk = orderRepository.findLifecycleChunk(lastOrderId, scanChunkSize);
+                for (Object[] row : chunk) {
+                    record(rebuilt, row);
+                    lastOrderId = (Integer) row[0];
+                }
+            } while (chunk.size() == scanChunkSize);
+            rebuilt.asOf = OffsetDateTime.now(ZoneOffset.UTC);
+            store = rebuilt;
+            log.info("Rebuilt fulfillment latency sketches from {} orders", rebuilt.ordersIndexed);
+        } catch (RuntimeException ex) {
+            rebuildRequested.set(true);
+            log.warn("Fulfillment latency rebuild failed: {}", ex.getMessage());
+        }
+    }
+    
+    private static void record(SketchStore target, Object[] row) {
+        Integer orderId = (Integer) row[0];
+        String status = row[1] != null ? row[1].toString() : UNKNOWN;
+        Instant createdAt = SqlValues.toInstant(row[2]);
+        Instant shippedAt = SqlValues.toInstant(row[3]);
+        Instant deliveredAt = SqlValues.toInstant(row[4]);
+        Instant returnedAt = SqlValues.toInstant(row[5]);
+        String country = row[6] != null ? row[6].toString() : UNKNOWN;
+        
+        target.record(orderId, status, country, createdAt, shippedAt, deliveredAt, returnedAt);
+    }
+    
+    private static LatencyPercentiles toPercentiles(LatencySketch sketch) {
+        return new LatencyPercentiles(
+                sketch.getCount(),
+                toHours(sketch.quantile(0.50)),
+                toHours(sketch.quantile(0.90)),
+                toHours(sketch.quantile(0.99))
+        );
+    }
+    
+    private static Double toHours(Double seconds) {
+        return seconds != null ? Math.round(seconds / SECONDS_PER_HOUR * 100.0) / 100.0 : null;
+    }
+    
+    private enum GroupBy {
+        MONTH, STATUS, COUNTRY;
+        
+        static GroupBy parse(String value) {
+            if (value == null || value.isBlank()) {
+                return MONTH;
+            }
+            for (GroupBy groupBy : values()) {
+                if (groupBy.name().equalsIgnoreCase(value.trim())) {
+                    return groupBy;
+                }
+            }
+            throw new IllegalArgumentException("group_by must be one of: month, status, country");
+        }
+        
+        String keyOf(SketchKey key) {
+            switch (this) {
+                case STATUS: return key.status();
+                case COUNTRY: return key.country();
+                default: return key.month().toString();
+            }
+        }
+    }
+    
+    private record SketchKey(YearMonth month, String status, String country) {}
+    
+    // NaN where the order has no such latency yet
+    private record Contribution(SketchKey key, double ship, double delivery, double returns) {}
+    
+    private static class LatencyCell {
+        private final LatencySketch ship = new LatencySketch();
+        private final LatencySketch delivery = new LatencySketch();
+        private final LatencySketch returns = new LatencySketch();
+        private int orders;
+        
+        void merge(LatencyCell other) {
+            ship.merge(other.ship);
+            delivery.merge(other.delivery);
+            returns.merge(other.returns);
+        }
+    }
+    
+    /**
+     * Sketches read by queries from any thread; changed only under the service's lock
+     */
+    private static class SketchStore {
+        private final Map<SketchKey, LatencyCell> cells = new ConcurrentHashMap<>();
+        private final Map<Integer, Contribution> contributions = new HashMap<>();
+        private volatile long ordersIndexed;
+        private volatile OffsetDateTime asOf;
+        
+        void record(int orderId, String status, String country, Instant createdAt, Instant shippedAt,
+                    Instant deliveredAt, Instant returnedAt) {
+            Objects.requireNonNull(createdAt, "created_at");
+            retract(orderId);
+            SketchKey key = new SketchKey(YearMonth.from(createdAt.atOffset(ZoneOffset.UTC)),
+                    status.toLowerCase(), country);
+            // ship: created -> shipped, delivery: shipped -> delivered, return: delivered -> returned
+            Contribution contribution = new Contribution(key,
+                    shippedAt != null ? secondsBetween(createdAt, shippedAt) : Double.NaN,
+                    shippedAt != null && deliveredAt != null ? secondsBetween(shippedAt, deliveredAt) : Double.NaN,
+                    deliveredAt != null && returnedAt != null ? secondsBetween(deliveredAt, returnedAt) : Double.NaN);
+            
+            LatencyCell cell = cells.computeIfAbsent(key, k -> new LatencyCell());
+            cell.ship.add(contribution.ship());
+            cell.delivery.add(contribution.delivery());
+            cell.returns.add(contribution.returns());
+            cell.orders++;
+            contributions.put(orderId, contribution);
+            ordersIndexed = contributions.size();
+        }
+        
+        /**
+         * Take what the order added out of its cell, dropping the cell once it has no orders left
+         */
+        void retract(int orderId) {
+            Contribution previous = contributions.remove(orderId);
+            if (previous == null) {
+                return;
+            }
+            LatencyCell cell = cells.get(previous.key());
+            cell.ship.remove(previous.ship());
+            cell.delivery.remove(previous.delivery());
+            cell.returns.remove(previous.returns());
+            if (--cell.orders == 0) {
+                cells.remove(previous.key());
+            }
+            ordersIndexed = contributions.size();
+        }
+        
+        private static double secondsBetween(Instant start, Instant end) {
+            return Duration.between(start, end).toMillis() / 1000.0;
+        }
+    }
+}
\ No newline at end of file
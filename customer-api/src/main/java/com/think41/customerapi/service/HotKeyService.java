@@ -0,0 +1,324 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.HotKey;
+import com.think41.customerapi.dto.HotKeyGroup;
+import com.think41.customerapi.dto.HotKeysResponse;
+import com.think41.customerapi.util.CountMinSketch;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The most requested customer ids, order ids and search terms over a sliding window.
+ *
+ * Requests are counted in a count-min sketch per slice of the window; the oldest slice is
+ * cleared and reused every slice-seconds, so counts older than the window fall away. The
+ * estimate of a key is the sum over the slices. Each kind keeps up to top-k candidate keys: a
+ * request for a key that is not a candidate only goes further when its estimate beats the
+ * coldest candidate seen last, and then only if no other request is admitting a key at that
+ * moment. Recording never blocks and memory does not grow with the number of distinct keys.
+ */
+@Service
+public class HotKeyService {
+    
+    public enum Kind {
+        CUSTOMER("customers"),
+        ORDER("orders"),
+        SEARCH_TERM("search_terms");
+        
+        private final String tag;
+        
+        Kind(String tag) {
+            this.tag = tag;
+        }
+        
+        public String getTag() {
+            return tag;
+        }
+    }
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${hotkeys.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${hotkeys.width:4096}")
+    private int width;
+    
+    @Value("${hotkeys.depth:4}")
+    private int depth;
+    
+    @Value("${hotkeys.slices:5}")
+    private int sliceCount;
+    
+    @Value("${hotkeys.slice-seconds:60}")
+    private long sliceSeconds;
+    
+    @Value("${hotkeys.top-k:50}")
+    private int topK;
+    
+    @Value("${hotkeys.max-term-length:64}")
+    private int maxTermLength;
+    
+    private Slice[] slices;
+    private volatile int current;
+    private Candidates[] candidates;
+    private final LongAdder[] recorded = new LongAdder[Kind.values().length];
+    
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        slices = new Slice[Math.max(1, sliceCount)];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Slice(new CountMinSketch(width, depth));
+        }
+        candidates = new Candidates[Kind.values().length];
+        for (Kind kind : Kind.values()) {
+            candidates[kind.ordinal()] = new Candidates();
+            recorded[kind.ordinal()] = new LongAdder();
+            registerMetrics(kind);
+        }
+    }
+    
+    public void recordCustomer(Integer id) {
+        if (enabled && id != null) {
+            record(Kind.CUSTOMER, id);
+        }
+    }
+    
+    public void recordOrder(Integer id) {
+        if (enabled && id != null) {
+            record(Kind.ORDER, id);
+        }
+    }
+    
+    /**
+     * Search terms are counted trimmed, lower-cased and cut to max-term-length
+     */
+    public void recordSearchTerm(String term) {
+        if (!enabled || term == null || term.isBlank()) {
+            return;
+        }
+        String normalized = term.trim().toLowerCase(Locale.ROOT);
+        if (normalized.length() > maxTermLength) {
+            normalized = normalized.substring(0, maxTermLength);
+        }
+        record(Kind.SEARCH_TERM, normalized);
+    }
+    
+    /**
+     * Up to limit hottest keys of each kind in the window
+     */
+    public HotKeysResponse getHotKeys(int limit) {
+        long sketchBytes = slices.length * slices[0].sketch.sizeInBytes();
+        return new HotKeysResponse(slices.length * sliceSeconds, sketchBytes,
+                group(Kind.CUSTOMER, limit), group(Kind.ORDER, limit), group(Kind.SEARCH_TERM, limit));
+    }
+    
+    /**
+     * Forget all counts and candidates
+     */
+    public void reset() {
+        for (Candidates keys : candidates) {
+            keys.lock.lock();
+            try {
+                keys.hashes.clear();
+                keys.threshold = 0;
+            } finally {
+                keys.lock.unlock();
+            }
+        }
+        for (Slice slice : slices) {
+            slice.clear();
+        }
+    }
+    
+    /**
+     * Move the window on by one slice, dropping the counts of the oldest
+     */
+    @Scheduled(fixedRateString = "${hotkeys.slice-seconds:60}",
+               initialDelayString = "${hotkeys.slice-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void advance() {
+        if (!enabled) {
+            return;
+        }
+        int next = (current + 1) % slices.length;
+        slices[next].clear();
+        current = next;
+        for (Candidates keys : candidates) {
+            keys.prune();
+        }
+    }
+    
+    private void record(Kind kind, Object key) {
+        long hash = CountMinSketch.mix(key.hashCode() * 31L + kind.ordinal());
+        Slice slice = slices[current];
+        slice.sketch.add(hash);
+        slice.requests[kind.ordinal()].increment();
+        recorded[kind.ordinal()].increment();
+        Candidates keys = candidates[kind.ordinal()];
+        if (!keys.hashes.containsKey(key)) {
+            keys.offer(key, hash);
+        }
+    }
+    
+    private long estimate(long hash) {
+        long count = 0;
+        for (Slice slice : slices) {
+            count += slice.sketch.estimate(hash);
+        }
+        return count;
+    }
+    
+    private long requests(Kind kind) {
+        long count = 0;
+        for (Slice slice : slices) {
+            count += slice.requests[kind.ordinal()].sum();
+        }
+        return count;
+    }
+    
+    private HotKeyGroup group(Kind kind, int limit) {
+        long requests = requests(kind);
+        List<HotKey> keys = candidates[kind.ordinal()].hashes.entrySet().stream()
+                .map(entry -> {
+                    // An estimate can include other keys' requests, but not more than there were
+                    long count = Math.min(estimate(entry.getValue()), requests);
+                    return new HotKey(String.valueOf(entry.getKey()), count, share(count, requests));
+                })
+                .filter(key -> key.getCount() > 0)
+                .sorted(Comparator.comparingLong(HotKey::getCount).reversed())
+                .limit(limit)
+                .toList();
+        return new HotKeyGroup(requests, keys);
+    }
+    
+    private static double share(long count, long requests) {
+        return requests > 0 ? Math.round(10000.0 * count / requests) / 10000.0 : 0;
+    }
+    
+    private void registerMetrics(Kind kind) {
+        FunctionCounter.builder("hotkeys.requests", recorded[kind.ordinal()], LongAdder::sum)
+                .tag("kind", kind.getTag())
+                .description("Requests counted by the hot key tracker")
+                .register(meterRegistry);
+        Gauge.builder("hotkeys.top.requests", this, service -> service.hottest(kind))
+                .tag("kind", kind.getTag())
+                .description("Estimated requests for the hottest key in the window")
+                .register(meterRegistry);
+        Gauge.builder("hotkeys.top.share", this, service -> share(service.hottest(kind), service.requests(kind)))
+                .tag("kind", kind.getTag())
+                .description("Share of the window's requests that went to the hottest key")
+                .register(meterRegistry);
+    }
+    
+    private long hottest(Kind kind) {
+        long requests = requests(kind);
+        long max = 0;
+        for (long hash : candidates[kind.ordinal()].hashes.values()) {
+            max = Math.max(max, Math.min(estimate(hash), requests));
+        }
+        return max;
+    }
+    
+    private final class Slice {
+        
+        private final CountMinSketch sketch;
+        private final LongAdder[] requests = new LongAdder[Kind.values().length];
+        
+        Slice(CountMinSketch sketch) {
+            this.sketch = sketch;
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = new LongAdder();
+            }
+        }
+        
+        void clear() {
+            sketch.clear();
+            for (LongAdder count : requests) {
+                count.reset();
+            }
+        }
+    }
+    
+    private final class Candidates {
+        
+        // Candidate key to its sketch hash
+        private final Map<Object, Long> hashes = new ConcurrentHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        // Estimate of the coldest candidate when last looked at; a key must beat it to enter
+        private volatile long threshold;
+        
+        void offer(Object key, long hash) {
+            boolean full = hashes.size() >= topK;
+            if (full && estimate(hash) <= threshold) {
+                return;
+            }
+            // Another request is admitting a key; this one will be offered again if it stays hot
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                if (hashes.size() < topK) {
+                    hashes.put(key, hash);
+                    return;
+                }
+                long count = estimate(hash);
+                Object coldest = null;
+                long min = Long.MAX_VALUE;
+                for (Map.Entry<Object, Long> entry : hashes.entrySet()) {
+                    long candidate = estimate(entry.getValue());
+                    if (candidate < min) {
+                        min = candidate;
+                        coldest = entry.getKey();
+                    }
+                }
+                if (count > min && coldest != null) {
+                    hashes.remove(coldest);
+                    hashes.put(key, hash);
+                }
+                threshold = min;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        /**
+         * Drop candidates whose requests have all left the window
+         */
+        void prune() {
+            lock.lock();
+            try {
+                long min = Long.MAX_VALUE;
+                for (Map.Entry<Object, Long> entry : hashes.entrySet()) {
+                    long count = estimate(entry.getValue());
+                    if (count == 0) {
+                        hashes.remove(entry.getKey());
+                    } else {
+                        min = Math.min(min, count);
+                    }
+                }
+                threshold = min == Long.MAX_VALUE ? 0 : min;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,267 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedUserRepository;
+import com.think41.customerapi.repository.UserRepository;
+import com.think41.customerapi.util.BloomFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Bloom filters over every user and order id, so lookups of ids that do not exist are answered
+ * without a query.
+ *
+ * The filters are built by scanning both id sets in chunks. Later inserts are added as they are
+ * reported by DatabaseChangeListener, and local writes add their ids directly, before commit.
+ * Deleted ids stay in the filter until the next scheduled rebuild replaces it. While a rebuild
+ * is running, new ids go into both the old and the new filter, so none are lost in the swap.
+ * After a resync, changes may have been missed, so the filters are switched off until a
+ * rebuild completes. They are also off while the listener is down. Switched off means every
+ * id "might exist" and lookups go to the database as before.
+ */
+@Service
+public class IdFilterService implements DatabaseChangeHandler {
+    
+    private static final Logger log = LoggerFactory.getLogger(IdFilterService.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ShardedUserRepository shardedUsers;
+    
+    @Autowired
+    private ObjectProvider<DatabaseChangeListener> changeListener;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${ids.filter.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${ids.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    // Room for growth between rebuilds, as a multiple of the ids present at build time
+    @Value("${ids.filter.capacity-factor:2.0}")
+    private double capacityFactor;
+    
+    @Value("${ids.filter.scan-chunk-size:50000}")
+    private int scanChunkSize;
+    
+    private volatile Filters current;
+    private volatile Filters building;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    
+    private final LongAdder absentCustomers = new LongAdder();
+    private final LongAdder absentOrders = new LongAdder();
+    private final LongAdder customerFalsePositives = new LongAdder();
+    private final LongAdder orderFalsePositives = new LongAdder();
+    
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "id-filter-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PostConstruct
+    public void registerMetrics() {
+        lookupCounter("customers", "absent", absentCustomers);
+        lookupCounter("customers", "false_positive", customerFalsePositives);
+        lookupCounter("orders", "absent", absentOrders);
+        lookupCounter("orders", "false_positive", orderFalsePositives);
+        fillGauge("customers", Filters::users);
+        fillGauge("orders", Filters::orders);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        builder.shutdownNow();
+    }
+    
+    /**
+     * False only if no customer has this id; true when unsure or the filter is off
+     */
+    public boolean mightBeCustomer(Integer id) {
+        Filters filters = active();
+        if (filters == null || id == null || filters.users().mightContain(id)) {
+            return true;
+        }
+        absentCustomers.increment();
+        return false;
+    }
+    
+    /**
+     * False only if no order has this id; true when unsure or the filter is off
+     */
+    public boolean mightBeOrder(Integer id) {
+        Filters filters = active();
+        if (filters == null || id == null || filters.orders().mightContain(id)) {
+            return true;
+        }
+        absentOrders.increment();
+        return false;
+    }
+    
+    /**
+     * The database found no customer after mightBeCustomer said there might be one
+     */
+    public void customerNotFound() {
+        if (active() != null) {
+            customerFalsePositives.increment();
+        }
+    }
+    
+    /**
+     * The database found no order after mightBeOrder said there might be one
+     */
+    public void orderNotFound() {
+        if (active() != null) {
+            orderFalsePositives.increment();
+        }
+    }
+    
+    /**
+     * Orders written by this instance; called before commit, which at worst leaves a false
+     * positive if the transaction rolls back
+     */
+    public void addOrders(Collection<Integer> orderIds) {
+        add(orderIds, Filters::orders);
+    }
+    
+    @Override
+    public void onChanged(String table, Set<Integer> ids) {
+        if ("users".equals(table)) {
+            add(ids, Filters::users);
+        } else if ("orders".equals(table)) {
+            add(ids, Filters::orders);
+        }
+    }
+    
+    @Override
+    public void onResync() {
+        current = null;
+        requestRebuild();
+    }
+    
+    /**
+     * Replace the filters with fresh ones, dropping deleted ids and resizing for growth
+     */
+    @Scheduled(fixedDelayString = "${ids.filter.rebuild-interval-ms:3600000}",
+               initialDelayString = "${ids.filter.rebuild-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+    
+    private Filters active() {
+        Filters filters = current;
+        if (filters == null) {
+            return null;
+        }
+        DatabaseChangeListener listener = changeListener.getIfAvailable();
+        return listener != null && listener.isListening() ? filters : null;
+    }
+    
+    private void add(Collection<Integer> ids, Function<Filters, BloomFilter> table) {
+        // The building filter first: it is published before building is cleared, so an id
+        // added here is never missed by both
+        Filters next = building;
+        if (next != null) {
+            ids.forEach(table.apply(next)::add);
+        }
+        Filters filters = current;
+        if (filters != null) {
+            ids.forEach(table.apply(filters)::add);
+        }
+    }
+    
+    private void requestRebuild() {
+        // The filters are built from the primary database, which holds no users or orders while they
+        // are sharded; never built, they stay off
+        if (enabled && !shardedUsers.isEnabled() && !rebuildRequested.getAndSet(true)) {
+            builder.execute(this::rebuild);
+        }
+    }
+    
+    private void rebuild() {
+        rebuildRequested.set(false);
+        long start = System.nanoTime();
+        Filters next;
+        try {
+            next = new Filters(newFilter(userRepository.count()), newFilter(orderRepository.count()));
+            // Set before the scans start, so ids inserted from here on reach the new filters
+            // either through the scan or through onChanged
+            building = next;
+            scan(userRepository::findIdsAfter, next.users());
+            scan(orderRepository::findOrderIdsAfter, next.orders());
+        } catch (RuntimeException ex) {
+            // The listener resyncs again once the database is reachable
+            building = null;
+            log.warn("Id filter rebuild failed: {}", ex.getMessage());
+            return;
+        }
+        current = next;
+        building = null;
+        log.info("Rebuilt id filters ({} KB customers, {} KB orders) in {} ms",
+                next.users().sizeInBytes() / 1024, next.orders().sizeInBytes() / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private BloomFilter newFilter(long ids) {
+        return new BloomFilter(Math.max(1024, (long) (ids * capacityFactor)), falsePositiveRate);
+    }
+    
+    private void scan(BiFunction<Integer, Integer, List<Integer>> chunk, BloomFilter filter) {
+        int afterId = Integer.MIN_VALUE;
+        while (true) {
+            List<Integer> ids = chunk.apply(afterId, scanChunkSize);
+            ids.forEach(filter::add);
+            if (ids.size() < scanChunkSize) {
+                return;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+    
+    private void lookupCounter(String table, String outcome, LongAdder count) {
+        FunctionCounter.builder("idfilter.lookups", count, LongAdder::sum)
+                .tag("table", table)
+                .tag("outcome", outcome)
+                .description("Lookups answered by the id filter, and filter hits the database did not find")
+                .register(meterRegistry);
+    }
+    
+    private void fillGauge(String table, Function<Filters, BloomFilter> filter) {
+        Gauge.builder("idfilter.false_positive_rate", this,
+                        service -> service.current != null ? filter.apply(service.current).expectedFalsePositiveRate() : Double.NaN)
+                .tag("table", table)
+                .description("Expected false positive rate of the id filter at its current fill")
+                .register(meterRegistry);
+    }
+    
+    private record Filters(BloomFilter users, BloomFilter orders) {}
+}
\ No newline at end of file
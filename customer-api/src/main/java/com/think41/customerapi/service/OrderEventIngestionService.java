@@ -0,0 +1,481 @@
+package com.think41.customerapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.think41.customerapi.dto.OrderEvent;
+import com.think41.customerapi.dto.OrderEventAck;
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.exception.IngestionBackpressureException;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import com.think41.customerapi.repository.ShardedUserRepository;
+import com.think41.customerapi.repository.UserRepository;
+import com.think41.customerapi.util.AppendOnlyLog;
+import com.think41.customerapi.util.RingBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind ingestion of order events.
+ *
+ * A request is acknowledged once its events are fsynced to a local append-only log and placed in
+ * a bounded ring buffer. A single flusher thread drains the buffer in batches of up to
+ * flush-size events (or whatever is pending after flush-interval-ms), collapses repeated events
+ * per order, and writes each batch with one upsert and one update statement (per shard when
+ * orders are sharded). The log checkpoint
+ * only advances after a batch commits, so events pending at a crash are replayed on startup.
+ * A batch that still fails after max-attempts is written in halves, and halves of those, until
+ * each event that fails on its own data is alone; those go to a dead-letter log and the rest
+ * are written, so one bad event cannot hold up the buffer. Events for a customer or order that
+ * does not exist, or dated outside the partition window, are dead-lettered the same way once
+ * their batch commits. Every dead letter carries its reason and the event as submitted, so it
+ * can be replayed. Connection failures and timeouts are retried until they pass.
+ */
+@Service
+public class OrderEventIngestionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderEventIngestionService.class);
+    
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Autowired
+    private ShardedUserRepository shardedUsers;
+    
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+    
+    @Autowired
+    private IdFilterService idFilter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${orders.events.buffer-capacity:65536}")
+    private int bufferCapacity;
+    
+    @Value("${orders.events.max-batch:10000}")
+    private int maxBatch;
+    
+    @Value("${orders.events.flush-size:2000}")
+    private int flushSize;
+    
+    @Value("${orders.events.flush-interval-ms:100}")
+    private long flushIntervalMs;
+    
+    @Value("${orders.events.log-dir:data/order-events}")
+    private String logDir;
+    
+    @Value("${orders.events.log-compact-bytes:67108864}")
+    private long logCompactBytes;
+    
+    @Value("${orders.events.max-attempts:3}")
+    private int maxAttempts;
+    
+    private final Object producerLock = new Object();
+    
+    private RingBuffer<PendingEvent> buffer;
+    private AppendOnlyLog eventLog;
+    // Events that could not be written, with the reason, kept for inspection and manual replay
+    private AppendOnlyLog deadLetters;
+    private final LongAdder deadLettered = new LongAdder();
+    private TransactionTemplate transactionTemplate;
+    private Thread flusher;
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void start() throws IOException {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        eventLog = new AppendOnlyLog(Paths.get(logDir), "order-events", logCompactBytes);
+        deadLetters = new AppendOnlyLog(Paths.get(logDir), "order-events-dead-letter", Long.MAX_VALUE);
+        FunctionCounter.builder("orders.events.dead.letters", deadLettered, LongAdder::sum)
+                .description("Order events moved to the dead-letter log because they could not be written")
+                .register(meterRegistry);
+        
+        List<PendingEvent> replayed = new ArrayList<>();
+        eventLog.replay((bytes, endOffset) -> replayed.add(new PendingEvent(deserialize(bytes), endOffset)));
+        buffer = new RingBuffer<>(Math.max(bufferCapacity, replayed.size()));
+        buffer.offerAll(replayed);
+        if (!replayed.isEmpty()) {
+            log.info("Replaying {} order events that were not yet written to the database", replayed.size());
+        }
+        
+        running = true;
+        flusher = new Thread(this::flushLoop, "order-event-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        LockSupport.unpark(flusher);
+        // The flusher gives up after a few failed attempts once stopped, so this ends; closing the
+        // log under it would fail its checkpoint
+        while (flusher.isAlive()) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+            if (flusher.isAlive()) {
+                log.warn("Still writing {} order events before shutdown", buffer.size());
+            }
+        }
+        eventLog.close();
+        deadLetters.close();
+    }
+    
+    /**
+     * Durably accept a batch of events for asynchronous writing, or reject all of them with
+     * IngestionBackpressureException if the buffer cannot hold them
+     */
+    public OrderEventAck submit(List<OrderEvent> events) {
+        if (events == null || events.isEmpty()) {
+            throw new IllegalArgumentException("events must contain at least one event");
+        }
+        if (events.size() > maxBatch) {
+            throw new IllegalArgumentException("A request may contain at most " + maxBatch + " events");
+        }
+        List<byte[]> records = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            OrderEvent event = events.get(i);
+            String problem = validate(event);
+            if (problem == null && OrderEvent.CREATED.equals(event.getType())) {
+                problem = orderPartitionService.checkCreatedAt(event.getCreatedAt());
+            }
+            if (problem != null) {
+                throw new IllegalArgumentException("events[" + i + "]: " + problem);
+            }
+            records.add(serialize(normalize(event)));
+        }
+        
+        long lastOffset;
+        int pending;
+        try {
+            // Log order and buffer order must match so the checkpoint can be a single offset
+            synchronized (producerLock) {
+                if (buffer.capacity() - buffer.size() < events.size()) {
+                    throw new IngestionBackpressureException("Order event buffer is full, retry shortly");
+                }
+                long[] endOffsets = eventLog.append(records);
+                List<PendingEvent> batch = new ArrayList<>(events.size());
+                for (int i = 0; i < events.size(); i++) {
+                    batch.add(new PendingEvent(events.get(i), endOffsets[i]));
+                }
+                buffer.offerAll(batch);
+                lastOffset = endOffsets[endOffsets.length - 1];
+                pending = buffer.size();
+            }
+            eventLog.sync(lastOffset);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not log order events", ex);
+        }
+        
+        if (pending >= flushSize) {
+            LockSupport.unpark(flusher);
+        }
+        return new OrderEventAck(events.size(), pending);
+    }
+    
+    private void flushLoop() {
+        List<PendingEvent> batch = new ArrayList<>(flushSize);
+        long lastFlush = System.nanoTime();
+        int failures = 0;
+        while (running || buffer.size() > 0) {
+            long waitedNanos = System.nanoTime() - lastFlush;
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+            if (running && buffer.size() < flushSize && waitedNanos < intervalNanos) {
+                LockSupport.parkNanos(intervalNanos - waitedNanos);
+                continue;
+            }
+            
+            batch.clear();
+            int count = buffer.peek(batch, flushSize);
+            if (count == 0) {
+                lastFlush = System.nanoTime();
+                continue;
+            }
+            try {
+                if (failures >= maxAttempts) {
+                    writeIsolating(batch);
+                } else {
+                    write(batch);
+                }
+                buffer.release(count);
+                eventLog.checkpoint(batch.get(count - 1).endOffset);
+                failures = 0;
+            } catch (RuntimeException | IOException ex) {
+                // Keep the batch in the buffer and retry; producers see 429 if it fills up
+                failures++;
+                long backoff = Math.min(MAX_RETRY_BACKOFF_MS, 100L << Math.min(failures, 6));
+                log.warn("Writing {} order events failed (attempt {}), retrying in {} ms: {}",
+                        count, failures, backoff, ex.getMessage());
+                if (!running && failures > 3) {
+                    log.error("Giving up on {} order events at shutdown; they remain in the log for replay",
+                            buffer.size());
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+            }
+            lastFlush = System.nanoTime();
+        }
+    }
+    
+    /**
+     * Write events, splitting them in half on a failure caused by the data until each bad event
+     * is alone and can be dead-lettered; any other failure is rethrown to retry the whole batch
+     */
+    private void writeIsolating(List<PendingEvent> events) throws IOException {
+        try {
+            write(events);
+        } catch (RuntimeException ex) {
+            if (!isDataError(ex)) {
+                throw ex;
+            }
+            if (events.size() == 1) {
+                deadLetter(List.of(new DeadLetter(ex.getMessage(), events.get(0).event)));
+                return;
+            }
+            // Halves are written in order, so a change still lands after the event creating it
+            int half = events.size() / 2;
+            writeIsolating(events.subList(0, half));
+            writeIsolating(events.subList(half, events.size()));
+        }
+    }
+    
+    private void deadLetter(List<DeadLetter> rejected) throws IOException {
+        if (rejected.isEmpty()) {
+            return;
+        }
+        List<byte[]> records = new ArrayList<>(rejected.size());
+        for (DeadLetter letter : rejected) {
+            records.add(serialize(letter));
+        }
+        long[] endOffsets = deadLetters.append(records);
+        deadLetters.sync(endOffsets[endOffsets.length - 1]);
+        deadLettered.add(rejected.size());
+        for (DeadLetter letter : rejected) {
+            log.error("Moved order event for order {} to the dead-letter log: {}",
+                    letter.event().getOrderId(), letter.reason());
+        }
+    }
+    
+    /**
+     * Whether the failure comes from the rows themselves (a constraint, a value the column cannot
+     * hold) rather than the database being unreachable or slow, so retrying cannot help
+     */
+    private static boolean isDataError(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof IllegalArgumentException) {
+                return true;
+            }
+            // SQLSTATE class 22 is a data exception, 23 an integrity constraint violation
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("22") || sql.getSQLState().startsWith("23"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Collapse the batch to one row per order and write it in a single transaction
+     */
+    private void write(List<PendingEvent> batch) throws IOException {
+        Map<Integer, Order> created = new LinkedHashMap<>();
+        Map<Integer, Order> changed = new LinkedHashMap<>();
+        // The events behind each row, so a row that cannot be written is dead-lettered as submitted
+        Map<Integer, List<OrderEvent>> sources = new HashMap<>();
+        for (PendingEvent pending : batch) {
+            OrderEvent event = pending.event;
+            sources.computeIfAbsent(event.getOrderId(), id -> new ArrayList<>()).add(event);
+            if (OrderEvent.CREATED.equals(event.getType())) {
+                changed.remove(event.getOrderId());
+                created.put(event.getOrderId(), toOrder(event));
+            } else {
+                Order target = created.get(event.getOrderId());
+                if (target == null) {
+                    target = changed.computeIfAbsent(event.getOrderId(), id -> new Order(
+                            id, null, null, null, null, null, null, null, null));
+                }
+                applyChange(target, event);
+            }
+        }
+        
+        // Rows for unknown customers would fail the whole statement on the foreign key
+        Set<Integer> userIds = created.values().stream().map(Order::getUserId).collect(Collectors.toSet());
+        Set<Integer> existingUsers = shardedUsers.isEnabled()
+                ? shardedUsers.findExistingIds(userIds)
+                : userRepository.findExistingIds(userIds);
+        List<Order> insertable = new ArrayList<>(created.size());
+        List<DeadLetter> rejected = new ArrayList<>();
+        for (Order order : created.values()) {
+            // Accepted before the partition window moved past its date
+            String problem = orderPartitionService.checkCreatedAt(order.getCreatedAt());
+            if (problem == null && !existingUsers.contains(order.getUserId())) {
+                problem = "customer " + order.getUserId() + " does not exist";
+            }
+            if (problem == null) {
+                insertable.add(order);
+            } else {
+                reject(rejected, sources.get(order.getOrderId()), problem);
+            }
+        }
+        List<Order> changes = new ArrayList<>(changed.values());
+        
+        orderPartitionService.ensurePartitions(insertable);
+        idFilter.addOrders(insertable.stream().map(Order::getOrderId).toList());
+        Set<Integer> updated = shardedOrders.isEnabled()
+                ? shardedOrders.upsertAndApplyStatusChanges(insertable, changes)
+                : transactionTemplate.execute(status -> {
+                    orderRepository.upsertAll(insertable);
+                    return orderRepository.applyStatusChanges(changes);
+                });
+        for (Order change : changes) {
+            if (!updated.contains(change.getOrderId())) {
+                reject(rejected, sources.get(change.getOrderId()),
+                        "order " + change.getOrderId() + " does not exist");
+            }
+        }
+        // Only after the commit, so a batch that fails and is retried is not dead-lettered twice
+        deadLetter(rejected);
+    }
+    
+    private static void reject(List<DeadLetter> rejected, List<OrderEvent> events, String reason) {
+        for (OrderEvent event : events) {
+            rejected.add(new DeadLetter(reason, event));
+        }
+    }
+    
+    private static void applyChange(Order target, OrderEvent event) {
+        target.setStatus(event.getStatus());
+        if (event.getShippedAt() != null) {
+            target.setShippedAt(event.getShippedAt());
+        }
+        if (event.getDeliveredAt() != null) {
+            target.setDeliveredAt(event.getDeliveredAt());
+        }
+        if (event.getReturnedAt() != null) {
+            target.setReturnedAt(event.getReturnedAt());
+        }
+    }
+    
+    private static Order toOrder(OrderEvent event) {
+        return new Order(
+                event.getOrderId(),
+                event.getUserId(),
+                event.getStatus(),
+                event.getGender(),
+                event.getCreatedAt(),
+                event.getReturnedAt(),
+                event.getShippedAt(),
+                event.getDeliveredAt(),
+                event.getNumOfItem()
+        );
+    }
+    
+    /**
+     * Check an event, returning the first problem found or null if it can be accepted
+     */
+    private static String validate(OrderEvent event) {
+        if (event == null) {
+            return "event must not be null";
+        }
+        if (!OrderEvent.CREATED.equals(event.getType()) && !OrderEvent.STATUS_CHANGED.equals(event.getType())) {
+            return "type must be '" + OrderEvent.CREATED + "' or '" + OrderEvent.STATUS_CHANGED + "'";
+        }
+        if (event.getOrderId() == null) {
+            return "order_id is required";
+        }
+        if (event.getStatus() == null || event.getStatus().isBlank()) {
+            return "status is required";
+        }
+        if (event.getStatus().trim().length() > 50) {
+            return "status must be at most 50 characters";
+        }
+        if (OrderEvent.STATUS_CHANGED.equals(event.getType())) {
+            return null;
+        }
+        if (event.getUserId() == null) {
+            return "user_id is required";
+        }
+        if (event.getGender() != null && !event.getGender().trim().toUpperCase(Locale.ROOT).matches("[MF]")) {
+            return "Gender must be 'M' or 'F'";
+        }
+        if (event.getCreatedAt() == null) {
+            return "created_at is required";
+        }
+        if (event.getNumOfItem() == null || event.getNumOfItem() <= 0) {
+            return "num_of_item must be greater than 0";
+        }
+        return null;
+    }
+    
+    private static OrderEvent normalize(OrderEvent event) {
+        event.setStatus(event.getStatus().trim());
+        if (event.getGender() != null) {
+            event.setGender(event.getGender().trim().toUpperCase(Locale.ROOT));
+        }
+        return event;
+    }
+    
+    private byte[] serialize(Object record) {
+        try {
+            return objectMapper.writeValueAsBytes(record);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize order event", ex);
+        }
+    }
+    
+    private OrderEvent deserialize(byte[] bytes) {
+        try {
+            return objectMapper.readValue(bytes, OrderEvent.class);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Corrupt order event in log", ex);
+        }
+    }
+    
+    private record PendingEvent(OrderEvent event, long endOffset) {}
+    
+    /**
+     * A dead-letter log record: the event as submitted and why it could not be written
+     */
+    private record DeadLetter(String reason, OrderEvent event) {}
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the monthly partitions of the orders table in place.
+ *
+ * A daily job creates the partitions for the next few months and, when a retention period is
+ * configured, detaches partitions that have fallen out of it. Writers call ensurePartitions
+ * before inserting, so orders dated outside the pre-created range get their partition on demand
+ * instead of failing. Only months inside the window, from the retention cutoff (or
+ * max-backfill-months back) to the last pre-created month, are accepted; writers reject other
+ * rows with checkCreatedAt, so a bad date cannot create partitions that would never be used or
+ * detached. Partitions are created in their own transaction, since creating one locks the whole
+ * orders table until commit.
+ */
+@Service
+public class OrderPartitionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderPartitionService.class);
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${orders.partitions.premake-months:3}")
+    private int premakeMonths;
+    
+    @Value("${orders.partitions.retention-months:0}")
+    private int retentionMonths;
+    
+    @Value("${orders.partitions.max-backfill-months:120}")
+    private int maxBackfillMonths;
+    
+    // Months known to have a partition; cleared by maintenance, which may detach some
+    private final Set<YearMonth> knownMonths = ConcurrentHashMap.newKeySet();
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        maintain();
+    }
+    
+    /**
+     * Create the partitions for the coming months and detach the ones past retention
+     */
+    @Scheduled(cron = "${orders.partitions.maintenance-cron:0 15 3 * * *}")
+    public synchronized void maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        try {
+            List<String> created = createPartitions(startOf(current), startOf(current.plusMonths(premakeMonths)));
+            if (!created.isEmpty()) {
+                log.info("Created order partitions {}", created);
+            }
+            if (retentionMonths > 0) {
+                OffsetDateTime cutoff = startOf(current.minusMonths(retentionMonths));
+                List<String> detached = shardedOrders.isEnabled()
+                        ? shardedOrders.detachPartitionsBefore(cutoff)
+                        : transactionTemplate.execute(status -> orderRepository.detachPartitionsBefore(cutoff));
+                if (!detached.isEmpty()) {
+                    log.info("Detached order partitions {} older than {} months", detached, retentionMonths);
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Order partition maintenance failed: {}", ex.getMessage());
+        } finally {
+            knownMonths.clear();
+        }
+    }
+    
+    /**
+     * Why an order created at this time cannot be stored, or null if its month is in the window
+     */
+    public String checkCreatedAt(OffsetDateTime createdAt) {
+        if (createdAt == null) {
+            return null;
+        }
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        YearMonth earliest = current.minusMonths(retentionMonths > 0 ? retentionMonths : maxBackfillMonths);
+        YearMonth latest = current.plusMonths(premakeMonths);
+        YearMonth month = monthOf(createdAt);
+        if (month.isBefore(earliest) || month.isAfter(latest)) {
+            return "created_at must be from " + startOf(earliest) + " and before " + startOf(latest.plusMonths(1));
+        }
+        return null;
+    }
+    
+    /**
+     * Make sure every month the orders were created in has a partition. Throws
+     * IllegalArgumentException, creating nothing, if any order is outside the window.
+     */
+    public void ensurePartitions(Collection<Order> orders) {
+        for (Order order : orders) {
+            String problem = checkCreatedAt(order.getCreatedAt());
+            if (problem != null) {
+                throw new IllegalArgumentException("Order " + order.getOrderId() + ": " + problem);
+            }
+        }
+        for (Order order : orders) {
+            OffsetDateTime createdAt = order.getCreatedAt();
+            if (createdAt == null) {
+                continue;
+            }
+            YearMonth month = monthOf(createdAt);
+            if (!knownMonths.contains(month)) {
+                createPartitions(startOf(month), startOf(month));
+                knownMonths.add(month);
+            }
+        }
+    }
+    
+    /**
+     * On every shard when orders are sharded, each in its own transaction
+     */
+    private List<String> createPartitions(OffsetDateTime from, OffsetDateTime to) {
+        return shardedOrders.isEnabled()
+                ? shardedOrders.createPartitions(from, to)
+                : transactionTemplate.execute(status -> orderRepository.createPartitions(from, to));
+    }
+    
+    private static YearMonth monthOf(OffsetDateTime time) {
+        return YearMonth.from(time.withOffsetSameInstant(ZoneOffset.UTC));
+    }
+    
+    private static OffsetDateTime startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+}
\ No newline at end of file
@@ -1,20 +1,44 @@
 package com.think41.customerapi.service;
 
+import com.think41.customerapi.config.CacheConfig;
+import com.think41.customerapi.dto.BulkOrderError;
+import com.think41.customerapi.dto.BulkOrderResponse;
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.OrderFilter;
+import com.think41.customerapi.dto.OrderRequest;
 import com.think41.customerapi.dto.OrderResponse;
-import com.think41.customerapi.dto.PagedResponse;
 import com.think41.customerapi.entity.Order;
-import com.think41.customerapi.exception.CustomerNotFoundException;
 import com.think41.customerapi.exception.OrderNotFoundException;
+import com.think41.customerapi.repository.OrderFeedCursor;
+import com.think41.customerapi.repository.OrderFeedQuery;
 import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import com.think41.customerapi.repository.ShardedUserRepository;
 import com.think41.customerapi.repository.UserRepository;
+import com.think41.customerapi.util.SingleFlight;
+import com.think41.customerapi.util.SqlValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,39 +50,197 @@ public class OrderService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Autowired
+    private ShardedUserRepository shardedUsers;
+    
+    @Autowired
+    private CustomerService customerService;
+    
+    @Autowired
+    private IdFilterService idFilter;
+    
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private PagePrefetchService prefetch;
+    
+    // Identical concurrent page requests share one set of queries (customer and page)
+    private final SingleFlight<CustomerOrdersPage, CustomerOrdersResponse> customerOrdersFlights =
+            new SingleFlight<>("customer_orders");
+    
+    @Value("${orders.bulk.max-orders:10000}")
+    private int bulkMaxOrders;
+    
+    @Value("${orders.bulk.chunk-size:5000}")
+    private int bulkChunkSize;
+    
+    @PostConstruct
+    public void registerMetrics() {
+        customerOrdersFlights.bindTo(meterRegistry);
+    }
+    
     /**
      * Get all orders for a specific customer with pagination
      */
-    public PagedResponse<OrderResponse> getOrdersByCustomerId(Integer customerId, int page, int size) {
-        // First verify customer exists
-        if (!userRepository.existsById(customerId)) {
-            throw new CustomerNotFoundException("Customer not found with ID: " + customerId);
-        }
+    public CustomerOrdersResponse getOrdersByCustomerId(Integer customerId, int page, int size) {
+        // A request for a page that is still being prefetched joins that query
+        return prefetch.getPage(List.of("customer_orders", customerId), page, size,
+                p -> customerOrdersFlights.execute(new CustomerOrdersPage(customerId, p, size),
+                        () -> loadOrdersByCustomerId(customerId, p, size)));
+    }
+    
+    private CustomerOrdersResponse loadOrdersByCustomerId(Integer customerId, int page, int size) {
+        // Also verifies the customer exists; usually answered from the customers cache
+        CustomerResponse customer = customerService.getCustomerById(customerId);
         
+        // Order columns only, without joining the customer to every row
         Pageable pageable = PageRequest.of(page, size);
-        Page<Order> orderPage = orderRepository.findOrdersWithUserByUserId(customerId, pageable);
+        List<Order> rows = shardedOrders.isEnabled()
+                ? shardedOrders.findRecentByUserId(customerId, pageable)
+                : orderRepository.findRecentByUserId(customerId, pageable);
+        // The customer already carries its order count, so the total costs no extra query
+        Page<Order> orderPage = PageableExecutionUtils.getPage(rows, pageable, customer::getOrderCount);
         
         List<OrderResponse> orders = orderPage.getContent().stream()
-                .map(this::mapOrderToResponse)
+                .map(OrderService::mapOrderWithoutCustomer)
                 .collect(Collectors.toList());
         
-        return new PagedResponse<>(
+        return new CustomerOrdersResponse(
                 orders,
                 orderPage.getNumber(),
                 orderPage.getSize(),
                 orderPage.getTotalElements(),
                 orderPage.getTotalPages(),
                 orderPage.isFirst(),
-                orderPage.isLast()
+                orderPage.isLast(),
+                customer.getId(),
+                customer.getFirstName() + " " + customer.getLastName(),
+                customer.getEmail()
         );
     }
     
+    /**
+     * Get one page of orders across all customers, newest first, continuing after the cursor
+     */
+    public CursorPagedResponse<OrderResponse> getOrderFeed(OrderFilter filter, String cursor, int size) {
+        OrderFeedCursor after = cursor != null && !cursor.isBlank() ? OrderFeedCursor.decode(cursor.trim()) : null;
+        
+        // One extra row tells whether another page exists without counting the feed
+        OrderFeedQuery query = OrderFeedQuery.of(filter, after, size + 1);
+        List<Object[]> rows = shardedOrders.isEnabled()
+                ? shardedOrders.findOrderFeed(query)
+                : orderRepository.findOrderFeed(query);
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        
+        List<OrderResponse> orders = rows.stream()
+                .map(this::mapToOrderResponseWithCustomer)
+                .collect(Collectors.toList());
+        
+        String nextCursor = null;
+        if (hasMore) {
+            OrderResponse last = orders.get(orders.size() - 1);
+            nextCursor = new OrderFeedCursor(last.getCreatedAt().toInstant(), last.getOrderId()).encode();
+        }
+        
+        return new CursorPagedResponse<>(orders, size, nextCursor, hasMore);
+    }
+    
+    /**
+     * Insert many orders at once. Invalid rows, unknown customers and existing order IDs are
+     * reported per row; the remaining rows are still inserted.
+     */
+    @Transactional
+    public BulkOrderResponse bulkCreateOrders(List<OrderRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("orders must contain at least one order");
+        }
+        if (requests.size() > bulkMaxOrders) {
+            throw new IllegalArgumentException("A bulk request may contain at most " + bulkMaxOrders + " orders");
+        }
+        
+        List<BulkOrderError> errors = new ArrayList<>();
+        Map<Integer, Integer> indexByOrderId = new HashMap<>();
+        List<Order> valid = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            OrderRequest request = requests.get(i);
+            String problem = validateOrderRequest(request);
+            if (problem == null && indexByOrderId.putIfAbsent(request.getOrderId(), i) != null) {
+                problem = "Duplicate order_id in request";
+            }
+            if (problem != null) {
+                errors.add(new BulkOrderError(i, request != null ? request.getOrderId() : null, problem));
+            } else {
+                valid.add(toOrder(request));
+            }
+        }
+        
+        // All referenced customers are checked in one query rather than one existsById per row
+        Set<Integer> userIds = valid.stream().map(Order::getUserId).collect(Collectors.toSet());
+        Set<Integer> existingUsers = shardedUsers.isEnabled()
+                ? shardedUsers.findExistingIds(userIds)
+                : userRepository.findExistingIds(userIds);
+        List<Order> insertable = new ArrayList<>(valid.size());
+        for (Order order : valid) {
+            if (existingUsers.contains(order.getUserId())) {
+                insertable.add(order);
+            } else {
+                errors.add(new BulkOrderError(indexByOrderId.get(order.getOrderId()), order.getOrderId(),
+                        "Customer not found with ID: " + order.getUserId()));
+            }
+        }
+        
+        orderPartitionService.ensurePartitions(insertable);
+        int inserted = 0;
+        for (int from = 0; from < insertable.size(); from += bulkChunkSize) {
+            List<Order> chunk = insertable.subList(from, Math.min(from + bulkChunkSize, insertable.size()));
+            Set<Integer> insertedIds = shardedOrders.isEnabled()
+                    ? shardedOrders.insertIgnoringExisting(chunk)
+                    : orderRepository.insertIgnoringExisting(chunk);
+            idFilter.addOrders(insertedIds);
+            inserted += insertedIds.size();
+            for (Order order : chunk) {
+                if (!insertedIds.contains(order.getOrderId())) {
+                    errors.add(new BulkOrderError(indexByOrderId.get(order.getOrderId()), order.getOrderId(),
+                            "Order already exists with ID: " + order.getOrderId()));
+                }
+            }
+        }
+        
+        errors.sort(Comparator.comparingInt(BulkOrderError::getIndex));
+        return new BulkOrderResponse(requests.size(), inserted, errors);
+    }
+    
     /**
      * Get specific order details by order ID
      */
+    // Not cached while sharded: the change notifications that evict entries come from the primary database
+    @Cacheable(cacheNames = CacheConfig.ORDERS, key = "#orderId", condition = "!@shardedOrderRepository.enabled")
     public OrderResponse getOrderById(Integer orderId) {
-        Order order = orderRepository.findOrderWithUserByOrderId(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+        if (!idFilter.mightBeOrder(orderId)) {
+            throw new OrderNotFoundException("Order not found with ID: " + orderId);
+        }
+        if (shardedOrders.isEnabled()) {
+            Object[] row = shardedOrders.findWithCustomerById(orderId);
+            if (row == null) {
+                throw new OrderNotFoundException("Order not found with ID: " + orderId);
+            }
+            return mapToOrderResponseWithCustomer(row);
+        }
+        Order order = orderRepository.findOrderWithUserByOrderId(orderId).orElse(null);
+        if (order == null) {
+            idFilter.orderNotFound();
+            throw new OrderNotFoundException("Order not found with ID: " + orderId);
+        }
         
         return mapOrderToResponse(order);
     }
@@ -68,12 +250,13 @@ public class OrderService {
      */
     public OrderResponse getOrderByIdForCustomer(Integer customerId, Integer orderId) {
         // First verify customer exists
-        if (!userRepository.existsById(customerId)) {
-            throw new CustomerNotFoundException("Customer not found with ID: " + customerId);
-        }
+        customerService.requireCustomer(customerId);
         
         // Check if order exists and belongs to customer
-        if (!orderRepository.existsByOrderIdAndUserId(orderId, customerId)) {
+        boolean exists = idFilter.mightBeOrder(orderId) && (shardedOrders.isEnabled()
+                ? shardedOrders.existsByOrderIdAndUserId(orderId, customerId)
+                : orderRepository.existsByOrderIdAndUserId(orderId, customerId));
+        if (!exists) {
             throw new OrderNotFoundException("Order not found with ID: " + orderId + " for customer: " + customerId);
         }
         
@@ -81,14 +264,73 @@ public class OrderService {
     }
     
     /**
-     * Get order count for a customer
+     * Get order count for a customer, as loaded (and usually cached) with the customer
      */
     public long getOrderCountByCustomerId(Integer customerId) {
-        if (!userRepository.existsById(customerId)) {
-            throw new CustomerNotFoundException("Customer not found with ID: " + customerId);
+        return customerService.getCustomerById(customerId).getOrderCount();
+    }
+    
+    /**
+     * Check a bulk row, returning the first problem found or null if it can be inserted
+     */
+    private String validateOrderRequest(OrderRequest request) {
+        if (request == null) {
+            return "Order must not be null";
         }
-        
-        return orderRepository.countByUserId(customerId);
+        if (request.getOrderId() == null) {
+            return "order_id is required";
+        }
+        if (request.getUserId() == null) {
+            return "user_id is required";
+        }
+        if (request.getStatus() == null || request.getStatus().isBlank()) {
+            return "status is required";
+        }
+        if (request.getStatus().trim().length() > 50) {
+            return "status must be at most 50 characters";
+        }
+        if (request.getGender() != null && !request.getGender().trim().toUpperCase(Locale.ROOT).matches("[MF]")) {
+            return "Gender must be 'M' or 'F'";
+        }
+        if (request.getCreatedAt() == null) {
+            return "created_at is required";
+        }
+        if (request.getNumOfItem() == null || request.getNumOfItem() <= 0) {
+            return "num_of_item must be greater than 0";
+        }
+        return orderPartitionService.checkCreatedAt(request.getCreatedAt());
+    }
+    
+    private Order toOrder(OrderRequest request) {
+        String gender = request.getGender() != null ? request.getGender().trim().toUpperCase(Locale.ROOT) : null;
+        return new Order(
+                request.getOrderId(),
+                request.getUserId(),
+                request.getStatus().trim(),
+                gender,
+                request.getCreatedAt(),
+                request.getReturnedAt(),
+                request.getShippedAt(),
+                request.getDeliveredAt(),
+                request.getNumOfItem()
+        );
+    }
+    
+    /**
+     * Map Order entity to OrderResponse without customer details, for pages that carry them once
+     */
+    private static OrderResponse mapOrderWithoutCustomer(Order order) {
+        return new OrderResponse(
+                order.getOrderId(),
+                order.getUserId(),
+                order.getStatus(),
+                order.getGender(),
+                order.getCreatedAt(),
+                order.getReturnedAt(),
+                order.getShippedAt(),
+                order.getDeliveredAt(),
+                order.getNumOfItem()
+        );
     }
     
     /**
@@ -122,22 +364,10 @@ public class OrderService {
         String status = (String) result[2];
         String gender = result[3] != null ? result[3].toString().trim() : null;
         
-        // Handle timestamp conversion
-        java.sql.Timestamp createdAtTimestamp = (java.sql.Timestamp) result[4];
-        OffsetDateTime createdAt = createdAtTimestamp != null ? 
-            createdAtTimestamp.toLocalDateTime().atOffset(java.time.ZoneOffset.UTC) : null;
-            
-        java.sql.Timestamp returnedAtTimestamp = (java.sql.Timestamp) result[5];
-        OffsetDateTime returnedAt = returnedAtTimestamp != null ? 
-            returnedAtTimestamp.toLocalDateTime().atOffset(java.time.ZoneOffset.UTC) : null;
-            
-        java.sql.Timestamp shippedAtTimestamp = (java.sql.Timestamp) result[6];
-        OffsetDateTime shippedAt = shippedAtTimestamp != null ? 
-            shippedAtTimestamp.toLocalDateTime().atOffset(java.time.ZoneOffset.UTC) : null;
-            
-        java.sql.Timestamp deliveredAtTimestamp = (java.sql.Timestamp) result[7];
-        OffsetDateTime deliveredAt = deliveredAtTimestamp != null ? 
-            deliveredAtTimestamp.toLocalDateTime().atOffset(java.time.ZoneOffset.UTC) : null;
+        OffsetDateTime createdAt = SqlValues.toOffsetDateTime(result[4]);
+        OffsetDateTime returnedAt = SqlValues.toOffsetDateTime(result[5]);
+        OffsetDateTime shippedAt = SqlValues.toOffsetDateTime(result[6]);
+        OffsetDateTime deliveredAt = SqlValues.toOffsetDateTime(result[7]);
         
         Integer numOfItem = (Integer) result[8];
         String firstName = (String) result[9];
@@ -151,4 +381,6 @@ public class OrderService {
                 shippedAt, deliveredAt, numOfItem, customerName, email
         );
     }
+    
+    private record CustomerOrdersPage(Integer customerId, int page, int size) {}
 }
\ No newline at end of file
@@ -0,0 +1,334 @@
+package com.think41.customerapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.exception.FeatureUnavailableException;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes order inserts and updates to Server-Sent Events subscribers, one stream per customer.
+ *
+ * Changes come from the shared DatabaseChangeListener rather than a query per subscriber: each
+ * batch of changed order ids is looked up once, restricted to customers that have subscribers on
+ * this node, and each event is encoded once and queued for each subscriber from a single
+ * publisher thread. Streams use non-blocking servlet output: events are written only while the
+ * connection takes them without blocking, and the rest wait in the subscriber's bounded queue
+ * until the container reports the socket writable again. No thread ever waits on a client, so
+ * one that stops reading only holds up its own stream; it is closed when its queue fills or it
+ * has not accepted a write for stall-timeout-ms, and reconnects. Idle streams hold no thread,
+ * only an async response and a map entry.
+ */
+@Service
+public class OrderStreamService implements DatabaseChangeHandler {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrderStreamService.class);
+    
+    public static final String ORDER_EVENT = "order";
+    public static final String RESYNC_EVENT = "resync";
+    
+    private static final byte[] RESYNC = ("event:" + RESYNC_EVENT + "\ndata:\n\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ShardedOrderRepository shardedOrders;
+    
+    @Autowired
+    private CustomerService customerService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${orders.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+    
+    @Value("${orders.stream.queue-capacity:256}")
+    private int queueCapacity;
+    
+    @Value("${orders.stream.stall-timeout-ms:30000}")
+    private long stallTimeoutMs;
+    
+    private final Map<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    
+    // Lookups happen off the listener thread so cache invalidation is never delayed
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-stream-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+        subscribers.values().forEach(streams -> streams.forEach(Subscriber::close));
+        subscribers.clear();
+    }
+    
+    /**
+     * Open a stream of order changes for a customer on the request's async response
+     */
+    public void subscribe(Integer customerId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // Streams follow the primary database's change notifications, which shard writes do not send
+        if (shardedOrders.isEnabled()) {
+            throw new FeatureUnavailableException("Order streams are not available while orders are sharded");
+        }
+        customerService.requireCustomer(customerId);
+        
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        // Send the headers now, while the output is still blocking, so the client sees the stream open
+        response.flushBuffer();
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(timeoutMs);
+        Subscriber subscriber = new Subscriber(customerId, async, response.getOutputStream(),
+                new ArrayBlockingQueue<>(queueCapacity));
+        // compute() so the add cannot race with unsubscribe() dropping an emptied set
+        subscribers.compute(customerId, (id, streams) -> {
+            Set<Subscriber> target = streams != null ? streams : ConcurrentHashMap.newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+        async.addListener(subscriber);
+        // Switches the output to non-blocking; the container calls onWritePossible once it is set
+        subscriber.output.setWriteListener(subscriber);
+    }
+    
+    @Override
+    public void onChanged(String table, Set<Integer> ids) {
+        if (!"orders".equals(table) || subscribers.isEmpty()) {
+            return;
+        }
+        publisher.execute(() -> publish(ids));
+    }
+    
+    @Override
+    public void onResync() {
+        // Subscribers may have missed changes and should reload their orders
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> subscriber.offer(RESYNC)));
+    }
+    
+    /**
+     * Keep idle streams open through proxies, and close streams whose client stopped reading
+     */
+    @Scheduled(fixedDelayString = "${orders.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        subscribers.values().forEach(streams -> streams.forEach(subscriber -> {
+            long blockedSince = subscriber.blockedSince;
+            if (blockedSince != 0 && now - blockedSince > TimeUnit.MILLISECONDS.toNanos(stallTimeoutMs)) {
+                log.warn("Closing order stream of customer {}: the client has not read its events for {} ms",
+                        subscriber.customerId, TimeUnit.NANOSECONDS.toMillis(now - blockedSince));
+                subscriber.close();
+            } else if (subscriber.isIdle()) {
+                // Streams with anything queued or being written are not idle and need no heartbeat
+                subscriber.offer(HEARTBEAT);
+            }
+        }));
+    }
+    
+    private void publish(Set<Integer> orderIds) {
+        List<Integer> customerIds = new ArrayList<>(subscribers.keySet());
+        List<Order> orders;
+        try {
+            orders = orderRepository.findByOrderIdsForUsers(orderIds, customerIds);
+        } catch (RuntimeException ex) {
+            log.warn("Could not load {} changed orders for streaming: {}", orderIds.size(), ex.getMessage());
+            return;
+        }
+        for (Order order : orders) {
+            Set<Subscriber> streams = subscribers.get(order.getUserId());
+            if (streams == null) {
+                continue;
+            }
+            OrderResponse response = new OrderResponse(
+                    order.getOrderId(),
+                    order.getUserId(),
+                    order.getStatus(),
+                    order.getGender(),
+                    order.getCreatedAt(),
+                    order.getReturnedAt(),
+                    order.getShippedAt(),
+                    order.getDeliveredAt(),
+                    order.getNumOfItem()
+            );
+            byte[] event;
+            try {
+                event = ("event:" + ORDER_EVENT + "\ndata:" + objectMapper.writeValueAsString(response) + "\n\n")
+                        .getBytes(StandardCharsets.UTF_8);
+            } catch (JsonProcessingException ex) {
+                log.warn("Could not encode order {} for streaming: {}", order.getOrderId(), ex.getMessage());
+                continue;
+            }
+            for (Subscriber subscriber : streams) {
+                subscriber.offer(event);
+            }
+        }
+    }
+    
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.customerId, (id, streams) -> {
+            streams.remove(subscriber);
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+    
+    private final class Subscriber implements WriteListener, AsyncListener {
+        
+        private final Integer customerId;
+        private final AsyncContext async;
+        private final ServletOutputStream output;
+        private final BlockingQueue<byte[]> queue;
+        // Threads asking to drain; only the one that raised it from 0 writes, the others make it loop
+        private final AtomicInteger drainRequests = new AtomicInteger();
+        // When the output last refused a write with events still queued, or 0 if it is keeping up
+        private volatile long blockedSince;
+        private volatile boolean closed;
+        
+        Subscriber(Integer customerId, AsyncContext async, ServletOutputStream output,
+                   BlockingQueue<byte[]> queue) {
+            this.customerId = customerId;
+            this.async = async;
+            this.output = output;
+            this.queue = queue;
+        }
+        
+        boolean isIdle() {
+            return queue.isEmpty() && blockedSince == 0;
+        }
+        
+        /**
+         * Queue an event and write what the connection takes; a subscriber too far behind to take
+         * it is closed
+         */
+        void offer(byte[] event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.warn("Closing order stream of customer {}: the client is not reading its events", customerId);
+                close();
+                return;
+            }
+            drain();
+        }
+        
+        /**
+         * Write queued events for as long as the output is ready. Called from the publisher, the
+         * heartbeat and the container, but writes are never concurrent: a caller that finds another
+         * one draining leaves the work to it. Writing only when isReady() never blocks.
+         */
+        private void drain() {
+            if (drainRequests.getAndIncrement() != 0) {
+                return;
+            }
+            int requests = 1;
+            do {
+                try {
+                    boolean unflushed = false;
+                    boolean blocked = false;
+                    while (!closed) {
+                        if (!output.isReady()) {
+                            // The container calls onWritePossible once the pending bytes are out
+                            blocked = true;
+                            break;
+                        }
+                        byte[] event = queue.poll();
+                        if (event != null) {
+                            output.write(event);
+                            unflushed = true;
+                        } else if (unflushed) {
+                            output.flush();
+                            unflushed = false;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (!blocked) {
+                        blockedSince = 0;
+                    } else if (blockedSince == 0) {
+                        blockedSince = System.nanoTime();
+                    }
+                } catch (IOException | IllegalStateException ex) {
+                    // Client disconnected or the stream already completed
+                    close();
+                }
+                requests = drainRequests.addAndGet(-requests);
+            } while (requests != 0);
+        }
+        
+        void close() {
+            unsubscribe(this);
+            queue.clear();
+            try {
+                async.complete();
+            } catch (IllegalStateException ex) {
+                // The container already completed or recycled the response
+            }
+        }
+        
+        @Override
+        public void onWritePossible() {
+            blockedSince = 0;
+            drain();
+        }
+        
+        @Override
+        public void onError(Throwable error) {
+            close();
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) {
+            unsubscribe(this);
+        }
+        
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
\ No newline at end of file
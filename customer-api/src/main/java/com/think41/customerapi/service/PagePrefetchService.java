@@ -0,0 +1,255 @@
+package com.think41.customerapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.util.RateLimiter;
+import com.think41.customerapi.util.RequestBudget;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Loads the next page ahead of clients that page through a list in order.
+ *
+ * Pages are identified by a stream, the list being paged (its query and parameters), plus page
+ * number and size. When page n of a stream is requested right after page n - 1, or is served
+ * from a prefetch, page n + 1 is loaded on a background thread into a short-lived cache, and
+ * the next request for it takes it from there once, waiting for it if it is still loading
+ * rather than running the same query a second time. Prefetches are skipped when the pool has
+ * requests waiting for a connection or more than max-pool-usage of it in use, when
+ * max-in-flight prefetches are running, and beyond pages-per-second across all clients.
+ * Any committed change to users or orders clears the cache, prefetches still loading included,
+ * so a prefetched page is never older than the last change.
+ */
+@Service
+public class PagePrefetchService implements DatabaseChangeHandler {
+    
+    private static final Logger log = LoggerFactory.getLogger(PagePrefetchService.class);
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${prefetch.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${prefetch.ttl-ms:10000}")
+    private long ttlMs;
+    
+    @Value("${prefetch.max-pages:1000}")
+    private int maxPages;
+    
+    @Value("${prefetch.max-in-flight:2}")
+    private int maxInFlight;
+    
+    @Value("${prefetch.pages-per-second:20}")
+    private double pagesPerSecond;
+    
+    @Value("${prefetch.max-pool-usage:0.5}")
+    private double maxPoolUsage;
+    
+    @Value("${prefetch.timeout-ms:3000}")
+    private long timeoutMs;
+    
+    private Cache<PageKey, CompletableFuture<PagedResponse<?>>> pages;
+    // Last page requested of each stream, to tell sequential paging from jumping around
+    private Cache<StreamKey, Integer> lastPages;
+    private RateLimiter budget;
+    private Semaphore inFlight;
+    private ThreadPoolExecutor executor;
+    private HikariPoolMXBean pool;
+    
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder skippedLoad = new LongAdder();
+    private final LongAdder skippedBudget = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        lastPages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        budget = new RateLimiter("prefetch", Math.max(1, maxInFlight), pagesPerSecond, 1);
+        inFlight = new Semaphore(maxInFlight);
+        executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxInFlight)), runnable -> {
+                    Thread thread = new Thread(runnable, "page-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        } catch (SQLException ex) {
+            log.info("Prefetch cannot see the connection pool, so it is not skipped under load");
+        }
+        budget.bindTo(meterRegistry);
+        pageCounter("issued", issued);
+        pageCounter("hit", hits);
+        pageCounter("skipped_load", skippedLoad);
+        pageCounter("skipped_budget", skippedBudget);
+        pageCounter("failed", failed);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Page page of stream, from a prefetch when there is one, else from loader; loader also
+     * loads the following page when the stream is being paged in order
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends PagedResponse<?>> P getPage(Object stream, int page, int size, IntFunction<P> loader) {
+        if (!enabled) {
+            return loader.apply(page);
+        }
+        CompletableFuture<PagedResponse<?>> pending = pages.asMap().remove(new PageKey(stream, page, size));
+        P response = pending != null ? (P) await(pending) : null;
+        boolean prefetched = response != null;
+        if (prefetched) {
+            hits.increment();
+        } else {
+            response = loader.apply(page);
+        }
+        
+        Integer previous = lastPages.asMap().put(new StreamKey(stream, size), page);
+        boolean sequential = prefetched || (previous != null && previous == page - 1);
+        if (sequential && !response.isLast()) {
+            prefetch(new PageKey(stream, page + 1, size), loader);
+        }
+        return response;
+    }
+    
+    @Override
+    public void onChanged(String table, Set<Integer> ids) {
+        clear();
+    }
+    
+    @Override
+    public void onResync() {
+        clear();
+    }
+    
+    private void clear() {
+        if (enabled) {
+            pages.invalidateAll();
+        }
+    }
+    
+    // The prefetched page, or null if it failed or does not arrive within the request's deadline
+    private PagedResponse<?> await(CompletableFuture<PagedResponse<?>> pending) {
+        RequestBudget requestBudget = RequestBudget.current();
+        long waitMs = requestBudget != null && requestBudget.hasDeadline() ? requestBudget.remainingMillis() : timeoutMs;
+        try {
+            return pending.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException ex) {
+            return null;
+        }
+    }
+    
+    private void prefetch(PageKey key, IntFunction<? extends PagedResponse<?>> loader) {
+        if (pages.getIfPresent(key) != null) {
+            return;
+        }
+        if (underLoad()) {
+            skippedLoad.increment();
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            skippedBudget.increment();
+            return;
+        }
+        if (!budget.tryAcquire("all", 1).allowed()) {
+            inFlight.release();
+            skippedBudget.increment();
+            return;
+        }
+        // In the cache before the query starts, so a change clears it even while it runs
+        CompletableFuture<PagedResponse<?>> pending = new CompletableFuture<>();
+        if (pages.asMap().putIfAbsent(key, pending) != null) {
+            inFlight.release();
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                RequestBudget.bind(new RequestBudget(timeoutMs, 0, 0));
+                try {
+                    pending.complete(loader.apply(key.page()));
+                    issued.increment();
+                } catch (RuntimeException ex) {
+                    failed.increment();
+                    pending.completeExceptionally(ex);
+                    log.debug("Prefetch of page {} failed: {}", key.page(), ex.getMessage());
+                } finally {
+                    RequestBudget.bind(null);
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pages.asMap().remove(key, pending);
+            inFlight.release();
+            skippedBudget.increment();
+        }
+    }
+    
+    private boolean underLoad() {
+        if (pool == null) {
+            return false;
+        }
+        int total = pool.getTotalConnections();
+        return pool.getThreadsAwaitingConnection() > 0
+                || (total > 0 && pool.getActiveConnections() > total * maxPoolUsage);
+    }
+    
+    private void pageCounter(String outcome, LongAdder count) {
+        FunctionCounter.builder("prefetch.pages", count, LongAdder::sum)
+                .tag("outcome", outcome)
+                .description("Next-page prefetches by outcome; hits are requests served from one")
+                .register(meterRegistry);
+    }
+    
+    private record PageKey(Object stream, int page, int size) {}
+    
+    private record StreamKey(Object stream, int size) {}
+}
\ No newline at end of file
@@ -0,0 +1,509 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.ProfileHotSpot;
+import com.think41.customerapi.dto.ProfilingSession;
+import com.think41.customerapi.dto.ProfilingSummary;
+import com.think41.customerapi.exception.CapacityExceededException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Java Flight Recorder sessions on demand, with a summary of where application code spends
+ * CPU, allocates, blocks on monitors and waits on JDBC socket reads.
+ *
+ * Each preset enables only the events it summarizes, at rates meant for a loaded instance for
+ * the length of a session. A session records to a file under profiling.dir until it is stopped or its
+ * duration is up; its summary is worked out from that file when first asked for. Events are
+ * attributed to the innermost frame in profiling.package, skipping the JDBC wrappers, so a socket
+ * read shows up at the repository call that caused it rather than in the driver.
+ *
+ * The continuous recording keeps the last profiling.continuous.max-age of CPU, lock and JDBC
+ * events in JFR's ring buffer; stopping it dumps that window into a new session and leaves it running,
+ * so the minutes before an incident can be looked at after it.
+ */
+@Service
+@ConditionalOnProperty(name = "profiling.enabled", havingValue = "true")
+public class ProfilingService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ProfilingService.class);
+    
+    public static final String CONTINUOUS = "continuous";
+    
+    private static final String NO_FRAME = "(no application frame)";
+    private static final String TRUNCATED = "(stack truncated before application code)";
+    
+    public enum Profile {
+        CPU("jdk.ExecutionSample"),
+        ALLOCATION("jdk.ObjectAllocationSample"),
+        LOCKS("jdk.JavaMonitorEnter", "jdk.ThreadPark"),
+        JDBC("jdk.SocketRead");
+        
+        private final Set<String> events;
+        
+        Profile(String... events) {
+            this.events = Set.of(events);
+        }
+        
+        public static Profile parse(String value) {
+            if (value != null) {
+                for (Profile profile : values()) {
+                    if (profile.name().equalsIgnoreCase(value.trim())) {
+                        return profile;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("profile must be one of: cpu, allocation, locks, jdbc");
+        }
+    }
+    
+    @Value("${profiling.dir:data/profiles}")
+    private Path dir;
+    
+    @Value("${profiling.package:com.think41.customerapi}")
+    private String applicationPackage;
+    
+    // Wrappers every JDBC call passes through, which would otherwise own every socket read
+    @Value("${profiling.skip-classes:com.think41.customerapi.util.TimedDataSource,com.think41.customerapi.util.GovernedDataSource}")
+    private List<String> skipClasses;
+    
+    @Value("${profiling.default-duration-seconds:30}")
+    private int defaultDurationSeconds;
+    
+    @Value("${profiling.max-duration-seconds:600}")
+    private int maxDurationSeconds;
+    
+    @Value("${profiling.max-sessions:10}")
+    private int maxSessions;
+    
+    @Value("${profiling.top:20}")
+    private int top;
+    
+    @Value("${profiling.cpu-sample-ms:10}")
+    private long cpuSampleMs;
+    
+    @Value("${profiling.allocation-samples-per-second:300}")
+    private int allocationSamplesPerSecond;
+    
+    @Value("${profiling.lock-threshold-ms:5}")
+    private long lockThresholdMs;
+    
+    @Value("${profiling.socket-read-threshold-ms:1}")
+    private long socketReadThresholdMs;
+    
+    @Value("${profiling.continuous.enabled:false}")
+    private boolean continuousEnabled;
+    
+    @Value("${profiling.continuous.max-age-minutes:15}")
+    private long continuousMaxAgeMinutes;
+    
+    @Value("${profiling.continuous.max-size-mb:64}")
+    private long continuousMaxSizeMb;
+    
+    @Value("${profiling.continuous.allocation-samples-per-second:0}")
+    private int continuousAllocationSamplesPerSecond;
+    
+    private final Map<String, Session> sessions = new LinkedHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private Recording continuous;
+    
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(dir);
+        if (continuousEnabled) {
+            continuous = new Recording();
+            continuous.setName("customer-api-" + CONTINUOUS);
+            continuous.setToDisk(true);
+            continuous.setMaxAge(Duration.ofMinutes(continuousMaxAgeMinutes));
+            continuous.setMaxSize(continuousMaxSizeMb * 1024 * 1024);
+            // Half the on-demand rates, as it never stops
+            enable(continuous, Profile.CPU, 2);
+            enable(continuous, Profile.LOCKS, 2);
+            enable(continuous, Profile.JDBC, 2);
+            // Allocation samples each walk a stack, which added about 1 ms to every request when always on
+            if (continuousAllocationSamplesPerSecond > 0) {
+                continuous.enable("jdk.ObjectAllocationSample").withStackTrace()
+                        .with("throttle", continuousAllocationSamplesPerSecond + "/s");
+            }
+            continuous.start();
+        }
+    }
+    
+    @PreDestroy
+    public synchronized void stop() {
+        if (continuous != null) {
+            continuous.close();
+        }
+        sessions.values().forEach(session -> {
+            if (session.recording != null) {
+                session.recording.close();
+            }
+        });
+    }
+    
+    public synchronized List<ProfilingSession> getSessions() {
+        List<ProfilingSession> result = new ArrayList<>();
+        if (continuous != null) {
+            result.add(new ProfilingSession(CONTINUOUS, CONTINUOUS, "running", toOffset(continuous.getStartTime()),
+                    null, continuous.getSize(), null));
+        }
+        sessions.values().forEach(session -> result.add(session.toResponse(false)));
+        return result;
+    }
+    
+    /**
+     * Start recording profile for durationSeconds, or the default duration when null
+     */
+    public ProfilingSession startSession(Profile profile, Integer durationSeconds) {
+        int seconds = durationSeconds != null ? durationSeconds : defaultDurationSeconds;
+        if (seconds <= 0 || seconds > maxDurationSeconds) {
+            throw new IllegalArgumentException("seconds must be between 1 and " + maxDurationSeconds);
+        }
+        synchronized (this) {
+            if (sessions.values().stream().anyMatch(Session::isRunning)) {
+                throw new CapacityExceededException("A profiling session is already running, stop it or wait for it to finish");
+            }
+            String id = profile.name().toLowerCase(Locale.ROOT) + "-" + sequence.incrementAndGet();
+            Recording recording = new Recording();
+            recording.setName("customer-api-" + id);
+            recording.setToDisk(true);
+            enable(recording, profile, 1);
+            try {
+                recording.setDestination(dir.resolve(id + ".jfr"));
+            } catch (IOException ex) {
+                recording.close();
+                throw new UncheckedIOException(ex);
+            }
+            // JFR stops the recording and writes the file when the time is up
+            recording.setDuration(Duration.ofSeconds(seconds));
+            recording.start();
+            Session session = new Session(id, profile, recording);
+            add(session);
+            log.info("Started profiling session {} for {} s", id, seconds);
+            return session.toResponse(false);
+        }
+    }
+    
+    /**
+     * Stop a session early, or dump what the continuous recording holds into a new session
+     */
+    public ProfilingSession stopSession(String id) {
+        Session session;
+        synchronized (this) {
+            if (CONTINUOUS.equals(id) && continuous != null) {
+                session = dumpContinuous();
+            } else {
+                session = sessions.get(id);
+                if (session == null) {
+                    return null;
+                }
+                if (session.isRunning()) {
+                    session.recording.stop();
+                }
+            }
+        }
+        return session.toResponse(true);
+    }
+    
+    public ProfilingSession getSession(String id) {
+        Session session;
+        synchronized (this) {
+            session = sessions.get(id);
+        }
+        return session != null ? session.toResponse(true) : null;
+    }
+    
+    /**
+     * The .jfr file of a stopped session, or null while it is running or when there is none
+     */
+    public synchronized Path getFile(String id) {
+        Session session = sessions.get(id);
+        return session != null && !session.isRunning() ? session.file : null;
+    }
+    
+    public synchronized boolean deleteSession(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        session.discard();
+        return true;
+    }
+    
+    private Session dumpContinuous() {
+        String id = CONTINUOUS + "-" + sequence.incrementAndGet();
+        Path file = dir.resolve(id + ".jfr");
+        try {
+            continuous.dump(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        Instant windowStart = Instant.now().minus(continuous.getMaxAge());
+        Instant startedAt = windowStart.isAfter(continuous.getStartTime()) ? windowStart : continuous.getStartTime();
+        Session session = new Session(id, file, toOffset(startedAt), OffsetDateTime.now(ZoneOffset.UTC));
+        add(session);
+        log.info("Dumped the continuous recording to profiling session {}", id);
+        return session;
+    }
+    
+    private void add(Session session) {
+        sessions.put(session.id, session);
+        // Oldest stopped sessions go first; a running one is never over the limit by itself
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (sessions.size() > maxSessions && iterator.hasNext()) {
+            Session oldest = iterator.next();
+            if (oldest != session && !oldest.isRunning()) {
+                iterator.remove();
+                oldest.discard();
+            }
+        }
+    }
+    
+    /**
+     * Turn on the events profile summarizes; divisor slows sampling and raises thresholds
+     */
+    private void enable(Recording recording, Profile profile, int divisor) {
+        switch (profile) {
+            case CPU -> recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(cpuSampleMs * divisor));
+            case ALLOCATION -> recording.enable("jdk.ObjectAllocationSample").withStackTrace()
+                    .with("throttle", Math.max(1, allocationSamplesPerSecond / divisor) + "/s");
+            case LOCKS -> {
+                recording.enable("jdk.JavaMonitorEnter").withStackTrace()
+                        .withThreshold(Duration.ofMillis(lockThresholdMs * divisor));
+                recording.enable("jdk.ThreadPark").withStackTrace()
+                        .withThreshold(Duration.ofMillis(lockThresholdMs * divisor));
+            }
+            case JDBC -> recording.enable("jdk.SocketRead").withStackTrace()
+                    .withThreshold(Duration.ofMillis(socketReadThresholdMs * divisor));
+        }
+    }
+    
+    /**
+     * Hot spots in file, from the events of preset only or all of them when null. Other
+     * recordings running at the same time, such as the continuous one, add their events to it.
+     */
+    private ProfilingSummary summarize(Path file, Profile preset) throws IOException {
+        Map<String, Tally> frames = new HashMap<>();
+        Map<String, Tally> allocations = new HashMap<>();
+        Map<String, Tally> monitors = new HashMap<>();
+        Map<String, Tally> socketReads = new HashMap<>();
+        long samples = 0;
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                String name = event.getEventType().getName();
+                if (preset != null && !preset.events.contains(name)) {
+                    continue;
+                }
+                switch (name) {
+                    case "jdk.ExecutionSample" -> {
+                        samples++;
+                        tally(frames, event, null).add(0, 0);
+                    }
+                    case "jdk.ObjectAllocationSample" ->
+                            tally(allocations, event, className(event.getClass("objectClass"))).add(0, event.getLong("weight"));
+                    case "jdk.JavaMonitorEnter" -> tally(monitors, event, className(event.getClass("monitorClass")))
+                            .add(event.getDuration().toNanos(), 0);
+                    case "jdk.ThreadPark" -> {
+                        String lock = contendedLock(event);
+                        if (lock != null) {
+                            tally(monitors, event, lock).add(event.getDuration().toNanos(), 0);
+                        }
+                    }
+                    case "jdk.SocketRead" -> tally(socketReads, event, event.getString("host") + ":" + event.getInt("port"))
+                            .add(event.getDuration().toNanos(), event.getLong("bytesRead"));
+                    default -> {
+                    }
+                }
+            }
+        }
+        return new ProfilingSummary(samples,
+                hotSpots(frames, tally -> tally.count, false, false),
+                hotSpots(allocations, tally -> tally.bytes, false, true),
+                hotSpots(monitors, tally -> tally.nanos, true, false),
+                hotSpots(socketReads, tally -> tally.nanos, true, true));
+    }
+    
+    private Tally tally(Map<String, Tally> tallies, RecordedEvent event, String detail) {
+        String frame = applicationFrame(event.getStackTrace());
+        return tallies.computeIfAbsent(frame + '\n' + (detail != null ? detail : ""), key -> new Tally(frame, detail));
+    }
+    
+    private String applicationFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return NO_FRAME;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            // Spring's generated subclasses only forward to the class they extend
+            if (type.startsWith(applicationPackage) && !type.contains("$$")
+                    && skipClasses.stream().noneMatch(type::startsWith)) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return stackTrace.isTruncated() ? TRUNCATED : NO_FRAME;
+    }
+    
+    /**
+     * What a park waited to acquire, or null for parks that are idle waits rather than contention:
+     * pool threads waiting for work, sleeps and waits on futures
+     */
+    private static String contendedLock(RecordedEvent event) {
+        RecordedClass parkedClass = event.getClass("parkedClass");
+        if (parkedClass != null && parkedClass.getName().endsWith("Sync")) {
+            // ReentrantLock, ReentrantReadWriteLock, Semaphore and CountDownLatch
+            return parkedClass.getName();
+        }
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null && stackTrace.getFrames().stream().anyMatch(frame -> frame.isJavaFrame()
+                && frame.getMethod().getType().getName().equals("com.zaxxer.hikari.pool.HikariPool"))) {
+            return "connection pool";
+        }
+        return null;
+    }
+    
+    private List<ProfileHotSpot> hotSpots(Map<String, Tally> tallies, ToDoubleFunction<Tally> weight,
+                                          boolean timed, boolean sized) {
+        double total = tallies.values().stream().mapToDouble(weight).sum();
+        return tallies.values().stream()
+                .sorted(Comparator.comparingDouble(weight).reversed())
+                .limit(top)
+                .map(tally -> new ProfileHotSpot(tally.frame, tally.detail, tally.count,
+                        total > 0 ? Math.round(weight.applyAsDouble(tally) * 1000 / total) / 10.0 : 0,
+                        timed ? tally.nanos / 1_000_000.0 : null,
+                        sized ? tally.bytes : null))
+                .toList();
+    }
+    
+    private static String className(RecordedClass type) {
+        return type != null ? type.getName() : "?";
+    }
+    
+    private static OffsetDateTime toOffset(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+    
+    private static final class Tally {
+        final String frame;
+        final String detail;
+        long count;
+        long nanos;
+        long bytes;
+        
+        Tally(String frame, String detail) {
+            this.frame = frame;
+            this.detail = detail;
+        }
+        
+        void add(long nanos, long bytes) {
+            count++;
+            this.nanos += nanos;
+            this.bytes += bytes;
+        }
+    }
+    
+    private final class Session {
+        final String id;
+        // Null for a dump of the continuous recording, which has every preset's events
+        final Profile preset;
+        // Null for a dump of the continuous recording, which is stopped from the start
+        final Recording recording;
+        final Path file;
+        final OffsetDateTime startedAt;
+        OffsetDateTime stoppedAt;
+        ProfilingSummary summary;
+        
+        Session(String id, Profile preset, Recording recording) {
+            this.id = id;
+            this.preset = preset;
+            this.recording = recording;
+            this.file = recording.getDestination();
+            this.startedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        }
+        
+        Session(String id, Path file, OffsetDateTime startedAt, OffsetDateTime stoppedAt) {
+            this.id = id;
+            this.preset = null;
+            this.recording = null;
+            this.file = file;
+            this.startedAt = startedAt;
+            this.stoppedAt = stoppedAt;
+        }
+        
+        boolean isRunning() {
+            return recording != null && (recording.getState() == RecordingState.RUNNING
+                    || recording.getState() == RecordingState.DELAYED || recording.getState() == RecordingState.NEW);
+        }
+        
+        synchronized ProfilingSession toResponse(boolean withSummary) {
+            boolean running = isRunning();
+            if (!running && stoppedAt == null) {
+                stoppedAt = toOffset(recording.getStopTime());
+            }
+            if (withSummary && !running && summary == null) {
+                try {
+                    summary = summarize(file, preset);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Could not read profiling session " + id, ex);
+                }
+            }
+            Long size = running ? Long.valueOf(recording.getSize()) : sizeOf(file);
+            String profile = preset != null ? preset.name().toLowerCase(Locale.ROOT) : CONTINUOUS;
+            return new ProfilingSession(id, profile, running ? "running" : "stopped", startedAt, stoppedAt, size,
+                    withSummary ? summary : null);
+        }
+        
+        void discard() {
+            if (recording != null) {
+                recording.close();
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                log.warn("Could not delete profiling file {}", file, ex);
+            }
+        }
+    }
+    
+    private static Long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,262 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.SqlShapeStats;
+import com.think41.customerapi.util.LatencySketch;
+import com.think41.customerapi.util.TimedDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Statement statistics and the SQL log, fed by TimedDataSource.
+ *
+ * Every statement is counted against its shape, the SQL with literals replaced by ? and IN
+ * lists collapsed, for count, total time, rows and p99. The p99 sketch is striped by thread and
+ * merged when read, so request threads running the same statement rarely wait on each other.
+ * Statements slower than the threshold, plus a random sample of the rest, are logged with their
+ * parameters. Log lines are formatted
+ * on the calling thread but written by a background thread through a bounded queue; when the
+ * queue is full lines are dropped and counted rather than blocking the request.
+ */
+@Service
+public class SqlStatsService implements TimedDataSource.Listener {
+    
+    private static final Logger log = LoggerFactory.getLogger(SqlStatsService.class);
+    
+    private static final String OTHER_SHAPE = "(other statements)";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin \\(\\?(?: ?, ?\\?)+\\)");
+    // A power of two at least the number of cores, so concurrent request threads rarely share one
+    private static final int SKETCH_STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    
+    @Value("${sql.slow-threshold-ms:200}")
+    private long slowThresholdMs;
+    
+    @Value("${sql.sample-rate:0}")
+    private double sampleRate;
+    
+    @Value("${sql.log-queue-capacity:10000}")
+    private int logQueueCapacity;
+    
+    @Value("${sql.max-shapes:2000}")
+    private int maxShapes;
+    
+    @Value("${sql.max-parameter-length:200}")
+    private int maxParameterLength;
+    
+    // Keyed by the exact SQL text, so the shape is only worked out once per distinct statement
+    private final ConcurrentMap<String, ShapeStats> byStatement = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ShapeStats> byShape = new ConcurrentHashMap<>();
+    private final LongAdder droppedLines = new LongAdder();
+    
+    private long slowThresholdNanos;
+    private BlockingQueue<LogLine> logQueue;
+    private Thread writer;
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void start() {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        logQueue = new ArrayBlockingQueue<>(logQueueCapacity);
+        running = true;
+        writer = new Thread(this::writeLoop, "sql-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    
+    @Override
+    public void executed(TimedDataSource.Execution execution) {
+        String sql = execution.sql() != null ? execution.sql() : "(unknown)";
+        statsFor(sql).record(execution);
+        
+        boolean slow = execution.nanos() >= slowThresholdNanos;
+        if (slow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            if (!logQueue.offer(new LogLine(slow, describe(sql, execution)))) {
+                droppedLines.increment();
+            }
+        }
+    }
+    
+    /**
+     * Shapes with their totals, most total time first
+     */
+    public List<SqlShapeStats> getShapes(int limit) {
+        return byShape.values().stream()
+                .map(ShapeStats::snapshot)
+                .sorted(Comparator.comparingDouble(SqlShapeStats::getTotalMs).reversed())
+                .limit(limit)
+                .toList();
+    }
+    
+    /**
+     * Start all statistics over
+     */
+    public void reset() {
+        byStatement.clear();
+        byShape.clear();
+    }
+    
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        return IN_LIST.matcher(shape).replaceAll("in (?)");
+    }
+    
+    private ShapeStats statsFor(String sql) {
+        ShapeStats stats = byStatement.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String shape = shapeOf(sql);
+        stats = byShape.get(shape);
+        if (stats == null) {
+            // Past the limit, new shapes share one entry instead of growing the map
+            String key = byShape.size() < maxShapes ? shape : OTHER_SHAPE;
+            stats = byShape.computeIfAbsent(key, ShapeStats::new);
+        }
+        if (byStatement.size() < maxShapes * 4) {
+            byStatement.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+    
+    private String describe(String sql, TimedDataSource.Execution execution) {
+        StringBuilder line = new StringBuilder(256)
+                .append(TimeUnit.NANOSECONDS.toMicros(execution.nanos()) / 1000.0).append(" ms, ")
+                .append(execution.rows()).append(execution.rows() == 1 ? " row" : " rows");
+        if (execution.batches() > 0) {
+            line.append(", ").append(execution.batches()).append(" batched");
+        }
+        if (execution.failed()) {
+            line.append(", failed");
+        }
+        line.append(": ").append(WHITESPACE.matcher(sql).replaceAll(" ").trim());
+        
+        Object[] parameters = execution.parameters();
+        if (parameters.length > 0) {
+            line.append(" parameters [");
+            for (int i = 0; i < parameters.length; i++) {
+                if (i > 0) {
+                    line.append(", ");
+                }
+                line.append(render(parameters[i]));
+            }
+            line.append(']');
+        }
+        return line.toString();
+    }
+    
+    private String render(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        String text = value instanceof CharSequence ? "'" + value + "'" : String.valueOf(value);
+        if (text.length() > maxParameterLength) {
+            return text.substring(0, maxParameterLength) + "...(" + text.length() + " chars)";
+        }
+        return text;
+    }
+    
+    private void writeLoop() {
+        while (running || !logQueue.isEmpty()) {
+            try {
+                LogLine line = logQueue.poll(1, TimeUnit.SECONDS);
+                if (line != null) {
+                    if (line.slow()) {
+                        log.warn("Slow SQL {}", line.message());
+                    } else {
+                        log.info("SQL {}", line.message());
+                    }
+                }
+                long dropped = droppedLines.sumThenReset();
+                if (dropped > 0) {
+                    log.warn("Dropped {} SQL log lines because the log queue was full", dropped);
+                }
+            } catch (InterruptedException ex) {
+                if (!running) {
+                    // Write out what is left, without waiting for more
+                    LogLine line;
+                    while ((line = logQueue.poll()) != null) {
+                        log.info("SQL {}", line.message());
+                    }
+                    return;
+                }
+            }
+        }
+    }
+    
+    private record LogLine(boolean slow, String message) {}
+    
+    private static class ShapeStats {
+        
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        // Microseconds, as the sketch counts values below 1 as zero; each thread adds to its own
+        // stripe, since LatencySketch.add is synchronized
+        private final LatencySketch[] micros = new LatencySketch[SKETCH_STRIPES];
+        
+        ShapeStats(String shape) {
+            this.shape = shape;
+            for (int i = 0; i < micros.length; i++) {
+                micros[i] = new LatencySketch();
+            }
+        }
+        
+        void record(TimedDataSource.Execution execution) {
+            count.increment();
+            if (execution.failed()) {
+                errors.increment();
+            }
+            rows.add(execution.rows());
+            totalNanos.add(execution.nanos());
+            maxNanos.accumulate(execution.nanos());
+            micros[(int) Thread.currentThread().getId() & (micros.length - 1)].add(execution.nanos() / 1000.0);
+        }
+        
+        SqlShapeStats snapshot() {
+            long executions = count.sum();
+            double totalMs = totalNanos.sum() / 1e6;
+            LatencySketch merged = new LatencySketch();
+            for (LatencySketch stripe : micros) {
+                merged.merge(stripe);
+            }
+            Double p99Micros = merged.quantile(0.99);
+            return new SqlShapeStats(shape, executions, errors.sum(), rows.sum(), totalMs,
+                    executions > 0 ? totalMs / executions : 0,
+                    p99Micros != null ? p99Micros / 1000 : 0,
+                    maxNanos.get() / 1e6);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.think41.customerapi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only record log with group-committed fsync and a consumer checkpoint.
+ *
+ * Each record is stored as [length][crc32][payload]. Callers append, then {@link #sync} before
+ * acknowledging; concurrent syncs share one fsync. Once the consumer has applied records up to
+ * an offset it calls {@link #checkpoint}, and on startup {@link #replay} returns everything after
+ * the last checkpoint. The file is truncated whenever the checkpoint catches up with the end of
+ * a large log.
+ */
+public class AppendOnlyLog implements Closeable {
+    
+    private static final int HEADER_BYTES = 8;
+    
+    private final FileChannel channel;
+    private final FileChannel checkpointChannel;
+    private final long compactThresholdBytes;
+    private final Object syncLock = new Object();
+    
+    // Guarded by this
+    private long writePosition;
+    
+    // Guarded by syncLock for writes
+    private volatile long syncedPosition;
+    
+    public AppendOnlyLog(Path directory, String name, long compactThresholdBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(directory.resolve(name + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpointChannel = FileChannel.open(directory.resolve(name + ".checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.writePosition = channel.size();
+        this.syncedPosition = writePosition;
+    }
+    
+    /**
+     * Pass every intact record after the last checkpoint to consumer with its end offset, and cut
+     * off a torn record left by a crash mid-write; returns the number of records replayed
+     */
+    public synchronized int replay(BiConsumer<byte[], Long> consumer) throws IOException {
+        long checkpoint = readCheckpoint();
+        long position = Math.min(checkpoint, channel.size());
+        if (checkpoint != position) {
+            // A crash between truncating the log and resetting the checkpoint
+            writeCheckpoint(position);
+        }
+        int replayed = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (true) {
+            header.clear();
+            if (readFully(header, position) < HEADER_BYTES) {
+                break;
+            }
+            header.flip();
+            int length = header.getInt();
+            long crc = header.getInt() & 0xFFFFFFFFL;
+            if (length < 0 || position + HEADER_BYTES + length > channel.size()) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_BYTES);
+            if (crc32(payload.array()) != crc) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+            consumer.accept(payload.array(), position);
+            replayed++;
+        }
+        if (position < channel.size()) {
+            channel.truncate(position);
+        }
+        writePosition = position;
+        syncedPosition = position;
+        return replayed;
+    }
+    
+    /**
+     * Append records in order and return the offset just past each one; not yet durable
+     */
+    public synchronized long[] append(List<byte[]> records) throws IOException {
+        int size = 0;
+        for (byte[] record : records) {
+            size += HEADER_BYTES + record.length;
+        }
+        long[] endOffsets = new long[records.size()];
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < endOffsets.length; i++) {
+            byte[] record = records.get(i);
+            buffer.putInt(record.length);
+            buffer.putInt((int) crc32(record));
+            buffer.put(record);
+            endOffsets[i] = writePosition + buffer.position();
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        return endOffsets;
+    }
+    
+    /**
+     * Block until everything up to position is on disk. Callers that arrive while another fsync
+     * is running are usually covered by the next one, so fsyncs are shared under load.
+     */
+    public void sync(long position) throws IOException {
+        if (syncedPosition >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedPosition >= position) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = writePosition;
+            }
+            channel.force(false);
+            syncedPosition = target;
+        }
+    }
+    
+    /**
+     * Record that every record ending at or before position has been applied
+     */
+    public void checkpoint(long position) throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (position >= writePosition && writePosition >= compactThresholdBytes) {
+                    // Nothing is pending, so the log can start over
+                    channel.truncate(0);
+                    channel.force(true);
+                    writePosition = 0;
+                    syncedPosition = 0;
+                    position = 0;
+                }
+                writeCheckpoint(position);
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        checkpointChannel.close();
+    }
+    
+    private long readCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        return readFully(buffer, 0, checkpointChannel) == Long.BYTES ? buffer.getLong(0) : 0L;
+    }
+    
+    private void writeCheckpoint(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, position);
+        checkpointChannel.write(buffer, 0);
+        checkpointChannel.force(false);
+    }
+    
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        return readFully(buffer, position, channel);
+    }
+    
+    private static int readFully(ByteBuffer buffer, long position, FileChannel source) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+    
+    private static long crc32(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,386 @@
+package com.think41.customerapi.util;
+
+import com.think41.customerapi.util.ColumnarBatch.Column;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Apache Arrow IPC stream format (metadata version V5), written without the Arrow libraries.
+ *
+ * The stream is a Schema message, then for every batch any dictionary values not sent yet
+ * (the first as a full DictionaryBatch, later ones as deltas), then the RecordBatch, and finally
+ * the end-of-stream marker. Message metadata is a FlatBuffer, built by FlatTable below. Column
+ * types map to Int(32), Int(64), Timestamp(MICROSECOND, "UTC"), Decimal128(precision, scale)
+ * and Utf8. DICTIONARY columns are Utf8 encoded with int32 indexes.
+ */
+public class ArrowStreamWriter implements ColumnarWriter {
+    
+    public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+    
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final int METADATA_V5 = 4;
+    
+    private static final int HEADER_SCHEMA = 1;
+    private static final int HEADER_DICTIONARY_BATCH = 2;
+    private static final int HEADER_RECORD_BATCH = 3;
+    
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_UTF8 = 5;
+    private static final int TYPE_DECIMAL = 7;
+    private static final int TYPE_TIMESTAMP = 10;
+    
+    private static final int TIME_UNIT_MICROSECOND = 2;
+    
+    private final OutputStream out;
+    private final List<Column> columns;
+    // Dictionary values already sent per column, -1 before the first DictionaryBatch
+    private final int[] dictionarySent;
+    private final LittleEndianBuffer body = new LittleEndianBuffer(1 << 16);
+    private final LittleEndianBuffer frame = new LittleEndianBuffer(64);
+    private boolean schemaWritten;
+    
+    public ArrowStreamWriter(OutputStream out, List<Column> columns) {
+        this.out = out;
+        this.columns = List.copyOf(columns);
+        this.dictionarySent = new int[columns.size()];
+        Arrays.fill(dictionarySent, -1);
+    }
+    
+    @Override
+    public void write(ColumnarBatch batch) throws IOException {
+        writeSchema();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnarBatch.Dictionary dictionary = batch.dictionary(i);
+            if (dictionary != null && dictionary.size() != dictionarySent[i]) {
+                writeDictionary(i, dictionary);
+            }
+        }
+        
+        body.clear();
+        List<long[]> nodes = new ArrayList<>();
+        List<long[]> buffers = new ArrayList<>();
+        int rows = batch.size();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            nodes.add(new long[] {rows, batch.nullCount(i)});
+            addValidity(batch, i, buffers);
+            switch (column.type()) {
+                case INT32, DICTIONARY -> {
+                    int start = body.size();
+                    int[] values = batch.ints(i);
+                    for (int row = 0; row < rows; row++) {
+                        body.putInt(values[row]);
+                    }
+                    endBuffer(start, buffers);
+                }
+                case INT64, TIMESTAMP_MICROS -> {
+                    int start = body.size();
+                    long[] values = batch.longs(i);
+                    for (int row = 0; row < rows; row++) {
+                        body.putLong(values[row]);
+                    }
+                    endBuffer(start, buffers);
+                }
+                case DECIMAL -> {
+                    // 128-bit two's complement, low word first
+                    int start = body.size();
+                    long[] values = batch.longs(i);
+                    for (int row = 0; row < rows; row++) {
+                        body.putLong(values[row]);
+                        body.putLong(values[row] < 0 ? -1L : 0L);
+                    }
+                    endBuffer(start, buffers);
+                }
+                case STRING -> addStrings(batch.bytes(i), rows, buffers);
+            }
+        }
+        writeMessage(HEADER_RECORD_BATCH, recordBatch(rows, nodes, buffers));
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        writeSchema();
+        frame.clear();
+        frame.putInt(CONTINUATION);
+        frame.putInt(0);
+        frame.writeTo(out);
+        out.flush();
+    }
+    
+    private void writeSchema() throws IOException {
+        if (schemaWritten) {
+            return;
+        }
+        schemaWritten = true;
+        List<FlatTable> fields = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            FlatTable field = new FlatTable()
+                    .string(0, column.name())
+                    .bool(1, column.nullable())
+                    .children(5, List.of());
+            switch (column.type()) {
+                case INT32 -> field.ubyte(2, TYPE_INT).table(3, intType(32));
+                case INT64 -> field.ubyte(2, TYPE_INT).table(3, intType(64));
+                case TIMESTAMP_MICROS -> field.ubyte(2, TYPE_TIMESTAMP)
+                        .table(3, new FlatTable().int16(0, TIME_UNIT_MICROSECOND).string(1, "UTC"));
+                case DECIMAL -> field.ubyte(2, TYPE_DECIMAL)
+                        .table(3, new FlatTable().int32(0, column.precision()).int32(1, column.scale()).int32(2, 128));
+                case STRING -> field.ubyte(2, TYPE_UTF8).table(3, new FlatTable());
+                case DICTIONARY -> field.ubyte(2, TYPE_UTF8).table(3, new FlatTable())
+                        .table(4, new FlatTable().int64(0, i).table(1, intType(32)).bool(2, false).int16(3, 0));
+            }
+            fields.add(field);
+        }
+        body.clear();
+        // Little-endian, then the fields
+        writeMessage(HEADER_SCHEMA, new FlatTable().int16(0, 0).children(1, fields));
+    }
+    
+    private void writeDictionary(int column, ColumnarBatch.Dictionary dictionary) throws IOException {
+        int from = Math.max(0, dictionarySent[column]);
+        int count = dictionary.size() - from;
+        body.clear();
+        List<long[]> buffers = new ArrayList<>();
+        buffers.add(new long[] {0, 0});
+        byte[][] values = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            values[i] = dictionary.get(from + i);
+        }
+        addStrings(values, count, buffers);
+        FlatTable data = recordBatch(count, List.of(new long[] {count, 0}), buffers);
+        boolean delta = dictionarySent[column] >= 0;
+        writeMessage(HEADER_DICTIONARY_BATCH, new FlatTable().int64(0, column).table(1, data).bool(2, delta));
+        dictionarySent[column] = dictionary.size();
+    }
+    
+    private void addValidity(ColumnarBatch batch, int column, List<long[]> buffers) {
+        if (batch.nullCount(column) == 0) {
+            buffers.add(new long[] {body.size(), 0});
+            return;
+        }
+        int start = body.size();
+        int rows = batch.size();
+        for (int byteStart = 0; byteStart < rows; byteStart += 8) {
+            int bits = 0;
+            for (int bit = 0; bit < 8 && byteStart + bit < rows; bit++) {
+                if (!batch.isNull(column, byteStart + bit)) {
+                    bits |= 1 << bit;
+                }
+            }
+            body.putByte(bits);
+        }
+        endBuffer(start, buffers);
+    }
+    
+    private void addStrings(byte[][] values, int rows, List<long[]> buffers) {
+        int start = body.size();
+        int offset = 0;
+        body.putInt(0);
+        for (int row = 0; row < rows; row++) {
+            offset += values[row] != null ? values[row].length : 0;
+            body.putInt(offset);
+        }
+        endBuffer(start, buffers);
+        start = body.size();
+        for (int row = 0; row < rows; row++) {
+            if (values[row] != null) {
+                body.put(values[row]);
+            }
+        }
+        endBuffer(start, buffers);
+    }
+    
+    private void endBuffer(int start, List<long[]> buffers) {
+        buffers.add(new long[] {start, body.size() - start});
+        body.pad(8);
+    }
+    
+    private static FlatTable recordBatch(long rows, List<long[]> nodes, List<long[]> buffers) {
+        return new FlatTable().int64(0, rows).structs(1, nodes).structs(2, buffers);
+    }
+    
+    private static FlatTable intType(int bitWidth) {
+        return new FlatTable().int32(0, bitWidth).bool(1, true);
+    }
+    
+    /**
+     * One encapsulated message: continuation marker, metadata length, metadata padded to 8
+     * bytes, then the body
+     */
+    private void writeMessage(int headerType, FlatTable header) throws IOException {
+        FlatTable message = new FlatTable()
+                .int16(0, METADATA_V5)
+                .ubyte(1, headerType)
+                .table(2, header)
+                .int64(3, body.size());
+        byte[] metadata = message.finish();
+        int padded = (metadata.length + 7) & ~7;
+        frame.clear();
+        frame.putInt(CONTINUATION);
+        frame.putInt(padded);
+        frame.put(metadata);
+        frame.pad(8);
+        frame.writeTo(out);
+        body.writeTo(out);
+    }
+    
+    /**
+     * A FlatBuffers table under construction. finish lays the buffer out front to back: each
+     * table's vtable directly before it, and everything a table refers to after it, so every
+     * offset points forward as FlatBuffers requires. Scalars are written even when equal to
+     * their default, and aligned to their size from the start of the buffer.
+     */
+    private static final class FlatTable {
+        
+        private final List<Object[]> fields = new ArrayList<>();
+        
+        FlatTable bool(int slot, boolean value) {
+            return scalar(slot, 1, value ? 1 : 0);
+        }
+        
+        FlatTable ubyte(int slot, int value) {
+            return scalar(slot, 1, value);
+        }
+        
+        FlatTable int16(int slot, int value) {
+            return scalar(slot, 2, value);
+        }
+        
+        FlatTable int32(int slot, int value) {
+            return scalar(slot, 4, value);
+        }
+        
+        FlatTable int64(int slot, long value) {
+            return scalar(slot, 8, value);
+        }
+        
+        FlatTable string(int slot, String value) {
+            return reference(slot, value.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        FlatTable table(int slot, FlatTable value) {
+            return reference(slot, value);
+        }
+        
+        FlatTable children(int slot, List<FlatTable> tables) {
+            return reference(slot, tables);
+        }
+        
+        /**
+         * A vector of structs made of two longs each, like FieldNode and Buffer
+         */
+        FlatTable structs(int slot, List<long[]> pairs) {
+            return reference(slot, pairs.toArray(new long[0][]));
+        }
+        
+        byte[] finish() {
+            LittleEndianBuffer buffer = new LittleEndianBuffer(256);
+            buffer.putInt(0);
+            int root = writeTable(buffer);
+            buffer.putIntAt(0, root);
+            return buffer.toByteArray();
+        }
+        
+        private FlatTable scalar(int slot, int size, long value) {
+            fields.add(new Object[] {slot, size, value});
+            return this;
+        }
+        
+        private FlatTable reference(int slot, Object value) {
+            fields.add(new Object[] {slot, 4, value});
+            return this;
+        }
+        
+        private int writeTable(LittleEndianBuffer buffer) {
+            int slots = 0;
+            for (Object[] field : fields) {
+                slots = Math.max(slots, (int) field[0] + 1);
+            }
+            buffer.padUntil(2, 0);
+            int vtable = buffer.size();
+            for (int i = 0; i < 2 + slots; i++) {
+                buffer.putShort(0);
+            }
+            // The soffset is 4 bytes, so 8-byte fields right after it are 8-aligned
+            buffer.padUntil(8, 4);
+            int table = buffer.size();
+            buffer.putInt(table - vtable);
+            
+            // Largest first keeps every field aligned without padding
+            List<Object[]> ordered = new ArrayList<>(fields);
+            ordered.sort((a, b) -> Integer.compare((int) b[1], (int) a[1]));
+            int[] positions = new int[ordered.size()];
+            for (int i = 0; i < ordered.size(); i++) {
+                Object[] field = ordered.get(i);
+                int size = (int) field[1];
+                positions[i] = buffer.size();
+                buffer.putShortAt(vtable + 4 + 2 * (int) field[0], positions[i] - table);
+                if (field[2] instanceof Long value) {
+                    switch (size) {
+                        case 1 -> buffer.putByte(value.intValue());
+                        case 2 -> buffer.putShort(value.intValue());
+                        case 4 -> buffer.putInt(value.intValue());
+                        default -> buffer.putLong(value);
+                    }
+                } else {
+                    buffer.putInt(0);
+                }
+            }
+            buffer.putShortAt(vtable, 4 + 2 * slots);
+            buffer.putShortAt(vtable + 2, buffer.size() - table);
+            
+            for (int i = 0; i < ordered.size(); i++) {
+                Object value = ordered.get(i)[2];
+                if (!(value instanceof Long)) {
+                    int target = writeReference(buffer, value);
+                    buffer.putIntAt(positions[i], target - positions[i]);
+                }
+            }
+            return table;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static int writeReference(LittleEndianBuffer buffer, Object value) {
+            if (value instanceof FlatTable table) {
+                return table.writeTable(buffer);
+            }
+            if (value instanceof byte[] string) {
+                buffer.padUntil(4, 0);
+                int start = buffer.size();
+                buffer.putInt(string.length);
+                buffer.put(string);
+                buffer.putByte(0);
+                return start;
+            }
+            if (value instanceof long[][] pairs) {
+                // Elements start right after the 4-byte length and hold longs
+                buffer.padUntil(8, 4);
+                int start = buffer.size();
+                buffer.putInt(pairs.length);
+                for (long[] pair : pairs) {
+                    buffer.putLong(pair[0]);
+                    buffer.putLong(pair[1]);
+                }
+                return start;
+            }
+            List<FlatTable> tables = (List<FlatTable>) value;
+            buffer.padUntil(4, 0);
+            int start = buffer.size();
+            buffer.putInt(tables.size());
+            for (int i = 0; i < tables.size(); i++) {
+                buffer.putInt(0);
+            }
+            for (int i = 0; i < tables.size(); i++) {
+                int element = start + 4 + 4 * i;
+                buffer.putIntAt(element, tables.get(i).writeTable(buffer) - element);
+            }
+            return start;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.think41.customerapi.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over int ids: "definitely absent" or "maybe present".
+ *
+ * Sized for an expected number of ids and a false positive rate. Each id sets k bits chosen by
+ * double hashing one 64-bit mix of the id. Bits are only ever set, with a compare-and-set on
+ * the word when a bit is still clear, so adds and lookups are safe from any thread without
+ * locks. Ids cannot be removed; a filter that has drifted is replaced by a rebuilt one.
+ */
+public class BloomFilter {
+    
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    
+    public BloomFilter(long expectedIds, double falsePositiveRate) {
+        if (expectedIds <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected ids must be positive and the false positive rate within (0, 1)");
+        }
+        // m = -n ln p / (ln 2)^2 and k = m / n ln 2, the optimum for n ids
+        long optimalBits = (long) Math.ceil(-expectedIds * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedIds * Math.log(2)));
+    }
+    
+    public void add(int id) {
+        long hash = mix(id);
+        long h1 = hash >>> 32;
+        long h2 = (hash & 0xFFFFFFFFL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask)) {
+                word = words.get(index);
+            }
+        }
+    }
+    
+    /**
+     * False only if id was never added
+     */
+    public boolean mightContain(int id) {
+        long hash = mix(id);
+        long h1 = hash >>> 32;
+        long h2 = (hash & 0xFFFFFFFFL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * False positive rate at the current fill, (set bits / all bits)^k
+     */
+    public double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bits, hashes);
+    }
+    
+    public long sizeInBytes() {
+        return bits / 8;
+    }
+    
+    // MurmurHash3 finalizer, offset so that id 0 does not hash to 0; sequential ids come out
+    // spread over all 64 bits
+    private static long mix(int id) {
+        long h = id + 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.think41.customerapi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows held column by column, the unit that ArrowStreamWriter and ParquetWriter write.
+ *
+ * Rows are filled one value at a time with the set methods and committed with endRow. Integers
+ * are kept in int[], 64-bit values (longs, timestamps in microseconds, unscaled decimals) in
+ * long[], and text as UTF-8 bytes. A DICTIONARY column stores an index into its Dictionary, which
+ * lives as long as the export so that batches share indexes.
+ */
+public class ColumnarBatch {
+    
+    public enum Type { INT32, INT64, TIMESTAMP_MICROS, DECIMAL, STRING, DICTIONARY }
+    
+    /**
+     * Precision and scale only apply to DECIMAL, whose unscaled value has to fit in a long
+     */
+    public record Column(String name, Type type, boolean nullable, int precision, int scale) {
+        
+        public static Column of(String name, Type type, boolean nullable) {
+            return new Column(name, type, nullable, 0, 0);
+        }
+        
+        public static Column decimal(String name, int precision, int scale, boolean nullable) {
+            if (precision > 18) {
+                throw new IllegalArgumentException("Decimal precision above 18 does not fit in a long");
+            }
+            return new Column(name, Type.DECIMAL, nullable, precision, scale);
+        }
+    }
+    
+    /**
+     * Distinct values of a DICTIONARY column in first-seen order; only ever grows
+     */
+    public static class Dictionary {
+        
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        
+        int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value.getBytes(StandardCharsets.UTF_8));
+            }
+            return index;
+        }
+        
+        public int size() {
+            return values.size();
+        }
+        
+        public byte[] get(int index) {
+            return values.get(index);
+        }
+    }
+    
+    private final List<Column> columns;
+    private final Dictionary[] dictionaries;
+    private final int capacity;
+    private final int[][] ints;
+    private final long[][] longs;
+    private final byte[][][] bytes;
+    private final boolean[][] nulls;
+    private final int[] nullCounts;
+    private int size;
+    
+    public ColumnarBatch(List<Column> columns, int capacity) {
+        this.columns = List.copyOf(columns);
+        this.capacity = capacity;
+        int count = columns.size();
+        dictionaries = new Dictionary[count];
+        ints = new int[count][];
+        longs = new long[count][];
+        bytes = new byte[count][][];
+        nulls = new boolean[count][];
+        nullCounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            Column column = columns.get(i);
+            switch (column.type()) {
+                case INT32 -> ints[i] = new int[capacity];
+                case INT64, TIMESTAMP_MICROS, DECIMAL -> longs[i] = new long[capacity];
+                case STRING -> bytes[i] = new byte[capacity][];
+                case DICTIONARY -> {
+                    ints[i] = new int[capacity];
+                    dictionaries[i] = new Dictionary();
+                }
+            }
+            if (column.nullable()) {
+                nulls[i] = new boolean[capacity];
+            }
+        }
+    }
+    
+    public void setInt(int column, int value) {
+        ints[column][size] = value;
+    }
+    
+    public void setLong(int column, long value) {
+        longs[column][size] = value;
+    }
+    
+    public void setString(int column, String value) {
+        if (dictionaries[column] != null) {
+            ints[column][size] = dictionaries[column].indexOf(value);
+        } else {
+            bytes[column][size] = value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+    
+    public void setNull(int column) {
+        if (nulls[column] == null) {
+            throw new IllegalArgumentException("Column " + columns.get(column).name() + " is not nullable");
+        }
+        nulls[column][size] = true;
+        if (ints[column] != null) {
+            ints[column][size] = 0;
+        } else if (longs[column] != null) {
+            longs[column][size] = 0;
+        }
+        nullCounts[column]++;
+    }
+    
+    /**
+     * Commit the current row; returns true when the batch is full
+     */
+    public boolean endRow() {
+        size++;
+        return size == capacity;
+    }
+    
+    /**
+     * Empty the batch for reuse, keeping the dictionaries
+     */
+    public void clear() {
+        for (boolean[] columnNulls : nulls) {
+            if (columnNulls != null) {
+                Arrays.fill(columnNulls, 0, size, false);
+            }
+        }
+        for (byte[][] columnBytes : bytes) {
+            if (columnBytes != null) {
+                Arrays.fill(columnBytes, 0, size, null);
+            }
+        }
+        Arrays.fill(nullCounts, 0);
+        size = 0;
+    }
+    
+    public List<Column> columns() {
+        return columns;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isNull(int column, int row) {
+        return nulls[column] != null && nulls[column][row];
+    }
+    
+    public int nullCount(int column) {
+        return nullCounts[column];
+    }
+    
+    /**
+     * INT32 values, or dictionary indexes for a DICTIONARY column; unspecified where null
+     */
+    public int[] ints(int column) {
+        return ints[column];
+    }
+    
+    /**
+     * INT64, TIMESTAMP_MICROS and DECIMAL values; unspecified where null
+     */
+    public long[] longs(int column) {
+        return longs[column];
+    }
+    
+    /**
+     * UTF-8 STRING values; null where null
+     */
+    public byte[][] bytes(int column) {
+        return bytes[column];
+    }
+    
+    public Dictionary dictionary(int column) {
+        return dictionaries[column];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.think41.customerapi.util;
+
+import java.io.IOException;
+
+/**
+ * Writes ColumnarBatches in a columnar file format. The batch may be cleared and reused once
+ * write returns. finish completes the format but does not close the underlying stream.
+ */
+public interface ColumnarWriter {
+    
+    void write(ColumnarBatch batch) throws IOException;
+    
+    void finish() throws IOException;
+}
\ No newline at end of file
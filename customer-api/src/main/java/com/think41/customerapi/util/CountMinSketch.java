@@ -0,0 +1,80 @@
+package com.think41.customerapi.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch: approximate counts of keys in fixed memory.
+ *
+ * Each key is counted in one counter of every row, chosen by double hashing a 64-bit hash of
+ * the key. Other keys share those counters, so the smallest of them is an estimate that is
+ * never below the true count and, with probability 1 - e^-depth, at most e/width of all counts
+ * above it. Counters are atomic, so adds and estimates are safe from any thread without locks.
+ */
+public class CountMinSketch {
+    
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int mask;
+    
+    /**
+     * width is rounded up to a power of two
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Sketch width and depth must be positive");
+        }
+        int rowWidth = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.counters = new AtomicLongArray(rowWidth * depth);
+        this.depth = depth;
+        this.mask = rowWidth - 1;
+    }
+    
+    public void add(long hash) {
+        long h1 = hash >>> 32;
+        long h2 = (hash & 0xFFFFFFFFL) | 1;
+        for (int row = 0; row < depth; row++) {
+            counters.incrementAndGet(index(row, h1, h2));
+        }
+    }
+    
+    /**
+     * Count of the key with this hash, or more; never less
+     */
+    public long estimate(long hash) {
+        long h1 = hash >>> 32;
+        long h2 = (hash & 0xFFFFFFFFL) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters.get(index(row, h1, h2)));
+        }
+        return min;
+    }
+    
+    /**
+     * Set every counter back to zero; adds running at the same time may be lost
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+    
+    public long sizeInBytes() {
+        return counters.length() * 8L;
+    }
+    
+    private int index(int row, long h1, long h2) {
+        return row * (mask + 1) + (int) ((h1 + row * h2) & mask);
+    }
+    
+    // MurmurHash3 finalizer, as in BloomFilter; spreads sequential ids over all 64 bits
+    public static long mix(long value) {
+        long h = value + 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
\ No newline at end of file
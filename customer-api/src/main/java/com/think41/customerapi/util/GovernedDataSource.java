@@ -0,0 +1,174 @@
+package com.think41.customerapi.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * DataSource that holds every statement to the RequestBudget bound to the calling thread.
+ *
+ * Before a statement runs, the connection's statement_timeout is set to the time left before the
+ * deadline, so Postgres cancels the statement itself when the budget runs out; a statement
+ * started after the deadline fails without reaching the server. Both fail with SQLState 57014,
+ * which Spring translates to QueryTimeoutException. The row limit of the statement is the rows
+ * left in the budget plus one, so the server stops producing rows just past it, and every row
+ * and value read is counted against the budget's row and byte limits.
+ *
+ * statement_timeout is a session setting and outlives the checkout, so the value last set on
+ * each pooled connection is remembered. It is only set again when it is more than toleranceMs
+ * away from the time left, and put back to the default before a statement without a deadline.
+ * A rollback may undo a SET made in its transaction, so it makes the value unknown.
+ */
+public class GovernedDataSource extends DelegatingDataSource {
+    
+    private static final long DEFAULT = 0;
+    private static final long UNKNOWN = -1;
+    
+    private final long toleranceMs;
+    
+    // statement_timeout in ms last set on each physical connection; absent means DEFAULT
+    private final Map<Connection, Long> timeouts = Collections.synchronizedMap(new WeakHashMap<>());
+    
+    public GovernedDataSource(DataSource target, long toleranceMs) {
+        super(target);
+        this.toleranceMs = toleranceMs;
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+    
+    private Connection connection(Connection target) throws SQLException {
+        // The pool hands out a new wrapper on every checkout; the timeout belongs to what it wraps
+        Connection physical = target.unwrap(Connection.class);
+        return JdbcProxies.proxy(Connection.class, (proxy, method, args) -> {
+            Object result = JdbcProxies.call(target, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> JdbcProxies.proxy(Statement.class,
+                        new StatementHandler((Statement) result, target, physical));
+                case "prepareStatement" -> JdbcProxies.proxy(PreparedStatement.class,
+                        new StatementHandler((Statement) result, target, physical));
+                case "prepareCall" -> JdbcProxies.proxy(CallableStatement.class,
+                        new StatementHandler((Statement) result, target, physical));
+                case "rollback" -> {
+                    timeouts.computeIfPresent(physical, (key, timeout) -> UNKNOWN);
+                    yield result;
+                }
+                default -> result;
+            };
+        });
+    }
+    
+    private class StatementHandler implements InvocationHandler {
+        
+        private final Statement target;
+        private final Connection connection;
+        private final Connection physical;
+        // Budget of the last execute, that its result sets count against
+        private RequestBudget budget;
+        
+        StatementHandler(Statement target, Connection connection, Connection physical) {
+            this.target = target;
+            this.connection = connection;
+            this.physical = physical;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                budget = RequestBudget.current();
+                govern();
+                Object result = JdbcProxies.call(target, method, args);
+                return result instanceof ResultSet resultSet ? resultSet(resultSet) : result;
+            }
+            Object result = JdbcProxies.call(target, method, args);
+            if ((name.equals("getResultSet") || name.equals("getGeneratedKeys")) && result instanceof ResultSet resultSet) {
+                return resultSet(resultSet);
+            }
+            return result;
+        }
+        
+        private void govern() throws SQLException {
+            long timeoutMs = DEFAULT;
+            if (budget != null && budget.hasDeadline()) {
+                timeoutMs = budget.remainingMillis();
+                if (timeoutMs == 0) {
+                    throw new SQLException("Request deadline of " + budget.getTimeoutMs() + " ms exceeded", "57014");
+                }
+            }
+            setTimeout(timeoutMs);
+            long rows = budget != null ? budget.remainingRows() : 0;
+            if (rows > 0 && rows < Integer.MAX_VALUE) {
+                int maxRows = target.getMaxRows();
+                if (maxRows == 0 || maxRows > rows + 1) {
+                    target.setMaxRows((int) rows + 1);
+                }
+            }
+        }
+        
+        private void setTimeout(long timeoutMs) throws SQLException {
+            long current = timeouts.getOrDefault(physical, DEFAULT);
+            if (timeoutMs == DEFAULT ? current == DEFAULT
+                    : current != UNKNOWN && current != DEFAULT && Math.abs(current - timeoutMs) <= toleranceMs) {
+                return;
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(timeoutMs == DEFAULT ? "RESET statement_timeout"
+                        : "SET statement_timeout = " + timeoutMs);
+            }
+            timeouts.put(physical, timeoutMs);
+        }
+        
+        private ResultSet resultSet(ResultSet target) {
+            RequestBudget counted = budget;
+            if (counted == null) {
+                return target;
+            }
+            return JdbcProxies.proxy(ResultSet.class, (proxy, method, args) -> {
+                Object result = JdbcProxies.call(target, method, args);
+                String name = method.getName();
+                if (name.equals("next")) {
+                    if (Boolean.TRUE.equals(result)) {
+                        counted.addRow();
+                    }
+                } else if (name.startsWith("get") && args != null
+                        && (args[0] instanceof Integer || args[0] instanceof String)) {
+                    // Column values, read by index or label
+                    counted.addBytes(sizeOf(result));
+                }
+                return result;
+            });
+        }
+    }
+    
+    private static long sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String text) {
+            return text.length();
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return 8;
+    }
+}
\ No newline at end of file
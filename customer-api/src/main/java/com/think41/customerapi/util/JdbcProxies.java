@@ -0,0 +1,41 @@
+package com.think41.customerapi.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * JDK proxies over JDBC interfaces, shared by the DataSource wrappers in this package
+ */
+final class JdbcProxies {
+    
+    private JdbcProxies() {
+    }
+    
+    /**
+     * Proxy type with handler. equals and hashCode use identity rather than reaching the
+     * handler, so a proxy can be found again in the maps Hibernate keeps statements in.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class && !method.getName().equals("toString")) {
+                        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+                    }
+                    return handler.invoke(proxy, method, args);
+                });
+    }
+    
+    /**
+     * Invoke method on target, throwing what the method threw rather than its reflective wrapper
+     */
+    static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
\ No newline at end of file
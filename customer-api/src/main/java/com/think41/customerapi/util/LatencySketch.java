@@ -0,0 +1,162 @@
+package com.think41.customerapi.util;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable log-bucketed histogram for latency quantiles.
+ * Quantiles are answered within a fixed relative error, and sketches built over disjoint
+ * slices of data can be combined by adding bucket counts.
+ */
+public class LatencySketch {
+    
+    private static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    
+    // Values below this are counted in a dedicated zero bucket
+    private static final double MIN_INDEXABLE_VALUE = 1.0;
+    private static final int GROWTH_SLACK = 16;
+    
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long totalCount;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    
+    /**
+     * Record a single value
+     */
+    public synchronized void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value < MIN_INDEXABLE_VALUE) {
+            zeroCount++;
+        } else {
+            int index = indexOf(value);
+            ensureCapacity(index, index);
+            counts[index - offset]++;
+        }
+        totalCount++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+    
+    /**
+     * Take back a value added earlier. min and max are left as they were, so they remain bounds
+     * of the values still counted.
+     */
+    public synchronized void remove(double value) {
+        if (Double.isNaN(value) || totalCount == 0) {
+            return;
+        }
+        if (value < MIN_INDEXABLE_VALUE) {
+            if (zeroCount == 0) {
+                return;
+            }
+            zeroCount--;
+        } else {
+            int slot = indexOf(value) - offset;
+            if (slot < 0 || slot >= counts.length || counts[slot] == 0) {
+                return;
+            }
+            counts[slot]--;
+        }
+        totalCount--;
+    }
+    
+    /**
+     * Add all counts of another sketch into this one
+     */
+    public void merge(LatencySketch other) {
+        LatencySketch snapshot = other.copy();
+        synchronized (this) {
+            if (snapshot.totalCount == 0) {
+                return;
+            }
+            if (snapshot.counts.length > 0) {
+                ensureCapacity(snapshot.offset, snapshot.offset + snapshot.counts.length - 1);
+                for (int i = 0; i < snapshot.counts.length; i++) {
+                    counts[snapshot.offset + i - offset] += snapshot.counts[i];
+                }
+            }
+            zeroCount += snapshot.zeroCount;
+            totalCount += snapshot.totalCount;
+            min = Math.min(min, snapshot.min);
+            max = Math.max(max, snapshot.max);
+        }
+    }
+    
+    /**
+     * Estimate the value at quantile q (0..1), or null if the sketch is empty
+     */
+    public synchronized Double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (totalCount == 0) {
+            return null;
+        }
+        
+        long rank = (long) Math.floor(q * (totalCount - 1));
+        if (rank < zeroCount) {
+            return Math.max(min, 0.0);
+        }
+        
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return clamp(valueOf(i + offset));
+            }
+        }
+        return max;
+    }
+    
+    public synchronized long getCount() {
+        return totalCount;
+    }
+    
+    public synchronized LatencySketch copy() {
+        LatencySketch copy = new LatencySketch();
+        copy.counts = Arrays.copyOf(counts, counts.length);
+        copy.offset = offset;
+        copy.zeroCount = zeroCount;
+        copy.totalCount = totalCount;
+        copy.min = min;
+        copy.max = max;
+        return copy;
+    }
+    
+    private static int indexOf(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+    
+    private static double valueOf(int index) {
+        // Midpoint of the bucket (gamma^(i-1), gamma^i] in relative terms
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+    
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+    
+    private void ensureCapacity(int minIndex, int maxIndex) {
+        if (counts.length == 0) {
+            offset = minIndex - GROWTH_SLACK;
+            counts = new long[maxIndex - minIndex + 1 + 2 * GROWTH_SLACK];
+            return;
+        }
+        int currentMax = offset + counts.length - 1;
+        if (minIndex >= offset && maxIndex <= currentMax) {
+            return;
+        }
+        int newOffset = Math.min(offset, minIndex - GROWTH_SLACK);
+        int newMax = Math.max(currentMax, maxIndex + GROWTH_SLACK);
+        long[] grown = new long[newMax - newOffset + 1];
+        System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+        counts = grown;
+        offset = newOffset;
+    }
+}
\ No newline at end of file
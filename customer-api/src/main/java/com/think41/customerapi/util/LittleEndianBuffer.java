@@ -0,0 +1,109 @@
+package com.think41.customerapi.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte array written in little-endian order, for the columnar writers
+ */
+final class LittleEndianBuffer {
+    
+    private byte[] data;
+    private int size;
+    
+    LittleEndianBuffer(int initialCapacity) {
+        data = new byte[Math.max(16, initialCapacity)];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    void clear() {
+        size = 0;
+    }
+    
+    void putByte(int value) {
+        ensure(1);
+        data[size++] = (byte) value;
+    }
+    
+    void putShort(int value) {
+        ensure(2);
+        data[size++] = (byte) value;
+        data[size++] = (byte) (value >>> 8);
+    }
+    
+    void putInt(int value) {
+        ensure(4);
+        putIntAt(size, value);
+        size += 4;
+    }
+    
+    void putLong(long value) {
+        ensure(8);
+        for (int i = 0; i < 8; i++) {
+            data[size++] = (byte) (value >>> (8 * i));
+        }
+    }
+    
+    void put(byte[] bytes) {
+        put(bytes, 0, bytes.length);
+    }
+    
+    void put(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, data, size, length);
+        size += length;
+    }
+    
+    void put(LittleEndianBuffer other) {
+        put(other.data, 0, other.size);
+    }
+    
+    /**
+     * Overwrite four bytes already written
+     */
+    void putIntAt(int position, int value) {
+        data[position] = (byte) value;
+        data[position + 1] = (byte) (value >>> 8);
+        data[position + 2] = (byte) (value >>> 16);
+        data[position + 3] = (byte) (value >>> 24);
+    }
+    
+    void putShortAt(int position, int value) {
+        data[position] = (byte) value;
+        data[position + 1] = (byte) (value >>> 8);
+    }
+    
+    /**
+     * Append zeros until the size is a multiple of alignment
+     */
+    void pad(int alignment) {
+        padUntil(alignment, 0);
+    }
+    
+    /**
+     * Append zeros until size % alignment == remainder
+     */
+    void padUntil(int alignment, int remainder) {
+        while (size % alignment != remainder) {
+            putByte(0);
+        }
+    }
+    
+    void writeTo(OutputStream out) throws IOException {
+        out.write(data, 0, size);
+    }
+    
+    byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+    
+    private void ensure(int extra) {
+        if (size + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.think41.customerapi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only pool of deduplicated UTF-8 strings in a memory-mapped file.
+ *
+ * Each distinct string is stored once as [length][bytes] and referred to by its offset. The
+ * dedup index is an open-addressing table of offsets on heap (one int per slot, no String
+ * objects), rebuilt by scanning the file on open. One thread appends; any thread may
+ * {@link #get} an offset that was handed to it after the append, since entries never change.
+ */
+public class MappedStringPool implements Closeable {
+    
+    public static final int NULL_REF = -1;
+    
+    private static final int MAGIC = 0x53504F4C;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int USED_OFFSET = 8;
+    private static final long MIN_MAPPED_BYTES = 1 << 20;
+    
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    
+    // Writer only
+    private int used;
+    private int[] table;
+    private int entries;
+    
+    public MappedStringPool(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_BYTES;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), MIN_MAPPED_BYTES));
+        this.table = new int[1024];
+        Arrays.fill(table, NULL_REF);
+        
+        if (fresh) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            used = HEADER_BYTES;
+            buffer.putInt(USED_OFFSET, used);
+        } else {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("Not a string pool: " + file);
+            }
+            used = buffer.getInt(USED_OFFSET);
+            rebuildIndex(file);
+        }
+    }
+    
+    /**
+     * Offset of value in the pool, appending it if it is not there yet; NULL_REF for null
+     */
+    public int intern(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int mask = table.length - 1;
+        int slot = hash(bytes) & mask;
+        for (int ref = table[slot]; ref != NULL_REF; ref = table[slot]) {
+            if (matches(ref, bytes)) {
+                return ref;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        int ref = append(bytes);
+        table[slot] = ref;
+        if (++entries * 2 > table.length) {
+            resizeTable();
+        }
+        return ref;
+    }
+    
+    /**
+     * The string at ref, or null for NULL_REF
+     */
+    public String get(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        MappedByteBuffer pool = buffer;
+        byte[] bytes = new byte[pool.getInt(ref)];
+        pool.get(ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Bytes in use, including the header
+     */
+    public int size() {
+        return used;
+    }
+    
+    public void force() {
+        buffer.force();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+    
+    private int append(byte[] bytes) {
+        long required = (long) used + 4 + bytes.length;
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("String pool is full");
+        }
+        if (required > buffer.capacity()) {
+            grow(required);
+        }
+        int ref = used;
+        MappedByteBuffer pool = buffer;
+        pool.putInt(ref, bytes.length);
+        pool.put(ref + 4, bytes);
+        used = (int) required;
+        // Written last, so a crash mid-append leaves the entry outside the pool
+        pool.putInt(USED_OFFSET, used);
+        return ref;
+    }
+    
+    private void grow(long required) {
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        try {
+            // Readers holding the old mapping still see the same file pages
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not grow string pool", ex);
+        }
+    }
+    
+    private boolean matches(int ref, byte[] bytes) {
+        MappedByteBuffer pool = buffer;
+        if (pool.getInt(ref) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (pool.get(ref + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void rebuildIndex(Path file) throws IOException {
+        MappedByteBuffer pool = buffer;
+        int position = HEADER_BYTES;
+        while (position < used) {
+            int length = pool.getInt(position);
+            if (length < 0 || (long) position + 4 + length > used) {
+                throw new IOException("Corrupt string pool entry at " + position + " in " + file);
+            }
+            byte[] bytes = new byte[length];
+            pool.get(position + 4, bytes);
+            insert(position, hash(bytes));
+            position += 4 + length;
+        }
+    }
+    
+    private void resizeTable() {
+        int[] old = table;
+        table = new int[old.length * 2];
+        Arrays.fill(table, NULL_REF);
+        entries = 0;
+        MappedByteBuffer pool = buffer;
+        for (int ref : old) {
+            if (ref != NULL_REF) {
+                byte[] bytes = new byte[pool.getInt(ref)];
+                pool.get(ref + 4, bytes);
+                insert(ref, hash(bytes));
+            }
+        }
+    }
+    
+    private void insert(int ref, int hash) {
+        if ((entries + 1) * 2 > table.length) {
+            resizeTable();
+        }
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != NULL_REF) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = ref;
+        entries++;
+    }
+    
+    private static int hash(byte[] bytes) {
+        int h = Arrays.hashCode(bytes);
+        return h ^ (h >>> 16);
+    }
+}
\ No newline at end of file
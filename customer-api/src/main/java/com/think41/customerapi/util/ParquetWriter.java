@@ -0,0 +1,428 @@
+package com.think41.customerapi.util;
+
+import com.think41.customerapi.util.ColumnarBatch.Column;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Apache Parquet file writer for flat schemas, written without the Parquet libraries.
+ *
+ * Every batch becomes one row group with one column chunk per column. A chunk is a single v1 data
+ * page, preceded by a dictionary page for DICTIONARY columns. Values are PLAIN encoded, dictionary
+ * indexes and definition levels use the RLE/bit-packed hybrid, and pages are optionally gzipped.
+ * The footer is a FileMetaData struct in the Thrift compact protocol, written by finish.
+ */
+public class ParquetWriter implements ColumnarWriter {
+    
+    public static final String MEDIA_TYPE = "application/vnd.apache.parquet";
+    
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    
+    private static final int TYPE_INT32 = 1;
+    private static final int TYPE_INT64 = 2;
+    private static final int TYPE_BYTE_ARRAY = 6;
+    
+    private static final int CONVERTED_UTF8 = 0;
+    private static final int CONVERTED_DECIMAL = 5;
+    private static final int CONVERTED_TIMESTAMP_MICROS = 10;
+    
+    private static final int ENCODING_PLAIN = 0;
+    private static final int ENCODING_PLAIN_DICTIONARY = 2;
+    private static final int ENCODING_RLE = 3;
+    
+    private static final int PAGE_DATA = 0;
+    private static final int PAGE_DICTIONARY = 2;
+    
+    private static final int CODEC_UNCOMPRESSED = 0;
+    private static final int CODEC_GZIP = 2;
+    
+    private record Chunk(long start, long dictionaryOffset, long dataOffset, long compressedSize,
+                         long uncompressedSize) {}
+    
+    private record RowGroup(List<Chunk> chunks, long rows) {}
+    
+    private final OutputStream out;
+    private final List<Column> columns;
+    private final boolean gzip;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private final LittleEndianBuffer page = new LittleEndianBuffer(1 << 16);
+    private final LittleEndianBuffer header = new LittleEndianBuffer(64);
+    private int[] scratch = new int[0];
+    private long position;
+    private long rows;
+    // Sizes of the chunk being written, headers included
+    private long chunkCompressed;
+    private long chunkUncompressed;
+    
+    public ParquetWriter(OutputStream out, List<Column> columns, boolean gzip) {
+        this.out = out;
+        this.columns = List.copyOf(columns);
+        this.gzip = gzip;
+    }
+    
+    @Override
+    public void write(ColumnarBatch batch) throws IOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        writeMagic();
+        List<Chunk> chunks = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            chunks.add(writeChunk(batch, i));
+        }
+        rowGroups.add(new RowGroup(chunks, batch.size()));
+        rows += batch.size();
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        writeMagic();
+        header.clear();
+        writeFileMetaData(new CompactProtocol(header));
+        int footerLength = header.size();
+        header.putInt(footerLength);
+        header.put(MAGIC);
+        header.writeTo(out);
+        position += header.size();
+        out.flush();
+    }
+    
+    private void writeMagic() throws IOException {
+        if (position == 0) {
+            out.write(MAGIC);
+            position = MAGIC.length;
+        }
+    }
+    
+    private Chunk writeChunk(ColumnarBatch batch, int column) throws IOException {
+        long start = position;
+        chunkCompressed = 0;
+        chunkUncompressed = 0;
+        ColumnarBatch.Dictionary dictionary = batch.dictionary(column);
+        long dictionaryOffset = -1;
+        if (dictionary != null) {
+            // Indexes are shared across batches, so every row group carries the whole dictionary
+            page.clear();
+            for (int i = 0; i < dictionary.size(); i++) {
+                byte[] value = dictionary.get(i);
+                page.putInt(value.length);
+                page.put(value);
+            }
+            dictionaryOffset = position;
+            writePage(PAGE_DICTIONARY, dictionary.size(), ENCODING_PLAIN_DICTIONARY);
+        }
+        
+        int size = batch.size();
+        page.clear();
+        if (columns.get(column).nullable()) {
+            int[] levels = scratch(size);
+            for (int row = 0; row < size; row++) {
+                levels[row] = batch.isNull(column, row) ? 0 : 1;
+            }
+            int lengthAt = page.size();
+            page.putInt(0);
+            writeHybrid(levels, size, 1);
+            page.putIntAt(lengthAt, page.size() - lengthAt - 4);
+        }
+        switch (columns.get(column).type()) {
+            case INT32 -> {
+                int[] values = batch.ints(column);
+                for (int row = 0; row < size; row++) {
+                    if (!batch.isNull(column, row)) {
+                        page.putInt(values[row]);
+                    }
+                }
+            }
+            case INT64, TIMESTAMP_MICROS, DECIMAL -> {
+                long[] values = batch.longs(column);
+                for (int row = 0; row < size; row++) {
+                    if (!batch.isNull(column, row)) {
+                        page.putLong(values[row]);
+                    }
+                }
+            }
+            case STRING -> {
+                byte[][] values = batch.bytes(column);
+                for (int row = 0; row < size; row++) {
+                    if (!batch.isNull(column, row)) {
+                        page.putInt(values[row].length);
+                        page.put(values[row]);
+                    }
+                }
+            }
+            case DICTIONARY -> {
+                int[] values = batch.ints(column);
+                int[] indexes = scratch(size);
+                int count = 0;
+                for (int row = 0; row < size; row++) {
+                    if (!batch.isNull(column, row)) {
+                        indexes[count++] = values[row];
+                    }
+                }
+                int bitWidth = Math.max(1, 32 - Integer.numberOfLeadingZeros(dictionary.size() - 1));
+                page.putByte(bitWidth);
+                writeHybrid(indexes, count, bitWidth);
+            }
+        }
+        long dataOffset = position;
+        writePage(PAGE_DATA, size, dictionary != null ? ENCODING_PLAIN_DICTIONARY : ENCODING_PLAIN);
+        return new Chunk(start, dictionaryOffset, dataOffset, chunkCompressed, chunkUncompressed);
+    }
+    
+    private void writePage(int type, int values, int encoding) throws IOException {
+        byte[] body = gzip ? gzip(page) : page.toByteArray();
+        header.clear();
+        CompactProtocol protocol = new CompactProtocol(header);
+        protocol.structBegin();
+        protocol.i32(1, type);
+        protocol.i32(2, page.size());
+        protocol.i32(3, body.length);
+        if (type == PAGE_DATA) {
+            protocol.struct(5);
+            protocol.i32(1, values);
+            protocol.i32(2, encoding);
+            protocol.i32(3, ENCODING_RLE);
+            protocol.i32(4, ENCODING_RLE);
+            protocol.structEnd();
+        } else {
+            protocol.struct(7);
+            protocol.i32(1, values);
+            protocol.i32(2, encoding);
+            protocol.structEnd();
+        }
+        protocol.structEnd();
+        header.writeTo(out);
+        out.write(body);
+        position += header.size() + body.length;
+        chunkCompressed += header.size() + body.length;
+        chunkUncompressed += header.size() + page.size();
+    }
+    
+    /**
+     * RLE/bit-packed hybrid: runs of 8 or more equal values become RLE runs, everything else
+     * is bit-packed in groups of 8. Only the final group may be padded.
+     */
+    private void writeHybrid(int[] values, int count, int bitWidth) {
+        int i = 0;
+        while (i < count) {
+            int run = runLength(values, i, count);
+            if (run >= 8) {
+                writeVarint(page, (long) run << 1);
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    page.putByte(values[i] >>> (8 * b));
+                }
+                i += run;
+                continue;
+            }
+            int groupsAt = i;
+            int groups = 0;
+            do {
+                groups++;
+                i = Math.min(count, i + 8);
+            } while (i < count && runLength(values, i, count) < 8);
+            writeVarint(page, ((long) groups << 1) | 1);
+            long bits = 0;
+            int bitCount = 0;
+            for (int v = groupsAt; v < groupsAt + groups * 8; v++) {
+                bits |= (long) (v < count ? values[v] : 0) << bitCount;
+                bitCount += bitWidth;
+                while (bitCount >= 8) {
+                    page.putByte((int) bits);
+                    bits >>>= 8;
+                    bitCount -= 8;
+                }
+            }
+        }
+    }
+    
+    private static int runLength(int[] values, int from, int count) {
+        int end = from + 1;
+        while (end < count && values[end] == values[from]) {
+            end++;
+        }
+        return end - from;
+    }
+    
+    private int[] scratch(int size) {
+        if (scratch.length < size) {
+            scratch = new int[size];
+        }
+        return scratch;
+    }
+    
+    private static byte[] gzip(LittleEndianBuffer buffer) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, buffer.size() / 4));
+        try (GZIPOutputStream stream = new GZIPOutputStream(compressed, 8192)) {
+            buffer.writeTo(stream);
+        }
+        return compressed.toByteArray();
+    }
+    
+    private void writeFileMetaData(CompactProtocol protocol) {
+        protocol.structBegin();
+        protocol.i32(1, 1);
+        protocol.list(2, CompactProtocol.STRUCT, columns.size() + 1);
+        protocol.structBegin();
+        protocol.string(4, "schema");
+        protocol.i32(5, columns.size());
+        protocol.structEnd();
+        for (Column column : columns) {
+            protocol.structBegin();
+            protocol.i32(1, physicalType(column));
+            protocol.i32(3, column.nullable() ? 1 : 0);
+            protocol.string(4, column.name());
+            switch (column.type()) {
+                case STRING, DICTIONARY -> protocol.i32(6, CONVERTED_UTF8);
+                case TIMESTAMP_MICROS -> protocol.i32(6, CONVERTED_TIMESTAMP_MICROS);
+                case DECIMAL -> {
+                    protocol.i32(6, CONVERTED_DECIMAL);
+                    protocol.i32(7, column.scale());
+                    protocol.i32(8, column.precision());
+                }
+                default -> { }
+            }
+            protocol.structEnd();
+        }
+        protocol.i64(3, rows);
+        protocol.list(4, CompactProtocol.STRUCT, rowGroups.size());
+        for (RowGroup rowGroup : rowGroups) {
+            protocol.structBegin();
+            protocol.list(1, CompactProtocol.STRUCT, columns.size());
+            long bytes = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                Chunk chunk = rowGroup.chunks().get(i);
+                bytes += chunk.uncompressedSize();
+                protocol.structBegin();
+                protocol.i64(2, chunk.start());
+                protocol.struct(3);
+                protocol.i32(1, physicalType(column));
+                protocol.list(2, CompactProtocol.I32, 2);
+                protocol.i32Element(column.type() == ColumnarBatch.Type.DICTIONARY
+                        ? ENCODING_PLAIN_DICTIONARY : ENCODING_PLAIN);
+                protocol.i32Element(ENCODING_RLE);
+                protocol.list(3, CompactProtocol.BINARY, 1);
+                protocol.stringElement(column.name());
+                protocol.i32(4, gzip ? CODEC_GZIP : CODEC_UNCOMPRESSED);
+                protocol.i64(5, rowGroup.rows());
+                protocol.i64(6, chunk.uncompressedSize());
+                protocol.i64(7, chunk.compressedSize());
+                protocol.i64(9, chunk.dataOffset());
+                if (chunk.dictionaryOffset() >= 0) {
+                    protocol.i64(11, chunk.dictionaryOffset());
+                }
+                protocol.structEnd();
+                protocol.structEnd();
+            }
+            protocol.i64(2, bytes);
+            protocol.i64(3, rowGroup.rows());
+            protocol.structEnd();
+        }
+        protocol.string(6, "customer-api");
+        protocol.structEnd();
+    }
+    
+    private static int physicalType(Column column) {
+        return switch (column.type()) {
+            case INT32 -> TYPE_INT32;
+            case INT64, TIMESTAMP_MICROS, DECIMAL -> TYPE_INT64;
+            case STRING, DICTIONARY -> TYPE_BYTE_ARRAY;
+        };
+    }
+    
+    private static void writeVarint(LittleEndianBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.putByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer.putByte((int) value);
+    }
+    
+    /**
+     * The parts of the Thrift compact protocol the Parquet metadata needs. Field ids are given
+     * in increasing order within a struct, so headers always use the short delta form.
+     */
+    private static final class CompactProtocol {
+        
+        static final int I32 = 5;
+        static final int I64 = 6;
+        static final int BINARY = 8;
+        static final int STRUCT = 12;
+        private static final int LIST = 9;
+        
+        private final LittleEndianBuffer buffer;
+        private final int[] lastField = new int[8];
+        private int depth = -1;
+        
+        CompactProtocol(LittleEndianBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        void structBegin() {
+            lastField[++depth] = 0;
+        }
+        
+        void structEnd() {
+            buffer.putByte(0);
+            depth--;
+        }
+        
+        void i32(int field, int value) {
+            fieldHeader(field, I32);
+            i32Element(value);
+        }
+        
+        void i64(int field, long value) {
+            fieldHeader(field, I64);
+            writeVarint(buffer, (value << 1) ^ (value >> 63));
+        }
+        
+        void string(int field, String value) {
+            fieldHeader(field, BINARY);
+            stringElement(value);
+        }
+        
+        void struct(int field) {
+            fieldHeader(field, STRUCT);
+            structBegin();
+        }
+        
+        /**
+         * Follow with size elements; struct elements are written with structBegin and structEnd
+         */
+        void list(int field, int elementType, int size) {
+            fieldHeader(field, LIST);
+            if (size < 15) {
+                buffer.putByte(size << 4 | elementType);
+            } else {
+                buffer.putByte(0xF0 | elementType);
+                writeVarint(buffer, size);
+            }
+        }
+        
+        void i32Element(int value) {
+            writeVarint(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+        
+        void stringElement(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+        
+        private void fieldHeader(int field, int type) {
+            int delta = field - lastField[depth];
+            if (delta <= 0 || delta > 15) {
+                throw new IllegalStateException("Thrift field " + field + " out of order");
+            }
+            buffer.putByte(delta << 4 | type);
+            lastField[depth] = field;
+        }
+    }
+}
\ No newline at end of file
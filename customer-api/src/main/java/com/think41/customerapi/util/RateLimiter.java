@@ -0,0 +1,145 @@
+package com.think41.customerapi.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets, kept as one timestamp per client (GCRA).
+ *
+ * A client's state is the time at which its bucket would be full again. Spending n tokens
+ * pushes that time n refill intervals further out, and is refused if it would then lie more than
+ * a full bucket ahead of now. Each spend is a compare-and-set on the client's AtomicLong in a
+ * concurrent map, so there are no locks on the hot path. A client whose bucket has refilled
+ * carries no information and is removed by {@link #evictIdle}. Clients beyond maxClients share
+ * one overflow bucket, so the map cannot be grown without bound by inventing client keys.
+ */
+public class RateLimiter implements MeterBinder {
+    
+    private static final String OVERFLOW_CLIENT = "*";
+    
+    // Marks state removed by evictIdle; a spender that finds it starts over with a fresh entry
+    private static final long EVICTED = Long.MIN_VALUE;
+    
+    private final String name;
+    private final int capacity;
+    private final long nanosPerToken;
+    private final long fullBucketNanos;
+    private final int maxClients;
+    private final ConcurrentMap<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    public RateLimiter(String name, int capacity, double tokensPerSecond, int maxClients) {
+        if (capacity <= 0 || tokensPerSecond <= 0 || maxClients <= 0) {
+            throw new IllegalArgumentException("Rate limit capacity, refill rate and client limit must be positive");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.nanosPerToken = Math.max(1, Math.round(1_000_000_000L / tokensPerSecond));
+        this.fullBucketNanos = capacity * nanosPerToken;
+        this.maxClients = maxClients;
+    }
+    
+    /**
+     * Spend cost tokens from client's bucket if it holds that many
+     */
+    public Decision tryAcquire(String client, int cost) {
+        if (cost > capacity) {
+            throw new IllegalArgumentException("Cost " + cost + " exceeds bucket capacity " + capacity);
+        }
+        long increment = cost * nanosPerToken;
+        while (true) {
+            AtomicLong state = stateOf(client);
+            long now = System.nanoTime();
+            long current = state.get();
+            if (current == EVICTED) {
+                // Finish the eviction in case the sweeper has not removed the entry yet
+                fullAt.remove(client, state);
+                fullAt.remove(OVERFLOW_CLIENT, state);
+                continue;
+            }
+            long next = Math.max(current, now) + increment;
+            if (next - now > fullBucketNanos) {
+                rejected.increment();
+                long wait = next - now - fullBucketNanos;
+                return new Decision(false, remaining(current, now), current - now, wait);
+            }
+            if (state.compareAndSet(current, next)) {
+                allowed.increment();
+                return new Decision(true, remaining(next, now), next - now, 0);
+            }
+        }
+    }
+    
+    /**
+     * Drop clients whose buckets have refilled; returns the number removed
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : fullAt.entrySet()) {
+            AtomicLong state = entry.getValue();
+            long current = state.get();
+            if (current != EVICTED && current - now <= 0 && state.compareAndSet(current, EVICTED)) {
+                fullAt.remove(entry.getKey(), state);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("ratelimit.requests", allowed, LongAdder::sum)
+                .tag("name", name)
+                .tag("outcome", "allowed")
+                .description("Requests checked by the rate limiter, by outcome")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.requests", rejected, LongAdder::sum)
+                .tag("name", name)
+                .tag("outcome", "rejected")
+                .description("Requests checked by the rate limiter, by outcome")
+                .register(registry);
+        Gauge.builder("ratelimit.clients", fullAt, Map::size)
+                .tag("name", name)
+                .description("Clients with a partly spent bucket")
+                .register(registry);
+    }
+    
+    private AtomicLong stateOf(String client) {
+        AtomicLong state = fullAt.get(client);
+        if (state != null) {
+            return state;
+        }
+        if (fullAt.size() >= maxClients) {
+            client = OVERFLOW_CLIENT;
+            state = fullAt.get(client);
+            if (state != null) {
+                return state;
+            }
+        }
+        // A new bucket starts full
+        AtomicLong fresh = new AtomicLong(System.nanoTime());
+        AtomicLong existing = fullAt.putIfAbsent(client, fresh);
+        return existing != null ? existing : fresh;
+    }
+    
+    private int remaining(long full, long now) {
+        long debt = Math.max(0, full - now);
+        return (int) ((fullBucketNanos - debt) / nanosPerToken);
+    }
+    
+    /**
+     * Outcome of a spend: tokens left, time until the bucket is full again, and for a refused
+     * spend, how long until it would succeed
+     */
+    public record Decision(boolean allowed, int remaining, long resetNanos, long retryAfterNanos) {}
+}
\ No newline at end of file
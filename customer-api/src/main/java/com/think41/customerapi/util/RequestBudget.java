@@ -0,0 +1,123 @@
+package com.think41.customerapi.util;
+
+import com.think41.customerapi.exception.ResultBudgetExceededException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time, row and byte allowance of one API request, bound to the threads working on it.
+ *
+ * GovernedDataSource reads the budget bound to the calling thread: statements get a
+ * statement_timeout of the time remaining and a row limit of the rows remaining, and every
+ * value read counts against the byte limit. Work handed to another thread carries the budget
+ * along with wrap. Counters are shared by those threads, so they are atomic.
+ */
+public final class RequestBudget {
+    
+    private static final ThreadLocal<RequestBudget> CURRENT = new ThreadLocal<>();
+    
+    private final long deadlineNanos;
+    private final long timeoutMs;
+    private final long maxRows;
+    private final long maxBytes;
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    
+    /**
+     * timeoutMs, maxRows or maxBytes of 0 leave that dimension unlimited
+     */
+    public RequestBudget(long timeoutMs, long maxRows, long maxBytes) {
+        this.timeoutMs = timeoutMs;
+        this.deadlineNanos = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * The budget bound to this thread, or null outside a request
+     */
+    public static RequestBudget current() {
+        return CURRENT.get();
+    }
+    
+    /**
+     * Bind budget to this thread, replacing any budget bound before; null unbinds
+     */
+    public static void bind(RequestBudget budget) {
+        if (budget != null) {
+            CURRENT.set(budget);
+        } else {
+            CURRENT.remove();
+        }
+    }
+    
+    /**
+     * task bound to the calling thread's budget wherever it runs
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestBudget budget = current();
+        if (budget == null) {
+            return task;
+        }
+        return () -> {
+            RequestBudget previous = current();
+            bind(budget);
+            try {
+                return task.call();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+    
+    /**
+     * System.nanoTime deadline timeoutMs from now, brought forward to the bound budget's deadline
+     */
+    public static long deadlineWithin(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        RequestBudget budget = current();
+        if (budget != null && budget.hasDeadline() && budget.deadlineNanos - deadline < 0) {
+            return budget.deadlineNanos;
+        }
+        return deadline;
+    }
+    
+    public boolean hasDeadline() {
+        return deadlineNanos != 0;
+    }
+    
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+    
+    /**
+     * Milliseconds left before the deadline, never negative; Long.MAX_VALUE without one
+     */
+    public long remainingMillis() {
+        if (deadlineNanos == 0) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+    
+    /**
+     * Rows that may still be read, or 0 when rows are unlimited
+     */
+    public long remainingRows() {
+        return maxRows > 0 ? Math.max(1, maxRows - rows.get()) : 0;
+    }
+    
+    public void addRow() {
+        if (maxRows > 0 && rows.incrementAndGet() > maxRows) {
+            throw new ResultBudgetExceededException("Request read more than " + maxRows + " rows");
+        }
+    }
+    
+    public void addBytes(long count) {
+        if (maxBytes > 0 && bytes.addAndGet(count) > maxBytes) {
+            throw new ResultBudgetExceededException("Request read more than " + maxBytes + " bytes");
+        }
+    }
+}
\ No newline at end of file
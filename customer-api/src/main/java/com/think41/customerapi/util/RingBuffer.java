@@ -0,0 +1,80 @@
+package com.think41.customerapi.util;
+
+import java.util.List;
+
+/**
+ * Bounded ring buffer over a preallocated slot array, for exactly one producer thread at a time
+ * and one consumer thread.
+ *
+ * The consumer reads a batch with {@link #peek} and only releases the slots with
+ * {@link #release} once the batch has been handled, so a failed batch can be retried.
+ */
+public class RingBuffer<T> {
+    
+    private final Object[] slots;
+    private final int mask;
+    
+    // head is only written by the consumer, tail only by the producer
+    private volatile long head;
+    private volatile long tail;
+    
+    public RingBuffer(int minimumCapacity) {
+        if (minimumCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int capacity = Integer.highestOneBit(minimumCapacity);
+        if (capacity < minimumCapacity) {
+            capacity <<= 1;
+        }
+        this.slots = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+    
+    /**
+     * Append all items, or none if they do not fit; producer side only
+     */
+    public boolean offerAll(List<? extends T> items) {
+        long currentTail = tail;
+        if (slots.length - (currentTail - head) < items.size()) {
+            return false;
+        }
+        for (T item : items) {
+            slots[(int) (currentTail++ & mask)] = item;
+        }
+        // The volatile write publishes the slot contents to the consumer
+        tail = currentTail;
+        return true;
+    }
+    
+    /**
+     * Copy up to max unreleased items, oldest first, into target; consumer side only
+     */
+    @SuppressWarnings("unchecked")
+    public int peek(List<T> target, int max) {
+        long currentHead = head;
+        int count = (int) Math.min(max, tail - currentHead);
+        for (int i = 0; i < count; i++) {
+            target.add((T) slots[(int) ((currentHead + i) & mask)]);
+        }
+        return count;
+    }
+    
+    /**
+     * Free the oldest count slots after their items were handled; consumer side only
+     */
+    public void release(int count) {
+        long currentHead = head;
+        for (int i = 0; i < count; i++) {
+            slots[(int) ((currentHead + i) & mask)] = null;
+        }
+        head = currentHead + count;
+    }
+    
+    public int size() {
+        return (int) (tail - head);
+    }
+    
+    public int capacity() {
+        return slots.length;
+    }
+}
\ No newline at end of file
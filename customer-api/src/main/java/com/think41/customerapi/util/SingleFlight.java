@@ -0,0 +1,115 @@
+package com.think41.customerapi.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one execution.
+ *
+ * The first caller for a key runs the loader; callers arriving while it is in flight wait for
+ * and share its result or exception. Nothing is retained once the call completes, so this only
+ * deduplicates simultaneous work and never serves stale results. Bookkeeping is a single
+ * putIfAbsent/remove per call on a concurrent map, with no locks. A leader cancelled at its own
+ * request's deadline does not fail the callers waiting on it; they run the loader themselves.
+ * A waiting caller gives up at its own request's deadline with DeadlineExceededException.
+ */
+public class SingleFlight<K, V> implements MeterBinder {
+    
+    private final String name;
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Run loader for key, or join the identical call already running
+     */
+    public V execute(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            collapsed.increment();
+            try {
+                return await(running);
+            } catch (QueryTimeoutException ex) {
+                // The leader ran out of its own request's time; this caller may have more left
+                RequestBudget budget = RequestBudget.current();
+                if (budget != null && budget.remainingMillis() == 0) {
+                    throw ex;
+                }
+                return loader.get();
+            }
+        }
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            call.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+    
+    public long getCalls() {
+        return calls.sum();
+    }
+    
+    public long getCollapsed() {
+        return collapsed.sum();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("singleflight.calls", calls, LongAdder::sum)
+                .tag("name", name)
+                .description("Calls made through the single-flight group")
+                .register(registry);
+        FunctionCounter.builder("singleflight.collapsed", collapsed, LongAdder::sum)
+                .tag("name", name)
+                .description("Calls that shared the result of an identical call already in flight")
+                .register(registry);
+    }
+    
+    private static <V> V await(CompletableFuture<V> running) {
+        RequestBudget budget = RequestBudget.current();
+        try {
+            if (budget == null || !budget.hasDeadline()) {
+                return running.join();
+            }
+            return running.get(budget.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (CompletionException | ExecutionException ex) {
+            // Rethrow the leader's exception as is, so callers see the same error type
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new CompletionException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException("Identical call in flight did not complete before the deadline", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException("Waiting for identical call in flight was interrupted", ex);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.think41.customerapi.util;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Conversions for raw values returned by native queries
+ */
+public final class SqlValues {
+    
+    private SqlValues() {}
+    
+    /**
+     * Convert a TIMESTAMP WITH TIME ZONE value to an Instant; drivers and Hibernate versions
+     * differ in whether they return Instant, OffsetDateTime or java.sql.Timestamp
+     */
+    public static Instant toInstant(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Instant instant) {
+            return instant;
+        }
+        if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        throw new IllegalArgumentException("Unsupported timestamp type: " + value.getClass().getName());
+    }
+    
+    public static OffsetDateTime toOffsetDateTime(Object value) {
+        Instant instant = toInstant(value);
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.think41.customerapi.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * DataSource that times every statement executed through its connections.
+ *
+ * Connections, statements and result sets are wrapped in JDK proxies that record the SQL, the
+ * bound parameters, how long execute took and how many rows it affected or returned. A query's
+ * rows are counted as they are read, so its execution is reported when the result set or
+ * statement is closed. Reporting happens on the calling thread; the listener must be quick.
+ */
+public class TimedDataSource extends DelegatingDataSource {
+    
+    /**
+     * Receives every finished statement
+     */
+    public interface Listener {
+        void executed(Execution execution);
+    }
+    
+    /**
+     * One statement execution. parameters is indexed from 0 for JDBC parameter 1; batches is the
+     * number of parameter sets sent with executeBatch, otherwise 0.
+     */
+    public record Execution(String sql, Object[] parameters, int batches, long nanos, long rows, boolean failed) {}
+    
+    private static final Object[] NO_PARAMETERS = new Object[0];
+    
+    private final Listener listener;
+    
+    public TimedDataSource(DataSource target, Listener listener) {
+        super(target);
+        this.listener = listener;
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+    
+    private Connection connection(Connection target) {
+        return JdbcProxies.proxy(Connection.class, (proxy, method, args) -> {
+            Object result = JdbcProxies.call(target, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> JdbcProxies.proxy(Statement.class,
+                        new StatementHandler((Statement) result, null));
+                case "prepareStatement" -> JdbcProxies.proxy(PreparedStatement.class,
+                        new StatementHandler((Statement) result, (String) args[0]));
+                case "prepareCall" -> JdbcProxies.proxy(CallableStatement.class,
+                        new StatementHandler((Statement) result, (String) args[0]));
+                default -> result;
+            };
+        });
+    }
+    
+    private class StatementHandler implements InvocationHandler {
+        
+        private final Statement target;
+        private String sql;
+        private Object[] parameters = NO_PARAMETERS;
+        private int batches;
+        
+        // A query whose rows are still being read
+        private String querySql;
+        private Object[] queryParameters;
+        private long queryNanos;
+        private long queryRows;
+        
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            switch (name) {
+                case "getResultSet" -> {
+                    ResultSet resultSet = (ResultSet) JdbcProxies.call(target, method, args);
+                    return resultSet != null && querySql != null ? resultSet(resultSet) : resultSet;
+                }
+                case "addBatch" -> {
+                    if (args != null) {
+                        sql = (String) args[0];
+                    }
+                    batches++;
+                }
+                case "clearBatch" -> batches = 0;
+                case "clearParameters" -> Arrays.fill(parameters, null);
+                case "close" -> finishQuery();
+                default -> {
+                    // Parameter setters are setXxx(int index, value, ...); statement settings take one argument
+                    if (args != null && args.length >= 2 && name.startsWith("set") && args[0] instanceof Integer index) {
+                        bind(index, name.equals("setNull") ? null : args[1]);
+                    }
+                }
+            }
+            return JdbcProxies.call(target, method, args);
+        }
+        
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishQuery();
+            if (args != null && args.length > 0 && args[0] instanceof String text) {
+                sql = text;
+            }
+            String name = method.getName();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = JdbcProxies.call(target, method, args);
+            } catch (Throwable ex) {
+                report(System.nanoTime() - start, 0, true);
+                throw ex;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (result instanceof ResultSet resultSet) {
+                startQuery(elapsed);
+                return resultSet(resultSet);
+            }
+            if (name.equals("execute") && Boolean.TRUE.equals(result)) {
+                // Results are read through getResultSet
+                startQuery(elapsed);
+            } else if (result instanceof int[] counts) {
+                report(elapsed, Arrays.stream(counts).filter(count -> count > 0).asLongStream().sum(), false);
+            } else if (result instanceof long[] counts) {
+                report(elapsed, Arrays.stream(counts).filter(count -> count > 0).sum(), false);
+            } else if (result instanceof Number count) {
+                report(elapsed, count.longValue(), false);
+            } else {
+                report(elapsed, Math.max(0, target.getUpdateCount()), false);
+            }
+            return result;
+        }
+        
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            if (index > 0) {
+                parameters[index - 1] = value;
+            }
+        }
+        
+        private void startQuery(long elapsed) {
+            querySql = sql;
+            queryParameters = parameters.clone();
+            queryNanos = elapsed;
+            queryRows = 0;
+        }
+        
+        private void finishQuery() {
+            if (querySql != null) {
+                listener.executed(new Execution(querySql, queryParameters, 0, queryNanos, queryRows, false));
+                querySql = null;
+            }
+        }
+        
+        private void report(long nanos, long rows, boolean failed) {
+            listener.executed(new Execution(sql, parameters.clone(), batches, nanos, rows, failed));
+            batches = 0;
+        }
+        
+        private ResultSet resultSet(ResultSet target) {
+            return JdbcProxies.proxy(ResultSet.class, (proxy, method, args) -> {
+                Object result = JdbcProxies.call(target, method, args);
+                switch (method.getName()) {
+                    case "next" -> {
+                        if (Boolean.TRUE.equals(result)) {
+                            queryRows++;
+                        }
+                    }
+                    case "close" -> finishQuery();
+                    default -> {}
+                }
+                return result;
+            });
+        }
+    }
+}
\ No newline at end of file
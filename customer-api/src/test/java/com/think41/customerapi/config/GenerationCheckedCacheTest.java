@@ -0,0 +1,94 @@
+package com.think41.customerapi.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GenerationCheckedCacheTest {
+    
+    private final GenerationCheckedCache cache = new GenerationCheckedCache(new ConcurrentMapCache("test"));
+    
+    @Test
+    public void testFillAfterMissIsStored() {
+        assertNull(cache.get(1));
+        cache.put(1, "loaded");
+        
+        assertEquals("loaded", value(1));
+    }
+    
+    @Test
+    public void testFillThatRacedAnEvictIsDropped() {
+        assertNull(cache.get(1));
+        // The change notification arrives while the load is still running
+        cache.evict(1);
+        cache.put(1, "stale");
+        
+        assertNull(cache.get(1));
+        cache.put(1, "fresh");
+        assertEquals("fresh", value(1));
+    }
+    
+    @Test
+    public void testFillThatRacedAClearIsDropped() {
+        assertNull(cache.get(1));
+        cache.clear();
+        cache.put(1, "stale");
+        
+        assertNull(cache.get(1));
+    }
+    
+    @Test
+    public void testEvictOfOtherThreadsLoadOnly() throws Exception {
+        assertNull(cache.get(1));
+        // Another thread misses and fills a different key meanwhile
+        CompletableFuture.runAsync(() -> {
+            cache.get(2);
+            cache.put(2, "other");
+        }).get();
+        cache.put(1, "loaded");
+        
+        assertEquals("loaded", value(1));
+        assertEquals("other", value(2));
+    }
+    
+    @Test
+    public void testEvictBetweenCheckAndStoreIsNotUndone() {
+        // The change notification's evict lands after the generation check, just before the store
+        GenerationCheckedCache[] racing = new GenerationCheckedCache[1];
+        racing[0] = new GenerationCheckedCache(new ConcurrentMapCache("racing") {
+            private boolean raced;
+            
+            @Override
+            public void put(Object key, Object value) {
+                if (!raced) {
+                    raced = true;
+                    racing[0].evict(key);
+                }
+                super.put(key, value);
+            }
+        });
+        
+        assertNull(racing[0].get(1));
+        racing[0].put(1, "stale");
+        
+        assertNull(racing[0].get(1));
+    }
+    
+    @Test
+    public void testPutWithoutMissIsStored() {
+        cache.evict(1);
+        cache.put(1, "direct");
+        
+        assertEquals("direct", value(1));
+    }
+    
+    private Object value(Object key) {
+        Cache.ValueWrapper wrapper = cache.get(key);
+        return wrapper != null ? wrapper.get() : null;
+    }
+}
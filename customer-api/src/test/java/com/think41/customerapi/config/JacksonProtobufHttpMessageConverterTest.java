@@ -0,0 +1,28 @@
+package com.think41.customerapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.think41.customerapi.dto.HotKey;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JacksonProtobufHttpMessageConverterTest {
+    
+    private final JacksonProtobufHttpMessageConverter converter = new JacksonProtobufHttpMessageConverter(new ObjectMapper());
+    
+    @Test
+    public void testWritesDtos() {
+        assertTrue(converter.canWrite(HotKey.class, HotKey.class, JacksonProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+    }
+    
+    @Test
+    public void testTypesWithoutASchemaAreNotWritable() {
+        assertFalse(converter.canWrite(Map.class, Map.class, JacksonProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+        // What actuator passes for operations that return no body
+        assertFalse(converter.canWrite(ResolvableType.NONE.getType(), Object.class, null));
+    }
+}
\ No newline at end of file
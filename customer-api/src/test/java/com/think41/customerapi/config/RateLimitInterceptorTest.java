@@ -0,0 +1,74 @@
+package com.think41.customerapi.config;
+
+import com.think41.customerapi.exception.RateLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+public class RateLimitInterceptorTest {
+    
+    private final HandlerMethod handler = mock(HandlerMethod.class);
+    private RateLimitInterceptor interceptor;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        interceptor = new RateLimitInterceptor();
+        ReflectionTestUtils.setField(interceptor, "meterRegistry", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(interceptor, "enabled", true);
+        ReflectionTestUtils.setField(interceptor, "capacity", 3);
+        ReflectionTestUtils.setField(interceptor, "refillPerSecond", 0.001);
+        ReflectionTestUtils.setField(interceptor, "maxClients", 100);
+        ReflectionTestUtils.setField(interceptor, "apiKeyHeader", "X-API-Key");
+        ReflectionTestUtils.setField(interceptor, "apiKeys", Set.of("known"));
+        ReflectionTestUtils.setField(interceptor, "lookupCost", 1);
+        ReflectionTestUtils.setField(interceptor, "listCost", 1);
+        ReflectionTestUtils.setField(interceptor, "searchCost", 1);
+        ReflectionTestUtils.setField(interceptor, "writeCost", 1);
+        ReflectionTestUtils.setField(interceptor, "exportCost", 1);
+        interceptor.start();
+    }
+    
+    @Test
+    public void testRotatedKeysShareTheAddressBucket() {
+        for (int i = 0; i < 3; i++) {
+            String key = "rotated-" + i;
+            assertDoesNotThrow(() -> call("10.0.0.1", key));
+        }
+        assertThrows(RateLimitExceededException.class, () -> call("10.0.0.1", "rotated-3"));
+        assertThrows(RateLimitExceededException.class, () -> call("10.0.0.1", null));
+    }
+    
+    @Test
+    public void testKnownKeyHasItsOwnBucket() {
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> call("10.0.0.1", null));
+        }
+        assertThrows(RateLimitExceededException.class, () -> call("10.0.0.1", null));
+        
+        // Same address, but a configured key
+        for (int i = 0; i < 3; i++) {
+            assertDoesNotThrow(() -> call("10.0.0.1", "known"));
+        }
+        assertThrows(RateLimitExceededException.class, () -> call("10.0.0.2", "known"));
+    }
+    
+    private void call(String address, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/customers/1");
+        request.setRemoteAddr(address);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+    }
+}
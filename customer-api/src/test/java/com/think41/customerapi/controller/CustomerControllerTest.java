@@ -1,26 +1,49 @@
 package com.think41.customerapi.controller;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.jayway.jsonpath.JsonPath;
+import com.think41.customerapi.dto.CustomerFilter;
 import com.think41.customerapi.dto.CustomerResponse;
+import com.think41.customerapi.dto.CustomerSummaryResponse;
+import com.think41.customerapi.dto.OrderResponse;
+import com.think41.customerapi.dto.OrderTotals;
 import com.think41.customerapi.dto.PagedResponse;
+import com.think41.customerapi.exception.CapacityExceededException;
 import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.exception.DeadlineExceededException;
+import com.think41.customerapi.service.ColumnarExportService;
 import com.think41.customerapi.service.CustomerService;
+import com.think41.customerapi.service.CustomerSummaryService;
+import com.think41.customerapi.service.HotKeyService;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(CustomerController.class)
+@WebMvcTest(controllers = CustomerController.class, properties = "ratelimit.api-keys=search-heavy,someone-else")
 public class CustomerControllerTest {
     
     @Autowired
@@ -29,6 +52,15 @@ public class CustomerControllerTest {
     @MockBean
     private CustomerService customerService;
     
+    @MockBean
+    private CustomerSummaryService customerSummaryService;
+    
+    @MockBean
+    private ColumnarExportService columnarExportService;
+    
+    @MockBean
+    private HotKeyService hotKeyService;
+    
     @Test
     public void testGetAllCustomers_Success() throws Exception {
         // Mock data
@@ -45,7 +77,7 @@ public class CustomerControllerTest {
         PagedResponse<CustomerResponse> pagedResponse = new PagedResponse<>(
                 Arrays.asList(customer1, customer2), 0, 20, 2L, 1, true, true);
         
-        when(customerService.getAllCustomers(anyInt(), anyInt(), any(), any()))
+        when(customerService.getAllCustomers(any(CustomerFilter.class), anyInt(), anyInt()))
                 .thenReturn(pagedResponse);
         
         // Test
@@ -61,6 +93,40 @@ public class CustomerControllerTest {
                 .andExpect(jsonPath("$.total_elements").value(2));
     }
     
+    @Test
+    public void testGetAllCustomers_CombinedFilters() throws Exception {
+        PagedResponse<CustomerResponse> pagedResponse = new PagedResponse<>(
+                Arrays.asList(), 0, 20, 0L, 0, true, true);
+        
+        when(customerService.getAllCustomers(any(CustomerFilter.class), anyInt(), anyInt()))
+                .thenReturn(pagedResponse);
+        
+        mockMvc.perform(get("/api/customers")
+                .param("search", "john")
+                .param("country", "USA")
+                .param("state", "CA")
+                .param("min_age", "25")
+                .param("max_age", "40")
+                .param("traffic_source", "Search")
+                .param("created_from", "2023-01-01T00:00:00Z")
+                .param("sort", "created_at")
+                .param("direction", "desc"))
+                .andExpect(status().isOk());
+        
+        ArgumentCaptor<CustomerFilter> filter = ArgumentCaptor.forClass(CustomerFilter.class);
+        verify(customerService).getAllCustomers(filter.capture(), eq(0), eq(20));
+        assertEquals("john", filter.getValue().getSearch());
+        assertEquals("USA", filter.getValue().getCountry());
+        assertEquals("CA", filter.getValue().getState());
+        assertEquals(25, filter.getValue().getMinAge());
+        assertEquals(40, filter.getValue().getMaxAge());
+        assertEquals("Search", filter.getValue().getTrafficSource());
+        assertEquals(OffsetDateTime.parse("2023-01-01T00:00:00Z"), filter.getValue().getCreatedFrom());
+        assertEquals("created_at", filter.getValue().getSort());
+        assertEquals("desc", filter.getValue().getDirection());
+        verify(hotKeyService).recordSearchTerm("john");
+    }
+    
     @Test
     public void testGetCustomerById_Success() throws Exception {
         // Mock data
@@ -80,6 +146,8 @@ public class CustomerControllerTest {
                 .andExpect(jsonPath("$.last_name").value("Doe"))
                 .andExpect(jsonPath("$.email").value("john@example.com"))
                 .andExpect(jsonPath("$.order_count").value(5));
+        
+        verify(hotKeyService).recordCustomer(1);
     }
     
     @Test
@@ -112,4 +180,145 @@ public class CustomerControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(content().string("100000"));
     }
+    
+    @Test
+    public void testGetCustomerSummary_Success() throws Exception {
+        CustomerResponse customer = new CustomerResponse(1, "John", "Doe", "john@example.com",
+                30, "M", "CA", "123 Main St", "12345", "Los Angeles", "USA",
+                new BigDecimal("34.0522"), new BigDecimal("-118.2437"), "Search",
+                OffsetDateTime.now(), 3L);
+        OrderResponse order = new OrderResponse(1001, 1, "Shipped", "M",
+                OffsetDateTime.now(), null, OffsetDateTime.now(), null, 2,
+                "John Doe", "john@example.com");
+        CustomerSummaryResponse summary = new CustomerSummaryResponse(customer, List.of(order),
+                Map.of("Complete", 2L, "Shipped", 1L),
+                new OrderTotals(3, 5, OffsetDateTime.now(), OffsetDateTime.now()));
+        
+        when(customerSummaryService.getCustomerSummary(1, 5)).thenReturn(summary);
+        
+        mockMvc.perform(get("/api/customers/1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customer.id").value(1))
+                .andExpect(jsonPath("$.recent_orders[0].order_id").value(1001))
+                .andExpect(jsonPath("$.status_counts.Complete").value(2))
+                .andExpect(jsonPath("$.totals.order_count").value(3))
+                .andExpect(jsonPath("$.totals.item_count").value(5));
+    }
+    
+    @Test
+    public void testGetCustomerSummary_InvalidOrdersSize() throws Exception {
+        mockMvc.perform(get("/api/customers/1/summary").param("orders_size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value(400));
+    }
+    
+    @Test
+    public void testGetCustomerSummary_DeadlineExceeded() throws Exception {
+        when(customerSummaryService.getCustomerSummary(1, 5))
+                .thenThrow(new DeadlineExceededException("Customer summary did not complete within 2000 ms"));
+        
+        mockMvc.perform(get("/api/customers/1/summary"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.error").value("Gateway Timeout"))
+                .andExpect(jsonPath("$.status").value(504));
+    }
+    
+    @Test
+    public void testGetAllCustomers_Cbor() throws Exception {
+        when(customerService.getAllCustomers(any(CustomerFilter.class), anyInt(), anyInt()))
+                .thenReturn(new PagedResponse<>(Arrays.asList(sampleCustomer()), 0, 20, 1L, 1, true, true));
+        
+        byte[] body = mockMvc.perform(get("/api/customers").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        
+        // Same property names as the JSON response
+        CBORMapper mapper = new CBORMapper();
+        assertEquals("John", mapper.readTree(body).get("content").get(0).get("first_name").asText());
+        assertEquals(1, mapper.readTree(body).get("total_elements").asInt());
+    }
+    
+    @Test
+    public void testGetAllCustomers_Protobuf() throws Exception {
+        when(customerService.getAllCustomers(any(CustomerFilter.class), anyInt(), anyInt()))
+                .thenReturn(new PagedResponse<>(Arrays.asList(sampleCustomer()), 0, 20, 1L, 1, true, true));
+        
+        byte[] body = mockMvc.perform(get("/api/customers").accept("application/x-protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-protobuf"))
+                .andReturn().getResponse().getContentAsByteArray();
+        
+        // A consumer generates the same schema from the DTO classes
+        ProtobufMapper mapper = new ProtobufMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        JavaType type = mapper.getTypeFactory().constructParametricType(PagedResponse.class, CustomerResponse.class);
+        ProtobufSchema schema = mapper.generateSchemaFor(type);
+        PagedResponse<CustomerResponse> page = mapper.readerFor(type).with(schema).readValue(body);
+        assertEquals("john@example.com", page.getContent().get(0).getEmail());
+        assertEquals(1L, page.getTotalElements());
+    }
+    
+    @Test
+    public void testGetCustomerSummary_ProtobufNotAcceptable() throws Exception {
+        CustomerSummaryResponse summary = new CustomerSummaryResponse(sampleCustomer(), List.of(),
+                Map.of("Complete", 3L), new OrderTotals(3, 5, OffsetDateTime.now(), OffsetDateTime.now()));
+        when(customerSummaryService.getCustomerSummary(1, 5)).thenReturn(summary);
+        
+        // status_counts is a map, which protobuf cannot represent
+        mockMvc.perform(get("/api/customers/1/summary").accept("application/x-protobuf"))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(jsonPath("$.error").value("Not Acceptable"));
+    }
+    
+    @Test
+    public void testGetAllCustomers_SearchRateLimitedPerApiKey() throws Exception {
+        when(customerService.getAllCustomers(any(CustomerFilter.class), anyInt(), anyInt()))
+                .thenReturn(new PagedResponse<>(List.of(), 0, 20, 0L, 0, true, true));
+        when(customerService.getCustomerById(1)).thenReturn(sampleCustomer());
+        
+        // Searches cost 20 of the 300 tokens; refill is far slower than this loop
+        int allowed = 0;
+        MvcResult result;
+        do {
+            result = mockMvc.perform(get("/api/customers")
+                    .param("search", "john")
+                    .header("X-API-Key", "search-heavy"))
+                    .andExpect(header().string("RateLimit-Limit", "300"))
+                    .andReturn();
+        } while (result.getResponse().getStatus() == 200 && ++allowed < 100);
+        
+        assertEquals(429, result.getResponse().getStatus());
+        assertTrue(allowed >= 15 && allowed < 20, "allowed " + allowed);
+        assertEquals("1", result.getResponse().getHeader("Retry-After"));
+        assertEquals("Too Many Requests", JsonPath.read(result.getResponse().getContentAsString(), "$.error"));
+        
+        // Other clients keep their own buckets
+        mockMvc.perform(get("/api/customers/1").header("X-API-Key", "someone-else"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("RateLimit-Remaining", "299"));
+    }
+    
+    @Test
+    public void testExportCustomers_TooManyExports() throws Exception {
+        // Arrange
+        when(columnarExportService.export(eq(ColumnarExportService.Table.USERS),
+                eq(ColumnarExportService.Format.ARROW), any()))
+                .thenThrow(new CapacityExceededException("Too many exports in progress, retry shortly"));
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/customers/export").param("format", "arrow"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("Service Unavailable"));
+    }
+    
+    private static CustomerResponse sampleCustomer() {
+        return new CustomerResponse(1, "John", "Doe", "john@example.com",
+                30, "M", "CA", "123 Main St", "12345", "Los Angeles", "USA",
+                new BigDecimal("34.0522"), new BigDecimal("-118.2437"), "Search",
+                OffsetDateTime.parse("2023-01-15T10:30:00Z"), 5L);
+    }
 }
\ No newline at end of file
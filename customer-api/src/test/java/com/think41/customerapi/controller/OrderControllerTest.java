@@ -1,24 +1,51 @@
 package com.think41.customerapi.controller;
 
+import com.think41.customerapi.dto.BulkOrderError;
+import com.think41.customerapi.dto.BulkOrderResponse;
+import com.think41.customerapi.dto.CursorPagedResponse;
+import com.think41.customerapi.dto.CustomerOrdersResponse;
+import com.think41.customerapi.dto.FulfillmentLatencyResponse;
+import com.think41.customerapi.dto.LatencyGroupResponse;
+import com.think41.customerapi.dto.LatencyPercentiles;
+import com.think41.customerapi.dto.OrderEventAck;
+import com.think41.customerapi.dto.OrderFilter;
 import com.think41.customerapi.dto.OrderResponse;
-import com.think41.customerapi.dto.PagedResponse;
 import com.think41.customerapi.exception.CustomerNotFoundException;
+import com.think41.customerapi.exception.IngestionBackpressureException;
 import com.think41.customerapi.exception.OrderNotFoundException;
+import com.think41.customerapi.service.ColumnarExportService;
+import com.think41.customerapi.service.FulfillmentLatencyService;
+import com.think41.customerapi.service.HotKeyService;
+import com.think41.customerapi.service.OrderEventIngestionService;
 import com.think41.customerapi.service.OrderService;
+import com.think41.customerapi.service.OrderStreamService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
 import java.util.Arrays;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(OrderController.class)
@@ -30,18 +57,32 @@ public class OrderControllerTest {
     @MockBean
     private OrderService orderService;
     
+    @MockBean
+    private FulfillmentLatencyService fulfillmentLatencyService;
+    
+    @MockBean
+    private OrderEventIngestionService orderEventIngestionService;
+    
+    @MockBean
+    private OrderStreamService orderStreamService;
+    
+    @MockBean
+    private ColumnarExportService columnarExportService;
+    
+    @MockBean
+    private HotKeyService hotKeyService;
+    
     @Test
     public void testGetOrdersByCustomerId_Success() throws Exception {
         // Arrange
         OrderResponse order1 = new OrderResponse(1001, 1, "completed", "M", 
-                OffsetDateTime.now(), null, OffsetDateTime.now(), OffsetDateTime.now(), 2,
-                "John Doe", "john@example.com");
+                OffsetDateTime.now(), null, OffsetDateTime.now(), OffsetDateTime.now(), 2);
         OrderResponse order2 = new OrderResponse(1002, 1, "shipped", "M", 
-                OffsetDateTime.now(), null, OffsetDateTime.now(), null, 1,
-                "John Doe", "john@example.com");
+                OffsetDateTime.now(), null, OffsetDateTime.now(), null, 1);
         
-        PagedResponse<OrderResponse> pagedResponse = new PagedResponse<>(
-                Arrays.asList(order1, order2), 0, 10, 2L, 1, true, true);
+        CustomerOrdersResponse pagedResponse = new CustomerOrdersResponse(
+                Arrays.asList(order1, order2), 0, 10, 2L, 1, true, true,
+                1, "John Doe", "john@example.com");
         
         when(orderService.getOrdersByCustomerId(eq(1), eq(0), eq(10)))
                 .thenReturn(pagedResponse);
@@ -56,7 +97,10 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.content.length()").value(2))
                 .andExpect(jsonPath("$.content[0].order_id").value(1001))
                 .andExpect(jsonPath("$.content[0].status").value("completed"))
-                .andExpect(jsonPath("$.content[0].customer_name").value("John Doe"))
+                .andExpect(jsonPath("$.content[0].customer_name").doesNotExist())
+                .andExpect(jsonPath("$.customer_id").value(1))
+                .andExpect(jsonPath("$.customer_name").value("John Doe"))
+                .andExpect(jsonPath("$.customer_email").value("john@example.com"))
                 .andExpect(jsonPath("$.total_elements").value(2))
                 .andExpect(jsonPath("$.total_pages").value(1));
     }
@@ -76,6 +120,61 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.status").value(404));
     }
     
+    @Test
+    public void testGetOrdersByCustomerId_InvalidSize() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/customers/1/orders").param("size", "1000000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Page size must be between 1 and 100"));
+        
+        verify(orderService, never()).getOrdersByCustomerId(any(), anyInt(), anyInt());
+    }
+    
+    @Test
+    public void testGetOrdersByCustomerId_DeadlineExceeded() throws Exception {
+        // Arrange
+        when(orderService.getOrdersByCustomerId(eq(1), eq(0), eq(10)))
+                .thenThrow(new QueryTimeoutException("ERROR: canceling statement due to statement timeout"));
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/customers/1/orders").header("X-Request-Timeout-Ms", "50"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.error").value("Gateway Timeout"))
+                .andExpect(jsonPath("$.status").value(504));
+    }
+    
+    @Test
+    public void testGetOrdersByCustomerId_InvalidTimeoutHeader() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/customers/1/orders").header("X-Request-Timeout-Ms", "soon"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("X-Request-Timeout-Ms must be a positive number of milliseconds"));
+    }
+    
+    @Test
+    public void testStreamOrdersByCustomerId_StartsStream() throws Exception {
+        // Arrange
+        doAnswer(invocation -> invocation.<HttpServletRequest>getArgument(1).startAsync())
+                .when(orderStreamService).subscribe(eq(1), any(HttpServletRequest.class), any(HttpServletResponse.class));
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/customers/1/orders/stream")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+    }
+    
+    @Test
+    public void testStreamOrdersByCustomerId_CustomerNotFound() throws Exception {
+        // Arrange
+        doThrow(new CustomerNotFoundException("Customer not found with ID: 999"))
+                .when(orderStreamService).subscribe(eq(999), any(), any());
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/customers/999/orders/stream"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Customer Not Found"));
+    }
+    
     @Test
     public void testGetOrderByIdForCustomer_Success() throws Exception {
         // Arrange
@@ -95,6 +194,9 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.status").value("completed"))
                 .andExpect(jsonPath("$.customer_name").value("John Doe"))
                 .andExpect(jsonPath("$.customer_email").value("john@example.com"));
+        
+        verify(hotKeyService).recordCustomer(1);
+        verify(hotKeyService).recordOrder(1001);
     }
     
     @Test
@@ -147,8 +249,8 @@ public class OrderControllerTest {
     @Test
     public void testGetOrdersByCustomerId_EmptyResult() throws Exception {
         // Arrange
-        PagedResponse<OrderResponse> emptyResponse = new PagedResponse<>(
-                Arrays.asList(), 0, 10, 0L, 0, true, true);
+        CustomerOrdersResponse emptyResponse = new CustomerOrdersResponse(
+                Arrays.asList(), 0, 10, 0L, 0, true, true, 1, "John Doe", "john@example.com");
         
         when(orderService.getOrdersByCustomerId(eq(1), eq(0), eq(10)))
                 .thenReturn(emptyResponse);
@@ -162,4 +264,188 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.total_elements").value(0))
                 .andExpect(jsonPath("$.total_pages").value(0));
     }
+    
+    @Test
+    public void testGetOrders_FirstPage() throws Exception {
+        // Arrange
+        OrderResponse order = new OrderResponse(1001, 1, "Shipped", "M",
+                OffsetDateTime.now(), null, OffsetDateTime.now(), null, 2,
+                "John Doe", "john@example.com");
+        CursorPagedResponse<OrderResponse> page = new CursorPagedResponse<>(
+                Arrays.asList(order), 1, "next-token", true);
+        
+        when(orderService.getOrderFeed(any(OrderFilter.class), isNull(), eq(1)))
+                .thenReturn(page);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/orders")
+                .param("status", "shipped")
+                .param("delivered", "false")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.content[0].order_id").value(1001))
+                .andExpect(jsonPath("$.content[0].customer_name").value("John Doe"))
+                .andExpect(jsonPath("$.next_cursor").value("next-token"))
+                .andExpect(jsonPath("$.has_more").value(true));
+    }
+    
+    @Test
+    public void testGetOrders_InvalidCursor() throws Exception {
+        // Arrange
+        when(orderService.getOrderFeed(any(OrderFilter.class), eq("garbage"), eq(20)))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/orders").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Request"))
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+    
+    @Test
+    public void testGetOrders_InvalidSize() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/orders").param("size", "500"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Page size must be between 1 and 100"));
+    }
+    
+    @Test
+    public void testBulkCreateOrders_PartialFailure() throws Exception {
+        // Arrange
+        BulkOrderResponse response = new BulkOrderResponse(2, 1,
+                Arrays.asList(new BulkOrderError(1, 1002, "Customer not found with ID: 999")));
+        
+        when(orderService.bulkCreateOrders(any()))
+                .thenReturn(response);
+        
+        String body = "{\"orders\": ["
+                + "{\"order_id\": 1001, \"user_id\": 1, \"status\": \"Processing\", "
+                + "\"created_at\": \"2024-01-01T00:00:00Z\", \"num_of_item\": 1},"
+                + "{\"order_id\": 1002, \"user_id\": 999, \"status\": \"Processing\", "
+                + "\"created_at\": \"2024-01-01T00:00:00Z\", \"num_of_item\": 2}]}";
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/orders/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].order_id").value(1002));
+    }
+    
+    @Test
+    public void testBulkCreateOrders_MalformedBody() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/orders/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orders\": [{\"order_id\": \"abc\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Request Body"));
+    }
+    
+    @Test
+    public void testSubmitOrderEvents_Accepted() throws Exception {
+        // Arrange
+        when(orderEventIngestionService.submit(any()))
+                .thenReturn(new OrderEventAck(1, 17));
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/orders/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"events\": [{\"type\": \"status_changed\", \"order_id\": 1001, "
+                        + "\"status\": \"Shipped\", \"shipped_at\": \"2024-01-02T00:00:00Z\"}]}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.pending").value(17));
+    }
+    
+    @Test
+    public void testSubmitOrderEvents_BufferFull() throws Exception {
+        // Arrange
+        when(orderEventIngestionService.submit(any()))
+                .thenThrow(new IngestionBackpressureException("Order event buffer is full, retry shortly"));
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/orders/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"events\": [{\"type\": \"status_changed\", \"order_id\": 1001, "
+                        + "\"status\": \"Shipped\"}]}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("Too Many Requests"));
+    }
+    
+    @Test
+    public void testGetFulfillmentLatency_GroupedByMonth() throws Exception {
+        // Arrange
+        LatencyGroupResponse january = new LatencyGroupResponse("2023-01",
+                new LatencyPercentiles(120, 18.5, 40.2, 71.9),
+                new LatencyPercentiles(100, 52.0, 96.4, 150.3),
+                new LatencyPercentiles(0, null, null, null));
+        FulfillmentLatencyResponse response = new FulfillmentLatencyResponse(
+                "month", Arrays.asList(january), 120L, OffsetDateTime.now());
+        
+        when(fulfillmentLatencyService.getLatencyPercentiles(eq("month"), eq(YearMonth.of(2023, 1)),
+                isNull(), isNull(), eq("USA")))
+                .thenReturn(response);
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/orders/latency")
+                .param("from", "2023-01")
+                .param("country", "USA"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.group_by").value("month"))
+                .andExpect(jsonPath("$.groups[0].group").value("2023-01"))
+                .andExpect(jsonPath("$.groups[0].ship.p50_hours").value(18.5))
+                .andExpect(jsonPath("$.groups[0].delivery.count").value(100))
+                .andExpect(jsonPath("$.groups[0].return.count").value(0));
+    }
+    
+    @Test
+    public void testGetFulfillmentLatency_InvalidGroupBy() throws Exception {
+        // Arrange
+        when(fulfillmentLatencyService.getLatencyPercentiles(eq("city"), any(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("group_by must be one of: month, status, country"));
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/orders/latency").param("group_by", "city"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Invalid Request"));
+    }
+    
+    @Test
+    public void testExportOrders_Parquet() throws Exception {
+        // Arrange
+        when(columnarExportService.export(eq(ColumnarExportService.Table.ORDERS),
+                eq(ColumnarExportService.Format.PARQUET), any()))
+                .thenAnswer(invocation -> {
+                    ColumnarExportService.Target target = invocation.getArgument(2);
+                    OutputStream out = target.open();
+                    out.write("PAR1".getBytes(StandardCharsets.US_ASCII));
+                    return 1L;
+                });
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/orders/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.apache.parquet"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders.parquet\""))
+                .andExpect(content().string("PAR1"));
+    }
+    
+    @Test
+    public void testExportOrders_InvalidFormat() throws Exception {
+        mockMvc.perform(get("/api/orders/export").param("format", "csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("format must be one of: arrow, parquet"));
+        
+        verify(columnarExportService, never()).export(any(), any(), any());
+    }
 }
\ No newline at end of file
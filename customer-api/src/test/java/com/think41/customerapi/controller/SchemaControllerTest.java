@@ -0,0 +1,75 @@
+package com.think41.customerapi.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Protobuf field numbers follow each DTO's property order, so any change to a published schema
+ * must be deliberate. Every schema is compared with its recorded copy under
+ * src/test/resources/protobuf-schemas; after an intended change, such as a property added at the
+ * end, record them again with {@code -Dprotobuf.schemas.update=true}.
+ */
+@WebMvcTest(SchemaController.class)
+public class SchemaControllerTest {
+    
+    private static final Path RECORDED = Paths.get("src/test/resources/protobuf-schemas");
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Test
+    public void testListProtobufSchemas() throws Exception {
+        mockMvc.perform(get("/api/schemas/protobuf"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("customer"))
+                .andExpect(jsonPath("$.length()").value(SchemaController.PROTOBUF_TYPES.size()));
+    }
+    
+    @Test
+    public void testProtobufSchemasMatchRecordedCopies() throws Exception {
+        boolean update = Boolean.getBoolean("protobuf.schemas.update");
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : SchemaController.PROTOBUF_TYPES.entrySet()) {
+            String schema = mockMvc.perform(get("/api/schemas/protobuf/{name}", entry.getKey()))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                    .andReturn().getResponse().getContentAsString();
+            Path file = RECORDED.resolve(entry.getKey() + ".proto");
+            if (update) {
+                Files.createDirectories(RECORDED);
+                Files.writeString(file, schema);
+            } else if (!Files.exists(file) || !messages(Files.readString(file)).equals(messages(schema))) {
+                changed.add(entry.getKey());
+            }
+        }
+        assertTrue(changed.isEmpty(), "Protobuf schemas changed: " + changed
+                + "; existing field numbers must not move (see @JsonPropertyOrder on the DTOs)");
+    }
+    
+    // The generator lists nested messages in no fixed order, so compare the set of messages
+    private static Set<String> messages(String schema) {
+        return new TreeSet<>(Arrays.asList(schema.split("(?m)^(?=// Message for )")));
+    }
+    
+    @Test
+    public void testUnknownSchemaIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/schemas/protobuf/{name}", "nope"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,738 @@
+package com.think41.customerapi.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.think41.customerapi.dto.CustomerFilter;
+import com.think41.customerapi.dto.OrderFilter;
+import com.think41.customerapi.entity.Order;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs every UserRepository/OrderRepository query against a scaled dataset in a local Postgres
+ * and checks the EXPLAIN (ANALYZE, BUFFERS) plan of each statement Hibernate actually issued.
+ *
+ * A statement fails the suite when its plan contains a sequential scan on users/orders (or one of
+ * the monthly orders partitions), an
+ * explicit sort over more than a handful of rows, or reads more shared buffers than the
+ * recorded baseline allows. Enable with
+ * {@code mvn test -Pquery-plans}; refresh the baseline with {@code -Dplan.test.update-baseline=true}.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@EnabledIfSystemProperty(named = "plan.test.url", matches = ".+")
+public class QueryPlanRegressionTest {
+    
+    private static final String SCHEMA = "query_plans";
+    private static final Path BASELINE = Paths.get("src/test/resources/query-plans/baseline.properties");
+    private static final Set<String> TABLES = Set.of("users", "orders", "order_keys");
+    private static final Pattern ORDER_PARTITION = Pattern.compile("orders_\\d{4}_\\d{2}");
+    private static final int WHALE_CUSTOMER = 3;
+    private static final long MAX_SORT_ROWS = Long.getLong("plan.test.max-sort-rows", 1000);
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final List<CapturedStatement> CAPTURED = new CopyOnWriteArrayList<>();
+    private static final Properties BASELINE_BUFFERS = new Properties();
+    private static final TreeMap<String, Long> MEASURED_BUFFERS = new TreeMap<>();
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> jdbcUrl() + (jdbcUrl().contains("?") ? "&" : "?")
+                + "currentSchema=" + SCHEMA + ",public");
+        registry.add("spring.datasource.username", QueryPlanRegressionTest::username);
+        registry.add("spring.datasource.password", QueryPlanRegressionTest::password);
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+    
+    @BeforeAll
+    static void seedDatabase() throws Exception {
+        int users = Integer.getInteger("plan.test.users", 200_000);
+        int orders = Integer.getInteger("plan.test.orders", 1_000_000);
+        
+        try (Connection connection = rawConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path = " + SCHEMA + ", public");
+            
+            for (String ddl : splitStatements(Files.readString(Paths.get("../database/schema.sql")))) {
+                statement.execute(ddl);
+            }
+            String seed = resource("query-plans/seed.sql")
+                    .replace("${users}", String.valueOf(users))
+                    .replace("${orders}", String.valueOf(orders));
+            for (String insert : splitStatements(seed)) {
+                statement.execute(insert);
+            }
+            statement.execute("VACUUM ANALYZE users");
+            statement.execute("VACUUM ANALYZE orders");
+            statement.execute("VACUUM ANALYZE order_keys");
+        }
+        
+        if (Files.exists(BASELINE)) {
+            try (InputStream in = Files.newInputStream(BASELINE)) {
+                BASELINE_BUFFERS.load(in);
+            }
+        }
+    }
+    
+    @AfterAll
+    static void writeBaseline() throws IOException {
+        if (!Boolean.getBoolean("plan.test.update-baseline")) {
+            return;
+        }
+        StringBuilder baseline = new StringBuilder(
+                "# Shared buffers (hit + read) per statement; regenerate with -Dplan.test.update-baseline=true\n");
+        MEASURED_BUFFERS.forEach((key, value) -> baseline.append(key).append('=').append(value).append('\n'));
+        Files.writeString(BASELINE, baseline.toString());
+    }
+    
+    @BeforeEach
+    void clearCaptured() {
+        CAPTURED.clear();
+    }
+    
+    // UserRepository
+    
+    @Test
+    public void userFindById() throws Exception {
+        userRepository.findById(WHALE_CUSTOMER);
+        assertPlans("user.findById");
+    }
+    
+    @Test
+    public void userExistsById() throws Exception {
+        userRepository.existsById(WHALE_CUSTOMER);
+        assertPlans("user.existsById");
+    }
+    
+    @Test
+    public void userCount() throws Exception {
+        userRepository.count();
+        assertPlans("user.count");
+    }
+    
+    @Test
+    public void userCountOrdersByUserId() throws Exception {
+        userRepository.countOrdersByUserId(WHALE_CUSTOMER);
+        assertPlans("user.countOrdersByUserId");
+    }
+    
+    @Test
+    public void userFindUserWithOrderCountById() throws Exception {
+        userRepository.findUserWithOrderCountById(WHALE_CUSTOMER);
+        assertPlans("user.findUserWithOrderCountById");
+    }
+    
+    @Test
+    public void userFilterUnfiltered() throws Exception {
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(new CustomerFilter()), PageRequest.of(0, 20));
+        assertPlans("user.filter.unfiltered");
+    }
+    
+    @Test
+    public void userFilterDeepPage() throws Exception {
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(new CustomerFilter()), PageRequest.of(200, 20));
+        assertPlans("user.filter.deepPage");
+    }
+    
+    @Test
+    public void userFilterSearch() throws Exception {
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(new CustomerFilter("first1234", null)),
+                PageRequest.of(0, 20));
+        assertPlans("user.filter.search");
+    }
+    
+    @Test
+    public void userFilterCountry() throws Exception {
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(new CustomerFilter(null, "Germany")),
+                PageRequest.of(0, 20));
+        assertPlans("user.filter.country");
+    }
+    
+    @Test
+    public void userFilterCountryAndState() throws Exception {
+        CustomerFilter filter = new CustomerFilter(null, "Germany");
+        filter.setState("Bavaria");
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(filter), PageRequest.of(0, 20));
+        assertPlans("user.filter.countryState");
+    }
+    
+    @Test
+    public void userFilterCountryCreatedSorted() throws Exception {
+        CustomerFilter filter = new CustomerFilter(null, "Japan");
+        filter.setCreatedFrom(OffsetDateTime.parse("2019-06-01T00:00:00Z"));
+        filter.setCreatedTo(OffsetDateTime.parse("2019-09-01T00:00:00Z"));
+        filter.setSort("created_at");
+        filter.setDirection("desc");
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(filter), PageRequest.of(0, 20));
+        assertPlans("user.filter.countryCreatedSorted");
+    }
+    
+    @Test
+    public void userFilterTrafficSourceCreated() throws Exception {
+        CustomerFilter filter = new CustomerFilter();
+        filter.setTrafficSource("Email");
+        filter.setCreatedFrom(OffsetDateTime.parse("2019-06-01T00:00:00Z"));
+        filter.setCreatedTo(OffsetDateTime.parse("2019-07-01T00:00:00Z"));
+        filter.setSort("created_at");
+        userRepository.findUsersWithOrderCount(CustomerFilterQuery.of(filter), PageRequest.of(0, 20));
+        assertPlans("user.filter.trafficSourceCreated");
+    }
+    
+    @Test
+    public void userFindExistingIds() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            ids.add(id * 37);
+        }
+        userRepository.findExistingIds(ids);
+        assertPlans("user.findExistingIds");
+    }
+    
+    @Test
+    public void userFindUsersWithOrderCountAfter() throws Exception {
+        userRepository.findUsersWithOrderCountAfter(150_000, 5000);
+        assertPlans("user.findUsersWithOrderCountAfter");
+    }
+    
+    @Test
+    public void userFindUsersWithOrderCountByIds() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            ids.add(id * 397);
+        }
+        userRepository.findUsersWithOrderCountByIds(ids);
+        assertPlans("user.findUsersWithOrderCountByIds");
+    }
+    
+    @Test
+    public void userFindIdsAfter() throws Exception {
+        userRepository.findIdsAfter(150_000, 50_000);
+        assertPlans("user.findIdsAfter");
+    }
+    
+    @Test
+    public void userScanUsersWithOrderCount() throws Exception {
+        userRepository.scanUsersWithOrderCount(65_536, rs -> {});
+        assertPlans("user.scanUsersWithOrderCount", Set.of("users", "order_keys"));
+    }
+    
+    // OrderRepository
+    
+    @Test
+    public void orderFindById() throws Exception {
+        orderRepository.findById(424242);
+        assertPlans("order.findById");
+    }
+    
+    @Test
+    public void orderFindOrderWithUserByOrderId() throws Exception {
+        orderRepository.findOrderWithUserByOrderId(424242);
+        assertPlans("order.findOrderWithUserByOrderId");
+    }
+    
+    @Test
+    public void orderFindByUserId() throws Exception {
+        orderRepository.findByUserId(WHALE_CUSTOMER, PageRequest.of(0, 10));
+        assertPlans("order.findByUserId");
+    }
+    
+    @Test
+    public void orderFindRecentByUserId() throws Exception {
+        orderRepository.findRecentByUserId(WHALE_CUSTOMER, PageRequest.of(0, 5));
+        assertPlans("order.findRecentByUserId");
+    }
+    
+    @Test
+    public void orderFindRecentByUserIdDeepPage() throws Exception {
+        orderRepository.findRecentByUserId(WHALE_CUSTOMER, PageRequest.of(5, 100));
+        assertPlans("order.findRecentByUserId.deepPage");
+    }
+    
+    @Test
+    public void orderFindStatusSummaryByUserId() throws Exception {
+        orderRepository.findStatusSummaryByUserId(WHALE_CUSTOMER);
+        assertPlans("order.findStatusSummaryByUserId");
+    }
+    
+    @Test
+    public void orderExistsByOrderIdAndUserId() throws Exception {
+        orderRepository.existsByOrderIdAndUserId(424240, WHALE_CUSTOMER);
+        assertPlans("order.existsByOrderIdAndUserId");
+    }
+    
+    @Test
+    public void orderFindLifecycleChunk() throws Exception {
+        orderRepository.findLifecycleChunk(500_000, 5000);
+        assertPlans("order.findLifecycleChunk");
+    }
+    
+    @Test
+    public void orderFindLifecycleByIds() throws Exception {
+        List<Integer> orderIds = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            orderIds.add(i * 150);
+        }
+        orderRepository.findLifecycleByIds(orderIds);
+        assertPlans("order.findLifecycleByIds");
+    }
+    
+    @Test
+    public void orderFindOrderIdsAfter() throws Exception {
+        orderRepository.findOrderIdsAfter(500_000, 50_000);
+        assertPlans("order.findOrderIdsAfter");
+    }
+    
+    @Test
+    public void orderScanOrders() throws Exception {
+        orderRepository.scanOrders(65_536, rs -> {});
+        assertPlans("order.scanOrders", Set.of("orders"));
+    }
+    
+    @Test
+    public void orderFindByOrderIdsForUsers() throws Exception {
+        List<Integer> orderIds = new ArrayList<>();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 1; i <= 2000; i++) {
+            orderIds.add(i * 150);
+            userIds.add(i * 7);
+        }
+        orderRepository.findByOrderIdsForUsers(orderIds, userIds);
+        assertPlans("order.findByOrderIdsForUsers");
+    }
+    
+    // The JDBC queries ShardedOrderRepository runs on each shard
+    
+    @Test
+    public void orderFindPageByUserId() throws Exception {
+        orderRepository.findPageByUserId(WHALE_CUSTOMER, 0, 5);
+        assertPlans("order.findPageByUserId");
+    }
+    
+    @Test
+    public void orderFindPageByUserIdDeepPage() throws Exception {
+        orderRepository.findPageByUserId(WHALE_CUSTOMER, 500, 100);
+        assertPlans("order.findPageByUserId.deepPage");
+    }
+    
+    @Test
+    public void orderSummarizeByStatus() throws Exception {
+        orderRepository.summarizeByStatus(WHALE_CUSTOMER);
+        assertPlans("order.summarizeByStatus");
+    }
+    
+    @Test
+    public void orderExistsForUser() throws Exception {
+        orderRepository.existsForUser(424240, WHALE_CUSTOMER);
+        assertPlans("order.existsForUser");
+    }
+    
+    @Test
+    public void orderFindWithCustomerById() throws Exception {
+        orderRepository.findWithCustomerById(424242);
+        assertPlans("order.findWithCustomerById");
+    }
+    
+    @Test
+    public void orderFindExistingOrderIds() throws Exception {
+        List<Integer> orderIds = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            orderIds.add(i * 150);
+        }
+        orderRepository.findExistingOrderIds(orderIds);
+        assertPlans("order.findExistingOrderIds");
+    }
+    
+    @Test
+    public void orderFeedFirstPage() throws Exception {
+        orderRepository.findOrderFeed(OrderFeedQuery.of(new OrderFilter(), null, 21));
+        assertPlans("order.feed.firstPage");
+    }
+    
+    @Test
+    public void orderFeedDeepCursor() throws Exception {
+        orderRepository.findOrderFeed(OrderFeedQuery.of(new OrderFilter(), feedCursor(500_000), 21));
+        assertPlans("order.feed.deepCursor");
+    }
+    
+    @Test
+    public void orderFeedStatusCreatedRange() throws Exception {
+        OrderFilter filter = new OrderFilter("shipped");
+        filter.setCreatedFrom(OffsetDateTime.parse("2020-01-01T00:00:00Z"));
+        filter.setCreatedTo(OffsetDateTime.parse("2021-01-01T00:00:00Z"));
+        orderRepository.findOrderFeed(OrderFeedQuery.of(filter, feedCursor(300_000), 21));
+        assertPlans("order.feed.statusCreatedRange");
+    }
+    
+    @Test
+    public void orderFeedCreatedRangePrunesPartitions() throws Exception {
+        OrderFilter filter = new OrderFilter();
+        filter.setCreatedFrom(OffsetDateTime.parse("2020-03-01T00:00:00Z"));
+        filter.setCreatedTo(OffsetDateTime.parse("2020-03-20T00:00:00Z"));
+        orderRepository.findOrderFeed(OrderFeedQuery.of(filter, null, 21));
+        List<JsonNode> plans = assertPlans("order.feed.createdRange");
+        int scanned = scannedPartitions(plans.get(0)).size();
+        assertTrue(scanned == 1, "order.feed.createdRange: expected one orders partition to be scanned, got " + scanned);
+    }
+    
+    @Test
+    public void orderFeedUnshipped() throws Exception {
+        OrderFilter filter = new OrderFilter();
+        filter.setShipped(false);
+        orderRepository.findOrderFeed(OrderFeedQuery.of(filter, feedCursor(700_000), 21));
+        assertPlans("order.feed.unshipped");
+    }
+    
+    @Test
+    public void orderFeedUndelivered() throws Exception {
+        OrderFilter filter = new OrderFilter();
+        filter.setDelivered(false);
+        orderRepository.findOrderFeed(OrderFeedQuery.of(filter, null, 21));
+        assertPlans("order.feed.undelivered");
+    }
+    
+    // Writes
+    
+    @Test
+    public void orderInsertIgnoringExistingSkipsIdInsertedConcurrently() throws Exception {
+        int orderId = 5_000_001;
+        try (Connection other = rawConnection(); Statement statement = other.createStatement()) {
+            statement.execute("SET search_path = " + SCHEMA + ", public");
+            other.setAutoCommit(false);
+            statement.execute("INSERT INTO orders (order_id, user_id, status, created_at, num_of_item) " +
+                    "VALUES (" + orderId + ", 1, 'Processing', '2020-03-15T00:00:00Z', 1)");
+            
+            // Same ID with another created_at, so the primary key of orders cannot tell it is taken
+            Order order = new Order(orderId, 2, "Processing", "M", OffsetDateTime.parse("2020-04-15T00:00:00Z"),
+                    null, null, null, 1);
+            CompletableFuture<Set<Integer>> inserted = CompletableFuture.supplyAsync(
+                    () -> orderRepository.insertIgnoringExisting(List.of(order)));
+            awaitBlockedStatement();
+            other.commit();
+            
+            assertEquals(Set.of(), inserted.get(30, TimeUnit.SECONDS));
+        } finally {
+            try (Connection connection = rawConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("SET search_path = " + SCHEMA + ", public");
+                statement.execute("DELETE FROM orders WHERE order_id = " + orderId);
+            }
+        }
+    }
+    
+    /**
+     * Wait until some statement is waiting on a lock, as the concurrent insert does on the ID
+     */
+    private static void awaitBlockedStatement() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        try (Connection connection = rawConnection(); Statement statement = connection.createStatement()) {
+            while (System.currentTimeMillis() < deadline) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM pg_locks WHERE NOT granted")) {
+                    resultSet.next();
+                    if (resultSet.getLong(1) > 0) {
+                        return;
+                    }
+                }
+                Thread.sleep(20);
+            }
+        }
+        fail("The concurrent insert never waited on the uncommitted order");
+    }
+    
+    /**
+     * Cursor positioned at a seeded order, whose created_at is 3 minutes per order ID after 2019-01-01
+     */
+    private static OrderFeedCursor feedCursor(int orderId) {
+        return new OrderFeedCursor(Instant.parse("2019-01-01T00:00:00Z").plus(Duration.ofMinutes(3L * orderId)), orderId);
+    }
+    
+    /**
+     * EXPLAIN every captured SELECT and fail on seq scans, sorts or buffer regressions; returns the plans
+     */
+    private List<JsonNode> assertPlans(String name) throws Exception {
+        return assertPlans(name, Set.of());
+    }
+    
+    /**
+     * As assertPlans(name), but sequential scans of the given tables are expected, as for exports
+     * that read a whole table
+     */
+    private List<JsonNode> assertPlans(String name, Set<String> fullScans) throws Exception {
+        List<CapturedStatement> statements = new ArrayList<>();
+        for (CapturedStatement captured : CAPTURED) {
+            if (captured.sql.trim().toLowerCase(Locale.ROOT).startsWith("select")) {
+                statements.add(captured);
+            }
+        }
+        if (statements.isEmpty()) {
+            fail(name + ": no SELECT statement was issued");
+        }
+        
+        double tolerance = Double.parseDouble(System.getProperty("plan.test.buffer-tolerance", "0.25"));
+        List<String> problems = new ArrayList<>();
+        List<JsonNode> plans = new ArrayList<>();
+        try (Connection connection = rawConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET search_path = " + SCHEMA + ", public");
+            }
+            for (int i = 0; i < statements.size(); i++) {
+                String key = name + "." + i;
+                CapturedStatement captured = statements.get(i);
+                JsonNode plan = explain(connection, captured).get(0).get("Plan");
+                plans.add(plan);
+                
+                collectPlanProblems(plan, key, fullScans, problems);
+                
+                long buffers = plan.path("Shared Hit Blocks").asLong() + plan.path("Shared Read Blocks").asLong();
+                MEASURED_BUFFERS.put(key, buffers);
+                String baseline = BASELINE_BUFFERS.getProperty(key);
+                if (baseline == null) {
+                    if (!Boolean.getBoolean("plan.test.update-baseline")) {
+                        problems.add(key + ": no buffer baseline recorded (measured " + buffers + ")");
+                    }
+                } else if (buffers > Math.ceil(Long.parseLong(baseline) * (1 + tolerance)) + 2) {
+                    problems.add(key + ": shared buffers regressed from " + baseline + " to " + buffers);
+                }
+                if (!problems.isEmpty()) {
+                    problems.add("  SQL: " + captured.sql);
+                }
+            }
+        }
+        
+        if (!problems.isEmpty()) {
+            fail(String.join("\n", problems));
+        }
+        return plans;
+    }
+    
+    /**
+     * Names of the orders partitions the plan actually read from
+     */
+    private static Set<String> scannedPartitions(JsonNode node) {
+        Set<String> partitions = new TreeSet<>();
+        String relation = node.path("Relation Name").asText("");
+        if (ORDER_PARTITION.matcher(relation).matches() && node.path("Actual Loops").asLong() > 0) {
+            partitions.add(relation);
+        }
+        for (JsonNode child : node.path("Plans")) {
+            partitions.addAll(scannedPartitions(child));
+        }
+        return partitions;
+    }
+    
+    private static void collectPlanProblems(JsonNode node, String key, Set<String> fullScans, List<String> problems) {
+        String nodeType = node.path("Node Type").asText();
+        String relation = node.path("Relation Name").asText("");
+        String table = ORDER_PARTITION.matcher(relation).matches() ? "orders" : relation;
+        long blocks = node.path("Shared Hit Blocks").asLong() + node.path("Shared Read Blocks").asLong();
+        // Partitions for the months ahead are empty, and scanning them reads nothing
+        if (nodeType.equals("Seq Scan") && TABLES.contains(table) && !fullScans.contains(table) && blocks > 0) {
+            problems.add(key + ": sequential scan on " + relation);
+        }
+        if (nodeType.equals("Sort") || nodeType.equals("Incremental Sort")) {
+            // Ordering a handful of index-matched rows is fine; sorting a large input is not
+            JsonNode input = node.path("Plans").path(0);
+            long sortedRows = input.path("Actual Rows").asLong() * Math.max(1, input.path("Actual Loops").asLong());
+            if (sortedRows > MAX_SORT_ROWS || node.path("Sort Space Type").asText().equals("Disk")) {
+                problems.add(key + ": explicit sort of " + sortedRows + " rows on " + node.path("Sort Key"));
+            }
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectPlanProblems(child, key, fullScans, problems);
+        }
+    }
+    
+    private static JsonNode explain(Connection connection, CapturedStatement captured) throws Exception {
+        try (PreparedStatement explain = connection.prepareStatement(
+                "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + captured.sql)) {
+            for (Binding binding : captured.bindings) {
+                binding.method.invoke(explain, binding.args);
+            }
+            try (ResultSet resultSet = explain.executeQuery()) {
+                resultSet.next();
+                return MAPPER.readTree(resultSet.getString(1));
+            }
+        }
+    }
+    
+    private static List<String> splitStatements(String script) {
+        StringBuilder cleaned = new StringBuilder();
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            // Skip psql meta-commands such as \c and comment-only lines
+            if (trimmed.startsWith("\\") || trimmed.startsWith("--")) {
+                continue;
+            }
+            cleaned.append(line).append('\n');
+        }
+        // Split on semicolons that end a line, except inside $$-quoted function bodies
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inDollarQuote = false;
+        String text = cleaned.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '$' && i + 1 < text.length() && text.charAt(i + 1) == '$') {
+                inDollarQuote = !inDollarQuote;
+                current.append("$$");
+                i++;
+                continue;
+            }
+            if (c == ';' && !inDollarQuote && (i + 1 == text.length() || text.charAt(i + 1) == '\n')) {
+                addStatement(statements, current);
+                continue;
+            }
+            current.append(c);
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+    
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String trimmed = current.toString().trim();
+        if (!trimmed.isEmpty()) {
+            statements.add(trimmed);
+        }
+        current.setLength(0);
+    }
+    
+    private static String resource(String name) throws IOException {
+        try (InputStream in = QueryPlanRegressionTest.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing test resource " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+    
+    private static Connection rawConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl(), username(), password());
+    }
+    
+    private static String jdbcUrl() {
+        return System.getProperty("plan.test.url");
+    }
+    
+    private static String username() {
+        return System.getProperty("plan.test.username", "postgres");
+    }
+    
+    private static String password() {
+        return System.getProperty("plan.test.password", "password");
+    }
+    
+    @TestConfiguration
+    static class CaptureConfig {
+        
+        @Bean
+        static BeanPostProcessor capturingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? capturing(dataSource) : bean;
+                }
+            };
+        }
+    }
+    
+    private record Binding(Method method, Object[] args) {}
+    
+    private record CapturedStatement(String sql, List<Binding> bindings) {}
+    
+    /**
+     * Wrap a DataSource so every prepared statement's SQL and parameter setters are recorded
+     */
+    private static DataSource capturing(DataSource target) {
+        return proxy(DataSource.class, target, (method, args, result) ->
+                method.getName().equals("getConnection") ? proxy(Connection.class, result, (m, a, r) ->
+                        m.getName().equals("prepareStatement") ? capturingStatement((String) a[0], (PreparedStatement) r) : r)
+                        : result);
+    }
+    
+    private static PreparedStatement capturingStatement(String sql, PreparedStatement target) {
+        List<Binding> bindings = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(QueryPlanRegressionTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    String methodName = method.getName();
+                    if (methodName.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        bindings.add(new Binding(method, Arrays.copyOf(args, args.length)));
+                    } else if (methodName.equals("clearParameters")) {
+                        bindings.clear();
+                    } else if (methodName.startsWith("execute")) {
+                        CAPTURED.add(new CapturedStatement(sql, new ArrayList<>(bindings)));
+                    }
+                    return invoke(method, target, args);
+                });
+    }
+    
+    private interface ResultMapper {
+        Object map(Method method, Object[] args, Object result) throws Throwable;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, ResultMapper mapper) {
+        return (T) Proxy.newProxyInstance(QueryPlanRegressionTest.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> mapper.map(method, args, invoke(method, target, args)));
+    }
+    
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
\ No newline at end of file
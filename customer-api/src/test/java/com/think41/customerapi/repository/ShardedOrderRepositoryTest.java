@@ -0,0 +1,115 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.dto.OrderFilter;
+import com.think41.customerapi.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ShardedOrderRepositoryTest {
+    
+    // Customers 1 and 3 live on shard 0, customer 2 on shard 1
+    private final Shards shards = mock(Shards.class);
+    private final OrderRepositoryImpl shard0 = mock(OrderRepositoryImpl.class);
+    private final OrderRepositoryImpl shard1 = mock(OrderRepositoryImpl.class);
+    private ShardedOrderRepository repository;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        when(shards.size()).thenReturn(2);
+        when(shards.shardOf(anyInt())).thenAnswer(invocation -> (Integer) invocation.getArgument(0) == 2 ? 1 : 0);
+        when(shards.scatter(any())).thenAnswer(invocation -> {
+            Function<Integer, Object> query = invocation.getArgument(0);
+            return List.of(query.apply(0), query.apply(1));
+        });
+        TransactionTemplate transaction = mock(TransactionTemplate.class);
+        when(transaction.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        when(shards.transaction(anyInt())).thenReturn(transaction);
+        
+        repository = new ShardedOrderRepository();
+        ReflectionTestUtils.setField(repository, "shards", shards);
+        ReflectionTestUtils.setField(repository, "repositories", List.of(shard0, shard1));
+    }
+    
+    @Test
+    public void testInsertSkipsIdsAnyShardHoldsAndRoutesTheRestByCustomer() {
+        Order taken = order(10, 1);
+        Order forShard0 = order(11, 3);
+        Order forShard1 = order(12, 2);
+        when(shard1.findExistingOrderIds(any())).thenReturn(Set.of(10));
+        when(shard0.insertIgnoringExisting(List.of(forShard0))).thenReturn(Set.of(11));
+        when(shard1.insertIgnoringExisting(List.of(forShard1))).thenReturn(Set.of(12));
+        
+        assertEquals(Set.of(11, 12), repository.insertIgnoringExisting(List.of(taken, forShard0, forShard1)));
+    }
+    
+    @Test
+    public void testUpsertDeletesTheOrderFromOtherShardsAndChangesApplyEverywhere() {
+        Order moved = order(20, 2);
+        Order change = new Order(21, null, "Shipped", null, null, null, null, null, null);
+        when(shard0.applyStatusChanges(List.of(change))).thenReturn(Set.of(21));
+        when(shard1.applyStatusChanges(List.of(change))).thenReturn(Set.of());
+        
+        assertEquals(Set.of(21), repository.upsertAndApplyStatusChanges(List.of(moved), List.of(change)));
+        verify(shard0).deleteByOrderIds(Set.of(20));
+        verify(shard0).upsertAll(List.of());
+        verify(shard1).deleteByOrderIds(Set.of());
+        verify(shard1).upsertAll(List.of(moved));
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFeedMergesShardPagesNewestFirst() {
+        NamedParameterJdbcTemplate template0 = mock(NamedParameterJdbcTemplate.class);
+        NamedParameterJdbcTemplate template1 = mock(NamedParameterJdbcTemplate.class);
+        when(shards.template(0)).thenReturn(template0);
+        when(shards.template(1)).thenReturn(template1);
+        when(template0.query(anyString(), anyMap(), any(RowMapper.class)))
+                .thenReturn(List.of(feedRow(5, "2024-01-03T00:00:00Z"), feedRow(3, "2024-01-01T00:00:00Z")));
+        when(template1.query(anyString(), anyMap(), any(RowMapper.class)))
+                .thenReturn(List.of(feedRow(4, "2024-01-03T00:00:00Z"), feedRow(6, "2024-01-02T00:00:00Z")));
+        
+        OrderFeedQuery query = OrderFeedQuery.of(new OrderFilter(), null, 3);
+        List<Integer> ids = new ArrayList<>();
+        repository.findOrderFeed(query).forEach(row -> ids.add((Integer) row[0]));
+        // Same created_at breaks ties on order_id, descending
+        assertEquals(List.of(5, 4, 6), ids);
+        verify(shard0, never()).findWithCustomerById(anyInt());
+    }
+    
+    private static Order order(int orderId, int userId) {
+        return new Order(orderId, userId, "Processing", "F", OffsetDateTime.parse("2024-01-01T00:00:00Z"),
+                null, null, null, 1);
+    }
+    
+    private static Object[] feedRow(int orderId, String createdAt) {
+        Object[] row = new Object[12];
+        row[0] = orderId;
+        row[4] = Timestamp.from(Instant.parse(createdAt));
+        return row;
+    }
+}
\ No newline at end of file
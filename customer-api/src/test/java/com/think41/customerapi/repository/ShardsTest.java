@@ -0,0 +1,78 @@
+package com.think41.customerapi.repository;
+
+import com.think41.customerapi.dto.CustomerFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardsTest {
+    
+    // In the order Postgres returns them with ORDER BY first_name COLLATE "C"; checked against a
+    // UTF8 database, where en-x-icu gives 1, 5, 7, 9, 8, 4, 3, 2, 6 instead
+    private static final List<String> NAMES_IN_C_ORDER = List.of(
+            "Adam", "Zoe", "adam", "zoë", "Ådne", "Émile", "émile", "Ａlpha", "𝒜lpha");
+    
+    @Test
+    public void testMergeOrdersMixedCaseAndAccentedNamesByCodePoint() {
+        CustomerFilterQuery query = query("first_name", "asc");
+        
+        List<String> merged = firstNames(Shards.merge(split(query.getRowOrder(), 3), query.getRowOrder(), 0, 100));
+        assertEquals(NAMES_IN_C_ORDER, merged);
+    }
+    
+    @Test
+    public void testMergeDescendingAndFromAnOffset() {
+        CustomerFilterQuery query = query("first_name", "desc");
+        
+        List<String> merged = firstNames(Shards.merge(split(query.getRowOrder(), 3), query.getRowOrder(), 2, 4));
+        List<String> expected = new ArrayList<>(NAMES_IN_C_ORDER);
+        Collections.reverse(expected);
+        assertEquals(expected.subList(2, 6), merged);
+    }
+    
+    @Test
+    public void testNameSortsUseTheCCollation() {
+        assertTrue(query("first_name", "asc").getSelectSql().endsWith(" ORDER BY (u.first_name) COLLATE \"C\" ASC, u.id ASC"));
+        assertTrue(query("last_name", "desc").getSelectSql().endsWith(" ORDER BY (u.last_name) COLLATE \"C\" DESC, u.id DESC"));
+        assertTrue(query("age", "asc").getSelectSql().endsWith(" ORDER BY u.age ASC, u.id ASC"));
+    }
+    
+    private static CustomerFilterQuery query(String sort, String direction) {
+        CustomerFilter filter = new CustomerFilter();
+        filter.setSort(sort);
+        filter.setDirection(direction);
+        return CustomerFilterQuery.of(filter);
+    }
+    
+    /**
+     * The test users placed on shards by Shards.shardOf, each shard's rows sorted as
+     * that shard's database would return them
+     */
+    private static List<List<Object[]>> split(Comparator<Object[]> order, int shardCount) {
+        List<List<Object[]>> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+        // Ids run against the name order so the tie breaker cannot produce it by accident
+        for (int i = 0; i < NAMES_IN_C_ORDER.size(); i++) {
+            int id = 1000 - i * 7;
+            Object[] row = new Object[16];
+            row[0] = id;
+            row[1] = NAMES_IN_C_ORDER.get(i);
+            shards.get(Shards.shardOf(id, shardCount)).add(row);
+        }
+        shards.forEach(rows -> rows.sort(order));
+        return shards;
+    }
+    
+    private static List<String> firstNames(List<Object[]> rows) {
+        return rows.stream().map(row -> (String) row[1]).toList();
+    }
+}
+    
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CustomerSnapshotServiceTest {
+    
+    @TempDir
+    Path snapshotDir;
+    
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final DatabaseChangeListener listener = mock(DatabaseChangeListener.class);
+    private CustomerSnapshotService service;
+    
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        ObjectProvider<DatabaseChangeListener> changeListener = mock(ObjectProvider.class);
+        when(changeListener.getIfAvailable()).thenReturn(listener);
+        when(listener.isListening()).thenReturn(true);
+        when(userRepository.findUsersWithOrderCountAfter(eq(-1), anyInt())).thenReturn(List.<Object[]>of(row(1, "Ada")));
+        
+        service = new CustomerSnapshotService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "changeListener", changeListener);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "directory", snapshotDir.toString());
+        ReflectionTestUtils.setField(service, "maxId", 1000);
+        ReflectionTestUtils.setField(service, "scanChunkSize", 100);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 50L);
+        service.start();
+        service.onResync();
+        await(service::isServing);
+    }
+    
+    @AfterEach
+    public void tearDown() throws Exception {
+        service.stop();
+    }
+    
+    @Test
+    public void testLookupsUseTheDatabaseWhileTheListenerIsDown() {
+        assertTrue(service.covers(1));
+        
+        when(listener.isListening()).thenReturn(false);
+        assertFalse(service.covers(1));
+        
+        when(listener.isListening()).thenReturn(true);
+        assertTrue(service.covers(1));
+    }
+    
+    @Test
+    public void testFailedReloadIsRetriedAndServedFromTheDatabaseMeanwhile() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        when(userRepository.findUsersWithOrderCountByIds(any())).thenAnswer(invocation -> {
+            if (failing.get()) {
+                throw new QueryTimeoutException("timed out");
+            }
+            return List.<Object[]>of(row(1, "Grace"));
+        });
+        
+        service.onChanged("users", Set.of(1));
+        await(() -> !service.covers(1));
+        // Still out of date after several retries
+        Thread.sleep(200);
+        assertFalse(service.covers(1));
+        
+        failing.set(false);
+        await(() -> service.covers(1));
+        assertEquals("Grace", service.find(1).getFirstName());
+    }
+    
+    private static Object[] row(int id, String firstName) {
+        return new Object[] {
+            id, firstName, "Lovelace", firstName.toLowerCase() + "@example.com", 36, "F", "CA",
+            "1 Main St", "94000", "San Francisco", "United States", null, null, "Search",
+            new Timestamp(0), 2L
+        };
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting");
+            Thread.sleep(10);
+        }
+    }
+}
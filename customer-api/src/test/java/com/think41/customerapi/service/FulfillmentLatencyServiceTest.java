@@ -0,0 +1,158 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.FulfillmentLatencyResponse;
+import com.think41.customerapi.dto.LatencyGroupResponse;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FulfillmentLatencyServiceTest {
+    
+    private static final OffsetDateTime CREATED = OffsetDateTime.of(2024, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private FulfillmentLatencyService service;
+    
+    @BeforeEach
+    public void setUp() {
+        service = new FulfillmentLatencyService();
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "shardedOrders", mock(ShardedOrderRepository.class));
+        ReflectionTestUtils.setField(service, "scanChunkSize", 2);
+        
+        when(orderRepository.findLifecycleChunk(0, 2)).thenReturn(List.<Object[]>of(
+                row(10, "Shipped", 24, null), row(20, "Processing", null, null)));
+        when(orderRepository.findLifecycleChunk(20, 2)).thenReturn(List.<Object[]>of());
+        // The first refresh builds the sketches from a full scan
+        service.refresh();
+    }
+    
+    @Test
+    public void testFirstRefreshScansEveryOrder() {
+        FulfillmentLatencyResponse response = latencyByStatus();
+        
+        assertEquals(2, response.getOrdersIndexed());
+        assertEquals(Set.of("processing", "shipped"), groups(response));
+        assertEquals(1, group(response, "shipped").getShip().getCount());
+        assertEquals(24.0, group(response, "shipped").getShip().getP50Hours());
+    }
+    
+    @Test
+    public void testOrderInsertedBelowTheLastIdIsPickedUp() {
+        // Ingested later with a lower id than any order scanned so far
+        when(orderRepository.findLifecycleByIds(List.of(5))).thenReturn(List.<Object[]>of(row(5, "Shipped", 48, null)));
+        
+        service.onChanged("orders", Set.of(5));
+        service.refresh();
+        
+        FulfillmentLatencyResponse response = latencyByStatus();
+        assertEquals(3, response.getOrdersIndexed());
+        assertEquals(2, group(response, "shipped").getShip().getCount());
+    }
+    
+    @Test
+    public void testStatusChangeMovesTheOrder() {
+        when(orderRepository.findLifecycleByIds(List.of(20))).thenReturn(List.<Object[]>of(row(20, "Complete", 12, 36)));
+        
+        service.onChanged("orders", Set.of(20));
+        service.refresh();
+        
+        FulfillmentLatencyResponse response = latencyByStatus();
+        assertEquals(2, response.getOrdersIndexed());
+        // The processing group had only this order, so it is gone
+        assertEquals(Set.of("complete", "shipped"), groups(response));
+        assertEquals(12.0, group(response, "complete").getShip().getP50Hours());
+        assertEquals(24.0, group(response, "complete").getDelivery().getP50Hours());
+    }
+    
+    @Test
+    public void testDeletedOrderIsTakenOut() {
+        when(orderRepository.findLifecycleByIds(List.of(10))).thenReturn(List.<Object[]>of());
+        
+        service.onChanged("orders", Set.of(10));
+        service.refresh();
+        
+        FulfillmentLatencyResponse response = latencyByStatus();
+        assertEquals(1, response.getOrdersIndexed());
+        assertEquals(Set.of("processing"), groups(response));
+    }
+    
+    @Test
+    public void testFailedRefreshIsRetried() {
+        when(orderRepository.findLifecycleByIds(List.of(5)))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(List.<Object[]>of(row(5, "Shipped", 48, null)));
+        
+        service.onChanged("orders", Set.of(5));
+        service.refresh();
+        service.refresh();
+        
+        assertEquals(3, latencyByStatus().getOrdersIndexed());
+    }
+    
+    @Test
+    public void testUserChangesAreIgnoredAndResyncRebuilds() {
+        service.onChanged("users", Set.of(1));
+        service.refresh();
+        verify(orderRepository, never()).findLifecycleByIds(anyList());
+        
+        service.onResync();
+        service.refresh();
+        verify(orderRepository, times(2)).findLifecycleChunk(eq(0), anyInt());
+    }
+    
+    @Test
+    public void testEmptyLatenciesAreNull() {
+        LatencyGroupResponse processing = group(latencyByStatus(), "processing");
+        
+        assertEquals(0, processing.getShip().getCount());
+        assertNull(processing.getShip().getP50Hours());
+    }
+    
+    private FulfillmentLatencyResponse latencyByStatus() {
+        return service.getLatencyPercentiles("status", null, null, null, null);
+    }
+    
+    private static Set<String> groups(FulfillmentLatencyResponse response) {
+        return response.getGroups().stream().map(LatencyGroupResponse::getGroup).collect(Collectors.toSet());
+    }
+    
+    private static LatencyGroupResponse group(FulfillmentLatencyResponse response, String name) {
+        return response.getGroups().stream().filter(group -> group.getGroup().equals(name)).findFirst().orElseThrow();
+    }
+    
+    /**
+     * A findLifecycleChunk row, shipped and delivered the given number of hours after creation
+     */
+    private static Object[] row(int orderId, String status, Integer shippedAfterHours, Integer deliveredAfterHours) {
+        return new Object[] {
+                orderId,
+                status,
+                CREATED,
+                shippedAfterHours != null ? CREATED.plusHours(shippedAfterHours) : null,
+                deliveredAfterHours != null ? CREATED.plusHours(deliveredAfterHours) : null,
+                null,
+                "Japan"
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.HotKey;
+import com.think41.customerapi.dto.HotKeyGroup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HotKeyServiceTest {
+    
+    private HotKeyService service;
+    
+    @BeforeEach
+    public void setUp() {
+        service = new HotKeyService();
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "width", 4096);
+        ReflectionTestUtils.setField(service, "depth", 4);
+        ReflectionTestUtils.setField(service, "sliceCount", 3);
+        ReflectionTestUtils.setField(service, "sliceSeconds", 60L);
+        ReflectionTestUtils.setField(service, "topK", 2);
+        ReflectionTestUtils.setField(service, "maxTermLength", 64);
+        service.init();
+    }
+    
+    @Test
+    public void testCountsAreUpperBoundsOfTheTrueCounts() {
+        // Many more distinct keys than a narrow sketch has counters, so estimates include collisions
+        ReflectionTestUtils.setField(service, "width", 16);
+        ReflectionTestUtils.setField(service, "topK", 50);
+        service.init();
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (int id = 1; id <= 200; id++) {
+            int times = id <= 5 ? 100 : 1;
+            counts.put(id, times);
+            for (int i = 0; i < times; i++) {
+                service.recordCustomer(id);
+            }
+        }
+        
+        HotKeyGroup customers = service.getHotKeys(50).getCustomers();
+        assertEquals(695, customers.getRequests());
+        boolean overestimated = false;
+        for (HotKey key : customers.getKeys()) {
+            int actual = counts.get(Integer.parseInt(key.getKey()));
+            assertTrue(key.getCount() >= actual, key.getKey() + " counted " + key.getCount() + " of " + actual);
+            assertTrue(key.getCount() <= customers.getRequests());
+            overestimated |= key.getCount() > actual;
+        }
+        assertTrue(overestimated, "expected collisions in a 16-wide sketch");
+        // Every hot key is listed; a cold key that shares all its counters with one can be too
+        assertTrue(keys(customers).containsAll(List.of("1", "2", "3", "4", "5")));
+    }
+    
+    @Test
+    public void testAdvanceDropsCountsOnceTheyLeaveTheWindow() {
+        for (int i = 0; i < 5; i++) {
+            service.recordCustomer(42);
+        }
+        service.advance();
+        service.recordCustomer(42);
+        service.advance();
+        
+        // Three slices: both recorded slices are still in the window
+        assertEquals(List.of(6L), counts(service.getHotKeys(10).getCustomers()));
+        
+        service.advance();
+        // The first slice was cleared for reuse
+        assertEquals(1, service.getHotKeys(10).getCustomers().getRequests());
+        assertEquals(List.of(1L), counts(service.getHotKeys(10).getCustomers()));
+        
+        service.advance();
+        HotKeyGroup customers = service.getHotKeys(10).getCustomers();
+        assertEquals(0, customers.getRequests());
+        assertEquals(List.of(), customers.getKeys());
+    }
+    
+    @Test
+    public void testHotterKeyReplacesTheColdestCandidate() {
+        for (int i = 0; i < 3; i++) {
+            service.recordOrder(1);
+        }
+        service.recordOrder(2);
+        
+        // Ties do not replace a candidate
+        service.recordOrder(3);
+        assertEquals(List.of("1", "2"), keys(service.getHotKeys(10).getOrders()));
+        
+        service.recordOrder(3);
+        assertEquals(List.of("1", "3"), keys(service.getHotKeys(10).getOrders()));
+        assertEquals(List.of(3L, 2L), counts(service.getHotKeys(10).getOrders()));
+    }
+    
+    @Test
+    public void testSearchTermsAreNormalizedAndResetForgetsEverything() {
+        service.recordSearchTerm("  John ");
+        service.recordSearchTerm("JOHN");
+        service.recordSearchTerm(" ");
+        assertEquals(List.of("john"), keys(service.getHotKeys(10).getSearchTerms()));
+        assertEquals(List.of(2L), counts(service.getHotKeys(10).getSearchTerms()));
+        
+        service.reset();
+        assertEquals(0, service.getHotKeys(10).getSearchTerms().getRequests());
+        assertEquals(List.of(), service.getHotKeys(10).getSearchTerms().getKeys());
+    }
+    
+    private static List<String> keys(HotKeyGroup group) {
+        return group.getKeys().stream().map(HotKey::getKey).toList();
+    }
+    
+    private static List<Long> counts(HotKeyGroup group) {
+        return group.getKeys().stream().map(HotKey::getCount).toList();
+    }
+}
\ No newline at end of file
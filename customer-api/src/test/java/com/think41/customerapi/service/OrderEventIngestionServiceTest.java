@@ -0,0 +1,223 @@
+package com.think41.customerapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.think41.customerapi.dto.OrderEvent;
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import com.think41.customerapi.repository.ShardedUserRepository;
+import com.think41.customerapi.repository.UserRepository;
+import com.think41.customerapi.util.AppendOnlyLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderEventIngestionServiceTest {
+    
+    private static final int POISON_ORDER = 13;
+    
+    @TempDir
+    Path logDir;
+    
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final OrderPartitionService orderPartitionService = mock(OrderPartitionService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Integer> written = new CopyOnWriteArrayList<>();
+    private OrderEventIngestionService service;
+    
+    @BeforeEach
+    public void setUp() {
+        when(userRepository.findExistingIds(any())).thenAnswer(invocation -> new HashSet<>(invocation.<Collection<Integer>>getArgument(0)));
+        service = newService();
+    }
+    
+    @AfterEach
+    public void tearDown() throws Exception {
+        service.stop();
+    }
+    
+    @Test
+    public void testPoisonEventIsDeadLetteredAndTheRestWritten() throws Exception {
+        when(orderRepository.upsertAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            if (orders.stream().anyMatch(order -> order.getOrderId() == POISON_ORDER)) {
+                throw new DataIntegrityViolationException("value too long for type character varying(50)");
+            }
+            orders.forEach(order -> written.add(order.getOrderId()));
+            return orders.size();
+        });
+        service.start();
+        
+        service.submit(events(10, 20));
+        awaitWritten(9);
+        service.stop();
+        
+        Set<Integer> expected = new HashSet<>();
+        for (int id = 10; id < 20; id++) {
+            if (id != POISON_ORDER) {
+                expected.add(id);
+            }
+        }
+        assertEquals(expected, new HashSet<>(written));
+        assertEquals(List.of(POISON_ORDER + " created: value too long for type character varying(50)"),
+                replayDeadLetters());
+        // The checkpoint moved past the poison, so nothing is replayed on the next start
+        assertEquals(List.of(), replayOrderIds("order-events"));
+        assertEquals(1.0, meterRegistry.get("orders.events.dead.letters").functionCounter().count());
+    }
+    
+    @Test
+    public void testConnectionFailuresAreRetriedNotDeadLettered() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(orderRepository.upsertAll(anyList())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 3) {
+                throw new CannotGetJdbcConnectionException("Connection refused");
+            }
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> written.add(order.getOrderId()));
+            return orders.size();
+        });
+        service.start();
+        
+        service.submit(events(1, 5));
+        awaitWritten(4);
+        service.stop();
+        
+        assertEquals(List.of(1, 2, 3, 4), written);
+        assertEquals(List.of(), replayDeadLetters());
+        assertEquals(0.0, meterRegistry.get("orders.events.dead.letters").functionCounter().count());
+    }
+    
+    @Test
+    public void testEventsThatCannotApplyAreDeadLetteredWithReason() throws Exception {
+        OffsetDateTime tooOld = OffsetDateTime.parse("2010-01-15T10:00:00Z");
+        doReturn(Set.of(1)).when(userRepository).findExistingIds(any());
+        // The window moves past the event after it was accepted
+        when(orderPartitionService.checkCreatedAt(tooOld)).thenReturn(null, "created_at is before the retention window");
+        when(orderRepository.upsertAll(anyList())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.forEach(order -> written.add(order.getOrderId()));
+            return orders.size();
+        });
+        when(orderRepository.applyStatusChanges(anyList())).thenReturn(Set.of(1));
+        service.start();
+        
+        List<OrderEvent> events = events(1, 4);
+        events.get(1).setUserId(99);
+        events.get(2).setCreatedAt(tooOld);
+        events.add(new OrderEvent(OrderEvent.STATUS_CHANGED, 2, "Shipped"));
+        events.add(new OrderEvent(OrderEvent.STATUS_CHANGED, 77, "Shipped"));
+        service.submit(events);
+        service.stop();
+        
+        assertEquals(List.of(1), written);
+        // A change to an order that could not be created goes with it
+        assertEquals(List.of(
+                "2 created: customer 99 does not exist",
+                "2 status_changed: customer 99 does not exist",
+                "3 created: created_at is before the retention window",
+                "77 status_changed: order 77 does not exist"), replayDeadLetters());
+        assertEquals(List.of(), replayOrderIds("order-events"));
+        assertEquals(4.0, meterRegistry.get("orders.events.dead.letters").functionCounter().count());
+    }
+    
+    private OrderEventIngestionService newService() {
+        OrderEventIngestionService ingestion = new OrderEventIngestionService();
+        ReflectionTestUtils.setField(ingestion, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(ingestion, "userRepository", userRepository);
+        ReflectionTestUtils.setField(ingestion, "shardedOrders", mock(ShardedOrderRepository.class));
+        ReflectionTestUtils.setField(ingestion, "shardedUsers", mock(ShardedUserRepository.class));
+        ReflectionTestUtils.setField(ingestion, "orderPartitionService", orderPartitionService);
+        ReflectionTestUtils.setField(ingestion, "idFilter", mock(IdFilterService.class));
+        ReflectionTestUtils.setField(ingestion, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(ingestion, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(ingestion, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(ingestion, "bufferCapacity", 1024);
+        ReflectionTestUtils.setField(ingestion, "maxBatch", 1000);
+        ReflectionTestUtils.setField(ingestion, "flushSize", 100);
+        ReflectionTestUtils.setField(ingestion, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(ingestion, "logDir", logDir.toString());
+        ReflectionTestUtils.setField(ingestion, "logCompactBytes", 1L << 20);
+        ReflectionTestUtils.setField(ingestion, "maxAttempts", 2);
+        return ingestion;
+    }
+    
+    private static List<OrderEvent> events(int fromOrderId, int toOrderId) {
+        List<OrderEvent> events = new ArrayList<>();
+        for (int id = fromOrderId; id < toOrderId; id++) {
+            OrderEvent event = new OrderEvent(OrderEvent.CREATED, id, "Processing");
+            event.setUserId(1);
+            event.setCreatedAt(OffsetDateTime.parse("2024-01-15T10:00:00Z"));
+            event.setNumOfItem(1);
+            events.add(event);
+        }
+        return events;
+    }
+    
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (written.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Give the flusher a moment to checkpoint what it wrote
+        Thread.sleep(100);
+    }
+    
+    private List<String> replayOrderIds(String name) throws Exception {
+        List<String> ids = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        try (AppendOnlyLog log = new AppendOnlyLog(logDir, name, Long.MAX_VALUE)) {
+            log.replay((bytes, endOffset) -> {
+                try {
+                    ids.add(String.valueOf(mapper.readValue(bytes, OrderEvent.class).getOrderId()));
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        }
+        return ids;
+    }
+    
+    private List<String> replayDeadLetters() throws Exception {
+        List<String> letters = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        try (AppendOnlyLog log = new AppendOnlyLog(logDir, "order-events-dead-letter", Long.MAX_VALUE)) {
+            log.replay((bytes, endOffset) -> {
+                try {
+                    JsonNode letter = mapper.readTree(bytes);
+                    OrderEvent event = mapper.treeToValue(letter.get("event"), OrderEvent.class);
+                    letters.add(event.getOrderId() + " " + event.getType() + ": " + letter.get("reason").asText());
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        }
+        return letters;
+    }
+}
+    
\ No newline at end of file
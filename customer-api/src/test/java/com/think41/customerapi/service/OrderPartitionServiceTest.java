@@ -0,0 +1,80 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class OrderPartitionServiceTest {
+    
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final YearMonth current = YearMonth.now(ZoneOffset.UTC);
+    private OrderPartitionService service;
+    
+    @BeforeEach
+    public void setUp() {
+        service = new OrderPartitionService();
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "shardedOrders", mock(ShardedOrderRepository.class));
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "premakeMonths", 3);
+        ReflectionTestUtils.setField(service, "retentionMonths", 0);
+        ReflectionTestUtils.setField(service, "maxBackfillMonths", 120);
+    }
+    
+    @Test
+    public void testWindowRunsFromBackfillLimitToLastPremadeMonth() {
+        assertNull(service.checkCreatedAt(startOf(current.minusMonths(120))));
+        assertNull(service.checkCreatedAt(startOf(current.plusMonths(4)).minusNanos(1)));
+        assertNotNull(service.checkCreatedAt(startOf(current.minusMonths(120)).minusNanos(1)));
+        assertNotNull(service.checkCreatedAt(startOf(current.plusMonths(4))));
+        // A mistyped year
+        assertNotNull(service.checkCreatedAt(OffsetDateTime.of(20210, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)));
+    }
+    
+    @Test
+    public void testRetentionMovesTheLowerBound() {
+        ReflectionTestUtils.setField(service, "retentionMonths", 12);
+        
+        assertNull(service.checkCreatedAt(startOf(current.minusMonths(12))));
+        assertNotNull(service.checkCreatedAt(startOf(current.minusMonths(13))));
+    }
+    
+    @Test
+    public void testOutOfRangeOrderCreatesNoPartitions() {
+        List<Order> orders = List.of(order(1, startOf(current)), order(2, startOf(current.plusYears(5))));
+        
+        assertThrows(IllegalArgumentException.class, () -> service.ensurePartitions(orders));
+        verify(orderRepository, never()).createPartitions(any(), any());
+        
+        service.ensurePartitions(List.of(order(1, startOf(current)), order(3, startOf(current).plusDays(3))));
+        verify(orderRepository, times(1)).createPartitions(startOf(current), startOf(current));
+    }
+    
+    private static Order order(int orderId, OffsetDateTime createdAt) {
+        return new Order(orderId, 1, "Processing", "F", createdAt, null, null, null, 1);
+    }
+    
+    private static OffsetDateTime startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+}
+    
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.think41.customerapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.think41.customerapi.entity.Order;
+import com.think41.customerapi.repository.OrderRepository;
+import com.think41.customerapi.repository.ShardedOrderRepository;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderStreamServiceTest {
+    
+    private static final String RESYNC = "event:resync\ndata:\n\n";
+    
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private OrderStreamService service;
+    
+    @BeforeEach
+    public void setUp() {
+        service = new OrderStreamService();
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "shardedOrders", mock(ShardedOrderRepository.class));
+        ReflectionTestUtils.setField(service, "customerService", mock(CustomerService.class));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(service, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4);
+        ReflectionTestUtils.setField(service, "stallTimeoutMs", 60_000L);
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        service.stop();
+    }
+    
+    @Test
+    public void testClientThatStopsReadingDoesNotHoldUpOthers() throws Exception {
+        Stream fast = subscribe(5);
+        Stream slow = subscribe(5);
+        slow.writable.set(false);
+        
+        // Neither call blocks: the slow stream's events wait in its queue until that fills up
+        for (int i = 0; i < 10; i++) {
+            service.onResync();
+        }
+        
+        assertEquals(RESYNC.repeat(10), fast.written());
+        assertEquals("", slow.written());
+        verify(slow.async).complete();
+        verify(fast.async, never()).complete();
+    }
+    
+    @Test
+    public void testQueuedEventsAreWrittenOnceTheClientCatchesUp() throws Exception {
+        Stream stream = subscribe(5);
+        stream.writable.set(false);
+        service.onResync();
+        service.onResync();
+        
+        stream.writable.set(true);
+        stream.listener.onWritePossible();
+        
+        assertEquals(RESYNC.repeat(2), stream.written());
+        verify(stream.async, never()).complete();
+    }
+    
+    @Test
+    public void testStalledStreamIsClosedAndIdleStreamGetsHeartbeat() throws Exception {
+        ReflectionTestUtils.setField(service, "stallTimeoutMs", 0L);
+        Stream idle = subscribe(5);
+        Stream stalled = subscribe(6);
+        stalled.writable.set(false);
+        service.onResync();
+        Thread.sleep(1);
+        
+        service.heartbeat();
+        
+        verify(stalled.async).complete();
+        verify(idle.async, never()).complete();
+        assertEquals(RESYNC + ":\n\n", idle.written());
+    }
+    
+    @Test
+    public void testChangedOrderIsSentToItsCustomersStreams() throws Exception {
+        Order order = new Order(1001, 5, "Shipped", "M", OffsetDateTime.parse("2024-01-15T10:00:00Z"),
+                null, null, null, 2);
+        when(orderRepository.findByOrderIdsForUsers(anyCollection(), anyCollection())).thenReturn(List.of(order));
+        Stream stream = subscribe(5);
+        
+        service.onChanged("orders", Set.of(1001));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stream.written().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        
+        String written = stream.written();
+        assertTrue(written.startsWith("event:order\ndata:{") && written.endsWith("}\n\n"), written);
+        assertTrue(written.contains("\"order_id\":1001"), written);
+    }
+    
+    private Stream subscribe(int customerId) throws Exception {
+        Stream stream = new Stream();
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(request.startAsync(request, response)).thenReturn(stream.async);
+        when(response.getOutputStream()).thenReturn(stream.output);
+        when(stream.output.isReady()).thenAnswer(invocation -> stream.writable.get());
+        doAnswer(invocation -> {
+            stream.bytes.write(invocation.<byte[]>getArgument(0));
+            return null;
+        }).when(stream.output).write(any(byte[].class));
+        
+        service.subscribe(customerId, request, response);
+        
+        ArgumentCaptor<WriteListener> listener = ArgumentCaptor.forClass(WriteListener.class);
+        verify(stream.output).setWriteListener(listener.capture());
+        stream.listener = listener.getValue();
+        return stream;
+    }
+    
+    private static class Stream {
+        
+        final AsyncContext async = mock(AsyncContext.class);
+        final ServletOutputStream output = mock(ServletOutputStream.class);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final AtomicBoolean writable = new AtomicBoolean(true);
+        WriteListener listener;
+        
+        String written() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
+    
\ No newline at end of file
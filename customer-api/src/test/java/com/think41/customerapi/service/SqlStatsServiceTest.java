@@ -0,0 +1,70 @@
+package com.think41.customerapi.service;
+
+import com.think41.customerapi.dto.SqlShapeStats;
+import com.think41.customerapi.util.TimedDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SqlStatsServiceTest {
+    
+    private SqlStatsService service;
+    
+    @BeforeEach
+    public void setUp() {
+        service = new SqlStatsService();
+        ReflectionTestUtils.setField(service, "slowThresholdMs", 60_000L);
+        ReflectionTestUtils.setField(service, "logQueueCapacity", 16);
+        ReflectionTestUtils.setField(service, "maxShapes", 100);
+        ReflectionTestUtils.setField(service, "maxParameterLength", 200);
+        service.start();
+    }
+    
+    @AfterEach
+    public void tearDown() throws Exception {
+        service.stop();
+    }
+    
+    @Test
+    public void testShapeIgnoresLiteralsAndInListLength() {
+        assertEquals("select * from users where id in (?) and email = ?",
+                SqlStatsService.shapeOf("select *  from users\n where id in (1, 2, 3) and email = 'a@b.c'"));
+    }
+    
+    @Test
+    public void testConcurrentRecordingIsMergedOnRead() throws Exception {
+        int threads = 8;
+        int perThread = 10_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // 1 to 100 microseconds, evenly
+                    long nanos = (i % 100 + 1) * 1000L;
+                    service.executed(new TimedDataSource.Execution(
+                            "select * from orders where order_id = " + i, new Object[0], 0, nanos, 1, false));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        
+        List<SqlShapeStats> shapes = service.getShapes(10);
+        assertEquals(1, shapes.size());
+        SqlShapeStats stats = shapes.get(0);
+        assertEquals("select * from orders where order_id = ?", stats.getShape());
+        assertEquals(threads * perThread, stats.getCount());
+        assertEquals(threads * perThread, stats.getRows());
+        assertEquals(0.1, stats.getMaxMs(), 1e-9);
+        assertEquals(0.099, stats.getP99Ms(), 0.099 * 0.02);
+    }
+}
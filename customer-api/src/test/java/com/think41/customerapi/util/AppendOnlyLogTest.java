@@ -0,0 +1,151 @@
+package com.think41.customerapi.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AppendOnlyLogTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    public void testReplaysRecordsAfterCheckpoint() throws IOException {
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            long[] offsets = log.append(records("a", "bb", "ccc"));
+            log.sync(offsets[2]);
+            log.checkpoint(offsets[0]);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of("bb", "ccc"), replay(log));
+            // Appends after a replay follow the replayed records
+            long[] offsets = log.append(records("dddd"));
+            log.sync(offsets[0]);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of("bb", "ccc", "dddd"), replay(log));
+        }
+    }
+    
+    @Test
+    public void testTornTailIsCutOff() throws IOException {
+        long end;
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            long[] offsets = log.append(records("one", "two"));
+            log.sync(offsets[1]);
+            end = offsets[1];
+        }
+        // A crash mid-write: the header promises 100 bytes but only 3 made it
+        try (FileChannel channel = FileChannel.open(logFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(11).putInt(100).putInt(0).put("abc".getBytes()).flip(), end);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of("one", "two"), replay(log));
+            assertEquals(end, Files.size(logFile()));
+            long[] offsets = log.append(records("three"));
+            log.sync(offsets[0]);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of("one", "two", "three"), replay(log));
+        }
+    }
+    
+    @Test
+    public void testCorruptRecordEndsReplay() throws IOException {
+        long firstEnd;
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            long[] offsets = log.append(records("good", "flip", "after"));
+            log.sync(offsets[2]);
+            firstEnd = offsets[0];
+        }
+        // Flip a payload byte of the second record so its checksum no longer matches
+        try (FileChannel channel = FileChannel.open(logFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("X".getBytes()), firstEnd + 8);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of("good"), replay(log));
+            assertEquals(firstEnd, Files.size(logFile()));
+        }
+    }
+    
+    @Test
+    public void testCompactsOnceCheckpointReachesEnd() throws IOException {
+        try (AppendOnlyLog log = open(16)) {
+            long[] offsets = log.append(records("0123456789", "0123456789"));
+            log.sync(offsets[1]);
+            log.checkpoint(offsets[0]);
+            assertEquals(offsets[1], Files.size(logFile()));
+            
+            log.checkpoint(offsets[1]);
+            assertEquals(0, Files.size(logFile()));
+            
+            offsets = log.append(records("fresh"));
+            log.sync(offsets[0]);
+        }
+        
+        try (AppendOnlyLog log = open(16)) {
+            assertEquals(List.of("fresh"), replay(log));
+        }
+    }
+    
+    @Test
+    public void testCheckpointPastTruncatedLogIsReset() throws IOException {
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            long[] offsets = log.append(records("a", "b"));
+            log.sync(offsets[1]);
+            log.checkpoint(offsets[1]);
+        }
+        // A crash after truncating the log but before the checkpoint was reset
+        try (FileChannel channel = FileChannel.open(logFile(), StandardOpenOption.WRITE)) {
+            channel.truncate(0);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of(), replay(log));
+            long[] offsets = log.append(records("c"));
+            log.sync(offsets[0]);
+        }
+        
+        try (AppendOnlyLog log = open(Long.MAX_VALUE)) {
+            assertEquals(List.of("c"), replay(log));
+        }
+    }
+    
+    private AppendOnlyLog open(long compactThresholdBytes) throws IOException {
+        return new AppendOnlyLog(directory, "test", compactThresholdBytes);
+    }
+    
+    private Path logFile() {
+        return directory.resolve("test.log");
+    }
+    
+    private static List<byte[]> records(String... values) {
+        List<byte[]> records = new ArrayList<>();
+        for (String value : values) {
+            records.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+    
+    private static List<String> replay(AppendOnlyLog log) throws IOException {
+        List<String> values = new ArrayList<>();
+        log.replay((bytes, endOffset) -> values.add(new String(bytes, StandardCharsets.UTF_8)));
+        return values;
+    }
+}
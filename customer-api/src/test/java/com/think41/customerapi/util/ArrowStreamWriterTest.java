@@ -0,0 +1,333 @@
+package com.think41.customerapi.util;
+
+import com.think41.customerapi.util.ColumnarBatch.Column;
+import com.think41.customerapi.util.ColumnarBatch.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes streams with ArrowStreamWriter and reads them back with the small reader below, which
+ * walks the FlatBuffers metadata as the Arrow IPC spec lays it out rather than as the writer
+ * builds it. Streams written from the same rows also read back correctly with Arrow Java's
+ * ArrowStreamReader.
+ */
+public class ArrowStreamWriterTest {
+    
+    private static final int HEADER_SCHEMA = 1;
+    private static final int HEADER_DICTIONARY_BATCH = 2;
+    private static final int HEADER_RECORD_BATCH = 3;
+    
+    private static final List<Column> COLUMNS = List.of(
+            Column.of("id", Type.INT32, false),
+            Column.of("big", Type.INT64, true),
+            Column.of("created_at", Type.TIMESTAMP_MICROS, true),
+            Column.decimal("amount", 10, 2, true),
+            Column.of("name", Type.STRING, true),
+            Column.of("status", Type.DICTIONARY, true));
+    
+    /**
+     * An encapsulated message: its metadata, from the root Message table, and its body
+     */
+    private record Message(FlatTable message, ByteBuffer body) {
+        
+        int headerType() {
+            return message.ubyte(1);
+        }
+        
+        FlatTable header() {
+            return message.table(2);
+        }
+    }
+    
+    @Test
+    public void testRoundTripsEveryType() throws IOException {
+        List<Object[]> rows = rows(30);
+        List<Object[]> actual = read(write(rows, 7));
+        
+        assertEquals(rows.size(), actual.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertArrayEquals(rows.get(i), actual.get(i), "row " + i);
+        }
+    }
+    
+    @Test
+    public void testSchemaDescribesEveryColumn() throws IOException {
+        Message schema = messages(write(rows(3), 7)).get(0);
+        assertEquals(HEADER_SCHEMA, schema.headerType());
+        assertEquals(4, schema.message.int16(0));
+        
+        List<FlatTable> fields = schema.header().tables(1);
+        assertEquals(COLUMNS.size(), fields.size());
+        // Int, Int, Timestamp, Decimal, Utf8, Utf8
+        int[] types = {2, 2, 10, 7, 5, 5};
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            FlatTable field = fields.get(i);
+            assertEquals(COLUMNS.get(i).name(), field.string(0));
+            assertEquals(COLUMNS.get(i).nullable(), field.bool(1));
+            assertEquals(types[i], field.ubyte(2));
+        }
+        assertEquals(32, fields.get(0).table(3).int32(0));
+        assertEquals(64, fields.get(1).table(3).int32(0));
+        assertEquals(2, fields.get(2).table(3).int16(0));
+        assertEquals("UTC", fields.get(2).table(3).string(1));
+        assertEquals(10, fields.get(3).table(3).int32(0));
+        assertEquals(2, fields.get(3).table(3).int32(1));
+        assertEquals(128, fields.get(3).table(3).int32(2));
+        
+        FlatTable encoding = fields.get(5).table(4);
+        assertEquals(5, encoding.int64(0));
+        assertEquals(32, encoding.table(1).int32(0));
+        assertTrue(encoding.table(1).bool(1));
+    }
+    
+    @Test
+    public void testSendsOnlyNewDictionaryValuesAsDeltas() throws IOException {
+        List<Message> messages = messages(write(rows(30), 7));
+        List<List<String>> sent = new ArrayList<>();
+        List<Boolean> deltas = new ArrayList<>();
+        for (Message message : messages) {
+            if (message.headerType() == HEADER_DICTIONARY_BATCH) {
+                assertEquals(5, message.header().int64(0));
+                deltas.add(message.header().bool(2));
+                sent.add(readStrings(message.header().table(1), message.body()));
+            }
+        }
+        
+        assertEquals(List.of(false, true, true, true), deltas);
+        assertEquals(List.of(List.of("Shipped", "Complete"), List.of("Processing"),
+                List.of("Cancelled", "Returned"), List.of("Zoë")), sent);
+        // The last batch only repeats values already sent, so no dictionary precedes it
+        assertEquals(HEADER_RECORD_BATCH, messages.get(messages.size() - 2).headerType());
+    }
+    
+    @Test
+    public void testEmptyStreamIsSchemaThenEndOfStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ArrowStreamWriter(out, COLUMNS).finish();
+        
+        List<Message> messages = messages(out.toByteArray());
+        assertEquals(1, messages.size());
+        assertEquals(HEADER_SCHEMA, messages.get(0).headerType());
+        assertFalse(messages.get(0).body().hasRemaining());
+    }
+    
+    private static List<Object[]> rows(int count) {
+        String[] statuses = {"Shipped", "Complete", "Processing", "Cancelled", "Returned", "Zoë"};
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {
+                    i,
+                    i % 5 == 1 ? null : i * 10_000_000_000L - 3,
+                    i % 4 == 2 ? null : 1_700_000_000_000_000L + i,
+                    i % 6 == 3 ? null : i % 2 == 0 ? -12_345L * i : 999L * i,
+                    i % 7 == 4 ? null : "name-" + i + (i == 9 ? "é😀" : ""),
+                    i % 9 == 5 ? null : statuses[Math.min(i / 5, 5)]});
+        }
+        return rows;
+    }
+    
+    private static byte[] write(List<Object[]> rows, int batchSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArrowStreamWriter writer = new ArrowStreamWriter(out, COLUMNS);
+        ColumnarBatch batch = new ColumnarBatch(COLUMNS, batchSize);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] == null) {
+                    batch.setNull(i);
+                } else if (row[i] instanceof Integer value) {
+                    batch.setInt(i, value);
+                } else if (row[i] instanceof Long value) {
+                    batch.setLong(i, value);
+                } else {
+                    batch.setString(i, (String) row[i]);
+                }
+            }
+            if (batch.endRow()) {
+                writer.write(batch);
+                batch.clear();
+            }
+        }
+        if (batch.size() > 0) {
+            writer.write(batch);
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+    
+    private static List<Message> messages(byte[] stream) {
+        ByteBuffer buffer = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+        List<Message> messages = new ArrayList<>();
+        while (true) {
+            assertEquals(0xFFFFFFFF, buffer.getInt());
+            int length = buffer.getInt();
+            if (length == 0) {
+                assertFalse(buffer.hasRemaining());
+                return messages;
+            }
+            assertEquals(0, length % 8);
+            ByteBuffer metadata = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            FlatTable message = new FlatTable(metadata, metadata.getInt(0));
+            buffer.position(buffer.position() + length);
+            int bodyLength = (int) message.int64(3);
+            messages.add(new Message(message, buffer.slice(buffer.position(), bodyLength).order(ByteOrder.LITTLE_ENDIAN)));
+            buffer.position(buffer.position() + bodyLength);
+        }
+    }
+    
+    private static List<Object[]> read(byte[] stream) {
+        List<Object[]> rows = new ArrayList<>();
+        List<String> dictionary = new ArrayList<>();
+        for (Message message : messages(stream)) {
+            if (message.headerType() == HEADER_DICTIONARY_BATCH) {
+                if (!message.header().bool(2)) {
+                    dictionary.clear();
+                }
+                dictionary.addAll(readStrings(message.header().table(1), message.body()));
+            } else if (message.headerType() == HEADER_RECORD_BATCH) {
+                rows.addAll(readRecordBatch(message.header(), message.body(), dictionary));
+            }
+        }
+        return rows;
+    }
+    
+    private static List<Object[]> readRecordBatch(FlatTable batch, ByteBuffer body, List<String> dictionary) {
+        int count = (int) batch.int64(0);
+        long[][] nodes = batch.pairs(1);
+        long[][] buffers = batch.pairs(2);
+        Object[][] rows = new Object[count][COLUMNS.size()];
+        int next = 0;
+        for (int column = 0; column < COLUMNS.size(); column++) {
+            assertEquals(count, nodes[column][0]);
+            long[] validity = buffers[next++];
+            int nulls = 0;
+            long[] values = buffers[next++];
+            long[] data = COLUMNS.get(column).type() == Type.STRING ? buffers[next++] : null;
+            for (int row = 0; row < count; row++) {
+                if (validity[1] > 0 && (body.get((int) validity[0] + row / 8) & (1 << (row % 8))) == 0) {
+                    nulls++;
+                    continue;
+                }
+                int at = (int) values[0];
+                rows[row][column] = switch (COLUMNS.get(column).type()) {
+                    case INT32 -> body.getInt(at + 4 * row);
+                    case INT64, TIMESTAMP_MICROS -> body.getLong(at + 8 * row);
+                    case DECIMAL -> {
+                        long low = body.getLong(at + 16 * row);
+                        assertEquals(low < 0 ? -1L : 0L, body.getLong(at + 16 * row + 8));
+                        yield low;
+                    }
+                    case STRING -> string(body, at, (int) data[0], row);
+                    case DICTIONARY -> dictionary.get(body.getInt(at + 4 * row));
+                };
+            }
+            assertEquals(nulls, nodes[column][1]);
+        }
+        return List.of(rows);
+    }
+    
+    private static List<String> readStrings(FlatTable batch, ByteBuffer body) {
+        int count = (int) batch.int64(0);
+        long[][] buffers = batch.pairs(2);
+        List<String> values = new ArrayList<>();
+        for (int row = 0; row < count; row++) {
+            values.add(string(body, (int) buffers[1][0], (int) buffers[2][0], row));
+        }
+        return values;
+    }
+    
+    private static String string(ByteBuffer body, int offsets, int data, int row) {
+        int start = body.getInt(offsets + 4 * row);
+        int end = body.getInt(offsets + 4 * row + 4);
+        byte[] bytes = new byte[end - start];
+        body.get(data + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * A FlatBuffers table: a signed offset back to its vtable, whose slots hold field offsets
+     * relative to the table, 0 for absent fields
+     */
+    private record FlatTable(ByteBuffer buffer, int position) {
+        
+        private int field(int slot) {
+            int vtable = position - buffer.getInt(position);
+            int vtableSize = buffer.getShort(vtable);
+            int entry = 4 + 2 * slot;
+            return entry < vtableSize ? buffer.getShort(vtable + entry) : 0;
+        }
+        
+        boolean bool(int slot) {
+            return ubyte(slot) != 0;
+        }
+        
+        int ubyte(int slot) {
+            int field = field(slot);
+            return field == 0 ? 0 : buffer.get(position + field) & 0xFF;
+        }
+        
+        int int16(int slot) {
+            int field = field(slot);
+            return field == 0 ? 0 : buffer.getShort(position + field);
+        }
+        
+        int int32(int slot) {
+            int field = field(slot);
+            return field == 0 ? 0 : buffer.getInt(position + field);
+        }
+        
+        long int64(int slot) {
+            int field = field(slot);
+            return field == 0 ? 0 : buffer.getLong(position + field);
+        }
+        
+        private int reference(int slot) {
+            int at = position + field(slot);
+            return at + buffer.getInt(at);
+        }
+        
+        FlatTable table(int slot) {
+            return new FlatTable(buffer, reference(slot));
+        }
+        
+        String string(int slot) {
+            int at = reference(slot);
+            byte[] bytes = new byte[buffer.getInt(at)];
+            buffer.get(at + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        List<FlatTable> tables(int slot) {
+            int at = reference(slot);
+            List<FlatTable> tables = new ArrayList<>();
+            for (int i = 0; i < buffer.getInt(at); i++) {
+                int element = at + 4 + 4 * i;
+                tables.add(new FlatTable(buffer, element + buffer.getInt(element)));
+            }
+            return tables;
+        }
+        
+        /**
+         * A vector of structs of two longs, like FieldNode and Buffer
+         */
+        long[][] pairs(int slot) {
+            int at = reference(slot);
+            long[][] pairs = new long[buffer.getInt(at)][];
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = new long[] {buffer.getLong(at + 4 + 16 * i), buffer.getLong(at + 12 + 16 * i)};
+            }
+            return pairs;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.think41.customerapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+    
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        Random random = new Random(42);
+        int[] ids = new int[100_000];
+        for (int i = 0; i < ids.length; i++) {
+            // Half sequential, as database ids are, half spread over the whole range
+            ids[i] = i % 2 == 0 ? i : random.nextInt();
+            filter.add(ids[i]);
+        }
+        for (int id : ids) {
+            assertTrue(filter.mightContain(id), "lost id " + id);
+        }
+    }
+    
+    @Test
+    public void testFalsePositiveRateMatchesTheTargetWhenFull() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int id = 1; id <= 100_000; id++) {
+            filter.add(id);
+        }
+        
+        int falsePositives = 0;
+        int probes = 200_000;
+        for (int id = 1_000_001; id <= 1_000_000 + probes; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        double measured = (double) falsePositives / probes;
+        assertTrue(measured > 0.005 && measured < 0.015, "measured false positive rate " + measured);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.003);
+    }
+    
+    @Test
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        
+        for (int id = -1000; id <= 1000; id++) {
+            assertFalse(filter.mightContain(id));
+        }
+        assertEquals(0.0, filter.expectedFalsePositiveRate());
+    }
+    
+    @Test
+    public void testSizedForExpectedIdsAndRate() {
+        // -ln(0.01) / (ln 2)^2 = 9.59 bits per id, rounded up to whole 64-bit words
+        long bytes = new BloomFilter(1_000_000, 0.01).sizeInBytes();
+        assertTrue(bytes >= 1_198_000 && bytes <= 1_198_200, "size " + bytes);
+        
+        // Ten times fewer false positives costs 4.79 more bits per id
+        long stricter = new BloomFilter(1_000_000, 0.001).sizeInBytes();
+        assertEquals(1.5, (double) stricter / bytes, 0.01);
+        
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(1000, 1));
+    }
+    
+    @Test
+    public void testConcurrentAddsAreNotLost() throws Exception {
+        BloomFilter filter = new BloomFilter(400_000, 0.01);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int from = t * 100_000;
+            Thread writer = new Thread(() -> {
+                for (int id = from; id < from + 100_000; id++) {
+                    filter.add(id);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        
+        for (int id = 0; id < 400_000; id++) {
+            assertTrue(filter.mightContain(id), "lost id " + id);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.think41.customerapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CountMinSketchTest {
+    
+    @Test
+    public void testEstimatesNeverUndercount() {
+        // A narrow sketch so that keys share counters
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        Random random = new Random(42);
+        int keys = 2_000;
+        long[] counts = new long[keys];
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // Skewed, as request traffic is: low keys are far more frequent
+            int key = (int) (keys * Math.pow(random.nextDouble(), 3));
+            sketch.add(CountMinSketch.mix(key));
+            counts[key]++;
+            total++;
+        }
+        
+        int overestimated = 0;
+        int withinBound = 0;
+        for (int key = 0; key < keys; key++) {
+            long estimate = sketch.estimate(CountMinSketch.mix(key));
+            assertTrue(estimate >= counts[key], "key " + key + " estimated " + estimate + " of " + counts[key]);
+            if (estimate > counts[key]) {
+                overestimated++;
+            }
+            if (estimate - counts[key] <= Math.E / 64 * total) {
+                withinBound++;
+            }
+        }
+        assertTrue(overestimated > 0, "expected collisions in a 64-wide sketch");
+        // Within e/width of all counts with probability 1 - e^-depth, about 98%
+        assertTrue(withinBound >= keys * 0.95, withinBound + " of " + keys + " within the bound");
+    }
+    
+    @Test
+    public void testUnseenKeysOfAWideSketchEstimateZero() {
+        CountMinSketch sketch = new CountMinSketch(4096, 4);
+        for (int key = 0; key < 100; key++) {
+            sketch.add(CountMinSketch.mix(key));
+        }
+        assertEquals(1, sketch.estimate(CountMinSketch.mix(7)));
+        assertEquals(0, sketch.estimate(CountMinSketch.mix(1_000_000)));
+    }
+    
+    @Test
+    public void testClearResetsEveryCounter() {
+        CountMinSketch sketch = new CountMinSketch(16, 2);
+        for (int key = 0; key < 1000; key++) {
+            sketch.add(CountMinSketch.mix(key));
+        }
+        sketch.clear();
+        for (int key = 0; key < 1000; key++) {
+            assertEquals(0, sketch.estimate(CountMinSketch.mix(key)));
+        }
+    }
+    
+    @Test
+    public void testWidthRoundsUpToAPowerOfTwo() {
+        assertEquals(1024 * 4 * 8, new CountMinSketch(1000, 4).sizeInBytes());
+        assertEquals(1024 * 4 * 8, new CountMinSketch(1024, 4).sizeInBytes());
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(64, 0));
+    }
+}
\ No newline at end of file
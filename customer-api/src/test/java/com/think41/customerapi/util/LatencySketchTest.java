@@ -0,0 +1,149 @@
+package com.think41.customerapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencySketchTest {
+    
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1};
+    
+    @Test
+    public void testQuantilesWithinRelativeAccuracy() {
+        Random random = new Random(26);
+        double[] values = new double[100_000];
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like latencies: most around a second, a long tail up to hours
+            values[i] = 1 + Math.exp(7 + 2 * random.nextGaussian());
+            sketch.add(values[i]);
+        }
+        
+        assertEquals(values.length, sketch.getCount());
+        assertWithinAccuracy(values, sketch);
+    }
+    
+    @Test
+    public void testMergeMatchesOneSketchOverAllValues() {
+        Random random = new Random(27);
+        double[] values = new double[30_000];
+        LatencySketch whole = new LatencySketch();
+        LatencySketch[] parts = {new LatencySketch(), new LatencySketch(), new LatencySketch()};
+        for (int i = 0; i < values.length; i++) {
+            // Each part covers a different range, so merging has to grow the bucket array both ways
+            values[i] = (i % 3 == 0 ? 2 : i % 3 == 1 ? 2_000 : 2_000_000) * (1 + random.nextDouble());
+            whole.add(values[i]);
+            parts[i % 3].add(values[i]);
+        }
+        
+        LatencySketch merged = new LatencySketch();
+        for (LatencySketch part : parts) {
+            merged.merge(part);
+        }
+        
+        assertEquals(whole.getCount(), merged.getCount());
+        for (double q : QUANTILES) {
+            assertEquals(whole.quantile(q), merged.quantile(q), "q=" + q);
+        }
+        assertWithinAccuracy(values, merged);
+        // The parts are left as they were
+        assertEquals(10_000, parts[0].getCount());
+    }
+    
+    @Test
+    public void testRemoveTakesBackAddedValues() {
+        Random random = new Random(28);
+        double[] kept = new double[10_000];
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = 1 + Math.exp(7 + 2 * random.nextGaussian());
+            sketch.add(kept[i]);
+            // Values later taken back, e.g. an order's old latencies after its status changed
+            sketch.add(5_000_000 * (1 + random.nextDouble()));
+        }
+        sketch.add(0.5);
+        
+        random = new Random(28);
+        for (int i = 0; i < kept.length; i++) {
+            random.nextGaussian();
+            sketch.remove(5_000_000 * (1 + random.nextDouble()));
+        }
+        sketch.remove(0.5);
+        // Values that were never added are ignored
+        sketch.remove(0.5);
+        sketch.remove(1e12);
+        
+        assertEquals(kept.length, sketch.getCount());
+        assertWithinAccuracy(kept, sketch);
+    }
+    
+    @Test
+    public void testEmptySketch() {
+        LatencySketch sketch = new LatencySketch();
+        
+        assertEquals(0, sketch.getCount());
+        assertNull(sketch.quantile(0.5));
+        
+        LatencySketch merged = new LatencySketch();
+        merged.merge(sketch);
+        assertNull(merged.quantile(0.99));
+        
+        sketch.add(Double.NaN);
+        assertEquals(0, sketch.getCount());
+    }
+    
+    @Test
+    public void testValuesBelowOneGoToZeroBucket() {
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < 60; i++) {
+            sketch.add(0);
+        }
+        for (int i = 0; i < 40; i++) {
+            sketch.add(500);
+        }
+        
+        assertEquals(100, sketch.getCount());
+        assertEquals(0.0, sketch.quantile(0));
+        assertEquals(0.0, sketch.quantile(0.5));
+        assertEquals(500.0, sketch.quantile(0.99), 500 * 0.02);
+        assertEquals(500.0, sketch.quantile(1));
+    }
+    
+    @Test
+    public void testSingleValueIsExact() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(1234.5);
+        
+        // Clamped to min and max, so the bucket midpoint never shows
+        assertEquals(1234.5, sketch.quantile(0));
+        assertEquals(1234.5, sketch.quantile(0.5));
+        assertEquals(1234.5, sketch.quantile(1));
+    }
+    
+    @Test
+    public void testQuantileOutOfRange() {
+        LatencySketch sketch = new LatencySketch();
+        sketch.add(10);
+        
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.1));
+    }
+    
+    private static void assertWithinAccuracy(double[] values, LatencySketch sketch) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= exact * 0.02,
+                    "q=" + q + " exact=" + exact + " estimate=" + estimate);
+        }
+    }
+}
+    
\ No newline at end of file
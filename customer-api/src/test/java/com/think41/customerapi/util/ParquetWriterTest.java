@@ -0,0 +1,336 @@
+package com.think41.customerapi.util;
+
+import com.think41.customerapi.util.ColumnarBatch.Column;
+import com.think41.customerapi.util.ColumnarBatch.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Writes files with ParquetWriter and reads them back with the small reader below, which follows
+ * the Parquet format spec rather than the writer's code. Files written from the same rows also
+ * read back correctly with DuckDB's Parquet reader.
+ */
+public class ParquetWriterTest {
+    
+    private static final List<Column> COLUMNS = List.of(
+            Column.of("id", Type.INT32, false),
+            Column.of("big", Type.INT64, true),
+            Column.of("created_at", Type.TIMESTAMP_MICROS, true),
+            Column.decimal("amount", 10, 2, true),
+            Column.of("name", Type.STRING, true),
+            Column.of("status", Type.DICTIONARY, true));
+    
+    @Test
+    public void testRoundTripsEveryTypeUncompressed() throws IOException {
+        List<Object[]> rows = rows(30);
+        assertRows(rows, read(write(rows, 7, false)));
+    }
+    
+    @Test
+    public void testRoundTripsEveryTypeGzipped() throws IOException {
+        List<Object[]> rows = rows(30);
+        assertRows(rows, read(write(rows, 7, true)));
+    }
+    
+    @Test
+    public void testRoundTripsLongRunsOfRepeatedValuesAndNulls() throws IOException {
+        // Long runs become RLE runs in the definition levels and dictionary indexes
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            boolean blank = i >= 40 && i < 70;
+            rows.add(new Object[] {i, blank ? null : 5L, null, null, blank ? null : "same",
+                    i < 50 ? "Complete" : i < 53 ? "Returned" : "Shipped"});
+        }
+        assertRows(rows, read(write(rows, 64, false)));
+    }
+    
+    @Test
+    public void testFooterDescribesSchemaAndRowGroups() throws IOException {
+        Map<Integer, Object> metadata = footer(write(rows(30), 7, true));
+        
+        assertEquals(30L, metadata.get(3));
+        List<?> schema = (List<?>) metadata.get(2);
+        assertEquals(COLUMNS.size() + 1, schema.size());
+        assertEquals(COLUMNS.size(), (long) (Long) field(schema.get(0), 5));
+        long[][] expected = {
+                // physical type, repetition, converted type
+                {1, 0, -1}, {2, 1, -1}, {2, 1, 10}, {2, 1, 5}, {6, 1, 0}, {6, 1, 0}};
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            Object element = schema.get(i + 1);
+            assertEquals(COLUMNS.get(i).name(), new String((byte[]) field(element, 4), StandardCharsets.UTF_8));
+            assertEquals(expected[i][0], field(element, 1));
+            assertEquals(expected[i][1], field(element, 3));
+            assertEquals(expected[i][2], field(element, 6) == null ? -1L : field(element, 6));
+        }
+        assertEquals(2L, field(schema.get(4), 7));
+        assertEquals(10L, field(schema.get(4), 8));
+        
+        List<?> rowGroups = (List<?>) metadata.get(4);
+        assertEquals(5, rowGroups.size());
+        assertEquals(2L, field(rowGroups.get(4), 3));
+    }
+    
+    private static List<Object[]> rows(int count) {
+        String[] statuses = {"Shipped", "Complete", "Processing", "Cancelled", "Returned", "Zoë"};
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[] {
+                    i,
+                    i % 5 == 1 ? null : i * 10_000_000_000L - 3,
+                    i % 4 == 2 ? null : 1_700_000_000_000_000L + i,
+                    i % 6 == 3 ? null : i % 2 == 0 ? -12_345L * i : 999L * i,
+                    i % 7 == 4 ? null : "name-" + i + (i == 9 ? "é😀" : ""),
+                    // New dictionary values keep appearing after the first row group
+                    i % 9 == 5 ? null : statuses[Math.min(i / 5, 5)]});
+        }
+        return rows;
+    }
+    
+    private static byte[] write(List<Object[]> rows, int batchSize, boolean gzip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParquetWriter writer = new ParquetWriter(out, COLUMNS, gzip);
+        ColumnarBatch batch = new ColumnarBatch(COLUMNS, batchSize);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] == null) {
+                    batch.setNull(i);
+                } else if (row[i] instanceof Integer value) {
+                    batch.setInt(i, value);
+                } else if (row[i] instanceof Long value) {
+                    batch.setLong(i, value);
+                } else {
+                    batch.setString(i, (String) row[i]);
+                }
+            }
+            if (batch.endRow()) {
+                writer.write(batch);
+                batch.clear();
+            }
+        }
+        writer.write(batch);
+        writer.finish();
+        return out.toByteArray();
+    }
+    
+    private static void assertRows(List<Object[]> expected, List<Object[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), "row " + i);
+        }
+    }
+    
+    private static Map<Integer, Object> footer(byte[] file) {
+        assertEquals("PAR1", new String(file, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals("PAR1", new String(file, file.length - 4, 4, StandardCharsets.US_ASCII));
+        ByteBuffer buffer = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+        int length = buffer.getInt(file.length - 8);
+        buffer.position(file.length - 8 - length);
+        Map<Integer, Object> metadata = readStruct(buffer);
+        assertEquals(file.length - 8, buffer.position());
+        return metadata;
+    }
+    
+    private static List<Object[]> read(byte[] file) throws IOException {
+        Map<Integer, Object> metadata = footer(file);
+        List<Object[]> rows = new ArrayList<>();
+        for (Object rowGroup : (List<?>) metadata.get(4)) {
+            int count = (int) (long) (Long) field(rowGroup, 3);
+            Object[][] values = new Object[count][COLUMNS.size()];
+            List<?> chunks = (List<?>) field(rowGroup, 1);
+            for (int column = 0; column < COLUMNS.size(); column++) {
+                Object chunk = field(chunks.get(column), 3);
+                List<Object> columnValues = readChunk(file, chunk, COLUMNS.get(column), count);
+                for (int row = 0; row < count; row++) {
+                    values[row][column] = columnValues.get(row);
+                }
+            }
+            rows.addAll(Arrays.asList(values));
+        }
+        return rows;
+    }
+    
+    private static List<Object> readChunk(byte[] file, Object chunk, Column column, int count) throws IOException {
+        boolean gzip = (Long) field(chunk, 4) == 2;
+        ByteBuffer buffer = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+        List<String> dictionary = new ArrayList<>();
+        if (field(chunk, 11) != null) {
+            buffer.position((int) (long) (Long) field(chunk, 11));
+            Map<Integer, Object> header = readStruct(buffer);
+            assertEquals(2L, header.get(1));
+            ByteBuffer page = pageBody(buffer, header, gzip);
+            int size = (int) (long) (Long) field(header.get(7), 1);
+            for (int i = 0; i < size; i++) {
+                dictionary.add(readString(page));
+            }
+        }
+        
+        buffer.position((int) (long) (Long) field(chunk, 9));
+        Map<Integer, Object> header = readStruct(buffer);
+        assertEquals(0L, header.get(1));
+        assertEquals((long) count, field(header.get(5), 1));
+        ByteBuffer page = pageBody(buffer, header, gzip);
+        int[] levels = new int[count];
+        Arrays.fill(levels, 1);
+        if (column.nullable()) {
+            int length = page.getInt();
+            int end = page.position() + length;
+            levels = readHybrid(page, 1, count);
+            assertEquals(end, page.position());
+        }
+        int present = (int) Arrays.stream(levels).filter(level -> level == 1).count();
+        int[] indexes = null;
+        if (column.type() == Type.DICTIONARY) {
+            int bitWidth = page.get();
+            indexes = readHybrid(page, bitWidth, present);
+        }
+        
+        List<Object> values = new ArrayList<>();
+        int next = 0;
+        for (int level : levels) {
+            if (level == 0) {
+                values.add(null);
+                continue;
+            }
+            values.add(switch (column.type()) {
+                case INT32 -> page.getInt();
+                case INT64, TIMESTAMP_MICROS, DECIMAL -> page.getLong();
+                case STRING -> readString(page);
+                case DICTIONARY -> dictionary.get(indexes[next++]);
+            });
+        }
+        assertEquals(0, page.remaining());
+        return values;
+    }
+    
+    private static ByteBuffer pageBody(ByteBuffer buffer, Map<Integer, Object> header, boolean gzip) throws IOException {
+        int uncompressed = (int) (long) (Long) header.get(2);
+        byte[] body = new byte[(int) (long) (Long) header.get(3)];
+        buffer.get(body);
+        if (gzip) {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            }
+        }
+        assertEquals(uncompressed, body.length);
+        return ByteBuffer.wrap(body).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * The RLE/bit-packed hybrid encoding; count values, then any padding of the last group
+     */
+    private static int[] readHybrid(ByteBuffer buffer, int bitWidth, int count) {
+        int[] values = new int[count];
+        int read = 0;
+        while (read < count) {
+            long header = readVarint(buffer);
+            if ((header & 1) == 0) {
+                int value = 0;
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    value |= (buffer.get() & 0xFF) << (8 * b);
+                }
+                for (long i = header >>> 1; i > 0; i--) {
+                    values[read++] = value;
+                }
+            } else {
+                int total = (int) (header >>> 1) * 8;
+                long bits = 0;
+                int bitCount = 0;
+                for (int i = 0; i < total; i++) {
+                    while (bitCount < bitWidth) {
+                        bits |= (long) (buffer.get() & 0xFF) << bitCount;
+                        bitCount += 8;
+                    }
+                    if (read < count) {
+                        values[read++] = (int) (bits & ((1L << bitWidth) - 1));
+                    }
+                    bits >>>= bitWidth;
+                    bitCount -= bitWidth;
+                }
+            }
+        }
+        return values;
+    }
+    
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static Object field(Object struct, int id) {
+        return ((Map<?, ?>) struct).get(id);
+    }
+    
+    // Thrift compact protocol, enough of it for the Parquet metadata
+    
+    private static Map<Integer, Object> readStruct(ByteBuffer buffer) {
+        Map<Integer, Object> fields = new HashMap<>();
+        int id = 0;
+        while (true) {
+            int header = buffer.get() & 0xFF;
+            if (header == 0) {
+                return fields;
+            }
+            int delta = header >>> 4;
+            id = delta != 0 ? id + delta : (int) zigzag(readVarint(buffer));
+            fields.put(id, readValue(buffer, header & 0x0F));
+        }
+    }
+    
+    private static Object readValue(ByteBuffer buffer, int type) {
+        switch (type) {
+            case 1: return true;
+            case 2: return false;
+            case 3: return (long) buffer.get();
+            case 4:
+            case 5:
+            case 6: return zigzag(readVarint(buffer));
+            case 8: {
+                byte[] bytes = new byte[(int) readVarint(buffer)];
+                buffer.get(bytes);
+                return bytes;
+            }
+            case 9: {
+                int header = buffer.get() & 0xFF;
+                int size = header >>> 4 == 15 ? (int) readVarint(buffer) : header >>> 4;
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(buffer, header & 0x0F));
+                }
+                return list;
+            }
+            case 12: return readStruct(buffer);
+            default: throw new IllegalStateException("Unexpected compact type " + type);
+        }
+    }
+    
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+    
+    private static long zigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
\ No newline at end of file
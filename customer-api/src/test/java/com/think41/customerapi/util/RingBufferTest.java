@@ -0,0 +1,111 @@
+package com.think41.customerapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RingBufferTest {
+    
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, new RingBuffer<Integer>(5).capacity());
+        assertEquals(8, new RingBuffer<Integer>(8).capacity());
+        assertEquals(1, new RingBuffer<Integer>(1).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<Integer>(0));
+    }
+    
+    @Test
+    public void testWrapsAroundInOrder() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        int next = 0;
+        int expected = 0;
+        // Ten times round the slot array, three in and three out at a time
+        for (int round = 0; round < 40; round++) {
+            assertTrue(buffer.offerAll(List.of(next, next + 1, next + 2)));
+            next += 3;
+            List<Integer> batch = new ArrayList<>();
+            assertEquals(3, buffer.peek(batch, 3));
+            for (int item : batch) {
+                assertEquals(expected++, item);
+            }
+            buffer.release(3);
+        }
+        assertEquals(0, buffer.size());
+    }
+    
+    @Test
+    public void testRejectsWholeBatchWhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        assertTrue(buffer.offerAll(List.of(1, 2, 3)));
+        
+        // Backpressure: nothing is taken unless all of it fits
+        assertFalse(buffer.offerAll(List.of(4, 5)));
+        assertEquals(3, buffer.size());
+        assertTrue(buffer.offerAll(List.of(4)));
+        assertFalse(buffer.offerAll(List.of(5)));
+        
+        List<Integer> batch = new ArrayList<>();
+        buffer.peek(batch, 2);
+        buffer.release(2);
+        assertTrue(buffer.offerAll(List.of(5, 6)));
+        
+        batch.clear();
+        assertEquals(4, buffer.peek(batch, 10));
+        assertEquals(List.of(3, 4, 5, 6), batch);
+    }
+    
+    @Test
+    public void testPeekWithoutReleaseKeepsItemsForRetry() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(8);
+        buffer.offerAll(List.of(1, 2, 3));
+        
+        List<Integer> first = new ArrayList<>();
+        buffer.peek(first, 2);
+        List<Integer> retry = new ArrayList<>();
+        buffer.peek(retry, 2);
+        
+        assertEquals(List.of(1, 2), first);
+        assertEquals(first, retry);
+        assertEquals(3, buffer.size());
+    }
+    
+    @Test
+    public void testConsumerSeesEveryItemFromProducerThread() throws Exception {
+        RingBuffer<Integer> buffer = new RingBuffer<>(64);
+        int total = 20_000;
+        Thread producer = new Thread(() -> {
+            int next = 0;
+            while (next < total) {
+                List<Integer> items = List.of(next, next + 1);
+                if (buffer.offerAll(items)) {
+                    next += 2;
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        
+        int expected = 0;
+        List<Integer> batch = new ArrayList<>();
+        while (expected < total) {
+            batch.clear();
+            int count = buffer.peek(batch, 16);
+            if (count == 0) {
+                Thread.yield();
+            }
+            for (int item : batch) {
+                assertEquals(expected++, item);
+            }
+            buffer.release(count);
+        }
+        producer.join();
+        assertEquals(0, buffer.size());
+    }
+}
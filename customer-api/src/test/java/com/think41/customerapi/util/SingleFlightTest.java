@@ -0,0 +1,193 @@
+package com.think41.customerapi.util;
+
+import com.think41.customerapi.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class SingleFlightTest {
+    
+    private final SingleFlight<Integer, String> flight = new SingleFlight<>("test");
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testConcurrentCallsShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.execute(1, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        }));
+        awaitInFlight(1);
+        
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(executor.submit(() -> flight.execute(1, () -> {
+                loads.incrementAndGet();
+                return "own";
+            })));
+        }
+        awaitCollapsed(5);
+        release.countDown();
+        
+        assertEquals("value", leader.get(5, TimeUnit.SECONDS));
+        for (Future<String> follower : followers) {
+            assertEquals("value", follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(6, flight.getCalls());
+        assertEquals(5, flight.getCollapsed());
+        assertEquals(0, inFlight().size());
+    }
+    
+    @Test
+    public void testDifferentKeysDoNotWait() {
+        assertEquals("a", flight.execute(1, () -> "a"));
+        assertEquals("b", flight.execute(2, () -> "b"));
+        assertEquals(0, flight.getCollapsed());
+    }
+    
+    @Test
+    public void testFollowersSeeLeadersException() throws Exception {
+        IllegalStateException failure = new IllegalStateException("boom");
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.execute(1, () -> {
+            await(release);
+            throw failure;
+        }));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> flight.execute(1, () -> "own"));
+        awaitCollapsed(1);
+        release.countDown();
+        
+        assertSame(failure, causeOf(leader));
+        assertSame(failure, causeOf(follower));
+        assertEquals(0, inFlight().size());
+        // Nothing is remembered, so the next call loads again
+        assertEquals("fresh", flight.execute(1, () -> "fresh"));
+    }
+    
+    @Test
+    public void testNothingRetainedAfterCompletion() {
+        AtomicInteger loads = new AtomicInteger();
+        flight.execute(1, () -> "v" + loads.incrementAndGet());
+        
+        assertEquals("v2", flight.execute(1, () -> "v" + loads.incrementAndGet()));
+        assertEquals(0, inFlight().size());
+    }
+    
+    @Test
+    public void testFollowerGivesUpAtItsOwnDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.execute(1, () -> {
+            await(release);
+            return "slow";
+        }));
+        awaitInFlight(1);
+        
+        long start = System.nanoTime();
+        Future<String> follower = executor.submit(() -> {
+            RequestBudget.bind(new RequestBudget(100, 0, 0));
+            try {
+                return flight.execute(1, () -> "own");
+            } finally {
+                RequestBudget.bind(null);
+            }
+        });
+        
+        assertTrue(causeOf(follower) instanceof DeadlineExceededException);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMs < 2000, "waited " + waitedMs + " ms");
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testFollowerLoadsItselfWhenLeaderTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> flight.execute(1, () -> {
+            await(release);
+            throw new QueryTimeoutException("leader's deadline");
+        }));
+        awaitInFlight(1);
+        Future<String> follower = executor.submit(() -> {
+            RequestBudget.bind(new RequestBudget(10_000, 0, 0));
+            try {
+                return flight.execute(1, () -> "own");
+            } finally {
+                RequestBudget.bind(null);
+            }
+        });
+        awaitCollapsed(1);
+        release.countDown();
+        
+        assertTrue(causeOf(leader) instanceof QueryTimeoutException);
+        assertEquals("own", follower.get(5, TimeUnit.SECONDS));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Map<Integer, ?> inFlight() {
+        return (Map<Integer, ?>) ReflectionTestUtils.getField(flight, "inFlight");
+    }
+    
+    private void awaitInFlight(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (inFlight().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+    
+    private void awaitCollapsed(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getCollapsed() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        // Collapsed is counted just before the caller starts waiting
+        Thread.sleep(20);
+    }
+    
+    private static Throwable causeOf(Future<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            return ex.getCause();
+        } catch (TimeoutException ex) {
+            fail("Call did not complete");
+        }
+        fail("Call did not fail");
+        return null;
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+-- Scaled, skewed dataset for query plan regression tests.
+-- ${users} and ${orders} are substituted by QueryPlanRegressionTest; every 10th order
+-- belongs to one of ten "whale" customers (ids 1-10) so per-customer reads hit large row counts.
+
+INSERT INTO users (id, first_name, last_name, email, age, gender, state, street_address,
+                   postal_code, city, country, latitude, longitude, traffic_source, created_at)
+SELECT g,
+       'First' || g,
+       'Last' || (g % 5000),
+       'user' || g || '@example.com',
+       18 + g % 60,
+       CASE WHEN g % 2 = 0 THEN 'M' ELSE 'F' END,
+       (ARRAY['California', 'Texas', 'New York', 'Bavaria', 'Ontario', 'Guangdong', 'Sao Paulo', 'Tokyo'])[1 + g % 8],
+       g || ' Main St',
+       lpad((g % 99999)::text, 5, '0'),
+       'City' || (g % 500),
+       (ARRAY['United States', 'United States', 'China', 'Brasil', 'Germany', 'Canada',
+              'Japan', 'France', 'Spain', 'United Kingdom', 'Australia', 'South Korea'])[1 + (g * 7) % 12],
+       34.05,
+       -118.24,
+       (ARRAY['Search', 'Email', 'Organic', 'Facebook', 'Display'])[1 + g % 5],
+       timestamptz '2019-01-01' + g * interval '13 minutes'
+FROM generate_series(1, ${users}) g;
+
+SELECT create_order_partitions(timestamptz '2019-01-01', timestamptz '2019-01-01' + ${orders} * interval '3 minutes');
+
+INSERT INTO orders (order_id, user_id, status, gender, created_at, returned_at, shipped_at,
+                    delivered_at, num_of_item)
+SELECT g,
+       CASE WHEN g % 10 = 0 THEN 1 + (g / 10) % 10 ELSE 1 + ((g::bigint * 7919) % ${users})::int END,
+       (ARRAY['Complete', 'Shipped', 'Processing', 'Cancelled', 'Returned'])[1 + g % 5],
+       CASE WHEN g % 2 = 0 THEN 'M' ELSE 'F' END,
+       timestamptz '2019-01-01' + g * interval '3 minutes',
+       CASE WHEN g % 5 = 4 THEN timestamptz '2019-01-01' + g * interval '3 minutes' + interval '12 days' END,
+       CASE WHEN g % 5 IN (0, 1, 4) THEN timestamptz '2019-01-01' + g * interval '3 minutes' + (g % 72) * interval '1 hour' END,
+       CASE WHEN g % 5 IN (0, 4) THEN timestamptz '2019-01-01' + g * interval '3 minutes' + (24 + g % 72 + g % 100) * interval '1 hour' END,
+       1 + g % 4
+FROM generate_series(1, ${orders}) g;
@@ -1,5 +1,5 @@
 import React, { useState, useEffect } from 'react';
-import { Customer, Order, PagedResponse } from '../types/api';
+import { Customer, CustomerSummary, Order } from '../types/api';
 import { CustomerAPI } from '../services/api';
 import LoadingSpinner from './LoadingSpinner';
 import ErrorAlert from './ErrorAlert';
@@ -25,15 +25,39 @@ const CustomerDetailModal: React.FC<CustomerDetailModalProps> = ({
     }
   }, [isOpen, customer]);
 
+  // Apply pushed order changes instead of polling the paged orders endpoint
+  useEffect(() => {
+    if (!isOpen || !customer) {
+      return;
+    }
+    const source = CustomerAPI.streamCustomerOrders(customer.id);
+    source.addEventListener('order', (event) => {
+      const changed: Order = JSON.parse((event as MessageEvent).data);
+      setOrders(prev => {
+        const existing = prev.find(order => order.order_id === changed.order_id);
+        if (existing) {
+          // Pushed orders carry no customer details; keep the ones already loaded
+          return prev.map(order => order.order_id === changed.order_id
+            ? { ...changed, customer_name: order.customer_name, customer_email: order.customer_email }
+            : order);
+        }
+        return [changed, ...prev]
+          .sort((a, b) => new Date(b.created_at).getTime() - new Date(a.created_at).getTime())
+          .slice(0, 5);
+      });
+    });
+    source.addEventListener('resync', () => {
+      fetchOrders();
+    });
+    return () => source.close();
+  }, [isOpen, customer]);
+
   const fetchOrders = async () => {
     setLoading(true);
     setError(null);
     try {
-      const response: PagedResponse<Order> = await CustomerAPI.getCustomerOrders(
-        customer.id,
-        { page: 0, size: 5 }
-      );
-      setOrders(response.content);
+      const summary: CustomerSummary = await CustomerAPI.getCustomerSummary(customer.id, 5);
+      setOrders(summary.recent_orders);
     } catch (err: any) {
       setError(err.message || 'Failed to fetch orders');
     } finally {
@@ -81,22 +81,23 @@ export const useCustomers = (initialPageSize: number = 20): UseCustomersState &
   }, [currentParams]);
 
   const searchCustomers = useCallback(async (searchTerm: string) => {
+    // Keep other active filters; the API combines them in one query
     const params: GetCustomersParams = {
+      ...currentParams,
       page: 0,
-      size: currentParams.size,
       search: searchTerm || undefined,
     };
     await fetchCustomers(params);
-  }, [fetchCustomers, currentParams.size]);
+  }, [fetchCustomers, currentParams]);
 
   const filterByCountry = useCallback(async (country: string) => {
     const params: GetCustomersParams = {
+      ...currentParams,
       page: 0,
-      size: currentParams.size,
       country: country || undefined,
     };
     await fetchCustomers(params);
-  }, [fetchCustomers, currentParams.size]);
+  }, [fetchCustomers, currentParams]);
 
   const goToPage = useCallback(async (page: number) => {
     const params: GetCustomersParams = {
@@ -1,5 +1,5 @@
 import axios from 'axios';
-import { Customer, Order, PagedResponse, ApiError } from '../types/api';
+import { Customer, CustomerOrdersPage, CustomerSummary, Order, PagedResponse, ApiError } from '../types/api';
 
 const API_BASE_URL = process.env.REACT_APP_API_URL || 'http://localhost:8080/api';
 
@@ -27,6 +27,15 @@ export interface GetCustomersParams {
   size?: number;
   search?: string;
   country?: string;
+  state?: string;
+  gender?: 'M' | 'F';
+  minAge?: number;
+  maxAge?: number;
+  trafficSource?: string;
+  createdFrom?: string;
+  createdTo?: string;
+  sort?: 'id' | 'created_at' | 'age' | 'first_name' | 'last_name';
+  direction?: 'asc' | 'desc';
 }
 
 export interface GetOrdersParams {
@@ -43,6 +52,15 @@ export class CustomerAPI {
           size: params.size || 20,
           ...(params.search && { search: params.search }),
           ...(params.country && { country: params.country }),
+          ...(params.state && { state: params.state }),
+          ...(params.gender && { gender: params.gender }),
+          ...(params.minAge !== undefined && { min_age: params.minAge }),
+          ...(params.maxAge !== undefined && { max_age: params.maxAge }),
+          ...(params.trafficSource && { traffic_source: params.trafficSource }),
+          ...(params.createdFrom && { created_from: params.createdFrom }),
+          ...(params.createdTo && { created_to: params.createdTo }),
+          ...(params.sort && { sort: params.sort }),
+          ...(params.direction && { direction: params.direction }),
         },
       });
       return response.data;
@@ -65,9 +83,9 @@ export class CustomerAPI {
   static async getCustomerOrders(
     customerId: number,
     params: GetOrdersParams = {}
-  ): Promise<PagedResponse<Order>> {
+  ): Promise<CustomerOrdersPage> {
     try {
-      const response = await api.get<PagedResponse<Order>>(
+      const response = await api.get<CustomerOrdersPage>(
         `/customers/${customerId}/orders`,
         {
           params: {
@@ -83,6 +101,28 @@ export class CustomerAPI {
     }
   }
 
+  // Customer, recent orders, per-status counts and totals in one request
+  static async getCustomerSummary(
+    customerId: number,
+    ordersSize: number = 5
+  ): Promise<CustomerSummary> {
+    try {
+      const response = await api.get<CustomerSummary>(
+        `/customers/${customerId}/summary`,
+        { params: { orders_size: ordersSize } }
+      );
+      return response.data;
+    } catch (error) {
+      console.error(`Error fetching summary for customer ${customerId}:`, error);
+      throw error;
+    }
+  }
+
+  // Server-Sent Events: 'order' carries an inserted or updated Order, 'resync' means reload
+  static streamCustomerOrders(customerId: number): EventSource {
+    return new EventSource(`${API_BASE_URL}/customers/${customerId}/orders/stream`);
+  }
+
   static async getOrderById(orderId: number): Promise<Order> {
     try {
       const response = await api.get<Order>(`/orders/${orderId}`);
@@ -27,8 +27,9 @@ export interface Order {
   shipped_at: string | null;
   delivered_at: string | null;
   num_of_item: number;
-  customer_name: string;
-  customer_email: string;
+  // Left out of CustomerOrdersPage rows, which carry them once
+  customer_name?: string;
+  customer_email?: string;
 }
 
 export interface PagedResponse<T> {
@@ -41,6 +42,26 @@ export interface PagedResponse<T> {
   is_last: boolean;
 }
 
+export interface CustomerOrdersPage extends PagedResponse<Order> {
+  customer_id: number;
+  customer_name: string;
+  customer_email: string;
+}
+
+export interface OrderTotals {
+  order_count: number;
+  item_count: number;
+  first_order_at: string | null;
+  last_order_at: string | null;
+}
+
+export interface CustomerSummary {
+  customer: Customer;
+  recent_orders: Order[];
+  status_counts: Record<string, number>;
+  totals: OrderTotals;
+}
+
 export interface ApiError {
   error: string;
   message: string;
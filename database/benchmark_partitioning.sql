@@ -0,0 +1,131 @@
+-- Monthly partitioned orders (schema.sql) against the same rows in the previous plain table.
+-- Builds a generated dataset, so only run it against a scratch database:
+--
+--   createdb orders_bench
+--   sed '/^\\c /d' schema.sql | psql -q -d orders_bench
+--   psql -d orders_bench -v orders=10000000 -f benchmark_partitioning.sql
+--
+-- Orders are spread evenly over 2019-2023 (60 partitions) across 500,000 customers. Reads are
+-- run twice and the second, warm EXPLAIN ANALYZE is the one to compare.
+
+\timing on
+SET max_parallel_workers_per_gather = 0;
+
+-- Dataset
+
+INSERT INTO users (id, first_name, last_name, email, age, gender, country, traffic_source, created_at)
+SELECT g, 'First' || g, 'Last' || g, 'user' || g || '@example.com', 18 + g % 60,
+       CASE WHEN g % 2 = 0 THEN 'M' ELSE 'F' END, 'United States', 'Search', timestamptz '2018-01-01'
+FROM generate_series(1, 500000) g
+ON CONFLICT DO NOTHING;
+
+SELECT count(*) FROM create_order_partitions(timestamptz '2019-01-01', timestamptz '2023-12-31');
+
+INSERT INTO orders (order_id, user_id, status, gender, created_at, shipped_at, delivered_at, num_of_item)
+SELECT g,
+       1 + ((g::bigint * 7919) % 500000)::int,
+       (ARRAY['Complete', 'Shipped', 'Processing', 'Cancelled', 'Returned'])[1 + g % 5],
+       CASE WHEN g % 2 = 0 THEN 'M' ELSE 'F' END,
+       timestamptz '2019-01-01' + (g::float8 / :orders) * interval '1825 days',
+       CASE WHEN g % 5 IN (0, 1, 4) THEN timestamptz '2019-01-01' + (g::float8 / :orders) * interval '1825 days' + interval '2 days' END,
+       CASE WHEN g % 5 IN (0, 4) THEN timestamptz '2019-01-01' + (g::float8 / :orders) * interval '1825 days' + interval '5 days' END,
+       1 + g % 4
+FROM generate_series(1, :orders) g;
+
+-- The same rows in the layout before partitioning, with the same indexes
+DROP SCHEMA IF EXISTS plain CASCADE;
+CREATE SCHEMA plain;
+CREATE TABLE plain.orders (
+    order_id INTEGER PRIMARY KEY,
+    user_id INTEGER NOT NULL REFERENCES users(id),
+    status VARCHAR(50) NOT NULL,
+    gender CHAR(1),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    returned_at TIMESTAMP WITH TIME ZONE,
+    shipped_at TIMESTAMP WITH TIME ZONE,
+    delivered_at TIMESTAMP WITH TIME ZONE,
+    num_of_item INTEGER
+);
+INSERT INTO plain.orders SELECT * FROM orders;
+CREATE INDEX ON plain.orders(user_id, created_at DESC);
+CREATE INDEX ON plain.orders(created_at, order_id);
+CREATE INDEX ON plain.orders(status, created_at, order_id);
+CREATE INDEX ON plain.orders(created_at, order_id) WHERE shipped_at IS NULL;
+CREATE INDEX ON plain.orders(created_at, order_id) WHERE delivered_at IS NULL;
+
+VACUUM ANALYZE orders;
+VACUUM ANALYZE order_keys;
+VACUUM ANALYZE plain.orders;
+
+-- Size of what vacuum and index maintenance work on: the whole table, or the current month
+SELECT 'plain' AS layout, pg_size_pretty(pg_table_size('plain.orders')) AS heap,
+       pg_size_pretty(pg_indexes_size('plain.orders')) AS indexes
+UNION ALL
+SELECT 'one partition', pg_size_pretty(pg_table_size('orders_2023_12')), pg_size_pretty(pg_indexes_size('orders_2023_12'))
+UNION ALL
+SELECT 'order_keys', pg_size_pretty(pg_table_size('order_keys')), pg_size_pretty(pg_indexes_size('order_keys'));
+
+-- 1. One month of analytics: status totals for June 2023
+
+EXPLAIN (ANALYZE, BUFFERS) SELECT status, COUNT(*), SUM(num_of_item) FROM plain.orders
+WHERE created_at >= '2023-06-01' AND created_at < '2023-07-01' GROUP BY status;
+EXPLAIN (ANALYZE, BUFFERS) SELECT status, COUNT(*), SUM(num_of_item) FROM plain.orders
+WHERE created_at >= '2023-06-01' AND created_at < '2023-07-01' GROUP BY status;
+EXPLAIN (ANALYZE, BUFFERS) SELECT status, COUNT(*), SUM(num_of_item) FROM orders
+WHERE created_at >= '2023-06-01' AND created_at < '2023-07-01' GROUP BY status;
+EXPLAIN (ANALYZE, BUFFERS) SELECT status, COUNT(*), SUM(num_of_item) FROM orders
+WHERE created_at >= '2023-06-01' AND created_at < '2023-07-01' GROUP BY status;
+
+-- 2. A feed page for one status within a quarter (the order feed's query shape)
+
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain.orders
+WHERE status = 'Shipped' AND created_at >= '2022-01-01' AND created_at < '2022-04-01'
+ORDER BY created_at DESC, order_id DESC LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain.orders
+WHERE status = 'Shipped' AND created_at >= '2022-01-01' AND created_at < '2022-04-01'
+ORDER BY created_at DESC, order_id DESC LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders
+WHERE status = 'Shipped' AND created_at >= '2022-01-01' AND created_at < '2022-04-01'
+ORDER BY created_at DESC, order_id DESC LIMIT 21;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders
+WHERE status = 'Shipped' AND created_at >= '2022-01-01' AND created_at < '2022-04-01'
+ORDER BY created_at DESC, order_id DESC LIMIT 21;
+
+-- 3. A customer's latest orders (not date-bounded, so every partition is a candidate)
+
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain.orders WHERE user_id = 4242 ORDER BY created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain.orders WHERE user_id = 4242 ORDER BY created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders WHERE user_id = 4242 ORDER BY created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders WHERE user_id = 4242 ORDER BY created_at DESC LIMIT 20;
+
+-- 4. One order by ID (partitioned: located through order_keys)
+
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain.orders WHERE order_id = 4242424;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM plain.orders WHERE order_id = 4242424;
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders WHERE order_id = 4242424
+AND created_at = (SELECT created_at FROM order_keys WHERE order_id = 4242424);
+EXPLAIN (ANALYZE, BUFFERS) SELECT * FROM orders WHERE order_id = 4242424
+AND created_at = (SELECT created_at FROM order_keys WHERE order_id = 4242424);
+
+-- 5. Bulk insert of 10,000 new orders (partitioned: including the order_keys trigger)
+
+INSERT INTO plain.orders (order_id, user_id, status, created_at, num_of_item)
+SELECT :orders + g, 1 + g % 500000, 'Processing', timestamptz '2023-12-31' + g * interval '1 second', 1
+FROM generate_series(1, 10000) g;
+INSERT INTO orders (order_id, user_id, status, created_at, num_of_item)
+SELECT :orders + g, 1 + g % 500000, 'Processing', timestamptz '2023-12-31' + g * interval '1 second', 1
+FROM generate_series(1, 10000) g;
+
+-- 6. Vacuum after status changes on the latest month's orders
+
+UPDATE plain.orders SET status = 'Complete' WHERE created_at >= '2023-12-01' AND order_id % 10 = 0;
+UPDATE orders SET status = 'Complete' WHERE created_at >= '2023-12-01' AND order_id % 10 = 0;
+VACUUM plain.orders;
+VACUUM orders_2023_12;
+
+-- 7. Retention: removing the oldest month
+
+DELETE FROM plain.orders WHERE created_at < '2019-02-01';
+VACUUM plain.orders;
+SELECT detach_order_partitions('2019-02-01');
+DROP TABLE orders_2019_01;
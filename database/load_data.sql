@@ -7,7 +7,10 @@ FROM '/path/to/your/project/users.csv'
 DELIMITER ','
 CSV HEADER;
 
--- Load orders data
+-- Load orders data. Orders can only be stored in an existing monthly partition, so create them
+-- for the months the file covers first
+SELECT create_order_partitions(timestamptz '2019-01-01', now());
+
 COPY orders(order_id, user_id, status, gender, created_at, returned_at, shipped_at, delivered_at, num_of_item)
 FROM '/path/to/your/project/orders.csv'
 DELIMITER ','
@@ -23,9 +23,29 @@ CREATE TABLE IF NOT EXISTS users (
     created_at TIMESTAMP WITH TIME ZONE NOT NULL
 );
 
--- Create orders table
+-- Orders are partitioned by month of created_at, one table per UTC month named orders_YYYY_MM.
+-- A database created before partitioning still has a plain orders table: it is set aside here
+-- and its rows are moved into the partitioned table at the end of this script.
+DO $$
+DECLARE
+    index_name TEXT;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('orders') AND relkind = 'r') THEN
+        ALTER TABLE orders RENAME TO orders_unpartitioned;
+        -- Frees the index names for the partitioned table
+        FOR index_name IN
+            SELECT indexrelid::regclass::text FROM pg_index WHERE indrelid = 'orders_unpartitioned'::regclass
+        LOOP
+            EXECUTE format('ALTER INDEX %s RENAME TO %I', index_name, 'unpartitioned_' || index_name);
+        END LOOP;
+    END IF;
+END;
+$$;
+
+-- The partition key has to be part of the primary key, so order_id on its own is kept unique
+-- by order_keys below
 CREATE TABLE IF NOT EXISTS orders (
-    order_id INTEGER PRIMARY KEY,
+    order_id INTEGER NOT NULL,
     user_id INTEGER NOT NULL,
     status VARCHAR(50) NOT NULL,
     gender CHAR(1) CHECK (gender IN ('M', 'F')),
@@ -34,14 +54,231 @@ CREATE TABLE IF NOT EXISTS orders (
     shipped_at TIMESTAMP WITH TIME ZONE,
     delivered_at TIMESTAMP WITH TIME ZONE,
     num_of_item INTEGER CHECK (num_of_item > 0),
+    PRIMARY KEY (order_id, created_at),
     FOREIGN KEY (user_id) REFERENCES users(id)
+) PARTITION BY RANGE (created_at);
+
+-- One row per order, maintained by trigger: an index over all partitions. Its primary key
+-- rejects an order_id that already exists in any partition, lookups by order_id read created_at
+-- here first so that only the partition holding the order is searched, and per-customer order
+-- counts come from here rather than from one index probe per partition.
+CREATE TABLE IF NOT EXISTS order_keys (
+    order_id INTEGER PRIMARY KEY,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    user_id INTEGER NOT NULL
 );
+CREATE INDEX IF NOT EXISTS idx_order_keys_user_id ON order_keys(user_id);
+
+-- Creates the partition for the month containing month_start unless it exists; returns its
+-- name if it was created. There is no default partition, so an order can only be inserted once
+-- its month has a partition (the API creates them on demand, see OrderPartitionService).
+CREATE OR REPLACE FUNCTION create_order_partition(month_start TIMESTAMPTZ) RETURNS TEXT AS $$
+DECLARE
+    lower_bound TIMESTAMP := date_trunc('month', month_start AT TIME ZONE 'UTC');
+    partition_name TEXT := 'orders_' || to_char(lower_bound, 'YYYY_MM');
+BEGIN
+    -- Concurrent callers would otherwise race to create the same partition
+    PERFORM pg_advisory_xact_lock(hashtext('orders_partitions'));
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN NULL;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)', partition_name,
+            lower_bound AT TIME ZONE 'UTC', (lower_bound + interval '1 month') AT TIME ZONE 'UTC');
+    RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Creates the missing partitions for every month from from_ts through to_ts; returns their names
+CREATE OR REPLACE FUNCTION create_order_partitions(from_ts TIMESTAMPTZ, to_ts TIMESTAMPTZ) RETURNS SETOF TEXT AS $$
+    SELECT created
+    FROM generate_series(date_trunc('month', from_ts AT TIME ZONE 'UTC'), to_ts AT TIME ZONE 'UTC',
+                         interval '1 month') AS month,
+         create_order_partition(month AT TIME ZONE 'UTC') AS created
+    WHERE created IS NOT NULL;
+$$ LANGUAGE sql;
+
+-- Detaches every partition that ends on or before before_ts and drops its orders from
+-- order_keys; returns the detached table names. The tables are kept for archiving or DROP TABLE.
+CREATE OR REPLACE FUNCTION detach_order_partitions(before_ts TIMESTAMPTZ) RETURNS SETOF TEXT AS $$
+DECLARE
+    expired RECORD;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('orders_partitions'));
+    FOR expired IN
+        SELECT partition_name, bounds[1]::timestamptz AS lower_bound, bounds[2]::timestamptz AS upper_bound
+        FROM (
+            SELECT c.oid::regclass::text AS partition_name,
+                   regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \(''(.*)''\) TO \(''(.*)''\)') AS bounds
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'orders'::regclass
+        ) partitions
+        WHERE bounds[2]::timestamptz <= before_ts
+        ORDER BY lower_bound
+    LOOP
+        EXECUTE format('ALTER TABLE orders DETACH PARTITION %s', expired.partition_name);
+        DELETE FROM order_keys WHERE created_at >= expired.lower_bound AND created_at < expired.upper_bound;
+        RETURN NEXT expired.partition_name;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_order_partitions(now(), now() + interval '3 months');
 
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_users_email ON users(email);
 CREATE INDEX IF NOT EXISTS idx_users_state ON users(state);
 CREATE INDEX IF NOT EXISTS idx_users_country ON users(country);
 CREATE INDEX IF NOT EXISTS idx_users_created_at ON users(created_at);
-CREATE INDEX IF NOT EXISTS idx_orders_user_id ON orders(user_id);
-CREATE INDEX IF NOT EXISTS idx_orders_status ON orders(status);
-CREATE INDEX IF NOT EXISTS idx_orders_created_at ON orders(created_at);
\ No newline at end of file
+-- Customer order pages read newest-first; (user_id, created_at DESC) serves the ordered page
+-- and per-customer counts without a separate sort
+DROP INDEX IF EXISTS idx_orders_user_id;
+CREATE INDEX IF NOT EXISTS idx_orders_user_id_created_at ON orders(user_id, created_at DESC);
+-- Global order feed pages newest-first by (created_at, order_id); each filter combination has an
+-- index in that order so a page is an index range scan regardless of how deep the cursor is
+DROP INDEX IF EXISTS idx_orders_status;
+DROP INDEX IF EXISTS idx_orders_created_at;
+CREATE INDEX IF NOT EXISTS idx_orders_created_at_order_id ON orders(created_at, order_id);
+CREATE INDEX IF NOT EXISTS idx_orders_status_created_at_order_id ON orders(status, created_at, order_id);
+CREATE INDEX IF NOT EXISTS idx_orders_unshipped_created_at ON orders(created_at, order_id) WHERE shipped_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_orders_undelivered_created_at ON orders(created_at, order_id) WHERE delivered_at IS NULL;
+
+-- Composite and trigram indexes for combined customer filters
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_users_country_state ON users(country, state);
+DROP INDEX IF EXISTS idx_users_country_created_at;
+DROP INDEX IF EXISTS idx_users_traffic_source_created_at;
+CREATE INDEX IF NOT EXISTS idx_users_country_created_at_id ON users(country, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_traffic_source_created_at_id ON users(traffic_source, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_age ON users(age);
+CREATE INDEX IF NOT EXISTS idx_users_first_name_trgm ON users USING gin (LOWER(first_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_last_name_trgm ON users USING gin (LOWER(last_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gin (LOWER(email) gin_trgm_ops);
+
+-- Change notifications for cross-node cache invalidation. Every statement that changes users or
+-- orders sends the affected ids on the customer_api_changes channel when it commits, as
+-- "users:1,2,3" or "orders:7,8" with at most 500 ids per message. Order changes also report
+-- their customer, whose order count changed.
+CREATE OR REPLACE FUNCTION notify_changed_ids(table_name TEXT, ids INTEGER[]) RETURNS void AS $$
+DECLARE
+    chunk INTEGER[];
+BEGIN
+    FOR chunk IN
+        SELECT array_agg(id)
+        FROM (
+            SELECT id, (row_number() OVER () - 1) / 500 AS bucket
+            FROM (SELECT DISTINCT unnest(ids) AS id) distinct_ids
+        ) numbered
+        GROUP BY bucket
+    LOOP
+        PERFORM pg_notify('customer_api_changes', table_name || ':' || array_to_string(chunk, ','));
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notify_users_changed() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM notify_changed_ids('users', ARRAY(SELECT id FROM new_rows));
+    ELSIF TG_OP = 'UPDATE' THEN
+        PERFORM notify_changed_ids('users', ARRAY(SELECT id FROM new_rows UNION SELECT id FROM old_rows));
+    ELSE
+        PERFORM notify_changed_ids('users', ARRAY(SELECT id FROM old_rows));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION notify_orders_changed() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM notify_changed_ids('orders', ARRAY(SELECT order_id FROM new_rows));
+        PERFORM notify_changed_ids('users', ARRAY(SELECT user_id FROM new_rows));
+    ELSIF TG_OP = 'UPDATE' THEN
+        PERFORM notify_changed_ids('orders', ARRAY(SELECT order_id FROM new_rows UNION SELECT order_id FROM old_rows));
+        PERFORM notify_changed_ids('users', ARRAY(SELECT user_id FROM new_rows UNION SELECT user_id FROM old_rows));
+    ELSE
+        PERFORM notify_changed_ids('orders', ARRAY(SELECT order_id FROM old_rows));
+        PERFORM notify_changed_ids('users', ARRAY(SELECT user_id FROM old_rows));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS users_changed_insert ON users;
+DROP TRIGGER IF EXISTS users_changed_update ON users;
+DROP TRIGGER IF EXISTS users_changed_delete ON users;
+CREATE TRIGGER users_changed_insert AFTER INSERT ON users
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_users_changed();
+CREATE TRIGGER users_changed_update AFTER UPDATE ON users
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_users_changed();
+CREATE TRIGGER users_changed_delete AFTER DELETE ON users
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_users_changed();
+
+DROP TRIGGER IF EXISTS orders_changed_insert ON orders;
+DROP TRIGGER IF EXISTS orders_changed_update ON orders;
+DROP TRIGGER IF EXISTS orders_changed_delete ON orders;
+CREATE TRIGGER orders_changed_insert AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_orders_changed();
+CREATE TRIGGER orders_changed_update AFTER UPDATE ON orders
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_orders_changed();
+CREATE TRIGGER orders_changed_delete AFTER DELETE ON orders
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_orders_changed();
+
+-- order_keys follows every insert, delete and change of order_id, created_at or user_id.
+-- Inserting an order_id that exists in another partition fails here with a unique violation.
+-- A key the inserting statement already claimed in order_keys (as bulk inserts do) is kept.
+CREATE OR REPLACE FUNCTION sync_order_keys() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO order_keys (order_id, created_at, user_id)
+        SELECT n.order_id, n.created_at, n.user_id FROM new_rows n
+        WHERE NOT EXISTS (SELECT 1 FROM order_keys k WHERE k.order_id = n.order_id
+                          AND k.created_at = n.created_at AND k.user_id = n.user_id);
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- Most updates change none of these columns and leave order_keys alone
+        DELETE FROM order_keys k USING old_rows o
+        WHERE k.order_id = o.order_id
+          AND NOT EXISTS (SELECT 1 FROM new_rows n WHERE n.order_id = o.order_id
+                          AND n.created_at = o.created_at AND n.user_id = o.user_id);
+        INSERT INTO order_keys (order_id, created_at, user_id)
+        SELECT n.order_id, n.created_at, n.user_id FROM new_rows n
+        WHERE NOT EXISTS (SELECT 1 FROM old_rows o WHERE o.order_id = n.order_id
+                          AND o.created_at = n.created_at AND o.user_id = n.user_id);
+    ELSE
+        DELETE FROM order_keys k USING old_rows o WHERE k.order_id = o.order_id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS order_keys_insert ON orders;
+DROP TRIGGER IF EXISTS order_keys_update ON orders;
+DROP TRIGGER IF EXISTS order_keys_delete ON orders;
+CREATE TRIGGER order_keys_insert AFTER INSERT ON orders
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION sync_order_keys();
+CREATE TRIGGER order_keys_update AFTER UPDATE ON orders
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION sync_order_keys();
+CREATE TRIGGER order_keys_delete AFTER DELETE ON orders
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION sync_order_keys();
+
+-- Moves the rows of a pre-partitioning orders table (see the top of this script) into partitions
+DO $$
+DECLARE
+    first_created_at TIMESTAMPTZ;
+    last_created_at TIMESTAMPTZ;
+BEGIN
+    IF to_regclass('orders_unpartitioned') IS NULL THEN
+        RETURN;
+    END IF;
+    SELECT MIN(created_at), MAX(created_at) INTO first_created_at, last_created_at FROM orders_unpartitioned;
+    IF first_created_at IS NOT NULL THEN
+        PERFORM create_order_partitions(first_created_at, last_created_at);
+    END IF;
+    INSERT INTO orders (order_id, user_id, status, gender, created_at, returned_at, shipped_at,
+                        delivered_at, num_of_item)
+    SELECT order_id, user_id, status, gender, created_at, returned_at, shipped_at, delivered_at, num_of_item
+    FROM orders_unpartitioned;
+    DROP TABLE orders_unpartitioned;
+END;
+$$;
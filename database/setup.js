@@ -27,6 +27,7 @@ async function createTables() {
     console.log('Dropping existing tables...');
     
     // Drop tables if they exist (in correct order due to foreign keys)
+    await client.query('DROP TABLE IF EXISTS order_keys CASCADE');
     await client.query('DROP TABLE IF EXISTS orders CASCADE');
     await client.query('DROP TABLE IF EXISTS users CASCADE');
     
@@ -53,10 +54,10 @@ async function createTables() {
       )
     `);
 
-    // Create orders table
+    // Create orders table, partitioned by month of created_at (see schema.sql)
     await client.query(`
       CREATE TABLE orders (
-        order_id INTEGER PRIMARY KEY,
+        order_id INTEGER NOT NULL,
         user_id INTEGER NOT NULL,
         status VARCHAR(50) NOT NULL,
         gender CHAR(1) CHECK (gender IN ('M', 'F')),
@@ -65,7 +66,17 @@ async function createTables() {
         shipped_at TIMESTAMP WITH TIME ZONE,
         delivered_at TIMESTAMP WITH TIME ZONE,
         num_of_item INTEGER CHECK (num_of_item > 0),
+        PRIMARY KEY (order_id, created_at),
         FOREIGN KEY (user_id) REFERENCES users(id)
+      ) PARTITION BY RANGE (created_at)
+    `);
+
+    // One row per order across all partitions, kept by the sync_order_keys trigger
+    await client.query(`
+      CREATE TABLE order_keys (
+        order_id INTEGER PRIMARY KEY,
+        created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+        user_id INTEGER NOT NULL
       )
     `);
 
@@ -74,9 +85,22 @@ async function createTables() {
     await client.query('CREATE INDEX idx_users_state ON users(state)');
     await client.query('CREATE INDEX idx_users_country ON users(country)');
     await client.query('CREATE INDEX idx_users_created_at ON users(created_at)');
-    await client.query('CREATE INDEX idx_orders_user_id ON orders(user_id)');
-    await client.query('CREATE INDEX idx_orders_status ON orders(status)');
-    await client.query('CREATE INDEX idx_orders_created_at ON orders(created_at)');
+    await client.query('CREATE INDEX idx_orders_user_id_created_at ON orders(user_id, created_at DESC)');
+    await client.query('CREATE INDEX idx_orders_created_at_order_id ON orders(created_at, order_id)');
+    await client.query('CREATE INDEX idx_orders_status_created_at_order_id ON orders(status, created_at, order_id)');
+    await client.query('CREATE INDEX idx_orders_unshipped_created_at ON orders(created_at, order_id) WHERE shipped_at IS NULL');
+    await client.query('CREATE INDEX idx_orders_undelivered_created_at ON orders(created_at, order_id) WHERE delivered_at IS NULL');
+    await client.query('CREATE INDEX idx_order_keys_user_id ON order_keys(user_id)');
+
+    // Composite and trigram indexes for combined customer filters
+    await client.query('CREATE EXTENSION IF NOT EXISTS pg_trgm');
+    await client.query('CREATE INDEX idx_users_country_state ON users(country, state)');
+    await client.query('CREATE INDEX idx_users_country_created_at_id ON users(country, created_at, id)');
+    await client.query('CREATE INDEX idx_users_traffic_source_created_at_id ON users(traffic_source, created_at, id)');
+    await client.query('CREATE INDEX idx_users_age ON users(age)');
+    await client.query('CREATE INDEX idx_users_first_name_trgm ON users USING gin (LOWER(first_name) gin_trgm_ops)');
+    await client.query('CREATE INDEX idx_users_last_name_trgm ON users USING gin (LOWER(last_name) gin_trgm_ops)');
+    await client.query('CREATE INDEX idx_users_email_trgm ON users USING gin (LOWER(email) gin_trgm_ops)');
 
     console.log('Tables created successfully!');
   } catch (error) {
@@ -174,6 +198,12 @@ async function loadOrdersData() {
         })
         .on('end', async () => {
           try {
+            // Every month in the file needs its partition before its orders can be inserted
+            await client.query(
+              'SELECT create_order_partitions(MIN(t), MAX(t)) FROM unnest($1::timestamptz[]) t',
+              [orders.map((order) => order[4])]
+            );
+
             // Insert orders in batches
             const batchSize = 1000;
             for (let i = 0; i < orders.length; i += batchSize) {
@@ -185,7 +215,7 @@ async function loadOrdersData() {
               const query = `
                 INSERT INTO orders (order_id, user_id, status, gender, created_at, returned_at, shipped_at, delivered_at, num_of_item)
                 VALUES ${values}
-                ON CONFLICT (order_id) DO NOTHING
+                ON CONFLICT (order_id, created_at) DO NOTHING
               `;
               
               await client.query(query, batch.flat());
@@ -258,11 +288,193 @@ async function runVerificationQueries() {
   }
 }
 
+// Partition management functions and the order_keys trigger, created before the CSV load so
+// order_keys is filled as orders are inserted
+async function createOrderPartitioning() {
+  const client = await pool.connect();
+  try {
+    console.log('Creating order partitioning functions...');
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION create_order_partition(month_start TIMESTAMPTZ) RETURNS TEXT AS $$
+      DECLARE
+          lower_bound TIMESTAMP := date_trunc('month', month_start AT TIME ZONE 'UTC');
+          partition_name TEXT := 'orders_' || to_char(lower_bound, 'YYYY_MM');
+      BEGIN
+          PERFORM pg_advisory_xact_lock(hashtext('orders_partitions'));
+          IF to_regclass(partition_name) IS NOT NULL THEN
+              RETURN NULL;
+          END IF;
+          EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)', partition_name,
+                  lower_bound AT TIME ZONE 'UTC', (lower_bound + interval '1 month') AT TIME ZONE 'UTC');
+          RETURN partition_name;
+      END;
+      $$ LANGUAGE plpgsql
+    `);
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION create_order_partitions(from_ts TIMESTAMPTZ, to_ts TIMESTAMPTZ) RETURNS SETOF TEXT AS $$
+          SELECT created
+          FROM generate_series(date_trunc('month', from_ts AT TIME ZONE 'UTC'), to_ts AT TIME ZONE 'UTC',
+                               interval '1 month') AS month,
+               create_order_partition(month AT TIME ZONE 'UTC') AS created
+          WHERE created IS NOT NULL;
+      $$ LANGUAGE sql
+    `);
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION detach_order_partitions(before_ts TIMESTAMPTZ) RETURNS SETOF TEXT AS $$
+      DECLARE
+          expired RECORD;
+      BEGIN
+          PERFORM pg_advisory_xact_lock(hashtext('orders_partitions'));
+          FOR expired IN
+              SELECT partition_name, bounds[1]::timestamptz AS lower_bound, bounds[2]::timestamptz AS upper_bound
+              FROM (
+                  SELECT c.oid::regclass::text AS partition_name,
+                         regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \\(''(.*)''\\) TO \\(''(.*)''\\)') AS bounds
+                  FROM pg_inherits i
+                  JOIN pg_class c ON c.oid = i.inhrelid
+                  WHERE i.inhparent = 'orders'::regclass
+              ) partitions
+              WHERE bounds[2]::timestamptz <= before_ts
+              ORDER BY lower_bound
+          LOOP
+              EXECUTE format('ALTER TABLE orders DETACH PARTITION %s', expired.partition_name);
+              DELETE FROM order_keys WHERE created_at >= expired.lower_bound AND created_at < expired.upper_bound;
+              RETURN NEXT expired.partition_name;
+          END LOOP;
+      END;
+      $$ LANGUAGE plpgsql
+    `);
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION sync_order_keys() RETURNS trigger AS $$
+      BEGIN
+          IF TG_OP = 'INSERT' THEN
+              -- Keys the inserting statement already claimed are kept
+              INSERT INTO order_keys (order_id, created_at, user_id)
+              SELECT n.order_id, n.created_at, n.user_id FROM new_rows n
+              WHERE NOT EXISTS (SELECT 1 FROM order_keys k WHERE k.order_id = n.order_id
+                                AND k.created_at = n.created_at AND k.user_id = n.user_id);
+          ELSIF TG_OP = 'UPDATE' THEN
+              DELETE FROM order_keys k USING old_rows o
+              WHERE k.order_id = o.order_id
+                AND NOT EXISTS (SELECT 1 FROM new_rows n WHERE n.order_id = o.order_id
+                                AND n.created_at = o.created_at AND n.user_id = o.user_id);
+              INSERT INTO order_keys (order_id, created_at, user_id)
+              SELECT n.order_id, n.created_at, n.user_id FROM new_rows n
+              WHERE NOT EXISTS (SELECT 1 FROM old_rows o WHERE o.order_id = n.order_id
+                                AND o.created_at = n.created_at AND o.user_id = n.user_id);
+          ELSE
+              DELETE FROM order_keys k USING old_rows o WHERE k.order_id = o.order_id;
+          END IF;
+          RETURN NULL;
+      END;
+      $$ LANGUAGE plpgsql
+    `);
+
+    await client.query(`CREATE TRIGGER order_keys_insert AFTER INSERT ON orders
+      REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION sync_order_keys()`);
+    await client.query(`CREATE TRIGGER order_keys_update AFTER UPDATE ON orders
+      REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION sync_order_keys()`);
+    await client.query(`CREATE TRIGGER order_keys_delete AFTER DELETE ON orders
+      REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION sync_order_keys()`);
+
+    await client.query(`SELECT create_order_partitions(now(), now() + interval '3 months')`);
+
+    console.log('Order partitioning functions created successfully!');
+  } catch (error) {
+    console.error('Error creating order partitioning functions:', error);
+    throw error;
+  } finally {
+    client.release();
+  }
+}
+
+// Created after the CSV load so the initial import does not emit change notifications
+async function createChangeNotifications() {
+  const client = await pool.connect();
+  try {
+    console.log('Creating change notification triggers...');
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION notify_changed_ids(table_name TEXT, ids INTEGER[]) RETURNS void AS $$
+      DECLARE
+          chunk INTEGER[];
+      BEGIN
+          FOR chunk IN
+              SELECT array_agg(id)
+              FROM (
+                  SELECT id, (row_number() OVER () - 1) / 500 AS bucket
+                  FROM (SELECT DISTINCT unnest(ids) AS id) distinct_ids
+              ) numbered
+              GROUP BY bucket
+          LOOP
+              PERFORM pg_notify('customer_api_changes', table_name || ':' || array_to_string(chunk, ','));
+          END LOOP;
+      END;
+      $$ LANGUAGE plpgsql
+    `);
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION notify_users_changed() RETURNS trigger AS $$
+      BEGIN
+          IF TG_OP = 'INSERT' THEN
+              PERFORM notify_changed_ids('users', ARRAY(SELECT id FROM new_rows));
+          ELSIF TG_OP = 'UPDATE' THEN
+              PERFORM notify_changed_ids('users', ARRAY(SELECT id FROM new_rows UNION SELECT id FROM old_rows));
+          ELSE
+              PERFORM notify_changed_ids('users', ARRAY(SELECT id FROM old_rows));
+          END IF;
+          RETURN NULL;
+      END;
+      $$ LANGUAGE plpgsql
+    `);
+
+    await client.query(`
+      CREATE OR REPLACE FUNCTION notify_orders_changed() RETURNS trigger AS $$
+      BEGIN
+          IF TG_OP = 'INSERT' THEN
+              PERFORM notify_changed_ids('orders', ARRAY(SELECT order_id FROM new_rows));
+              PERFORM notify_changed_ids('users', ARRAY(SELECT user_id FROM new_rows));
+          ELSIF TG_OP = 'UPDATE' THEN
+              PERFORM notify_changed_ids('orders', ARRAY(SELECT order_id FROM new_rows UNION SELECT order_id FROM old_rows));
+              PERFORM notify_changed_ids('users', ARRAY(SELECT user_id FROM new_rows UNION SELECT user_id FROM old_rows));
+          ELSE
+              PERFORM notify_changed_ids('orders', ARRAY(SELECT order_id FROM old_rows));
+              PERFORM notify_changed_ids('users', ARRAY(SELECT user_id FROM old_rows));
+          END IF;
+          RETURN NULL;
+      END;
+      $$ LANGUAGE plpgsql
+    `);
+
+    for (const table of ['users', 'orders']) {
+      await client.query(`CREATE TRIGGER ${table}_changed_insert AFTER INSERT ON ${table}
+        REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_${table}_changed()`);
+      await client.query(`CREATE TRIGGER ${table}_changed_update AFTER UPDATE ON ${table}
+        REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_${table}_changed()`);
+      await client.query(`CREATE TRIGGER ${table}_changed_delete AFTER DELETE ON ${table}
+        REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION notify_${table}_changed()`);
+    }
+
+    console.log('Change notification triggers created successfully!');
+  } catch (error) {
+    console.error('Error creating change notification triggers:', error);
+    throw error;
+  } finally {
+    client.release();
+  }
+}
+
 async function setupDatabase() {
   try {
     await createTables();
+    await createOrderPartitioning();
     await loadUsersData();
     await loadOrdersData();
+    await createChangeNotifications();
     await runVerificationQueries();
     console.log('\n✅ Database setup completed successfully!');
   } catch (error) {